@@ -21,6 +21,7 @@ import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -34,6 +35,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +54,9 @@ public class PinotBrokerDebug {
   @Inject
   private TimeBoundaryService _timeBoundaryService;
 
+  @Inject
+  private ServerLoadTracker _serverLoadTracker;
+
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/routingTable/{tableName}")
@@ -102,4 +107,30 @@ public class PinotBrokerDebug {
       throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
     }
   }
+
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  @Path("/serverLoad")
+  @ApiOperation(value = "Debugging server load used by the adaptive routing")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "Latency, in-flight requests and score of each server"),
+      @ApiResponse(code = 500, message = "Internal server error")
+  })
+  public String debugServerLoad() {
+    try {
+      JSONObject response = new JSONObject();
+      for (String instanceName : _serverLoadTracker.getInstanceNames()) {
+        JSONObject serverLoad = new JSONObject();
+        serverLoad.put("latencyMs", _serverLoadTracker.getLatencyMs(instanceName));
+        serverLoad.put("numInFlightRequests", _serverLoadTracker.getNumInFlightRequests(instanceName));
+        serverLoad.put("score", _serverLoadTracker.getScore(instanceName));
+        response.put(instanceName, serverLoad);
+      }
+      return response.toString(2);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while processing GET request", e);
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.UNCAUGHT_GET_EXCEPTIONS, 1);
+      throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+    }
+  }
 }
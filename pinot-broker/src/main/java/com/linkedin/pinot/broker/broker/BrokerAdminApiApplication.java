@@ -20,6 +20,7 @@ import com.linkedin.pinot.broker.requesthandler.BrokerRequestHandler;
 import com.linkedin.pinot.broker.routing.RoutingTable;
 import com.linkedin.pinot.broker.routing.TimeBoundaryService;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
 import io.swagger.jaxrs.config.BeanConfig;
 import java.net.URI;
 import java.net.URL;
@@ -46,6 +47,7 @@ public class BrokerAdminApiApplication extends ResourceConfig {
         bind(brokerServerBuilder).to(BrokerServerBuilder.class);
         bind(brokerServerBuilder.getRoutingTable()).to(RoutingTable.class);
         bind(brokerServerBuilder.getTimeBoundaryService()).to(TimeBoundaryService.class);
+        bind(brokerServerBuilder.getServerLoadTracker()).to(ServerLoadTracker.class);
         bind(brokerServerBuilder.getBrokerMetrics()).to(BrokerMetrics.class);
         bind(brokerServerBuilder.getBrokerRequestHandler()).to(BrokerRequestHandler.class);
       }
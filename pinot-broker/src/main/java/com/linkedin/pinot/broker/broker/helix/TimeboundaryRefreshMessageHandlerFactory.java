@@ -26,19 +26,24 @@ import org.apache.helix.model.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 // Handle the TimeboundaryRefresh message. The Timeboundary refresh requests are handled asynchronously: i.e., they are
 // first put into a request map first. The map dedups requests by their tables thus multiple requests for the same
-// table only needs to be executed once. A background thread periodically checks the map and performs refreshing for
-// all the tables in the map.
+// table only needs to be executed once, with the segments refreshed since the last execution. A background thread
+// periodically checks the map and performs refreshing for all the tables in the map.
 public class TimeboundaryRefreshMessageHandlerFactory implements MessageHandlerFactory {
     private static final Logger LOGGER = LoggerFactory.getLogger(TimeboundaryRefreshMessageHandlerFactory.class);
     private final HelixExternalViewBasedRouting _helixExternalViewBasedRouting;
-    // A map to store the unique requests (i.e., the table names) to refresh the TimeBoundaryInfo of a pinot table.
-    // Ideally a Hashset will suffice but Java util currently does not have Hashset.
-    private static ConcurrentHashMap<String, Boolean> _tablesToRefreshmap = new ConcurrentHashMap<>();
+    // Marker for the requests without segment name, where the ZK metadata of all segments of the table are re-read.
+    private static final Set<String> ALL_SEGMENTS = Collections.emptySet();
+    // A map to store the unique requests (i.e., the table names) to refresh the TimeBoundaryInfo of a pinot table, and
+    // the segments refreshed for the table (or ALL_SEGMENTS). The sets are only accessed inside the map operations.
+    private static ConcurrentHashMap<String, Set<String>> _tablesToRefreshmap = new ConcurrentHashMap<>();
     private boolean shuttingDown;
 
     /**
@@ -83,6 +88,7 @@ public class TimeboundaryRefreshMessageHandlerFactory implements MessageHandlerF
 
     private class TimeboundaryRefreshMessageHandler extends MessageHandler{
         private final String _tableNameWithType;
+        private final String _segmentName;
         private final Logger _logger;
 
 
@@ -90,6 +96,7 @@ public class TimeboundaryRefreshMessageHandlerFactory implements MessageHandlerF
             super(message, context);
             // The partition name field stores the table name.
             _tableNameWithType = message.getPartitionName();
+            _segmentName = message.getSegmentName();
             _logger = LoggerFactory.getLogger(_tableNameWithType + "-" + TimeboundaryRefreshMessageHandler.class);
         }
 
@@ -98,7 +105,16 @@ public class TimeboundaryRefreshMessageHandlerFactory implements MessageHandlerF
             HelixTaskResult result = new HelixTaskResult();
             // Put the segment refresh request to a request queue instead of executing immediately. This will reduce the
             // burst of requests when a large number of segments are updated in a short time span.
-            _tablesToRefreshmap.put(_tableNameWithType, Boolean.TRUE);
+            _tablesToRefreshmap.compute(_tableNameWithType, (table, segments) -> {
+                if (_segmentName == null || segments == ALL_SEGMENTS) {
+                    return ALL_SEGMENTS;
+                }
+                if (segments == null) {
+                    segments = new HashSet<>();
+                }
+                segments.add(_segmentName);
+                return segments;
+            });
             result.setSuccess(true);
             return result;
         }
@@ -118,14 +134,22 @@ public class TimeboundaryRefreshMessageHandlerFactory implements MessageHandlerF
         public void run() {
             while(!shuttingDown) {
                 try {
-                    ConcurrentHashMap.KeySetView<String, Boolean> tables = _tablesToRefreshmap.keySet();
+                    ConcurrentHashMap.KeySetView<String, Set<String>> tables = _tablesToRefreshmap.keySet();
                     Iterator<String> tableItr = tables.iterator();
                     while(tableItr.hasNext()) {
                         String table = tableItr.next();
+                        // Remove the table name from the underlying hashmap before refreshing, so that the segments
+                        // refreshed in the meantime are handled in the next round.
+                        Set<String> segments = _tablesToRefreshmap.remove(table);
+                        if (segments == null) {
+                            continue;
+                        }
                         _logger.info("Update time boundary info for table {} ", table);
-                        _helixExternalViewBasedRouting.updateTimeBoundary(table);
-                        // Remove the table name from the underlying hashmap.
-                        tableItr.remove();
+                        if (segments == ALL_SEGMENTS) {
+                            _helixExternalViewBasedRouting.updateTimeBoundary(table);
+                        } else {
+                            _helixExternalViewBasedRouting.updateTimeBoundary(table, segments);
+                        }
                     }
                     Thread.sleep(_sleepTimeInMilliseconds);
                 } catch (InterruptedException e) {
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.pruner;
+
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.data.TimeFieldSpec;
+import com.linkedin.pinot.common.data.TimeGranularitySpec;
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>RoutingTableSegmentPruner</code> class prunes the segments from the routing table of a table based on the
+ * segment ZK metadata cached on the broker, so that the servers are never queried for the segments that cannot match
+ * the query.
+ * <p>The segment ZK metadata are loaded when the table is added, and kept in sync on external view change (new
+ * segments are read, deleted segments are dropped, and consuming segments are re-read until they are committed) and
+ * on segment refresh (only the refreshed segments are re-read).
+ * <p>Pruning is based on:
+ * <ul>
+ *   <li> Time range of the segment (only for tables with EPOCH time format) </li>
+ *   <li> Partition metadata of the segment (optional, not needed when the routing table builder is partition aware)
+ *   </li>
+ * </ul>
+ */
+public class RoutingTableSegmentPruner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RoutingTableSegmentPruner.class);
+  private static final String PARTITION_METADATA_PRUNER = "PartitionZKMetadataPruner";
+
+  private final String _tableNameWithType;
+  private final CommonConstants.Helix.TableType _tableType;
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private final BrokerMetrics _brokerMetrics;
+  private final SegmentZKMetadataPrunerService _prunerService;
+  private final Map<String, SegmentZKMetadata> _segmentZKMetadataMap = new ConcurrentHashMap<>();
+
+  private volatile boolean _loaded = false;
+
+  public RoutingTableSegmentPruner(@Nonnull String tableNameWithType,
+      @Nonnull ZkHelixPropertyStore<ZNRecord> propertyStore, @Nullable BrokerMetrics brokerMetrics,
+      boolean enablePartitionPruning) {
+    _tableNameWithType = tableNameWithType;
+    _tableType = TableNameBuilder.getTableTypeFromTableName(tableNameWithType);
+    _propertyStore = propertyStore;
+    _brokerMetrics = brokerMetrics;
+
+    List<SegmentZKMetadataPruner> pruners = new ArrayList<>();
+    Schema schema = ZKMetadataProvider.getTableSchema(propertyStore, tableNameWithType);
+    TimeFieldSpec timeFieldSpec = schema != null ? schema.getTimeFieldSpec() : null;
+    if (timeFieldSpec != null) {
+      TimeGranularitySpec timeGranularitySpec = timeFieldSpec.getOutgoingGranularitySpec();
+      // Segment start/end time are converted to millis for SIMPLE_DATE_FORMAT, which cannot be compared with the time
+      // values in the query
+      if (timeGranularitySpec.getTimeFormat().equals(TimeGranularitySpec.TimeFormat.EPOCH.toString())) {
+        LOGGER.info("Adding time pruner on column: {} for table: {}", timeFieldSpec.getName(), tableNameWithType);
+        pruners.add(new TimeZKMetadataPruner(timeFieldSpec.getName(), timeGranularitySpec.getTimeType()));
+      }
+    }
+    if (enablePartitionPruning) {
+      LOGGER.info("Adding partition pruner for table: {}", tableNameWithType);
+      pruners.add(SegmentZKMetadataPrunerProvider.getSegmentPruner(PARTITION_METADATA_PRUNER));
+    }
+    _prunerService = new SegmentZKMetadataPrunerService(pruners);
+  }
+
+  /**
+   * Updates the cached segment ZK metadata on external view change.
+   */
+  public void onExternalViewChange(@Nonnull ExternalView externalView) {
+    if (!_loaded) {
+      refresh();
+      return;
+    }
+
+    Set<String> segments = externalView.getPartitionSet();
+    _segmentZKMetadataMap.keySet().retainAll(segments);
+    int numSegmentsRead = 0;
+    for (String segment : segments) {
+      SegmentZKMetadata segmentZKMetadata = _segmentZKMetadataMap.get(segment);
+      if (segmentZKMetadata == null || isConsuming(segmentZKMetadata)) {
+        segmentZKMetadata = readSegmentZKMetadata(segment);
+        if (segmentZKMetadata != null) {
+          _segmentZKMetadataMap.put(segment, segmentZKMetadata);
+        }
+        numSegmentsRead++;
+      }
+    }
+    LOGGER.info("Read ZK metadata for {} segments for table: {}, {} segments cached", numSegmentsRead,
+        _tableNameWithType, _segmentZKMetadataMap.size());
+  }
+
+  /**
+   * Re-reads the ZK metadata for the given segments on segment refresh, where the segment ZK metadata changes without
+   * external view change. Reads the ZK metadata for all segments if they are not loaded yet.
+   */
+  public void refreshSegments(@Nonnull Collection<String> segments) {
+    if (!_loaded) {
+      refresh();
+      return;
+    }
+
+    for (String segment : segments) {
+      SegmentZKMetadata segmentZKMetadata = readSegmentZKMetadata(segment);
+      if (segmentZKMetadata != null) {
+        _segmentZKMetadataMap.put(segment, segmentZKMetadata);
+      } else {
+        _segmentZKMetadataMap.remove(segment);
+      }
+    }
+    LOGGER.info("Refreshed ZK metadata for {} segments for table: {}", segments.size(), _tableNameWithType);
+  }
+
+  /**
+   * Re-reads the ZK metadata for all segments of the table.
+   */
+  public void refresh() {
+    List<? extends SegmentZKMetadata> segmentZKMetadataList;
+    if (_tableType == CommonConstants.Helix.TableType.OFFLINE) {
+      segmentZKMetadataList =
+          ZKMetadataProvider.getOfflineSegmentZKMetadataListForTable(_propertyStore, _tableNameWithType);
+    } else {
+      segmentZKMetadataList =
+          ZKMetadataProvider.getRealtimeSegmentZKMetadataListForTable(_propertyStore, _tableNameWithType);
+    }
+    Map<String, SegmentZKMetadata> segmentZKMetadataMap = new HashMap<>();
+    for (SegmentZKMetadata segmentZKMetadata : segmentZKMetadataList) {
+      segmentZKMetadataMap.put(segmentZKMetadata.getSegmentName(), segmentZKMetadata);
+    }
+    _segmentZKMetadataMap.putAll(segmentZKMetadataMap);
+    _segmentZKMetadataMap.keySet().retainAll(segmentZKMetadataMap.keySet());
+    _loaded = true;
+    LOGGER.info("Refreshed ZK metadata for {} segments for table: {}", segmentZKMetadataMap.size(),
+        _tableNameWithType);
+  }
+
+  /**
+   * Prunes the segments that cannot match the query from the given routing table.
+   * <p>Returns the given routing table if no segment is pruned, or a new routing table without the pruned segments
+   * (and the servers without any remaining segment). At least one segment is kept so that the query still gets a
+   * valid (empty) response from the server.
+   *
+   * @param brokerRequest Broker request
+   * @param routingTable Map from server to segments
+   * @return Routing table with the pruned segments removed
+   */
+  @Nonnull
+  public Map<String, List<String>> prune(@Nonnull BrokerRequest brokerRequest,
+      @Nonnull Map<String, List<String>> routingTable) {
+    if (routingTable.isEmpty()) {
+      return routingTable;
+    }
+
+    SegmentPrunerContext prunerContext = new SegmentPrunerContext(brokerRequest);
+    Map<String, List<String>> prunedRoutingTable = null;
+    int numSegmentsPruned = 0;
+    String firstServer = null;
+    String firstSegment = null;
+    for (Map.Entry<String, List<String>> entry : routingTable.entrySet()) {
+      String server = entry.getKey();
+      List<String> segments = entry.getValue();
+      List<String> selectedSegments = null;
+      int numSegments = segments.size();
+      for (int i = 0; i < numSegments; i++) {
+        String segment = segments.get(i);
+        if (firstSegment == null) {
+          firstServer = server;
+          firstSegment = segment;
+        }
+        SegmentZKMetadata segmentZKMetadata = _segmentZKMetadataMap.get(segment);
+        if (segmentZKMetadata != null && _prunerService.prune(segmentZKMetadata, prunerContext)) {
+          // Lazily copy the segments not pruned so far
+          if (selectedSegments == null) {
+            selectedSegments = new ArrayList<>(segments.subList(0, i));
+          }
+          numSegmentsPruned++;
+        } else if (selectedSegments != null) {
+          selectedSegments.add(segment);
+        }
+      }
+
+      if (selectedSegments != null && prunedRoutingTable == null) {
+        // Lazily copy the servers processed so far
+        prunedRoutingTable = new HashMap<>();
+        for (Map.Entry<String, List<String>> processedEntry : routingTable.entrySet()) {
+          if (processedEntry.getKey().equals(server)) {
+            break;
+          }
+          prunedRoutingTable.put(processedEntry.getKey(), processedEntry.getValue());
+        }
+      }
+      if (prunedRoutingTable != null) {
+        List<String> segmentsToQuery = selectedSegments != null ? selectedSegments : segments;
+        if (!segmentsToQuery.isEmpty()) {
+          prunedRoutingTable.put(server, segmentsToQuery);
+        }
+      }
+    }
+
+    if (prunedRoutingTable == null) {
+      return routingTable;
+    }
+    if (prunedRoutingTable.isEmpty()) {
+      List<String> segments = new ArrayList<>(1);
+      segments.add(firstSegment);
+      prunedRoutingTable.put(firstServer, segments);
+      numSegmentsPruned--;
+    }
+    if (_brokerMetrics != null && numSegmentsPruned > 0) {
+      _brokerMetrics.addMeteredTableValue(_tableNameWithType, BrokerMeter.SEGMENTS_PRUNED_BY_BROKER,
+          numSegmentsPruned);
+    }
+    return prunedRoutingTable;
+  }
+
+  private boolean isConsuming(SegmentZKMetadata segmentZKMetadata) {
+    return segmentZKMetadata instanceof RealtimeSegmentZKMetadata
+        && ((RealtimeSegmentZKMetadata) segmentZKMetadata).getStatus() == Status.IN_PROGRESS;
+  }
+
+  @Nullable
+  private SegmentZKMetadata readSegmentZKMetadata(String segment) {
+    if (_tableType == CommonConstants.Helix.TableType.OFFLINE) {
+      return ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, _tableNameWithType, segment);
+    } else {
+      return ZKMetadataProvider.getRealtimeSegmentZKMetadata(_propertyStore, _tableNameWithType, segment);
+    }
+  }
+}
@@ -18,6 +18,8 @@ package com.linkedin.pinot.broker.pruner;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
+import java.util.List;
+import org.apache.commons.lang.math.LongRange;
 
 
 /**
@@ -29,6 +31,8 @@ import com.linkedin.pinot.common.utils.request.RequestUtils;
 public class SegmentPrunerContext {
   BrokerRequest _brokerRequest;
   FilterQueryTree _filterQueryTree;
+  // Lazily computed by the time pruner, null if not computed yet
+  List<LongRange> _timeRanges;
 
   public SegmentPrunerContext(BrokerRequest brokerRequest) {
     _brokerRequest = brokerRequest;
@@ -42,4 +46,12 @@ public class SegmentPrunerContext {
   public FilterQueryTree getFilterQueryTree() {
     return _filterQueryTree;
   }
+
+  public List<LongRange> getTimeRanges() {
+    return _timeRanges;
+  }
+
+  public void setTimeRanges(List<LongRange> timeRanges) {
+    _timeRanges = timeRanges;
+  }
 }
@@ -44,6 +44,15 @@ public class SegmentZKMetadataPrunerService {
     }
   }
 
+  /**
+   * Constructor for the class.
+   *
+   * @param pruners Pruners to register with the service.
+   */
+  public SegmentZKMetadataPrunerService(@Nonnull List<SegmentZKMetadataPruner> pruners) {
+    _pruners = pruners;
+  }
+
   /**
    * This method applies all registered pruners on a given segment metadata.
    * Returns true if any of the pruners deems the segment prune-able, false otherwise.
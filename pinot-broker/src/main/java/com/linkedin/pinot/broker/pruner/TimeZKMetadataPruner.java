@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.pruner;
+
+import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.math.LongRange;
+
+
+/**
+ * Implementation of {@link SegmentZKMetadataPruner} that prunes segment based on the time range (start/end time) in
+ * the segment ZK metadata:
+ * <ul>
+ *   <li> Walks the filter query tree once per query to compute the ranges of the time values that can match the
+ *   predicates on the time column, and caches them in the pruner context.</li>
+ *   <li> Prunes segment when its time range does not overlap with any of these ranges.</li>
+ * </ul>
+ * <p>The time values in the query are compared with the segment start/end time without conversion, so only the
+ * segments with the same time unit as the time column are pruned. Segments still consuming are never pruned.
+ */
+public class TimeZKMetadataPruner implements SegmentZKMetadataPruner {
+  private static final List<LongRange> ALL_TIME_VALUES =
+      Collections.singletonList(new LongRange(Long.MIN_VALUE, Long.MAX_VALUE));
+
+  private final String _timeColumn;
+  private final TimeUnit _timeUnit;
+
+  /**
+   * @param timeColumn Name of the time column
+   * @param timeUnit Time unit of the values of the time column
+   */
+  public TimeZKMetadataPruner(@Nonnull String timeColumn, @Nonnull TimeUnit timeUnit) {
+    _timeColumn = timeColumn;
+    _timeUnit = timeUnit;
+  }
+
+  @Override
+  public boolean prune(SegmentZKMetadata segmentZKMetadata, SegmentPrunerContext prunerContext) {
+    if (segmentZKMetadata instanceof RealtimeSegmentZKMetadata
+        && ((RealtimeSegmentZKMetadata) segmentZKMetadata).getStatus() == Status.IN_PROGRESS) {
+      return false;
+    }
+    long startTime = segmentZKMetadata.getStartTime();
+    long endTime = segmentZKMetadata.getEndTime();
+    if (startTime < 0 || endTime < startTime) {
+      return false;
+    }
+    TimeUnit segmentTimeUnit = segmentZKMetadata.getTimeUnit();
+    if (segmentTimeUnit != null && segmentTimeUnit != _timeUnit) {
+      return false;
+    }
+
+    List<LongRange> timeRanges = prunerContext.getTimeRanges();
+    if (timeRanges == null) {
+      timeRanges = computeTimeRanges(prunerContext.getFilterQueryTree());
+      prunerContext.setTimeRanges(timeRanges);
+    }
+    for (LongRange timeRange : timeRanges) {
+      if (timeRange.getMinimumLong() <= endTime && timeRange.getMaximumLong() >= startTime) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Helper method to compute the sorted and non-overlapping ranges of the time values that can match the filter:
+   * <ul>
+   *   <li> For leaf node on the time column: the values (EQUALITY, IN) or the range (RANGE) of the predicate. </li>
+   *   <li> For other leaf node: all time values. </li>
+   *   <li> For 'AND' node: the intersection of the ranges of its children. </li>
+   *   <li> For 'OR' node: the union of the ranges of its children. </li>
+   * </ul>
+   *
+   * @param filterQueryTree Filter tree for the predicates in the query
+   * @return Ranges of the time values that can match the filter, empty if no value can match.
+   */
+  private List<LongRange> computeTimeRanges(@Nullable FilterQueryTree filterQueryTree) {
+    if (filterQueryTree == null) {
+      return ALL_TIME_VALUES;
+    }
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+    FilterOperator filterOperator = filterQueryTree.getOperator();
+
+    // Non-leaf node
+    if (children != null && !children.isEmpty()) {
+      switch (filterOperator) {
+        case AND:
+          List<LongRange> intersection = ALL_TIME_VALUES;
+          for (FilterQueryTree child : children) {
+            intersection = intersect(intersection, computeTimeRanges(child));
+            if (intersection.isEmpty()) {
+              break;
+            }
+          }
+          return intersection;
+        case OR:
+          List<LongRange> ranges = new ArrayList<>();
+          for (FilterQueryTree child : children) {
+            ranges.addAll(computeTimeRanges(child));
+          }
+          return merge(ranges);
+        default:
+          return ALL_TIME_VALUES;
+      }
+    }
+
+    // Leaf node
+    if (!_timeColumn.equals(filterQueryTree.getColumn())) {
+      return ALL_TIME_VALUES;
+    }
+    try {
+      switch (filterOperator) {
+        case EQUALITY:
+        case IN:
+          List<LongRange> values = new ArrayList<>();
+          for (String value : filterQueryTree.getValue()) {
+            values.add(new LongRange(Long.parseLong(value)));
+          }
+          return merge(values);
+        case RANGE:
+          RangePredicate rangePredicate = new RangePredicate(null, filterQueryTree.getValue());
+          long lowerBound = Long.MIN_VALUE;
+          String lowerBoundary = rangePredicate.getLowerBoundary();
+          if (!lowerBoundary.equals(RangePredicate.UNBOUNDED)) {
+            lowerBound = Long.parseLong(lowerBoundary);
+            if (!rangePredicate.includeLowerBoundary()) {
+              if (lowerBound == Long.MAX_VALUE) {
+                return Collections.emptyList();
+              }
+              lowerBound++;
+            }
+          }
+          long upperBound = Long.MAX_VALUE;
+          String upperBoundary = rangePredicate.getUpperBoundary();
+          if (!upperBoundary.equals(RangePredicate.UNBOUNDED)) {
+            upperBound = Long.parseLong(upperBoundary);
+            if (!rangePredicate.includeUpperBoundary()) {
+              if (upperBound == Long.MIN_VALUE) {
+                return Collections.emptyList();
+              }
+              upperBound--;
+            }
+          }
+          if (lowerBound > upperBound) {
+            return Collections.emptyList();
+          }
+          return Collections.singletonList(new LongRange(lowerBound, upperBound));
+        default:
+          return ALL_TIME_VALUES;
+      }
+    } catch (NumberFormatException e) {
+      // Time values that are not long values (e.g. decimal values) cannot be used for pruning
+      return ALL_TIME_VALUES;
+    }
+  }
+
+  /**
+   * Sorts and merges the overlapping ranges.
+   */
+  private static List<LongRange> merge(List<LongRange> ranges) {
+    if (ranges.size() <= 1) {
+      return ranges;
+    }
+    ranges.sort(Comparator.comparingLong(LongRange::getMinimumLong));
+    List<LongRange> mergedRanges = new ArrayList<>();
+    LongRange current = ranges.get(0);
+    for (int i = 1; i < ranges.size(); i++) {
+      LongRange range = ranges.get(i);
+      if (range.getMinimumLong() <= current.getMaximumLong()) {
+        if (range.getMaximumLong() > current.getMaximumLong()) {
+          current = new LongRange(current.getMinimumLong(), range.getMaximumLong());
+        }
+      } else {
+        mergedRanges.add(current);
+        current = range;
+      }
+    }
+    mergedRanges.add(current);
+    return mergedRanges;
+  }
+
+  /**
+   * Intersects 2 lists of sorted and non-overlapping ranges.
+   */
+  private static List<LongRange> intersect(List<LongRange> ranges1, List<LongRange> ranges2) {
+    List<LongRange> intersection = new ArrayList<>();
+    int index1 = 0;
+    int index2 = 0;
+    while (index1 < ranges1.size() && index2 < ranges2.size()) {
+      LongRange range1 = ranges1.get(index1);
+      LongRange range2 = ranges2.get(index2);
+      long min = Math.max(range1.getMinimumLong(), range2.getMinimumLong());
+      long max = Math.min(range1.getMaximumLong(), range2.getMaximumLong());
+      if (min <= max) {
+        intersection.add(new LongRange(min, max));
+      }
+      // Move forward the range that ends first
+      if (range1.getMaximumLong() < range2.getMaximumLong()) {
+        index1++;
+      } else {
+        index2++;
+      }
+    }
+    return intersection;
+  }
+}
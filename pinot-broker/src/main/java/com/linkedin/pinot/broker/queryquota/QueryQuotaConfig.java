@@ -15,25 +15,18 @@
  */
 package com.linkedin.pinot.broker.queryquota;
 
-import com.google.common.util.concurrent.RateLimiter;
 import javax.annotation.Nonnull;
 
 
 public class QueryQuotaConfig {
 
-  private RateLimiter _rateLimiter;
-  private HitCounter _hitCounter;
+  private QueryQuotaRateLimiter _rateLimiter;
 
-  public QueryQuotaConfig(@Nonnull RateLimiter rateLimiter, @Nonnull HitCounter hitCounter) {
+  public QueryQuotaConfig(@Nonnull QueryQuotaRateLimiter rateLimiter) {
     _rateLimiter = rateLimiter;
-    _hitCounter = hitCounter;
   }
 
-  public RateLimiter getRateLimiter() {
+  public QueryQuotaRateLimiter getRateLimiter() {
     return _rateLimiter;
   }
-
-  public HitCounter getHitCounter() {
-    return _hitCounter;
-  }
 }
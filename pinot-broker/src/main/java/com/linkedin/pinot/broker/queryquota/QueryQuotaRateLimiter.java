@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.queryquota;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Lock-free rate limiter for the query quota, which also counts the hits (both acquired and rejected) over the last
+ * second for the quota utilization metric.
+ * <p>The rate limiter follows the generic cell rate algorithm (equivalent to a token bucket): each request moves the
+ * theoretical arrival time forward by the interval between 2 requests, and a request is rejected if the theoretical
+ * arrival time is ahead of the current time by more than the burst tolerance. So the rate limiter allows bursts of
+ * {@code maxBurstSeconds * permitsPerSecond + 1} requests after being idle.
+ * <p>To avoid contention on high rates, the rate is split across multiple stripes (each with its own theoretical
+ * arrival time on its own cache line), and each thread tries the stripe picked by its thread id first before trying
+ * the other stripes. Both acquiring a permit and getting the hit count take constant time in the common case.
+ */
+@ThreadSafe
+public class QueryQuotaRateLimiter {
+  // Minimum rate per stripe so that low rates are not split into stripes with too few permits
+  private static final double MIN_PERMITS_PER_SECOND_PER_STRIPE = 1000;
+  private static final int MAX_NUM_STRIPES =
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+  // Distance in longs between the stripes in the array to put each stripe on its own cache line
+  private static final int STRIPE_PADDING = 16;
+  private static final long HIT_COUNT_WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
+  private final double _maxBurstSeconds;
+  private volatile Stripes _stripes;
+
+  // Hit count of the current and the last time window, where the hit count over the last second is approximated by the
+  // hit count of the current window plus the hit count of the last window weighted by its overlap with the last second
+  private final LongAdder _currentWindowHitCount = new LongAdder();
+  private final AtomicLong _currentWindowStartNs;
+  private volatile long _lastWindowHitCount;
+
+  public QueryQuotaRateLimiter(double permitsPerSecond, double maxBurstSeconds) {
+    Preconditions.checkArgument(permitsPerSecond > 0, "Permits per second must be positive");
+    Preconditions.checkArgument(maxBurstSeconds >= 0, "Max burst seconds must be non-negative");
+    _maxBurstSeconds = maxBurstSeconds;
+    _stripes = new Stripes(permitsPerSecond, maxBurstSeconds);
+    _currentWindowStartNs = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * Records a hit and tries to acquire a permit. Returns {@code true} if the permit is acquired, {@code false}
+   * otherwise.
+   */
+  public boolean tryAcquire() {
+    long currentTimeNs = System.nanoTime();
+    recordHit(currentTimeNs);
+    return _stripes.tryAcquire(currentTimeNs);
+  }
+
+  public double getRate() {
+    return _stripes._permitsPerSecond;
+  }
+
+  /**
+   * Updates the rate. The burst allowance is fully restored on rate changes.
+   */
+  public void setRate(double permitsPerSecond) {
+    Preconditions.checkArgument(permitsPerSecond > 0, "Permits per second must be positive");
+    _stripes = new Stripes(permitsPerSecond, _maxBurstSeconds);
+  }
+
+  /**
+   * Returns the (approximate) number of hits over the last second.
+   */
+  public int getHitCount() {
+    return getHitCount(System.nanoTime());
+  }
+
+  @VisibleForTesting
+  int getNumStripes() {
+    return _stripes._numStripes;
+  }
+
+  private void recordHit(long currentTimeNs) {
+    long currentWindowStartNs = _currentWindowStartNs.get();
+    long timeInWindowNs = currentTimeNs - currentWindowStartNs;
+    if (timeInWindowNs >= HIT_COUNT_WINDOW_NS) {
+      long newWindowStartNs = currentTimeNs - timeInWindowNs % HIT_COUNT_WINDOW_NS;
+      // Only the thread that moves the window forward rotates the hit counts, hits recorded concurrently might be
+      // counted in either window
+      if (_currentWindowStartNs.compareAndSet(currentWindowStartNs, newWindowStartNs)) {
+        long hitCount = _currentWindowHitCount.sumThenReset();
+        _lastWindowHitCount = timeInWindowNs < 2 * HIT_COUNT_WINDOW_NS ? hitCount : 0L;
+      }
+    }
+    _currentWindowHitCount.increment();
+  }
+
+  private int getHitCount(long currentTimeNs) {
+    long timeInWindowNs = currentTimeNs - _currentWindowStartNs.get();
+    long currentWindowHitCount = _currentWindowHitCount.sum();
+    if (timeInWindowNs < HIT_COUNT_WINDOW_NS) {
+      // Weight the last window with the part still within the last second
+      return (int) (currentWindowHitCount
+          + _lastWindowHitCount * (HIT_COUNT_WINDOW_NS - timeInWindowNs) / HIT_COUNT_WINDOW_NS);
+    }
+    if (timeInWindowNs < 2 * HIT_COUNT_WINDOW_NS) {
+      // No hit since the end of the current window, which becomes the last window
+      return (int) (currentWindowHitCount * (2 * HIT_COUNT_WINDOW_NS - timeInWindowNs) / HIT_COUNT_WINDOW_NS);
+    }
+    return 0;
+  }
+
+  /**
+   * Immutable rate settings with the theoretical arrival time of each stripe.
+   */
+  private static class Stripes {
+    final double _permitsPerSecond;
+    final int _numStripes;
+    final int _stripeMask;
+    // Interval between 2 requests on the same stripe
+    final long _intervalNs;
+    final long _burstToleranceNs;
+    final AtomicLongArray _theoreticalArrivalTimesNs;
+
+    Stripes(double permitsPerSecond, double maxBurstSeconds) {
+      _permitsPerSecond = permitsPerSecond;
+      int numStripes = (int) Math.min(MAX_NUM_STRIPES, permitsPerSecond / MIN_PERMITS_PER_SECOND_PER_STRIPE);
+      _numStripes = numStripes > 1 ? Integer.highestOneBit(numStripes) : 1;
+      _stripeMask = _numStripes - 1;
+      _intervalNs = (long) (TimeUnit.SECONDS.toNanos(1) * _numStripes / permitsPerSecond);
+      _burstToleranceNs = (long) (TimeUnit.SECONDS.toNanos(1) * maxBurstSeconds);
+      // Start with the full burst allowance
+      _theoreticalArrivalTimesNs = new AtomicLongArray(_numStripes * STRIPE_PADDING);
+      long currentTimeNs = System.nanoTime();
+      for (int i = 0; i < _numStripes; i++) {
+        _theoreticalArrivalTimesNs.set(i * STRIPE_PADDING, currentTimeNs);
+      }
+    }
+
+    boolean tryAcquire(long currentTimeNs) {
+      int startStripe = (int) Thread.currentThread().getId() & _stripeMask;
+      for (int i = 0; i < _numStripes; i++) {
+        if (tryAcquire(((startStripe + i) & _stripeMask) * STRIPE_PADDING, currentTimeNs)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean tryAcquire(int index, long currentTimeNs) {
+      while (true) {
+        long theoreticalArrivalTimeNs = _theoreticalArrivalTimesNs.get(index);
+        if (theoreticalArrivalTimeNs - currentTimeNs > _burstToleranceNs) {
+          return false;
+        }
+        long newTheoreticalArrivalTimeNs = Math.max(theoreticalArrivalTimeNs, currentTimeNs) + _intervalNs;
+        if (_theoreticalArrivalTimesNs.compareAndSet(index, theoreticalArrivalTimeNs, newTheoreticalArrivalTimeNs)) {
+          return true;
+        }
+      }
+    }
+  }
+}
@@ -17,7 +17,6 @@ package com.linkedin.pinot.broker.queryquota;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
-import com.google.common.util.concurrent.RateLimiter;
 import com.linkedin.pinot.common.config.QuotaConfig;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
@@ -46,10 +45,19 @@ public class TableQueryQuotaManager {
   private final HelixManager _helixManager;
   private final AtomicInteger _lastKnownBrokerResourceVersion;
   private final Map<String, QueryQuotaConfig> _rateLimiterMap;
-  private static final int TIME_RANGE_IN_SECOND = 1;
+  private final double _maxBurstSeconds;
 
   public TableQueryQuotaManager(HelixManager helixManager) {
+    this(helixManager, CommonConstants.Broker.DEFAULT_BROKER_QUERY_QUOTA_MAX_BURST_SECONDS);
+  }
+
+  /**
+   * @param helixManager helix manager.
+   * @param maxBurstSeconds burst allowance of the rate limiters, in seconds of the per-broker rate.
+   */
+  public TableQueryQuotaManager(HelixManager helixManager, double maxBurstSeconds) {
     _helixManager = helixManager;
+    _maxBurstSeconds = maxBurstSeconds;
     _rateLimiterMap = new ConcurrentHashMap<>();
     _lastKnownBrokerResourceVersion = new AtomicInteger();
   }
@@ -167,7 +175,7 @@ public class TableQueryQuotaManager {
 
     double perBrokerRate = overallRate / onlineCount;
     QueryQuotaConfig queryQuotaConfig =
-        new QueryQuotaConfig(RateLimiter.create(perBrokerRate), new HitCounter(TIME_RANGE_IN_SECOND));
+        new QueryQuotaConfig(new QueryQuotaRateLimiter(perBrokerRate, _maxBurstSeconds));
     _rateLimiterMap.put(tableNameWithType, queryQuotaConfig);
     LOGGER.info(
         "Rate limiter for table: {} has been initialized. Overall rate: {}. Per-broker rate: {}. Number of online broker instances: {}",
@@ -215,14 +223,14 @@ public class TableQueryQuotaManager {
    * @return true if there's no qps quota for that table, or a token is acquired successfully.
    */
   private boolean tryAcquireToken(String tableNameWithType, QueryQuotaConfig queryQuotaConfig) {
-    // Use hit counter to count the number of hits.
-    queryQuotaConfig.getHitCounter().hit();
-
-    RateLimiter rateLimiter = queryQuotaConfig.getRateLimiter();
+    QueryQuotaRateLimiter rateLimiter = queryQuotaConfig.getRateLimiter();
     double perBrokerRate = rateLimiter.getRate();
 
+    // The rate limiter also counts the number of hits.
+    boolean acquired = rateLimiter.tryAcquire();
+
     // Emit the qps capacity utilization rate.
-    int numHits = queryQuotaConfig.getHitCounter().getHitCount();
+    int numHits = rateLimiter.getHitCount();
     if (_brokerMetrics != null) {
       int percentageOfCapacityUtilization = (int) (numHits * 100 / perBrokerRate);
       LOGGER.debug("The percentage of rate limit capacity utilization is {}", percentageOfCapacityUtilization);
@@ -230,7 +238,7 @@ public class TableQueryQuotaManager {
           percentageOfCapacityUtilization);
     }
 
-    if (!rateLimiter.tryAcquire()) {
+    if (!acquired) {
       LOGGER.info("Quota is exceeded for table: {}. Per-broker rate: {}. Current qps: {}", tableNameWithType,
           perBrokerRate, numHits);
       return false;
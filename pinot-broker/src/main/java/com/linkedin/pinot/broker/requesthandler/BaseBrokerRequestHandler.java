@@ -34,11 +34,14 @@ import com.linkedin.pinot.common.request.FilterQueryMap;
 import com.linkedin.pinot.common.response.BrokerResponse;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
 import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
 import com.linkedin.pinot.core.query.reduce.BrokerReduceService;
+import com.linkedin.pinot.pql.parsers.CachingPql2Compiler;
 import com.linkedin.pinot.pql.parsers.Pql2Compiler;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -58,7 +61,6 @@ import static com.linkedin.pinot.common.utils.CommonConstants.Broker.Request.*;
 @ThreadSafe
 public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(BaseBrokerRequestHandler.class);
-  private static final Pql2Compiler REQUEST_COMPILER = new Pql2Compiler();
 
   protected final Configuration _config;
   protected final RoutingTable _routingTable;
@@ -70,6 +72,8 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
   protected final AtomicLong _requestIdGenerator = new AtomicLong();
   protected final BrokerRequestOptimizer _brokerRequestOptimizer = new BrokerRequestOptimizer();
   protected final BrokerReduceService _brokerReduceService = new BrokerReduceService();
+  protected final Pql2Compiler _requestCompiler;
+  protected final BrokerResultCache _resultCache;
 
   protected final String _brokerId;
   protected final long _brokerTimeoutMs;
@@ -90,9 +94,18 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     _brokerTimeoutMs = config.getLong(CONFIG_OF_BROKER_TIMEOUT_MS, DEFAULT_BROKER_TIMEOUT_MS);
     _queryResponseLimit = config.getInt(CONFIG_OF_BROKER_QUERY_RESPONSE_LIMIT, DEFAULT_BROKER_QUERY_RESPONSE_LIMIT);
     _queryLogLength = config.getInt(CONFIG_OF_BROKER_QUERY_LOG_LENGTH, DEFAULT_BROKER_QUERY_LOG_LENGTH);
+    long compiledQueryCacheMaxEntries = config.getLong(CONFIG_OF_BROKER_COMPILED_QUERY_CACHE_MAX_ENTRIES,
+        DEFAULT_BROKER_COMPILED_QUERY_CACHE_MAX_ENTRIES);
+    if (compiledQueryCacheMaxEntries > 0) {
+      _requestCompiler = new CachingPql2Compiler(compiledQueryCacheMaxEntries);
+    } else {
+      _requestCompiler = new Pql2Compiler();
+    }
+    _resultCache = BrokerResultCache.create(config, brokerMetrics);
 
-    LOGGER.info("Broker Id: {}, timeout: {}ms, query response limit: {}, query log length: {}", _brokerId,
-        _brokerTimeoutMs, _queryResponseLimit, _queryLogLength);
+    LOGGER.info("Broker Id: {}, timeout: {}ms, query response limit: {}, query log length: {}, compiled query cache "
+            + "max entries: {}, result cache enabled: {}", _brokerId, _brokerTimeoutMs, _queryResponseLimit,
+        _queryLogLength, compiledQueryCacheMaxEntries, _resultCache != null);
   }
 
   private String getDefaultBrokerId() {
@@ -115,7 +128,7 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     long compilationStartTimeNs = System.nanoTime();
     BrokerRequest brokerRequest;
     try {
-      brokerRequest = REQUEST_COMPILER.compileToBrokerRequest(query);
+      brokerRequest = _requestCompiler.compileToBrokerRequest(query);
     } catch (Exception e) {
       LOGGER.info("Caught exception while compiling request {}: {}, {}", requestId, query, e.getMessage());
       _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_EXCEPTIONS, 1);
@@ -202,6 +215,16 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
       LOGGER.debug("Debug options are set to: {} for request {}: {}", debugOptions, requestId, query);
       brokerRequest.setDebugOptions(debugOptions);
     }
+    // Advertise the highest data table version the broker can deserialize, servers respond with a version no higher
+    Map<String, String> queryOptions = brokerRequest.getQueryOptions();
+    if (queryOptions == null) {
+      queryOptions = new HashMap<>();
+      brokerRequest.setQueryOptions(queryOptions);
+    }
+    queryOptions.put(QueryOptionKey.DATA_TABLE_VERSION, Integer.toString(DataTableFactory.LATEST_VERSION));
+    // Use the timeout in the query options if specified, and pass the timeout to the servers
+    long queryTimeoutMs = getQueryTimeoutMs(queryOptions);
+    queryOptions.put(QueryOptionKey.TIMEOUT_MS, Long.toString(queryTimeoutMs));
 
     // Optimize the query
     // TODO: get time column name from schema or table config so that we can apply it for REALTIME only case
@@ -225,6 +248,17 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
 
     // Calculate routing table for the query
     long routingStartTimeNs = System.nanoTime();
+    // NOTE: read the routing table versions before the routing tables so that the cached results are never computed
+    // on routing tables older than the versions
+    // Do not use the result cache for the traced or profiled queries because the trace and profile are per execution
+    boolean useResultCache = _resultCache != null && !brokerRequest.isEnableTrace() && !Boolean.parseBoolean(
+        queryOptions.get(QueryOptionKey.PROFILE));
+    long offlineRoutingTableVersion = 0L;
+    long realtimeRoutingTableVersion = 0L;
+    if (useResultCache) {
+      offlineRoutingTableVersion = BrokerResultCache.getRoutingTableVersion(_routingTable, offlineBrokerRequest);
+      realtimeRoutingTableVersion = BrokerResultCache.getRoutingTableVersion(_routingTable, realtimeBrokerRequest);
+    }
     Map<String, List<String>> offlineRoutingTable = null;
     Map<String, List<String>> realtimeRoutingTable = null;
     if (offlineBrokerRequest != null) {
@@ -251,8 +285,24 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     long routingEndTimeNs = System.nanoTime();
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.QUERY_ROUTING, routingEndTimeNs - routingStartTimeNs);
 
+    // Look up the result cache
+    BrokerResultCache.Key resultCacheKey = null;
+    if (useResultCache) {
+      resultCacheKey = new BrokerResultCache.Key(offlineBrokerRequest, offlineRoutingTableVersion, offlineRoutingTable,
+          realtimeBrokerRequest, realtimeRoutingTableVersion, realtimeRoutingTable);
+      BrokerResponseNative cachedBrokerResponse = _resultCache.get(resultCacheKey, rawTableName);
+      if (cachedBrokerResponse != null) {
+        long totalTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - compilationStartTimeNs);
+        cachedBrokerResponse.setTimeUsedMs(totalTimeMs);
+        LOGGER.info("RequestId:{}, table:{}, timeMs:{}, served from result cache, query:{}", requestId,
+            brokerRequest.getQuerySource().getTableName(), totalTimeMs,
+            StringUtils.substring(query, 0, _queryLogLength));
+        return cachedBrokerResponse;
+      }
+    }
+
     // Execute the query
-    long remainingTimeMs = _brokerTimeoutMs - TimeUnit.NANOSECONDS.toMillis(routingEndTimeNs - compilationStartTimeNs);
+    long remainingTimeMs = queryTimeoutMs - TimeUnit.NANOSECONDS.toMillis(routingEndTimeNs - compilationStartTimeNs);
     ServerStats serverStats = new ServerStats();
     BrokerResponse brokerResponse =
         processBrokerRequest(requestId, brokerRequest, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
@@ -260,6 +310,9 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     long executionEndTimeNs = System.nanoTime();
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.QUERY_EXECUTION,
         executionEndTimeNs - routingEndTimeNs);
+    if (resultCacheKey != null) {
+      _resultCache.put(resultCacheKey, brokerResponse);
+    }
 
     // Track number of queries with number of groups limit reached
     if (brokerResponse.isNumGroupsLimitReached()) {
@@ -314,6 +367,26 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     }
   }
 
+  /**
+   * Helper method to get the query timeout from the query options, or the broker timeout if the query options do not
+   * have a valid timeout.
+   */
+  private long getQueryTimeoutMs(Map<String, String> queryOptions) {
+    String timeoutMsString = queryOptions.get(QueryOptionKey.TIMEOUT_MS);
+    if (timeoutMsString != null) {
+      try {
+        long timeoutMs = Long.parseLong(timeoutMsString);
+        if (timeoutMs > 0) {
+          return timeoutMs;
+        }
+      } catch (NumberFormatException e) {
+        // Fall through to use the broker timeout
+      }
+      LOGGER.debug("Invalid query timeout: {}, using broker timeout: {}ms", timeoutMsString, _brokerTimeoutMs);
+    }
+    return _brokerTimeoutMs;
+  }
+
   /**
    * Helper method to get the time column name for the OFFLINE table name from the time boundary service, or
    * <code>null</code> if the time boundary service does not have the information.
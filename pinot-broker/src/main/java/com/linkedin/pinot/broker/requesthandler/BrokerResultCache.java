@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.linkedin.pinot.broker.routing.RoutingTable;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.utils.EqualityUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.configuration.Configuration;
+
+import static com.linkedin.pinot.common.utils.CommonConstants.Broker.*;
+
+
+/**
+ * The <code>BrokerResultCache</code> class caches the broker responses for the repeated queries.
+ * <p>Results are keyed on the optimized OFFLINE and REALTIME broker requests, together with the routing table versions
+ * and the segments queried, so that any routing table change (e.g. external view change, segment refresh) makes the
+ * previous results unreachable. The cache is bounded by the number of entries with LRU eviction.
+ * <p>Results are also expired after the configured TTL, where results involving the REALTIME table use a much shorter
+ * TTL to bound the staleness for the rows consumed after the result is cached.
+ */
+@ThreadSafe
+public class BrokerResultCache {
+  private final Cache<Key, Entry> _cache;
+  private final long _realtimeTtlMs;
+  private final BrokerMetrics _brokerMetrics;
+
+  public BrokerResultCache(long maxNumEntries, long ttlMs, long realtimeTtlMs, BrokerMetrics brokerMetrics) {
+    _cache =
+        CacheBuilder.newBuilder().maximumSize(maxNumEntries).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+    _realtimeTtlMs = realtimeTtlMs;
+    _brokerMetrics = brokerMetrics;
+  }
+
+  /**
+   * Returns the result cache based on the broker config, or <code>null</code> if the result cache is disabled.
+   */
+  @Nullable
+  public static BrokerResultCache create(Configuration config, BrokerMetrics brokerMetrics) {
+    long maxNumEntries =
+        config.getLong(CONFIG_OF_BROKER_RESULT_CACHE_MAX_ENTRIES, DEFAULT_BROKER_RESULT_CACHE_MAX_ENTRIES);
+    if (maxNumEntries <= 0) {
+      return null;
+    }
+    long ttlMs = config.getLong(CONFIG_OF_BROKER_RESULT_CACHE_TTL_MS, DEFAULT_BROKER_RESULT_CACHE_TTL_MS);
+    long realtimeTtlMs =
+        config.getLong(CONFIG_OF_BROKER_RESULT_CACHE_REALTIME_TTL_MS, DEFAULT_BROKER_RESULT_CACHE_REALTIME_TTL_MS);
+    return new BrokerResultCache(maxNumEntries, ttlMs, realtimeTtlMs, brokerMetrics);
+  }
+
+  /**
+   * Reads the routing table versions for the optimized broker requests.
+   * <p>MUST be called before looking up the routing tables, so that the routing tables are never older than the
+   * versions in the cache key.
+   */
+  public static long getRoutingTableVersion(RoutingTable routingTable, @Nullable BrokerRequest brokerRequest) {
+    if (brokerRequest == null) {
+      return 0L;
+    }
+    return routingTable.getRoutingTableVersion(brokerRequest.getQuerySource().getTableName());
+  }
+
+  /**
+   * Returns a copy of the cached broker response for the given key, or <code>null</code> if the result is not cached
+   * or has expired.
+   */
+  @Nullable
+  public BrokerResponseNative get(@Nonnull Key key, @Nonnull String rawTableName) {
+    Entry entry = _cache.getIfPresent(key);
+    if (entry != null && entry._expirationTimeMs != Long.MAX_VALUE
+        && System.currentTimeMillis() > entry._expirationTimeMs) {
+      _cache.invalidate(key);
+      entry = null;
+    }
+    if (entry == null) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESULT_CACHE_MISSES, 1);
+      return null;
+    }
+    _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESULT_CACHE_HITS, 1);
+    return copyOf(entry._brokerResponse);
+  }
+
+  /**
+   * Caches the broker response for the given key if the response is complete.
+   * <p>Responses with exceptions or missing server responses are never cached.
+   */
+  public void put(@Nonnull Key key, @Nonnull BrokerResponse brokerResponse) {
+    if (!(brokerResponse instanceof BrokerResponseNative) || brokerResponse.getExceptionsSize() > 0
+        || brokerResponse.getNumServersResponded() != brokerResponse.getNumServersQueried()) {
+      return;
+    }
+    // Copy the response so that the cached response is not modified by the caller
+    BrokerResponseNative cachedResponse = copyOf((BrokerResponseNative) brokerResponse);
+    long expirationTimeMs =
+        key._realtimeBrokerRequest != null ? System.currentTimeMillis() + _realtimeTtlMs : Long.MAX_VALUE;
+    _cache.put(key, new Entry(cachedResponse, expirationTimeMs));
+  }
+
+  public long size() {
+    return _cache.size();
+  }
+
+  /**
+   * Helper method to make a copy of the broker response which shares the (read-only) results.
+   */
+  private static BrokerResponseNative copyOf(BrokerResponseNative brokerResponse) {
+    BrokerResponseNative copy = new BrokerResponseNative();
+    copy.setSelectionResults(brokerResponse.getSelectionResults());
+    copy.setAggregationResults(brokerResponse.getAggregationResults());
+    copy.setNumServersQueried(brokerResponse.getNumServersQueried());
+    copy.setNumServersResponded(brokerResponse.getNumServersResponded());
+    copy.setNumDocsScanned(brokerResponse.getNumDocsScanned());
+    copy.setNumEntriesScannedInFilter(brokerResponse.getNumEntriesScannedInFilter());
+    copy.setNumEntriesScannedPostFilter(brokerResponse.getNumEntriesScannedPostFilter());
+    copy.setNumSegmentsQueried(brokerResponse.getNumSegmentsQueried());
+    copy.setNumSegmentsProcessed(brokerResponse.getNumSegmentsProcessed());
+    copy.setNumSegmentsMatched(brokerResponse.getNumSegmentsMatched());
+    copy.setTotalDocs(brokerResponse.getTotalDocs());
+    copy.setNumGroupsLimitReached(brokerResponse.isNumGroupsLimitReached());
+    copy.setTimeUsedMs(brokerResponse.getTimeUsedMs());
+    copy.setSegmentStatistics(new ArrayList<>(brokerResponse.getSegmentStatistics()));
+    copy.setTraceInfo(new HashMap<>(brokerResponse.getTraceInfo()));
+    return copy;
+  }
+
+  /**
+   * Cache key of the query result.
+   * <p>The broker requests MUST NOT be modified after the key is created.
+   */
+  public static class Key {
+    private final BrokerRequest _offlineBrokerRequest;
+    private final long _offlineRoutingTableVersion;
+    private final int _offlineSegmentsHash;
+    private final BrokerRequest _realtimeBrokerRequest;
+    private final long _realtimeRoutingTableVersion;
+    private final int _realtimeSegmentsHash;
+    private final int _hashCode;
+
+    public Key(@Nullable BrokerRequest offlineBrokerRequest, long offlineRoutingTableVersion,
+        @Nullable Map<String, List<String>> offlineRoutingTable, @Nullable BrokerRequest realtimeBrokerRequest,
+        long realtimeRoutingTableVersion, @Nullable Map<String, List<String>> realtimeRoutingTable) {
+      _offlineBrokerRequest = offlineBrokerRequest;
+      _offlineRoutingTableVersion = offlineRoutingTableVersion;
+      _offlineSegmentsHash = getSegmentsHash(offlineRoutingTable);
+      _realtimeBrokerRequest = realtimeBrokerRequest;
+      _realtimeRoutingTableVersion = realtimeRoutingTableVersion;
+      _realtimeSegmentsHash = getSegmentsHash(realtimeRoutingTable);
+
+      int hashCode = offlineBrokerRequest != null ? offlineBrokerRequest.hashCode() : 0;
+      hashCode = 31 * hashCode + Long.hashCode(offlineRoutingTableVersion);
+      hashCode = 31 * hashCode + _offlineSegmentsHash;
+      hashCode = 31 * hashCode + (realtimeBrokerRequest != null ? realtimeBrokerRequest.hashCode() : 0);
+      hashCode = 31 * hashCode + Long.hashCode(realtimeRoutingTableVersion);
+      hashCode = 31 * hashCode + _realtimeSegmentsHash;
+      _hashCode = hashCode;
+    }
+
+    /**
+     * Helper method to compute an order independent hash of the segments in the routing table, so that the same
+     * segments routed to different servers have the same hash.
+     */
+    private static int getSegmentsHash(@Nullable Map<String, List<String>> routingTable) {
+      if (routingTable == null) {
+        return 0;
+      }
+      int segmentsHash = 0;
+      for (List<String> segments : routingTable.values()) {
+        for (String segment : segments) {
+          segmentsHash += segment.hashCode();
+        }
+      }
+      return segmentsHash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return _hashCode == that._hashCode && _offlineRoutingTableVersion == that._offlineRoutingTableVersion
+          && _offlineSegmentsHash == that._offlineSegmentsHash
+          && _realtimeRoutingTableVersion == that._realtimeRoutingTableVersion
+          && _realtimeSegmentsHash == that._realtimeSegmentsHash
+          && EqualityUtils.isEqual(_offlineBrokerRequest, that._offlineBrokerRequest)
+          && EqualityUtils.isEqual(_realtimeBrokerRequest, that._realtimeBrokerRequest);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  private static class Entry {
+    final BrokerResponseNative _brokerResponse;
+    final long _expirationTimeMs;
+
+    Entry(BrokerResponseNative brokerResponse, long expirationTimeMs) {
+      _brokerResponse = brokerResponse;
+      _expirationTimeMs = expirationTimeMs;
+    }
+  }
+}
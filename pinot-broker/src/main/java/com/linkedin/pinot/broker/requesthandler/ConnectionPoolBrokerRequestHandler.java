@@ -39,6 +39,7 @@ import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.conf.TransportClientConf;
 import com.linkedin.pinot.transport.config.ConnectionPoolConfig;
 import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.netty.NettyUtils;
 import com.linkedin.pinot.transport.netty.PooledNettyClientResourceManager;
 import com.linkedin.pinot.transport.pool.KeyedPool;
 import com.linkedin.pinot.transport.pool.KeyedPoolImpl;
@@ -48,7 +49,6 @@ import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
 import com.linkedin.pinot.transport.scattergather.ScatterGatherStats;
 import com.yammer.metrics.core.MetricsRegistry;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.HashedWheelTimer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -94,7 +94,8 @@ public class ConnectionPoolBrokerRequestHandler extends BaseBrokerRequestHandler
     transportClientConf.init(_config.subset(TRANSPORT_CONFIG_PREFIX));
 
     // Set up connection pool
-    _eventLoopGroup = new NioEventLoopGroup();
+    _eventLoopGroup = NettyUtils.createEventLoopGroup(transportClientConf.getNumEventLoopThreads(),
+        transportClientConf.isEpollEnabled());
     // Some of the client metrics use histogram which is doing synchronous operation, which are fixed overhead per
     // request/response
     // TODO: measure the overhead of this
@@ -20,6 +20,7 @@ import com.linkedin.pinot.broker.queryquota.TableQueryQuotaManager;
 import com.linkedin.pinot.broker.routing.RoutingTable;
 import com.linkedin.pinot.broker.routing.TimeBoundaryService;
 import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.BrokerQueryPhase;
@@ -27,23 +28,27 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.BrokerResponse;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.QueryProcessingException;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
-import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.query.reduce.IncrementalReducer;
 import com.linkedin.pinot.core.transport.AsyncQueryResponse;
 import com.linkedin.pinot.core.transport.QueryRouter;
 import com.linkedin.pinot.core.transport.Server;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
 import com.linkedin.pinot.core.transport.ServerResponse;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.configuration.Configuration;
 
+import static com.linkedin.pinot.common.utils.CommonConstants.Broker.*;
+
 
 /**
  * The <code>SingleConnectionBrokerRequestHandler</code> class is a thread-safe broker request handler using a single
- * connection per server to route the queries.
+ * connection (configurable) per server to route the queries.
  */
 @ThreadSafe
 public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandler {
@@ -51,9 +56,24 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
 
   public SingleConnectionBrokerRequestHandler(Configuration config, RoutingTable routingTable,
       TimeBoundaryService timeBoundaryService, AccessControlFactory accessControlFactory,
-      TableQueryQuotaManager tableQueryQuotaManager, BrokerMetrics brokerMetrics) {
+      TableQueryQuotaManager tableQueryQuotaManager, BrokerMetrics brokerMetrics,
+      ServerLoadTracker serverLoadTracker) {
     super(config, routingTable, timeBoundaryService, accessControlFactory, tableQueryQuotaManager, brokerMetrics);
-    _queryRouter = new QueryRouter(_brokerId, brokerMetrics);
+    double hedgedRequestLatencyPercentile = config.getDouble(CONFIG_OF_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE,
+        DEFAULT_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE);
+    double hedgedRequestBudgetRatio =
+        config.getDouble(CONFIG_OF_BROKER_HEDGED_REQUEST_BUDGET_RATIO, DEFAULT_BROKER_HEDGED_REQUEST_BUDGET_RATIO);
+    boolean combineHybridRequests =
+        config.getBoolean(CONFIG_OF_BROKER_COMBINE_HYBRID_REQUESTS, DEFAULT_BROKER_COMBINE_HYBRID_REQUESTS);
+    int numConnectionsPerServer =
+        config.getInt(CONFIG_OF_BROKER_NETTY_CONNECTIONS_PER_SERVER, DEFAULT_BROKER_NETTY_CONNECTIONS_PER_SERVER);
+    int writeBufferHighWaterMark = config.getInt(CONFIG_OF_BROKER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK,
+        DEFAULT_BROKER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK);
+    long maxPendingBytesPerServer = config.getLong(CONFIG_OF_BROKER_NETTY_MAX_PENDING_BYTES_PER_SERVER,
+        DEFAULT_BROKER_NETTY_MAX_PENDING_BYTES_PER_SERVER);
+    _queryRouter = new QueryRouter(_brokerId, brokerMetrics, serverLoadTracker, hedgedRequestLatencyPercentile,
+        hedgedRequestBudgetRatio, combineHybridRequests, numConnectionsPerServer, writeBufferHighWaterMark,
+        maxPendingBytesPerServer);
   }
 
   @Override
@@ -76,35 +96,47 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
     long scatterGatherStartTimeNs = System.nanoTime();
     AsyncQueryResponse asyncQueryResponse =
         _queryRouter.submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable,
-            realtimeBrokerRequest, realtimeRoutingTable, timeoutMs);
-    Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
-    _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER,
-        System.nanoTime() - scatterGatherStartTimeNs);
-    serverStats.setServerStats(asyncQueryResponse.getStats());
+            realtimeBrokerRequest, realtimeRoutingTable, timeoutMs,
+            getSegmentToServersMapForHedging(offlineBrokerRequest),
+            getSegmentToServersMapForHedging(realtimeBrokerRequest));
 
-    // TODO: do not convert Server to ServerInstance
-    int numServersQueried = response.size();
+    // Reduce each server response as soon as it arrives so that only the merged results are kept in memory
+    IncrementalReducer incrementalReducer =
+        _brokerReduceService.getIncrementalReducer(originalBrokerRequest, _brokerMetrics);
+    int numServersQueried = asyncQueryResponse.getNumServersQueried();
+    int numServersResponded = 0;
     long totalResponseSize = 0;
-    Map<ServerInstance, DataTable> dataTableMap = new HashMap<>(numServersQueried);
-    for (Map.Entry<Server, ServerResponse> entry : response.entrySet()) {
-      ServerResponse serverResponse = entry.getValue();
-      DataTable dataTable = serverResponse.getDataTable();
-      if (dataTable != null) {
+    long reduceTimeNs = 0;
+    Map.Entry<Server, ServerResponse> entry;
+    try {
+      while ((entry = asyncQueryResponse.pollResponse()) != null) {
+        // TODO: do not convert Server to ServerInstance
         Server server = entry.getKey();
+        ServerResponse serverResponse = entry.getValue();
+        ServerInstance serverInstance;
         if (server.getTableType() == TableType.OFFLINE) {
-          dataTableMap.put(new ServerInstance(server.getHostName(), server.getPort(), 0), dataTable);
+          serverInstance = new ServerInstance(server.getHostName(), server.getPort(), 0);
         } else {
-          dataTableMap.put(new ServerInstance(server.getHostName(), server.getPort(), 1), dataTable);
+          serverInstance = new ServerInstance(server.getHostName(), server.getPort(), 1);
         }
+        long reduceStartTimeNs = System.nanoTime();
+        incrementalReducer.reduce(serverInstance, serverResponse.getDataTable());
+        reduceTimeNs += System.nanoTime() - reduceStartTimeNs;
+        numServersResponded++;
         totalResponseSize += serverResponse.getResponseSize();
       }
+    } finally {
+      // Data tables are fully consumed by the reducer, release the network buffers they read from
+      asyncQueryResponse.release();
     }
-    int numServersResponded = dataTableMap.size();
+    _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER,
+        System.nanoTime() - scatterGatherStartTimeNs - reduceTimeNs);
+    serverStats.setServerStats(asyncQueryResponse.getStats());
 
     long reduceStartTimeNs = System.nanoTime();
-    BrokerResponseNative brokerResponse =
-        _brokerReduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, _brokerMetrics);
-    _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.REDUCE, System.nanoTime() - reduceStartTimeNs);
+    BrokerResponseNative brokerResponse = incrementalReducer.getBrokerResponse();
+    reduceTimeNs += System.nanoTime() - reduceStartTimeNs;
+    _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.REDUCE, reduceTimeNs);
 
     brokerResponse.setNumServersQueried(numServersQueried);
     brokerResponse.setNumServersResponded(numServersResponded);
@@ -114,9 +146,25 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
     }
     if (numServersQueried > numServersResponded) {
       _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.BROKER_RESPONSES_WITH_PARTIAL_SERVERS_RESPONDED, 1);
+
+      // Return the partial results along with the servers not responded
+      List<String> serversNotResponded = new ArrayList<>();
+      for (Server server : asyncQueryResponse.getServersNotResponded()) {
+        serversNotResponded.add(server.getShortName());
+      }
+      brokerResponse.addToExceptions(new QueryProcessingException(QueryException.BROKER_TIMEOUT_ERROR_CODE,
+          QueryException.BROKER_TIMEOUT_ERROR.getMessage() + ": servers not responded: " + serversNotResponded));
     }
     _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.TOTAL_SERVER_RESPONSE_SIZE, totalResponseSize);
 
     return brokerResponse;
   }
+
+  @Nullable
+  private Map<String, List<String>> getSegmentToServersMapForHedging(@Nullable BrokerRequest brokerRequest) {
+    if (brokerRequest == null) {
+      return null;
+    }
+    return _routingTable.getSegmentToServersMapForHedging(brokerRequest.getQuerySource().getTableName());
+  }
 }
@@ -53,6 +53,18 @@ public class CfgBasedRouting implements RoutingTable {
     return _cfg.getPerTableRoutingCfg().containsKey(tableName);
   }
 
+  @Override
+  public long getRoutingTableVersion(String tableName) {
+    // Routing config never changes
+    return 0L;
+  }
+
+  @Override
+  public Map<String, List<String>> getSegmentToServersMapForHedging(String tableName) {
+    // Hedged requests are not supported
+    return null;
+  }
+
   @Override
   public String dumpSnapshot(String tableName) throws Exception {
     return null;
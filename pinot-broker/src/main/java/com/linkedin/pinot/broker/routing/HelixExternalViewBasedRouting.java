@@ -16,9 +16,13 @@
 package com.linkedin.pinot.broker.routing;
 
 import com.google.common.collect.Sets;
+import com.linkedin.pinot.broker.pruner.RoutingTableSegmentPruner;
+import com.linkedin.pinot.broker.routing.builder.BasePartitionAwareRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.RoutingTableBuilder;
+import com.linkedin.pinot.broker.routing.builder.RoutingTableInstancePruner;
 import com.linkedin.pinot.broker.routing.selector.SegmentSelector;
 import com.linkedin.pinot.broker.routing.selector.SegmentSelectorProvider;
+import com.linkedin.pinot.common.config.RoutingConfig;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
@@ -28,7 +32,9 @@ import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.EqualityUtils;
 import com.linkedin.pinot.common.utils.NetUtil;
 import com.linkedin.pinot.common.utils.helix.HelixHelper;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -37,6 +43,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import org.apache.commons.configuration.Configuration;
 import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
@@ -70,9 +78,16 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   private final Map<String, InstanceConfig> _lastKnownInstanceConfigs = new ConcurrentHashMap<>();
   private final Map<String, Set<String>> _tablesForInstance = new ConcurrentHashMap<>();
   private final Map<String, SegmentSelector> _segmentSelectorMap = new ConcurrentHashMap<>();
+  private final Map<String, Long> _routingTableVersionMap = new ConcurrentHashMap<>();
+  private final AtomicLong _routingTableVersionGenerator = new AtomicLong();
+  private final Set<String> _hedgingEnabledTables = Sets.newConcurrentHashSet();
+  private final Map<String, Map<String, List<String>>> _segmentToServersMapForHedging = new ConcurrentHashMap<>();
+  private final Map<String, RoutingTableSegmentPruner> _segmentPrunerMap = new ConcurrentHashMap<>();
 
   private final HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
+  private final ServerLoadTracker _serverLoadTracker;
   private final HelixManager _helixManager;
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
   private static final int INVALID_EXTERNAL_VIEW_VERSION = Integer.MIN_VALUE;
 
   private BrokerMetrics _brokerMetrics;
@@ -87,9 +102,11 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       Configuration configuration) {
     _configuration = configuration;
     _timeBoundaryService = new HelixExternalViewBasedTimeBoundaryService(propertyStore);
+    _serverLoadTracker = new ServerLoadTracker();
     _routingTableBuilderMap = new HashMap<>();
     _helixManager = helixManager;
-    _routingTableBuilderFactory = new RoutingTableBuilderFactory(_configuration, propertyStore);
+    _propertyStore = propertyStore;
+    _routingTableBuilderFactory = new RoutingTableBuilderFactory(_configuration, propertyStore, _serverLoadTracker);
     _segmentSelectorProvider = new SegmentSelectorProvider(propertyStore);
   }
 
@@ -97,7 +114,13 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   public Map<String, List<String>> getRoutingTable(RoutingTableLookupRequest request) {
     String tableName = request.getTableName();
     RoutingTableBuilder routingTableBuilder = _routingTableBuilderMap.get(tableName);
-    return routingTableBuilder.getRoutingTable(request, _segmentSelectorMap.get(tableName));
+    Map<String, List<String>> routingTable =
+        routingTableBuilder.getRoutingTable(request, _segmentSelectorMap.get(tableName));
+    RoutingTableSegmentPruner segmentPruner = _segmentPrunerMap.get(tableName);
+    if (segmentPruner != null && request.getBrokerRequest() != null) {
+      return segmentPruner.prune(request.getBrokerRequest(), routingTable);
+    }
+    return routingTable;
   }
 
   @Override
@@ -105,6 +128,26 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     return _routingTableBuilderMap.containsKey(tableName);
   }
 
+  @Override
+  public long getRoutingTableVersion(String tableName) {
+    Long routingTableVersion = _routingTableVersionMap.get(tableName);
+    return routingTableVersion != null ? routingTableVersion : 0L;
+  }
+
+  /**
+   * Bump the routing table version for the given table.
+   * <p>Should be called after the routing table or the segments are updated, so that a version read before looking up
+   * the routing table never identifies a newer routing table.
+   */
+  private void updateRoutingTableVersion(String tableName) {
+    _routingTableVersionMap.put(tableName, _routingTableVersionGenerator.incrementAndGet());
+  }
+
+  @Override
+  public Map<String, List<String>> getSegmentToServersMapForHedging(String tableName) {
+    return _segmentToServersMapForHedging.get(tableName);
+  }
+
   public void setBrokerMetrics(BrokerMetrics brokerMetrics) {
     _brokerMetrics = brokerMetrics;
   }
@@ -126,6 +169,29 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       _segmentSelectorMap.put(tableName, segmentSelector);
     }
 
+    // Check whether hedged requests are enabled
+    RoutingConfig routingConfig = tableConfig.getRoutingConfig();
+    if (routingConfig != null && Boolean.parseBoolean(
+        routingConfig.getRoutingTableBuilderOptions().get(RoutingConfig.ENABLE_HEDGED_REQUESTS_KEY))) {
+      LOGGER.info("Hedged requests are enabled for table {}", tableName);
+      _hedgingEnabledTables.add(tableName);
+    } else {
+      _hedgingEnabledTables.remove(tableName);
+      _segmentToServersMapForHedging.remove(tableName);
+    }
+
+    // Check whether segments should be pruned on the broker based on the segment ZK metadata
+    if (routingConfig != null && Boolean.parseBoolean(
+        routingConfig.getRoutingTableBuilderOptions().get(RoutingConfig.ENABLE_BROKER_SEGMENT_PRUNING_KEY))) {
+      LOGGER.info("Broker segment pruning is enabled for table {}", tableName);
+      // Partition aware routing table builder already prunes segments based on the partition metadata
+      boolean enablePartitionPruning = !(routingTableBuilder instanceof BasePartitionAwareRoutingTableBuilder);
+      _segmentPrunerMap.put(tableName,
+          new RoutingTableSegmentPruner(tableName, _propertyStore, _brokerMetrics, enablePartitionPruning));
+    } else {
+      _segmentPrunerMap.remove(tableName);
+    }
+
     // Build the routing table
     if (externalView == null) {
       // It is possible for us to get a request to serve a table for which there is no external view. In this case, just
@@ -255,6 +321,18 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
         segmentSelector.computeOnExternalViewChange();
       }
 
+      // Update the segment to servers map for hedged requests
+      if (_hedgingEnabledTables.contains(tableNameWithType)) {
+        _segmentToServersMapForHedging.put(tableNameWithType,
+            computeSegmentToServersMapForHedging(externalView, instanceConfigs));
+      }
+
+      // Update the segment ZK metadata cached for pruning
+      RoutingTableSegmentPruner segmentPruner = _segmentPrunerMap.get(tableNameWithType);
+      if (segmentPruner != null) {
+        segmentPruner.onExternalViewChange(externalView);
+      }
+
       // Keep track of the instance configs that are used in that routing table
       updateInstanceConfigsMapFromExternalView(relevantInstanceConfigs, instanceConfigs, externalView);
 
@@ -332,17 +410,47 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       LOGGER.error("Failed to update the TimeBoundaryService for {}", tableNameWithType, e);
     }
 
+    updateRoutingTableVersion(tableNameWithType);
+
     long updateTime = System.currentTimeMillis() - startTimeMillis;
 
     if (_brokerMetrics != null) {
       _brokerMetrics.addTimedValue(BrokerTimer.ROUTING_TABLE_UPDATE_TIME, updateTime, TimeUnit.MILLISECONDS);
+      _brokerMetrics.addTimedTableValue(tableNameWithType, BrokerTimer.ROUTING_TABLE_REBUILD_TIME, updateTime,
+          TimeUnit.MILLISECONDS);
     }
 
     LOGGER.info("Routing table update for table {} completed in {} ms", tableNameWithType, updateTime);
   }
 
   public void updateTimeBoundary(String tableName) {
+    updateTimeBoundary(tableName, (Collection<String>) null);
+  }
+
+  /**
+   * Updates the time boundary of the table on segment refresh.
+   *
+   * @param tableName Table name with type
+   * @param refreshedSegments Segments refreshed, or null to re-read the ZK metadata for all segments of the table
+   */
+  public void updateTimeBoundary(String tableName, @Nullable Collection<String> refreshedSegments) {
     updateTimeBoundary(tableName,fetchExternalView(tableName));
+    // Segment ZK metadata (e.g. time range) might change on segment refresh
+    RoutingTableSegmentPruner segmentPruner = _segmentPrunerMap.get(tableName);
+    if (segmentPruner != null) {
+      try {
+        if (refreshedSegments != null) {
+          segmentPruner.refreshSegments(refreshedSegments);
+        } else {
+          segmentPruner.refresh();
+        }
+      } catch (Exception e) {
+        LOGGER.error("Failed to refresh the segment ZK metadata for {}", tableName, e);
+      }
+    }
+    // Time boundary refresh is triggered by segment refresh, where the segments might change without external view
+    // change
+    updateRoutingTableVersion(tableName);
   }
 
   protected void updateTimeBoundary(String tableName, ExternalView externalView) {
@@ -380,6 +488,10 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     LOGGER.info("Trying to remove data table from broker for {}", tableName);
     _routingTableBuilderMap.remove(tableName);
     _lastKnownExternalViewVersionMap.remove(tableName);
+    _routingTableVersionMap.remove(tableName);
+    _hedgingEnabledTables.remove(tableName);
+    _segmentToServersMapForHedging.remove(tableName);
+    _segmentPrunerMap.remove(tableName);
     _lastKnownInstanceConfigsForTable.remove(tableName);
     _timeBoundaryService.remove(tableName);
 
@@ -397,6 +509,31 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     }
   }
 
+  /**
+   * Computes the map from segment to the active servers serving the segment.
+   * <p>Only ONLINE segments are included, so that the requests with CONSUMING segments (which might be at different
+   * offsets on different replicas) are never hedged.
+   */
+  private static Map<String, List<String>> computeSegmentToServersMapForHedging(ExternalView externalView,
+      List<InstanceConfig> instanceConfigs) {
+    Map<String, List<String>> segmentToServersMap = new HashMap<>();
+    RoutingTableInstancePruner instancePruner = new RoutingTableInstancePruner(instanceConfigs);
+    for (String segmentName : externalView.getPartitionSet()) {
+      List<String> servers = new ArrayList<>();
+      for (Map.Entry<String, String> entry : externalView.getStateMap(segmentName).entrySet()) {
+        String serverName = entry.getKey();
+        if (entry.getValue().equals(CommonConstants.Helix.StateModel.SegmentOnlineOfflineStateModel.ONLINE)
+            && !instancePruner.isInactive(serverName)) {
+          servers.add(serverName);
+        }
+      }
+      if (!servers.isEmpty()) {
+        segmentToServersMap.put(segmentName, servers);
+      }
+    }
+    return segmentToServersMap;
+  }
+
   public void processExternalViewChange() {
     long startTime = System.currentTimeMillis();
 
@@ -569,6 +706,10 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     return _timeBoundaryService;
   }
 
+  public ServerLoadTracker getServerLoadTracker() {
+    return _serverLoadTracker;
+  }
+
   @Override
   public String dumpSnapshot(String tableName) throws Exception {
     JSONObject ret = new JSONObject();
@@ -17,6 +17,7 @@ package com.linkedin.pinot.broker.routing;
 
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 
 /**
@@ -40,6 +41,26 @@ public interface RoutingTable {
    */
   boolean routingTableExists(String tableName);
 
+  /**
+   * Get the version of the routing table for the given table, which changes whenever the routing table is rebuilt or
+   * the segments of the table might have changed.
+   * <p>Results computed under different routing table versions might be different even for the same request.
+   *
+   * @param tableName Table name
+   * @return Version of the routing table
+   */
+  long getRoutingTableVersion(String tableName);
+
+  /**
+   * Get the map from segment to the servers serving the segment for the given table, which is used to find the replicas
+   * to hedge the requests to.
+   *
+   * @param tableName Table name
+   * @return Map from segment to servers, or null if hedged requests are not enabled for the table
+   */
+  @Nullable
+  Map<String, List<String>> getSegmentToServersMapForHedging(String tableName);
+
   /**
    * Dump a snapshot of all the routing tables for the given table.
    *
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.broker.routing;
 
+import com.linkedin.pinot.broker.routing.builder.AdaptiveRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.BalancedRandomRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.DefaultOfflineRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.DefaultRealtimeRoutingTableBuilder;
@@ -29,6 +30,7 @@ import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
 import com.linkedin.pinot.core.realtime.stream.StreamConfig;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
 import org.apache.commons.configuration.Configuration;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
@@ -43,6 +45,8 @@ public class RoutingTableBuilderFactory {
 
   private ZkHelixPropertyStore<ZNRecord> _propertyStore;
 
+  private ServerLoadTracker _serverLoadTracker;
+
   enum RoutingTableBuilderName {
     DefaultOffline,
     DefaultRealtime,
@@ -50,12 +54,15 @@ public class RoutingTableBuilderFactory {
     KafkaLowLevel, // This should ideally be LowLevel and HighLevel. But we cannot rename these, else all tables which reference these in the configs will break
     KafkaHighLevel,// We will keep these prefixed with "Kafka", but they are intended to work for any stream
     PartitionAwareOffline,
-    PartitionAwareRealtime
+    PartitionAwareRealtime,
+    Adaptive
   }
 
-  public RoutingTableBuilderFactory(Configuration configuration, ZkHelixPropertyStore<ZNRecord> propertyStore) {
+  public RoutingTableBuilderFactory(Configuration configuration, ZkHelixPropertyStore<ZNRecord> propertyStore,
+      ServerLoadTracker serverLoadTracker) {
     _configuration = configuration;
     _propertyStore = propertyStore;
+    _serverLoadTracker = serverLoadTracker;
   }
 
   public RoutingTableBuilder createRoutingTableBuilder(TableConfig tableConfig, BrokerMetrics brokerMetrics) {
@@ -133,6 +140,14 @@ public class RoutingTableBuilderFactory {
           builder = new DefaultRealtimeRoutingTableBuilder();
         }
         break;
+      case Adaptive:
+        // Only route among ONLINE segments, so not applicable to the realtime table with CONSUMING segments
+        if (tableConfig.getTableType() == TableType.OFFLINE) {
+          builder = new AdaptiveRoutingTableBuilder(_serverLoadTracker);
+        } else {
+          builder = new DefaultRealtimeRoutingTableBuilder();
+        }
+        break;
     }
 
     // TODO: Need to set dynamic routing flag based on table config
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.routing.builder;
+
+import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.broker.routing.selector.SegmentSelector;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+
+
+/**
+ * Routing table builder that picks the server for each segment per query based on the server load observed by the
+ * broker (see {@link ServerLoadTracker}), so that slow or overloaded servers (e.g. during GC pauses) get less queries.
+ * <p>For each segment, two of the servers hosting the segment are picked at random and the one with the lower cost is
+ * selected (power of two choices), where the cost is the server score multiplied by the number of segments already
+ * assigned to the server (plus 1) so that the segments are still spread across the servers.
+ */
+public class AdaptiveRoutingTableBuilder extends BaseRoutingTableBuilder {
+  private final ServerLoadTracker _serverLoadTracker;
+
+  public AdaptiveRoutingTableBuilder(ServerLoadTracker serverLoadTracker) {
+    _serverLoadTracker = serverLoadTracker;
+  }
+
+  @Override
+  public void computeOnExternalViewChange(String tableName, ExternalView externalView,
+      List<InstanceConfig> instanceConfigs) {
+    Map<String, List<String>> segmentToServersMap =
+        internSegmentToServersMap(computeSegmentToServersMapFromExternalView(externalView, instanceConfigs));
+    _segmentToServersMap = segmentToServersMap;
+    _routingTables = computeRoutingTablesFromSegmentToServersMap(segmentToServersMap);
+  }
+
+  @Override
+  public Map<String, List<String>> getRoutingTable(RoutingTableLookupRequest request, SegmentSelector segmentSelector) {
+    // Copy the pointer for snapshot since the pointer for segment to servers map can change at anytime
+    Map<String, List<String>> segmentToServersMap = _segmentToServersMap;
+
+    Set<String> segmentsToQuery = segmentToServersMap.keySet();
+    if (segmentSelector != null) {
+      segmentsToQuery = segmentSelector.selectSegments(request, segmentsToQuery);
+    }
+    return computeAdaptiveRoutingTable(segmentToServersMap, segmentsToQuery);
+  }
+
+  /**
+   * The routing table is computed per query, the pre-computed routing table is only used for debugging purpose.
+   */
+  @Override
+  protected List<Map<String, List<String>>> computeRoutingTablesFromSegmentToServersMap(
+      Map<String, List<String>> segmentToServersMap) {
+    return Collections.singletonList(computeAdaptiveRoutingTable(segmentToServersMap, segmentToServersMap.keySet()));
+  }
+
+  private Map<String, List<String>> computeAdaptiveRoutingTable(Map<String, List<String>> segmentToServersMap,
+      Set<String> segmentsToQuery) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Map<String, Double> serverScores = new HashMap<>();
+    Map<String, List<String>> routingTable = new HashMap<>();
+    for (String segmentName : segmentsToQuery) {
+      List<String> servers = segmentToServersMap.get(segmentName);
+      int numServers = servers.size();
+      String selectedServer;
+      if (numServers == 1) {
+        selectedServer = servers.get(0);
+      } else {
+        int firstIndex = random.nextInt(numServers);
+        int secondIndex = random.nextInt(numServers - 1);
+        if (secondIndex >= firstIndex) {
+          secondIndex++;
+        }
+        String firstServer = servers.get(firstIndex);
+        String secondServer = servers.get(secondIndex);
+        if (getCost(firstServer, serverScores, routingTable) <= getCost(secondServer, serverScores, routingTable)) {
+          selectedServer = firstServer;
+        } else {
+          selectedServer = secondServer;
+        }
+      }
+      routingTable.computeIfAbsent(selectedServer, k -> new ArrayList<>()).add(segmentName);
+    }
+    return routingTable;
+  }
+
+  /**
+   * Helper method to compute the cost of assigning one more segment to the server.
+   * <p>Server scores are read once per routing table so that all the segments are assigned based on the same scores.
+   */
+  private double getCost(String server, Map<String, Double> serverScores, Map<String, List<String>> routingTable) {
+    Double score = serverScores.get(server);
+    if (score == null) {
+      score = _serverLoadTracker.getScore(server);
+      serverScores.put(server, score);
+    }
+    List<String> segments = routingTable.get(server);
+    int numSegmentsAssigned = segments != null ? segments.size() : 0;
+    return score * (numSegmentsAssigned + 1);
+  }
+}
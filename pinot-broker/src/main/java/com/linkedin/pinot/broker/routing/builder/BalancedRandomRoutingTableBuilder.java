@@ -43,6 +43,11 @@ public class BalancedRandomRoutingTableBuilder extends BaseRoutingTableBuilder {
     _numRoutingTables = configuration.getInt(NUM_ROUTING_TABLES_KEY, DEFAULT_NUM_ROUTING_TABLES);
   }
 
+  @Override
+  protected boolean isIncrementalUpdateSupported() {
+    return true;
+  }
+
   protected List<Map<String, List<String>>> computeRoutingTablesFromSegmentToServersMap(
       Map<String, List<String>> segmentToServersMap) {
     List<Map<String, List<String>>> routingTables = new ArrayList<>(_numRoutingTables);
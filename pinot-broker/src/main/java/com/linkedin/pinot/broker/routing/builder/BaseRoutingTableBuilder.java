@@ -15,6 +15,10 @@
  */
 package com.linkedin.pinot.broker.routing.builder;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
 import com.linkedin.pinot.broker.routing.selector.SegmentSelector;
 import com.linkedin.pinot.common.config.RoutingConfig;
@@ -23,12 +27,13 @@ import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.commons.configuration.Configuration;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.model.ExternalView;
@@ -40,10 +45,25 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Base routing table builder class to share common methods between routing table builders.
+ * <p>The segment to servers map and the pre-computed routing tables are immutable, and the lists of servers are
+ * interned so that the segments with the same replicas (and the same segments across rebuilds) share the same list.
+ * <p>For the routing table builders that support it (see {@link #isIncrementalUpdateSupported()}), when only a few
+ * segments changed since the last external view change, the pre-computed routing tables are updated by only
+ * re-assigning the changed segments instead of being rebuilt from scratch, and the unchanged parts are shared with the
+ * previous routing tables.
  */
 public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
   private static final Logger LOGGER = LoggerFactory.getLogger(BaseRoutingTableBuilder.class);
 
+  // Interner for the lists of servers, shared across all tables as tables in the same tenant have the same servers
+  private static final Interner<List<String>> SERVERS_INTERNER = Interners.newWeakInterner();
+  private static final Interner<String> SERVER_NAME_INTERNER = Interners.newWeakInterner();
+
+  // Maximum ratio of changed segments for the routing tables to be updated incrementally
+  private static final double MAX_CHANGED_SEGMENTS_RATIO_FOR_INCREMENTAL_UPDATE = 0.1;
+  // Maximum number of consecutive incremental updates before fully rebuilding the routing tables to re-balance them
+  private static final int MAX_NUM_CONSECUTIVE_INCREMENTAL_UPDATES = 100;
+
   protected final Random _random = new Random();
   private BrokerMetrics _brokerMetrics;
   private String _tableName;
@@ -56,6 +76,10 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
   // A mapping of segments to servers is used for dynamic routing table building process
   protected volatile Map<String, List<String>> _segmentToServersMap;
 
+  // Segment to servers map used to compute the current routing tables, used to compute the changed segments
+  private Map<String, List<String>> _lastSegmentToServersMap;
+  private int _numConsecutiveIncrementalUpdates;
+
   @Override
   public void init(Configuration configuration, TableConfig tableConfig, ZkHelixPropertyStore<ZNRecord> propertyStore,
       BrokerMetrics brokerMetrics) {
@@ -75,11 +99,14 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
 
   protected static String getServerWithLeastSegmentsAssigned(List<String> servers,
       Map<String, List<String>> routingTable) {
-    Collections.shuffle(servers);
+    // Start from a random server to break ties randomly (the list of servers is immutable so it cannot be shuffled)
+    int numServers = servers.size();
+    int startIndex = ThreadLocalRandom.current().nextInt(numServers);
 
     String selectedServer = null;
     int minNumSegmentsAssigned = Integer.MAX_VALUE;
-    for (String server : servers) {
+    for (int i = 0; i < numServers; i++) {
+      String server = servers.get((startIndex + i) % numServers);
       List<String> segments = routingTable.get(server);
       if (segments == null) {
         routingTable.put(server, new ArrayList<>());
@@ -109,19 +136,170 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
   }
 
   @Override
-  public void computeOnExternalViewChange(String tableName, ExternalView externalView,
+  public synchronized void computeOnExternalViewChange(String tableName, ExternalView externalView,
       List<InstanceConfig> instanceConfigs) {
     Map<String, List<String>> segmentToServersMap =
-        computeSegmentToServersMapFromExternalView(externalView, instanceConfigs);
+        internSegmentToServersMap(computeSegmentToServersMapFromExternalView(externalView, instanceConfigs));
 
     if (_enableDynamicComputing) {
       // When dynamic computing is enabled, cache the mapping
       _segmentToServersMap = segmentToServersMap;
     } else {
       // Otherwise, we cache the pre-computed routing tables
-      List<Map<String, List<String>>> routingTables = computeRoutingTablesFromSegmentToServersMap(segmentToServersMap);
-      _routingTables = routingTables;
+      _routingTables = updateRoutingTables(segmentToServersMap);
+    }
+  }
+
+  /**
+   * Returns whether the pre-computed routing tables can be incrementally updated by removing the segments no longer
+   * served and assigning the new segments to the servers with the least segments assigned.
+   */
+  protected boolean isIncrementalUpdateSupported() {
+    return false;
+  }
+
+  /**
+   * Helper method to compute the new pre-computed routing tables, incrementally from the current routing tables if
+   * possible, or from scratch otherwise.
+   */
+  private List<Map<String, List<String>>> updateRoutingTables(Map<String, List<String>> segmentToServersMap) {
+    Map<String, List<String>> lastSegmentToServersMap = _lastSegmentToServersMap;
+    List<Map<String, List<String>>> routingTables = _routingTables;
+    _lastSegmentToServersMap = segmentToServersMap;
+
+    if (isIncrementalUpdateSupported() && lastSegmentToServersMap != null && routingTables != null
+        && _numConsecutiveIncrementalUpdates < MAX_NUM_CONSECUTIVE_INCREMENTAL_UPDATES) {
+      // Compute the segments to be removed from and added to the routing tables
+      Set<String> segmentsToRemove = new HashSet<>();
+      List<String> segmentsToAdd = new ArrayList<>();
+      for (Map.Entry<String, List<String>> entry : lastSegmentToServersMap.entrySet()) {
+        String segmentName = entry.getKey();
+        List<String> servers = segmentToServersMap.get(segmentName);
+        if (servers == null) {
+          segmentsToRemove.add(segmentName);
+        } else if (!servers.equals(entry.getValue())) {
+          segmentsToRemove.add(segmentName);
+          segmentsToAdd.add(segmentName);
+        }
+      }
+      for (String segmentName : segmentToServersMap.keySet()) {
+        if (!lastSegmentToServersMap.containsKey(segmentName)) {
+          segmentsToAdd.add(segmentName);
+        }
+      }
+
+      int numChangedSegments = segmentsToRemove.size() + segmentsToAdd.size();
+      if (numChangedSegments == 0) {
+        LOGGER.info("No segment changed for table {}, keeping the current routing tables", _tableName);
+        return routingTables;
+      }
+      if (numChangedSegments <= Math.max(1,
+          segmentToServersMap.size() * MAX_CHANGED_SEGMENTS_RATIO_FOR_INCREMENTAL_UPDATE)) {
+        LOGGER.info("Incrementally updating routing tables for table {} with {} segments removed and {} segments added",
+            _tableName, segmentsToRemove.size(), segmentsToAdd.size());
+        List<Map<String, List<String>>> updatedRoutingTables = new ArrayList<>(routingTables.size());
+        for (Map<String, List<String>> routingTable : routingTables) {
+          updatedRoutingTables.add(
+              updateRoutingTable(routingTable, segmentToServersMap, segmentsToRemove, segmentsToAdd));
+        }
+        _numConsecutiveIncrementalUpdates++;
+        return updatedRoutingTables;
+      }
+    }
+
+    _numConsecutiveIncrementalUpdates = 0;
+    List<Map<String, List<String>>> newRoutingTables = computeRoutingTablesFromSegmentToServersMap(segmentToServersMap);
+    List<Map<String, List<String>>> immutableRoutingTables = new ArrayList<>(newRoutingTables.size());
+    for (Map<String, List<String>> routingTable : newRoutingTables) {
+      immutableRoutingTables.add(toImmutableRoutingTable(routingTable));
+    }
+    return immutableRoutingTables;
+  }
+
+  /**
+   * Helper method to incrementally update a routing table. Segments are removed from their current server, then added
+   * to the server with the least segments assigned among the servers already in the routing table (or among all the
+   * servers serving the segment if none of them is in the routing table, so that the number of servers hit by the
+   * query stays the same whenever possible). The segment lists of the servers not affected are shared with the given
+   * routing table.
+   */
+  private static Map<String, List<String>> updateRoutingTable(Map<String, List<String>> routingTable,
+      Map<String, List<String>> segmentToServersMap, Set<String> segmentsToRemove, List<String> segmentsToAdd) {
+    Map<String, List<String>> updatedRoutingTable = new HashMap<>(routingTable);
+    Set<String> updatedServers = new HashSet<>();
+
+    if (!segmentsToRemove.isEmpty()) {
+      for (Map.Entry<String, List<String>> entry : routingTable.entrySet()) {
+        List<String> segments = entry.getValue();
+        for (String segmentName : segments) {
+          if (segmentsToRemove.contains(segmentName)) {
+            List<String> remainingSegments = new ArrayList<>(segments.size());
+            for (String segment : segments) {
+              if (!segmentsToRemove.contains(segment)) {
+                remainingSegments.add(segment);
+              }
+            }
+            String server = entry.getKey();
+            updatedRoutingTable.put(server, remainingSegments);
+            updatedServers.add(server);
+            break;
+          }
+        }
+      }
+    }
+
+    for (String segmentName : segmentsToAdd) {
+      List<String> servers = segmentToServersMap.get(segmentName);
+      String selectedServer = null;
+      int minNumSegmentsAssigned = Integer.MAX_VALUE;
+      for (String server : servers) {
+        List<String> segments = updatedRoutingTable.get(server);
+        if (segments != null && segments.size() < minNumSegmentsAssigned) {
+          minNumSegmentsAssigned = segments.size();
+          selectedServer = server;
+        }
+      }
+      if (selectedServer == null) {
+        selectedServer = getServerWithLeastSegmentsAssigned(servers, updatedRoutingTable);
+      }
+      List<String> segments = updatedRoutingTable.get(selectedServer);
+      if (!updatedServers.contains(selectedServer)) {
+        segments = new ArrayList<>(segments);
+        updatedRoutingTable.put(selectedServer, segments);
+        updatedServers.add(selectedServer);
+      }
+      segments.add(segmentName);
+    }
+
+    return toImmutableRoutingTable(updatedRoutingTable);
+  }
+
+  private static Map<String, List<String>> toImmutableRoutingTable(Map<String, List<String>> routingTable) {
+    ImmutableMap.Builder<String, List<String>> builder = ImmutableMap.builder();
+    for (Map.Entry<String, List<String>> entry : routingTable.entrySet()) {
+      List<String> segments = entry.getValue();
+      if (!segments.isEmpty()) {
+        builder.put(entry.getKey(), ImmutableList.copyOf(segments));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Helper method to convert the segment to servers map into an immutable map with interned lists of servers.
+   */
+  protected static Map<String, List<String>> internSegmentToServersMap(Map<String, List<String>> segmentToServersMap) {
+    ImmutableMap.Builder<String, List<String>> builder = ImmutableMap.builder();
+    for (Map.Entry<String, List<String>> entry : segmentToServersMap.entrySet()) {
+      List<String> servers = entry.getValue();
+      int numServers = servers.size();
+      String[] internedServers = new String[numServers];
+      for (int i = 0; i < numServers; i++) {
+        internedServers[i] = SERVER_NAME_INTERNER.intern(servers.get(i));
+      }
+      builder.put(entry.getKey(), SERVERS_INTERNER.intern(ImmutableList.copyOf(internedServers)));
     }
+    return builder.build();
   }
 
   public Map<String, List<String>> getRoutingTable(RoutingTableLookupRequest request, SegmentSelector segmentSelector) {
@@ -301,6 +301,11 @@ public abstract class GeneratorBasedRoutingTableBuilder extends BaseRoutingTable
     return routingTables;
   }
 
+  @Override
+  protected boolean isIncrementalUpdateSupported() {
+    return true;
+  }
+
   /**
    * Returns the number of target servers per query
    */
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.pruner;
+
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link TimeZKMetadataPruner}
+ */
+public class TimeZKMetadataPrunerTest {
+  private static final String TIME_COLUMN = "daysSinceEpoch";
+
+  private final Pql2Compiler _compiler = new Pql2Compiler();
+  private final TimeZKMetadataPruner _pruner = new TimeZKMetadataPruner(TIME_COLUMN, TimeUnit.DAYS);
+
+  @Test
+  public void testPruner() {
+    // Segment with time range [100, 200]
+    SegmentZKMetadata metadata = createSegmentZKMetadata(new OfflineSegmentZKMetadata(), 100, 200, TimeUnit.DAYS);
+
+    // No filter or no predicate on time column
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable"));
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where foo = 'bar'"));
+
+    // EQUALITY and IN
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where daysSinceEpoch = 150"));
+    Assert.assertTrue(prune(metadata, "select count(*) from myTable where daysSinceEpoch = 250"));
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where daysSinceEpoch in (50, 200)"));
+    Assert.assertTrue(prune(metadata, "select count(*) from myTable where daysSinceEpoch in (50, 250)"));
+
+    // RANGE
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where daysSinceEpoch >= 200"));
+    Assert.assertTrue(prune(metadata, "select count(*) from myTable where daysSinceEpoch > 200"));
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where daysSinceEpoch <= 100"));
+    Assert.assertTrue(prune(metadata, "select count(*) from myTable where daysSinceEpoch < 100"));
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where daysSinceEpoch between 50 and 150"));
+    Assert.assertTrue(prune(metadata, "select count(*) from myTable where daysSinceEpoch between 201 and 300"));
+
+    // AND
+    Assert.assertTrue(
+        prune(metadata, "select count(*) from myTable where daysSinceEpoch > 250 and daysSinceEpoch < 300"));
+    Assert.assertTrue(
+        prune(metadata, "select count(*) from myTable where daysSinceEpoch > 150 and daysSinceEpoch < 100"));
+    Assert.assertTrue(prune(metadata, "select count(*) from myTable where daysSinceEpoch = 250 and foo = 'bar'"));
+    Assert.assertFalse(prune(metadata,
+        "select count(*) from myTable where daysSinceEpoch > 50 and daysSinceEpoch < 300 and foo = 'bar'"));
+
+    // OR
+    Assert.assertTrue(
+        prune(metadata, "select count(*) from myTable where daysSinceEpoch < 50 or daysSinceEpoch > 250"));
+    Assert.assertFalse(
+        prune(metadata, "select count(*) from myTable where daysSinceEpoch < 50 or daysSinceEpoch = 150"));
+    Assert.assertFalse(prune(metadata, "select count(*) from myTable where daysSinceEpoch = 250 or foo = 'bar'"));
+
+    // Nested
+    Assert.assertTrue(prune(metadata,
+        "select count(*) from myTable where (daysSinceEpoch < 50 or daysSinceEpoch > 250) and foo = 'bar'"));
+    Assert.assertFalse(prune(metadata,
+        "select count(*) from myTable where (daysSinceEpoch < 50 or daysSinceEpoch > 150) and daysSinceEpoch < 300"));
+  }
+
+  @Test
+  public void testSegmentsNotPruned() {
+    String query = "select count(*) from myTable where daysSinceEpoch = 250";
+
+    // Time unit mismatch
+    Assert.assertFalse(
+        prune(createSegmentZKMetadata(new OfflineSegmentZKMetadata(), 100, 200, TimeUnit.MILLISECONDS), query));
+
+    // No time range
+    Assert.assertFalse(prune(createSegmentZKMetadata(new OfflineSegmentZKMetadata(), -1, -1, TimeUnit.DAYS), query));
+
+    // Consuming segment
+    RealtimeSegmentZKMetadata realtimeMetadata = new RealtimeSegmentZKMetadata();
+    realtimeMetadata.setStatus(Status.IN_PROGRESS);
+    Assert.assertFalse(prune(createSegmentZKMetadata(realtimeMetadata, 100, 200, TimeUnit.DAYS), query));
+    realtimeMetadata.setStatus(Status.DONE);
+    Assert.assertTrue(prune(realtimeMetadata, query));
+  }
+
+  private SegmentZKMetadata createSegmentZKMetadata(SegmentZKMetadata metadata, long startTime, long endTime,
+      TimeUnit timeUnit) {
+    metadata.setStartTime(startTime);
+    metadata.setEndTime(endTime);
+    metadata.setTimeUnit(timeUnit);
+    return metadata;
+  }
+
+  private boolean prune(SegmentZKMetadata metadata, String query) {
+    return _pruner.prune(metadata, new SegmentPrunerContext(_compiler.compileToBrokerRequest(query)));
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.queryquota;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class QueryQuotaRateLimiterTest {
+
+  @Test
+  public void testBurst() {
+    // 10 permits per second with 0.5 second of burst allowance
+    QueryQuotaRateLimiter rateLimiter = new QueryQuotaRateLimiter(10, 0.5);
+    Assert.assertEquals(rateLimiter.getNumStripes(), 1);
+    for (int i = 0; i < 6; i++) {
+      Assert.assertTrue(rateLimiter.tryAcquire());
+    }
+    Assert.assertFalse(rateLimiter.tryAcquire());
+    Assert.assertEquals(rateLimiter.getHitCount(), 7);
+
+    // No burst allowance
+    rateLimiter = new QueryQuotaRateLimiter(10, 0);
+    Assert.assertTrue(rateLimiter.tryAcquire());
+    Assert.assertFalse(rateLimiter.tryAcquire());
+    Uninterruptibles.sleepUninterruptibly(150, TimeUnit.MILLISECONDS);
+    Assert.assertTrue(rateLimiter.tryAcquire());
+    Assert.assertFalse(rateLimiter.tryAcquire());
+  }
+
+  @Test
+  public void testSetRate() {
+    QueryQuotaRateLimiter rateLimiter = new QueryQuotaRateLimiter(1, 0);
+    Assert.assertTrue(rateLimiter.tryAcquire());
+    Assert.assertFalse(rateLimiter.tryAcquire());
+
+    rateLimiter.setRate(1_000_000);
+    Assert.assertEquals(rateLimiter.getRate(), 1_000_000.0);
+    Assert.assertTrue(rateLimiter.getNumStripes() >= 1);
+    Assert.assertTrue(rateLimiter.tryAcquire());
+  }
+
+  @Test
+  public void testHitCount() {
+    QueryQuotaRateLimiter rateLimiter = new QueryQuotaRateLimiter(100, 1);
+    for (int i = 0; i < 10; i++) {
+      rateLimiter.tryAcquire();
+    }
+    Assert.assertEquals(rateLimiter.getHitCount(), 10);
+
+    // Hits should age out of the window
+    Uninterruptibles.sleepUninterruptibly(2100, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(rateLimiter.getHitCount(), 0);
+    rateLimiter.tryAcquire();
+    Assert.assertEquals(rateLimiter.getHitCount(), 1);
+  }
+
+  @Test
+  public void testConcurrency() {
+    double permitsPerSecond = 50_000;
+    double maxBurstSeconds = 0.1;
+    long startTimeNs = System.nanoTime();
+    QueryQuotaRateLimiter rateLimiter = new QueryQuotaRateLimiter(permitsPerSecond, maxBurstSeconds);
+    int numThreads = 16;
+    int numHitsPerThread = 100_000;
+    AtomicInteger numPermitsAcquired = new AtomicInteger();
+
+    List<Thread> threads = new ArrayList<>(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < numHitsPerThread; j++) {
+          if (rateLimiter.tryAcquire()) {
+            numPermitsAcquired.incrementAndGet();
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+    double durationSeconds = (System.nanoTime() - startTimeNs) / 1e9;
+
+    // Permits acquired should be bounded by the rate plus the burst allowance (one extra permit per stripe)
+    double maxPermits = permitsPerSecond * (durationSeconds + maxBurstSeconds) + rateLimiter.getNumStripes();
+    Assert.assertTrue(numPermitsAcquired.get() > 0);
+    Assert.assertTrue(numPermitsAcquired.get() <= maxPermits,
+        "Acquired " + numPermitsAcquired.get() + " permits, expected at most " + maxPermits);
+  }
+}
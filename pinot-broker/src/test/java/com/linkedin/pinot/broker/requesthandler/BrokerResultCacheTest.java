@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class BrokerResultCacheTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final BrokerMetrics BROKER_METRICS = new BrokerMetrics(new MetricsRegistry());
+  private static final String QUERY = "SELECT COUNT(*) FROM myTable_OFFLINE WHERE foo = 'bar'";
+
+  @Test
+  public void testCache() throws Exception {
+    BrokerResultCache resultCache = new BrokerResultCache(10, 3_600_000L, 10_000L, BROKER_METRICS);
+    Map<String, List<String>> routingTable = new HashMap<>();
+    routingTable.put("server1", Arrays.asList("segment1", "segment2"));
+    routingTable.put("server2", Collections.singletonList("segment3"));
+
+    BrokerResultCache.Key key =
+        new BrokerResultCache.Key(COMPILER.compileToBrokerRequest(QUERY), 1L, routingTable, null, 0L, null);
+    Assert.assertNull(resultCache.get(key, "myTable"));
+
+    BrokerResponseNative brokerResponse = getBrokerResponse();
+    resultCache.put(key, brokerResponse);
+    brokerResponse.setTotalDocs(0L);
+
+    // Same request and segments routed to different servers
+    Map<String, List<String>> otherRoutingTable = new HashMap<>();
+    otherRoutingTable.put("server1", Collections.singletonList("segment3"));
+    otherRoutingTable.put("server3", Arrays.asList("segment2", "segment1"));
+    BrokerResultCache.Key sameKey =
+        new BrokerResultCache.Key(COMPILER.compileToBrokerRequest(QUERY), 1L, otherRoutingTable, null, 0L, null);
+    BrokerResponseNative cachedResponse = resultCache.get(sameKey, "myTable");
+    Assert.assertNotNull(cachedResponse);
+    Assert.assertNotSame(cachedResponse, brokerResponse);
+    // Modification on the response should not affect the cached response
+    Assert.assertEquals(cachedResponse.getTotalDocs(), 100L);
+    cachedResponse.setTimeUsedMs(1L);
+    Assert.assertEquals(resultCache.get(sameKey, "myTable").getTimeUsedMs(), 10L);
+
+    // Routing table version changed
+    Assert.assertNull(resultCache.get(
+        new BrokerResultCache.Key(COMPILER.compileToBrokerRequest(QUERY), 2L, routingTable, null, 0L, null),
+        "myTable"));
+
+    // Segments changed
+    Map<String, List<String>> newRoutingTable = new HashMap<>(routingTable);
+    newRoutingTable.put("server3", Collections.singletonList("segment4"));
+    Assert.assertNull(resultCache.get(
+        new BrokerResultCache.Key(COMPILER.compileToBrokerRequest(QUERY), 1L, newRoutingTable, null, 0L, null),
+        "myTable"));
+
+    // Request changed
+    Assert.assertNull(resultCache.get(new BrokerResultCache.Key(
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE WHERE foo = 'baz'"), 1L, routingTable,
+        null, 0L, null), "myTable"));
+  }
+
+  @Test
+  public void testIncompleteResponse() throws Exception {
+    BrokerResultCache resultCache = new BrokerResultCache(10, 3_600_000L, 10_000L, BROKER_METRICS);
+    BrokerResultCache.Key key = new BrokerResultCache.Key(COMPILER.compileToBrokerRequest(QUERY), 1L,
+        Collections.singletonMap("server1", Collections.singletonList("segment1")), null, 0L, null);
+
+    BrokerResponseNative brokerResponse = getBrokerResponse();
+    brokerResponse.setNumServersResponded(1);
+    resultCache.put(key, brokerResponse);
+    Assert.assertNull(resultCache.get(key, "myTable"));
+
+    brokerResponse = new BrokerResponseNative(QueryException.BROKER_TIMEOUT_ERROR);
+    resultCache.put(key, brokerResponse);
+    Assert.assertNull(resultCache.get(key, "myTable"));
+    Assert.assertEquals(resultCache.size(), 0L);
+  }
+
+  @Test
+  public void testRealtimeTtl() throws Exception {
+    BrokerResultCache resultCache = new BrokerResultCache(10, 3_600_000L, 0L, BROKER_METRICS);
+    BrokerRequest realtimeBrokerRequest =
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_REALTIME WHERE foo = 'bar'");
+    BrokerResultCache.Key key = new BrokerResultCache.Key(null, 0L, null, realtimeBrokerRequest, 1L,
+        Collections.singletonMap("server1", Collections.singletonList("segment1")));
+
+    resultCache.put(key, getBrokerResponse());
+    Thread.sleep(10L);
+    Assert.assertNull(resultCache.get(key, "myTable"));
+  }
+
+  private static BrokerResponseNative getBrokerResponse() {
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setNumServersQueried(2);
+    brokerResponse.setNumServersResponded(2);
+    brokerResponse.setTotalDocs(100L);
+    brokerResponse.setTimeUsedMs(10L);
+    return brokerResponse;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.routing.builder;
+
+import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.common.config.TableConfig;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.core.transport.ServerLoadTracker;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class AdaptiveRoutingTableBuilderTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final String[] SERVERS =
+      new String[]{"Server_1.2.3.4_1234", "Server_1.2.3.5_2345", "Server_1.2.3.6_3456"};
+  private static final int NUM_SEGMENTS = 60;
+
+  @Test
+  public void testAdaptiveRouting() throws Exception {
+    ServerLoadTracker serverLoadTracker = new ServerLoadTracker();
+    AdaptiveRoutingTableBuilder routingTableBuilder = new AdaptiveRoutingTableBuilder(serverLoadTracker);
+    TableConfig tableConfig =
+        new TableConfig.Builder(CommonConstants.Helix.TableType.OFFLINE).setTableName(TABLE_NAME).build();
+    routingTableBuilder.init(new BaseConfiguration(), tableConfig, null, null);
+
+    ExternalView externalView = new ExternalView(TABLE_NAME);
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      for (String server : SERVERS) {
+        externalView.setState("segment_" + i, server, "ONLINE");
+      }
+    }
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (String server : SERVERS) {
+      instanceConfigs.add(new InstanceConfig(server));
+    }
+    routingTableBuilder.computeOnExternalViewChange(TABLE_NAME, externalView, instanceConfigs);
+    RoutingTableLookupRequest request = new RoutingTableLookupRequest(TABLE_NAME);
+
+    // Without any server load, segments should be spread across all servers
+    Map<String, List<String>> routingTable = routingTableBuilder.getRoutingTable(request, null);
+    Assert.assertEquals(routingTable.size(), SERVERS.length);
+    checkAllSegmentsRouted(routingTable);
+
+    // Make the first server slow
+    for (int i = 0; i < 10; i++) {
+      for (String server : SERVERS) {
+        serverLoadTracker.recordRequestSent(server);
+        serverLoadTracker.recordResponse(server, server.equals(SERVERS[0]) ? 1000L : 10L);
+      }
+    }
+    routingTable = routingTableBuilder.getRoutingTable(request, null);
+    checkAllSegmentsRouted(routingTable);
+    List<String> segmentsOnSlowServer = routingTable.get(SERVERS[0]);
+    int numSegmentsOnSlowServer = segmentsOnSlowServer != null ? segmentsOnSlowServer.size() : 0;
+    Assert.assertTrue(numSegmentsOnSlowServer < NUM_SEGMENTS / SERVERS.length / 2);
+
+    // Make the second server overloaded with in-flight requests
+    for (int i = 0; i < 10; i++) {
+      serverLoadTracker.recordRequestSent(SERVERS[1]);
+    }
+    routingTable = routingTableBuilder.getRoutingTable(request, null);
+    checkAllSegmentsRouted(routingTable);
+    Assert.assertTrue(routingTable.get(SERVERS[2]).size() > NUM_SEGMENTS / SERVERS.length);
+  }
+
+  private void checkAllSegmentsRouted(Map<String, List<String>> routingTable) {
+    Set<String> segments = new HashSet<>();
+    for (List<String> segmentsForServer : routingTable.values()) {
+      segments.addAll(segmentsForServer);
+    }
+    Assert.assertEquals(segments.size(), NUM_SEGMENTS);
+  }
+}
@@ -18,6 +18,7 @@ package com.linkedin.pinot.broker.routing.builder;
 import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
 import com.linkedin.pinot.common.config.TableConfig;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -91,6 +92,55 @@ public class BalancedRandomRoutingTableBuilderTest {
     Assert.assertEquals(segmentsInRoutingTable, expectedSegments);
   }
 
+  @Test
+  public void testIncrementalUpdate() {
+    BalancedRandomRoutingTableBuilder routingTableBuilder = new BalancedRandomRoutingTableBuilder();
+    List<InstanceConfig> instanceConfigList = getDummyInstanceConfigs();
+
+    // Build routing tables with 100 segments
+    ExternalView externalView = new ExternalView("dummy");
+    for (int i = 0; i < 100; i++) {
+      externalView.setState("segment_" + i, "Server_1.2.3.4_1234", "ONLINE");
+      externalView.setState("segment_" + i, "Server_1.2.3.5_2345", "ONLINE");
+    }
+    routingTableBuilder.computeOnExternalViewChange("dummy", externalView, instanceConfigList);
+    List<Map<String, List<String>>> routingTables = routingTableBuilder.getRoutingTables();
+
+    // Same external view, routing tables should not change
+    routingTableBuilder.computeOnExternalViewChange("dummy", externalView, instanceConfigList);
+    Assert.assertSame(routingTableBuilder.getRoutingTables(), routingTables);
+
+    // Remove one segment, move one segment to another server and add one segment
+    externalView.getRecord().getMapFields().remove("segment_0");
+    externalView.getRecord().getMapFields().remove("segment_1");
+    externalView.setState("segment_1", "Server_1.2.3.6_3456", "ONLINE");
+    externalView.setState("segment_100", "Server_1.2.3.4_1234", "ONLINE");
+    routingTableBuilder.computeOnExternalViewChange("dummy", externalView, instanceConfigList);
+    List<Map<String, List<String>>> updatedRoutingTables = routingTableBuilder.getRoutingTables();
+    Assert.assertNotSame(updatedRoutingTables, routingTables);
+    Assert.assertEquals(updatedRoutingTables.size(), routingTables.size());
+    for (Map<String, List<String>> routingTable : updatedRoutingTables) {
+      Set<String> segmentsInRoutingTable = new HashSet<>();
+      for (List<String> segments : routingTable.values()) {
+        for (String segment : segments) {
+          Assert.assertTrue(segmentsInRoutingTable.add(segment));
+        }
+      }
+      Assert.assertEquals(segmentsInRoutingTable, externalView.getPartitionSet());
+      Assert.assertEquals(routingTable.get("Server_1.2.3.6_3456"), Collections.singletonList("segment_1"));
+      Assert.assertTrue(routingTable.get("Server_1.2.3.4_1234").size() > 40);
+      Assert.assertTrue(routingTable.get("Server_1.2.3.5_2345").size() > 40);
+
+      // Routing tables should be immutable
+      try {
+        routingTable.get("Server_1.2.3.6_3456").add("segment_101");
+        Assert.fail("Routing table should be immutable");
+      } catch (UnsupportedOperationException e) {
+        // Expected
+      }
+    }
+  }
+
   private ExternalView getDummyExternalView() {
     ExternalView externalView = new ExternalView("dummy");
     externalView.setState("segment_1", "Server_1.2.3.4_1234", "ONLINE");
@@ -31,6 +31,8 @@ public class RoutingConfig {
   private static final Logger LOGGER = LoggerFactory.getLogger(RoutingConfig.class);
 
   public static final String ENABLE_DYNAMIC_COMPUTING_KEY = "enableDynamicComputing";
+  public static final String ENABLE_HEDGED_REQUESTS_KEY = "enableHedgedRequests";
+  public static final String ENABLE_BROKER_SEGMENT_PRUNING_KEY = "enableBrokerSegmentPruning";
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   @ConfigKey("routingTableBuilderName")
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.common.messages;
 
 import com.google.common.base.Preconditions;
+import javax.annotation.Nullable;
 import org.apache.helix.model.Message;
 
 import java.util.UUID;
@@ -23,10 +24,15 @@ import java.util.UUID;
 // A message intended for a pinot Broker to ask it to refresh its Timeboundary Info.
 public class TimeboundaryRefreshMessage extends Message {
     public static final String REFRESH_TIME_BOUNDARY_MSG_SUB_TYPE = "REFRESH_TIME_BOUNDARY";
+    // Helix replaces the resource and partition names with the ones of the recipient (broker resource and table name),
+    // so the refreshed segment is carried in its own field
+    private static final String SEGMENT_NAME_KEY = "segmentName";
+
     public TimeboundaryRefreshMessage(String tableName, String segmentName) {
         super(MessageType.USER_DEFINE_MSG, UUID.randomUUID().toString());
         setResourceName(tableName);
         setPartitionName(segmentName);
+        getRecord().setSimpleField(SEGMENT_NAME_KEY, segmentName);
         setMsgSubType(REFRESH_TIME_BOUNDARY_MSG_SUB_TYPE);
         // Give it infinite time to process the message, as long as session is alive
         setExecutionTimeout(-1);
@@ -39,4 +45,12 @@ public class TimeboundaryRefreshMessage extends Message {
                 "Invalid message sub type: " + msgSubType + " for TimeboundaryRefreshMessage");
 
     }
+
+    /**
+     * Returns the name of the refreshed segment, or null if the message is sent by a controller that does not set it.
+     */
+    @Nullable
+    public String getSegmentName() {
+        return getRecord().getSimpleField(SEGMENT_NAME_KEY);
+    }
 }
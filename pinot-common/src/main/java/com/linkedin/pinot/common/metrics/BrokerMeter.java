@@ -91,10 +91,30 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   // this is different from NO_SERVER_FOUND_EXCEPTIONS which tracks unavailability across all segments
   NO_SERVING_HOST_FOR_SEGMENT("badResponses", false),
 
+  // Broker result cache metrics
+  RESULT_CACHE_HITS("queries", false),
+  RESULT_CACHE_MISSES("queries", false),
+
+  // Hedged request metrics
+  HEDGED_REQUESTS_SENT("requests", false),
+  // Hedged requests that responded before the original request
+  HEDGED_REQUESTS_WON("requests", false),
+
+  // Requests for the OFFLINE and REALTIME table of a hybrid table combined into a single request to the same server
+  COMBINED_HYBRID_REQUESTS("requests", false),
+
+  // Segments pruned by the broker based on the segment ZK metadata, which are not sent to the servers
+  SEGMENTS_PRUNED_BY_BROKER("segments", false),
+
+  // Cancel requests sent to the servers that did not respond before the query finished
+  CANCEL_REQUESTS_SENT("requests", false),
+
   // Netty connection metrics
   NETTY_CONNECTION_REQUESTS_SENT("nettyConnection", true),
   NETTY_CONNECTION_BYTES_SENT("nettyConnection", true),
-  NETTY_CONNECTION_BYTES_RECEIVED("nettyConnection", true);
+  NETTY_CONNECTION_BYTES_RECEIVED("nettyConnection", true),
+  // Requests rejected because the pending bytes to the server exceed the limit
+  NETTY_CONNECTION_REQUESTS_REJECTED("nettyConnection", true);
 
   private final String brokerMeterName;
   private final String unit;
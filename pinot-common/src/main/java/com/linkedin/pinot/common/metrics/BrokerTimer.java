@@ -24,7 +24,8 @@ import com.linkedin.pinot.common.Utils;
 */
 public enum BrokerTimer implements AbstractMetrics.Timer {
   ROUTING_TABLE_UPDATE_TIME(true),
-  ROUTING_TABLE_UPDATE_QUEUE_TIME(true);
+  ROUTING_TABLE_UPDATE_QUEUE_TIME(true),
+  ROUTING_TABLE_REBUILD_TIME(false);
   private final String timerName;
   private final boolean global;
 
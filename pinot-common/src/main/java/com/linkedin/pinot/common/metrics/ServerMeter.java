@@ -54,7 +54,10 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   NUM_SEGMENTS_QUERIED("numSegmentsQueried", false),
   NUM_SEGMENTS_PROCESSED("numSegmentsProcessed", false),
   NUM_SEGMENTS_MATCHED("numSegmentsMatched", false),
-  NUM_MISSING_SEGMENTS("segments", false);
+  NUM_MISSING_SEGMENTS("segments", false),
+  QUERIES_SHED_BY_SCHEDULER("queries", false),
+  // Queries cancelled by the broker, or terminated because of exceeding their deadline or budgets
+  QUERIES_CANCELLED("queries", false);
 
   private final String meterName;
   private final String unit;
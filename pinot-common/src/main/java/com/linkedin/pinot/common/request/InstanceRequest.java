@@ -39,7 +39,7 @@ import org.slf4j.LoggerFactory;
  * Instance Request
  * 
  */
-@Generated(value = "Autogenerated by Thrift Compiler (0.9.2)", date = "2017-5-24")
+@Generated(value = "Autogenerated by Thrift Compiler (0.9.2)", date = "2026-10-18")
 public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest, InstanceRequest._Fields>, java.io.Serializable, Cloneable, Comparable<InstanceRequest> {
   private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("InstanceRequest");
 
@@ -48,6 +48,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   private static final org.apache.thrift.protocol.TField SEARCH_SEGMENTS_FIELD_DESC = new org.apache.thrift.protocol.TField("searchSegments", org.apache.thrift.protocol.TType.LIST, (short)3);
   private static final org.apache.thrift.protocol.TField ENABLE_TRACE_FIELD_DESC = new org.apache.thrift.protocol.TField("enableTrace", org.apache.thrift.protocol.TType.BOOL, (short)4);
   private static final org.apache.thrift.protocol.TField BROKER_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("brokerId", org.apache.thrift.protocol.TType.STRING, (short)5);
+  private static final org.apache.thrift.protocol.TField HYBRID_QUERY_FIELD_DESC = new org.apache.thrift.protocol.TField("hybridQuery", org.apache.thrift.protocol.TType.STRUCT, (short)6);
+  private static final org.apache.thrift.protocol.TField HYBRID_SEARCH_SEGMENTS_FIELD_DESC = new org.apache.thrift.protocol.TField("hybridSearchSegments", org.apache.thrift.protocol.TType.LIST, (short)7);
+  private static final org.apache.thrift.protocol.TField CANCEL_FIELD_DESC = new org.apache.thrift.protocol.TField("cancel", org.apache.thrift.protocol.TType.BOOL, (short)8);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -60,6 +63,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   private List<String> searchSegments; // optional
   private boolean enableTrace; // optional
   private String brokerId; // optional
+  private BrokerRequest hybridQuery; // optional
+  private List<String> hybridSearchSegments; // optional
+  private boolean cancel; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -67,7 +73,10 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     QUERY((short)2, "query"),
     SEARCH_SEGMENTS((short)3, "searchSegments"),
     ENABLE_TRACE((short)4, "enableTrace"),
-    BROKER_ID((short)5, "brokerId");
+    BROKER_ID((short)5, "brokerId"),
+    HYBRID_QUERY((short)6, "hybridQuery"),
+    HYBRID_SEARCH_SEGMENTS((short)7, "hybridSearchSegments"),
+    CANCEL((short)8, "cancel");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -92,6 +101,12 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
           return ENABLE_TRACE;
         case 5: // BROKER_ID
           return BROKER_ID;
+        case 6: // HYBRID_QUERY
+          return HYBRID_QUERY;
+        case 7: // HYBRID_SEARCH_SEGMENTS
+          return HYBRID_SEARCH_SEGMENTS;
+        case 8: // CANCEL
+          return CANCEL;
         default:
           return null;
       }
@@ -134,8 +149,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   // isset id assignments
   private static final int __REQUESTID_ISSET_ID = 0;
   private static final int __ENABLETRACE_ISSET_ID = 1;
+  private static final int __CANCEL_ISSET_ID = 2;
   private byte __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.SEARCH_SEGMENTS,_Fields.ENABLE_TRACE,_Fields.BROKER_ID};
+  private static final _Fields optionals[] = {_Fields.SEARCH_SEGMENTS,_Fields.ENABLE_TRACE,_Fields.BROKER_ID,_Fields.HYBRID_QUERY,_Fields.HYBRID_SEARCH_SEGMENTS,_Fields.CANCEL};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -150,6 +166,13 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
     tmpMap.put(_Fields.BROKER_ID, new org.apache.thrift.meta_data.FieldMetaData("brokerId", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+    tmpMap.put(_Fields.HYBRID_QUERY, new org.apache.thrift.meta_data.FieldMetaData("hybridQuery", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, BrokerRequest.class)));
+    tmpMap.put(_Fields.HYBRID_SEARCH_SEGMENTS, new org.apache.thrift.meta_data.FieldMetaData("hybridSearchSegments", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+    tmpMap.put(_Fields.CANCEL, new org.apache.thrift.meta_data.FieldMetaData("cancel", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(InstanceRequest.class, metaDataMap);
   }
@@ -184,6 +207,14 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     if (other.isSetBrokerId()) {
       this.brokerId = other.brokerId;
     }
+    if (other.isSetHybridQuery()) {
+      this.hybridQuery = new BrokerRequest(other.hybridQuery);
+    }
+    if (other.isSetHybridSearchSegments()) {
+      List<String> __this__hybridSearchSegments = new ArrayList<String>(other.hybridSearchSegments);
+      this.hybridSearchSegments = __this__hybridSearchSegments;
+    }
+    this.cancel = other.cancel;
   }
 
   public InstanceRequest deepCopy() {
@@ -199,6 +230,10 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     setEnableTraceIsSet(false);
     this.enableTrace = false;
     this.brokerId = null;
+    this.hybridQuery = null;
+    this.hybridSearchSegments = null;
+    setCancelIsSet(false);
+    this.cancel = false;
   }
 
   public long getRequestId() {
@@ -329,6 +364,89 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     }
   }
 
+  public BrokerRequest getHybridQuery() {
+    return this.hybridQuery;
+  }
+
+  public void setHybridQuery(BrokerRequest hybridQuery) {
+    this.hybridQuery = hybridQuery;
+  }
+
+  public void unsetHybridQuery() {
+    this.hybridQuery = null;
+  }
+
+  /** Returns true if field hybridQuery is set (has been assigned a value) and false otherwise */
+  public boolean isSetHybridQuery() {
+    return this.hybridQuery != null;
+  }
+
+  public void setHybridQueryIsSet(boolean value) {
+    if (!value) {
+      this.hybridQuery = null;
+    }
+  }
+
+  public int getHybridSearchSegmentsSize() {
+    return (this.hybridSearchSegments == null) ? 0 : this.hybridSearchSegments.size();
+  }
+
+  public java.util.Iterator<String> getHybridSearchSegmentsIterator() {
+    return (this.hybridSearchSegments == null) ? null : this.hybridSearchSegments.iterator();
+  }
+
+  public void addToHybridSearchSegments(String elem) {
+    if (this.hybridSearchSegments == null) {
+      this.hybridSearchSegments = new ArrayList<String>();
+    }
+    this.hybridSearchSegments.add(elem);
+  }
+
+  public List<String> getHybridSearchSegments() {
+    return this.hybridSearchSegments;
+  }
+
+  public void setHybridSearchSegments(List<String> hybridSearchSegments) {
+    this.hybridSearchSegments = hybridSearchSegments;
+  }
+
+  public void unsetHybridSearchSegments() {
+    this.hybridSearchSegments = null;
+  }
+
+  /** Returns true if field hybridSearchSegments is set (has been assigned a value) and false otherwise */
+  public boolean isSetHybridSearchSegments() {
+    return this.hybridSearchSegments != null;
+  }
+
+  public void setHybridSearchSegmentsIsSet(boolean value) {
+    if (!value) {
+      this.hybridSearchSegments = null;
+    }
+  }
+
+  public boolean isCancel() {
+    return this.cancel;
+  }
+
+  public void setCancel(boolean cancel) {
+    this.cancel = cancel;
+    setCancelIsSet(true);
+  }
+
+  public void unsetCancel() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __CANCEL_ISSET_ID);
+  }
+
+  /** Returns true if field cancel is set (has been assigned a value) and false otherwise */
+  public boolean isSetCancel() {
+    return EncodingUtils.testBit(__isset_bitfield, __CANCEL_ISSET_ID);
+  }
+
+  public void setCancelIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __CANCEL_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case REQUEST_ID:
@@ -371,6 +489,30 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       }
       break;
 
+    case HYBRID_QUERY:
+      if (value == null) {
+        unsetHybridQuery();
+      } else {
+        setHybridQuery((BrokerRequest)value);
+      }
+      break;
+
+    case HYBRID_SEARCH_SEGMENTS:
+      if (value == null) {
+        unsetHybridSearchSegments();
+      } else {
+        setHybridSearchSegments((List<String>)value);
+      }
+      break;
+
+    case CANCEL:
+      if (value == null) {
+        unsetCancel();
+      } else {
+        setCancel((Boolean)value);
+      }
+      break;
+
     }
   }
 
@@ -391,6 +533,15 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     case BROKER_ID:
       return getBrokerId();
 
+    case HYBRID_QUERY:
+      return getHybridQuery();
+
+    case HYBRID_SEARCH_SEGMENTS:
+      return getHybridSearchSegments();
+
+    case CANCEL:
+      return Boolean.valueOf(isCancel());
+
     }
     throw new IllegalStateException();
   }
@@ -412,6 +563,12 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       return isSetEnableTrace();
     case BROKER_ID:
       return isSetBrokerId();
+    case HYBRID_QUERY:
+      return isSetHybridQuery();
+    case HYBRID_SEARCH_SEGMENTS:
+      return isSetHybridSearchSegments();
+    case CANCEL:
+      return isSetCancel();
     }
     throw new IllegalStateException();
   }
@@ -474,6 +631,33 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         return false;
     }
 
+    boolean this_present_hybridQuery = true && this.isSetHybridQuery();
+    boolean that_present_hybridQuery = true && that.isSetHybridQuery();
+    if (this_present_hybridQuery || that_present_hybridQuery) {
+      if (!(this_present_hybridQuery && that_present_hybridQuery))
+        return false;
+      if (!this.hybridQuery.equals(that.hybridQuery))
+        return false;
+    }
+
+    boolean this_present_hybridSearchSegments = true && this.isSetHybridSearchSegments();
+    boolean that_present_hybridSearchSegments = true && that.isSetHybridSearchSegments();
+    if (this_present_hybridSearchSegments || that_present_hybridSearchSegments) {
+      if (!(this_present_hybridSearchSegments && that_present_hybridSearchSegments))
+        return false;
+      if (!this.hybridSearchSegments.equals(that.hybridSearchSegments))
+        return false;
+    }
+
+    boolean this_present_cancel = true && this.isSetCancel();
+    boolean that_present_cancel = true && that.isSetCancel();
+    if (this_present_cancel || that_present_cancel) {
+      if (!(this_present_cancel && that_present_cancel))
+        return false;
+      if (this.cancel != that.cancel)
+        return false;
+    }
+
     return true;
   }
 
@@ -506,6 +690,21 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     if (present_brokerId)
       list.add(brokerId);
 
+    boolean present_hybridQuery = true && (isSetHybridQuery());
+    list.add(present_hybridQuery);
+    if (present_hybridQuery)
+      list.add(hybridQuery);
+
+    boolean present_hybridSearchSegments = true && (isSetHybridSearchSegments());
+    list.add(present_hybridSearchSegments);
+    if (present_hybridSearchSegments)
+      list.add(hybridSearchSegments);
+
+    boolean present_cancel = true && (isSetCancel());
+    list.add(present_cancel);
+    if (present_cancel)
+      list.add(cancel);
+
     return list.hashCode();
   }
 
@@ -567,6 +766,36 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetHybridQuery()).compareTo(other.isSetHybridQuery());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetHybridQuery()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.hybridQuery, other.hybridQuery);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetHybridSearchSegments()).compareTo(other.isSetHybridSearchSegments());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetHybridSearchSegments()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.hybridSearchSegments, other.hybridSearchSegments);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetCancel()).compareTo(other.isSetCancel());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetCancel()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.cancel, other.cancel);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -624,6 +853,32 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       }
       first = false;
     }
+    if (isSetHybridQuery()) {
+      if (!first) sb.append(", ");
+      sb.append("hybridQuery:");
+      if (this.hybridQuery == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.hybridQuery);
+      }
+      first = false;
+    }
+    if (isSetHybridSearchSegments()) {
+      if (!first) sb.append(", ");
+      sb.append("hybridSearchSegments:");
+      if (this.hybridSearchSegments == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.hybridSearchSegments);
+      }
+      first = false;
+    }
+    if (isSetCancel()) {
+      if (!first) sb.append(", ");
+      sb.append("cancel:");
+      sb.append(this.cancel);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -642,6 +897,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     if (query != null) {
       query.validate();
     }
+    if (hybridQuery != null) {
+      hybridQuery.validate();
+    }
   }
 
   private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
@@ -731,6 +989,41 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 6: // HYBRID_QUERY
+            if (schemeField.type == org.apache.thrift.protocol.TType.STRUCT) {
+              struct.hybridQuery = new BrokerRequest();
+              struct.hybridQuery.read(iprot);
+              struct.setHybridQueryIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 7: // HYBRID_SEARCH_SEGMENTS
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list99 = iprot.readListBegin();
+                struct.hybridSearchSegments = new ArrayList<String>(_list99.size);
+                String _elem100;
+                for (int _i101 = 0; _i101 < _list99.size; ++_i101)
+                {
+                  _elem100 = iprot.readString();
+                  struct.hybridSearchSegments.add(_elem100);
+                }
+                iprot.readListEnd();
+              }
+              struct.setHybridSearchSegmentsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 8: // CANCEL
+            if (schemeField.type == org.apache.thrift.protocol.TType.BOOL) {
+              struct.cancel = iprot.readBool();
+              struct.setCancelIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -757,9 +1050,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
           oprot.writeFieldBegin(SEARCH_SEGMENTS_FIELD_DESC);
           {
             oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.searchSegments.size()));
-            for (String _iter99 : struct.searchSegments)
+            for (String _iter102 : struct.searchSegments)
             {
-              oprot.writeString(_iter99);
+              oprot.writeString(_iter102);
             }
             oprot.writeListEnd();
           }
@@ -778,6 +1071,32 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
           oprot.writeFieldEnd();
         }
       }
+      if (struct.hybridQuery != null) {
+        if (struct.isSetHybridQuery()) {
+          oprot.writeFieldBegin(HYBRID_QUERY_FIELD_DESC);
+          struct.hybridQuery.write(oprot);
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.hybridSearchSegments != null) {
+        if (struct.isSetHybridSearchSegments()) {
+          oprot.writeFieldBegin(HYBRID_SEARCH_SEGMENTS_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.hybridSearchSegments.size()));
+            for (String _iter103 : struct.hybridSearchSegments)
+            {
+              oprot.writeString(_iter103);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.isSetCancel()) {
+        oprot.writeFieldBegin(CANCEL_FIELD_DESC);
+        oprot.writeBool(struct.cancel);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -807,13 +1126,22 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       if (struct.isSetBrokerId()) {
         optionals.set(2);
       }
-      oprot.writeBitSet(optionals, 3);
+      if (struct.isSetHybridQuery()) {
+        optionals.set(3);
+      }
+      if (struct.isSetHybridSearchSegments()) {
+        optionals.set(4);
+      }
+      if (struct.isSetCancel()) {
+        optionals.set(5);
+      }
+      oprot.writeBitSet(optionals, 6);
       if (struct.isSetSearchSegments()) {
         {
           oprot.writeI32(struct.searchSegments.size());
-          for (String _iter100 : struct.searchSegments)
+          for (String _iter104 : struct.searchSegments)
           {
-            oprot.writeString(_iter100);
+            oprot.writeString(_iter104);
           }
         }
       }
@@ -823,6 +1151,21 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       if (struct.isSetBrokerId()) {
         oprot.writeString(struct.brokerId);
       }
+      if (struct.isSetHybridQuery()) {
+        struct.hybridQuery.write(oprot);
+      }
+      if (struct.isSetHybridSearchSegments()) {
+        {
+          oprot.writeI32(struct.hybridSearchSegments.size());
+          for (String _iter105 : struct.hybridSearchSegments)
+          {
+            oprot.writeString(_iter105);
+          }
+        }
+      }
+      if (struct.isSetCancel()) {
+        oprot.writeBool(struct.cancel);
+      }
     }
 
     @Override
@@ -833,16 +1176,16 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       struct.query = new BrokerRequest();
       struct.query.read(iprot);
       struct.setQueryIsSet(true);
-      BitSet incoming = iprot.readBitSet(3);
+      BitSet incoming = iprot.readBitSet(6);
       if (incoming.get(0)) {
         {
-          org.apache.thrift.protocol.TList _list101 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
-          struct.searchSegments = new ArrayList<String>(_list101.size);
-          String _elem102;
-          for (int _i103 = 0; _i103 < _list101.size; ++_i103)
+          org.apache.thrift.protocol.TList _list106 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+          struct.searchSegments = new ArrayList<String>(_list106.size);
+          String _elem107;
+          for (int _i108 = 0; _i108 < _list106.size; ++_i108)
           {
-            _elem102 = iprot.readString();
-            struct.searchSegments.add(_elem102);
+            _elem107 = iprot.readString();
+            struct.searchSegments.add(_elem107);
           }
         }
         struct.setSearchSegmentsIsSet(true);
@@ -855,6 +1198,28 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         struct.brokerId = iprot.readString();
         struct.setBrokerIdIsSet(true);
       }
+      if (incoming.get(3)) {
+        struct.hybridQuery = new BrokerRequest();
+        struct.hybridQuery.read(iprot);
+        struct.setHybridQueryIsSet(true);
+      }
+      if (incoming.get(4)) {
+        {
+          org.apache.thrift.protocol.TList _list109 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+          struct.hybridSearchSegments = new ArrayList<String>(_list109.size);
+          String _elem110;
+          for (int _i111 = 0; _i111 < _list109.size; ++_i111)
+          {
+            _elem110 = iprot.readString();
+            struct.hybridSearchSegments.add(_elem110);
+          }
+        }
+        struct.setHybridSearchSegmentsIsSet(true);
+      }
+      if (incoming.get(5)) {
+        struct.cancel = iprot.readBool();
+        struct.setCancelIsSet(true);
+      }
     }
   }
 
@@ -41,7 +41,7 @@ import org.json.JSONObject;
  */
 @JsonPropertyOrder({ "selectionResults", "aggregationResults", "exceptions", "numServersQueried", "numServersResponded", "numSegmentsQueried",
     "numSegmentsProcessed", "numSegmentsMatched", "numDocsScanned", "numEntriesScannedInFilter", "numEntriesScannedPostFilter", "numGroupsLimitReached",
-    "totalDocs", "timeUsedMs", "segmentStatistics", "traceInfo" })
+    "totalDocs", "timeUsedMs", "segmentStatistics", "traceInfo", "operatorProfile" })
 public class BrokerResponseNative implements BrokerResponse {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
@@ -66,6 +66,8 @@ public class BrokerResponseNative implements BrokerResponse {
   private List<AggregationResult> _aggregationResults;
 
   private Map<String, String> _traceInfo = new HashMap<>();
+  // Per-operator execution profile summed across servers, only available when profiling is enabled for the query
+  private Map<String, Map<String, Long>> _operatorProfile;
   private List<QueryProcessingException> _processingExceptions = new ArrayList<>();
   private List<String> _segmentStatistics = new ArrayList<>();
 
@@ -260,6 +262,17 @@ public class BrokerResponseNative implements BrokerResponse {
     _traceInfo = traceInfo;
   }
 
+  @JsonProperty("operatorProfile")
+  @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+  public Map<String, Map<String, Long>> getOperatorProfile() {
+    return _operatorProfile;
+  }
+
+  @JsonProperty("operatorProfile")
+  public void setOperatorProfile(Map<String, Map<String, Long>> operatorProfile) {
+    _operatorProfile = operatorProfile;
+  }
+
   @Override
   public String toJsonString() throws IOException {
     return OBJECT_MAPPER.writeValueAsString(this);
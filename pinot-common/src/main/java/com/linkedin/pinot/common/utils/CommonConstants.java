@@ -118,6 +118,49 @@ public class CommonConstants {
     public static final String CONFIG_OF_BROKER_REFRESH_TIMEBOUNDARY_INFO_SLEEP_INTERVAL =
             "pinot.broker.refresh.timeBoundaryInfo.sleepInterval";
     public static final long DEFAULT_BROKER_REFRESH_TIMEBOUNDARY_INFO_SLEEP_INTERVAL_MS = 10000L;
+    // Maximum number of compiled query templates cached in the broker, 0 to compile every query from scratch
+    public static final String CONFIG_OF_BROKER_COMPILED_QUERY_CACHE_MAX_ENTRIES =
+        "pinot.broker.compiled.query.cache.maxEntries";
+    public static final long DEFAULT_BROKER_COMPILED_QUERY_CACHE_MAX_ENTRIES = 0L;
+    // Maximum number of query results cached in the broker, 0 to disable the result cache
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_MAX_ENTRIES = "pinot.broker.result.cache.maxEntries";
+    public static final long DEFAULT_BROKER_RESULT_CACHE_MAX_ENTRIES = 0L;
+    // Cached results are invalidated on routing table changes, the TTL bounds the staleness for segment updates that
+    // do not change the routing table
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_TTL_MS = "pinot.broker.result.cache.ttlMs";
+    public static final long DEFAULT_BROKER_RESULT_CACHE_TTL_MS = 3_600_000L;
+    // Realtime results become stale as soon as new rows are consumed
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_REALTIME_TTL_MS =
+        "pinot.broker.result.cache.realtime.ttlMs";
+    public static final long DEFAULT_BROKER_RESULT_CACHE_REALTIME_TTL_MS = 10_000L;
+    // Requests are hedged (for tables with hedging enabled) when the server has not responded by this percentile of its
+    // recent latencies
+    public static final String CONFIG_OF_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE =
+        "pinot.broker.hedged.request.latencyPercentile";
+    public static final double DEFAULT_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE = 95.0;
+    // Maximum ratio of the hedged requests to the requests sent to the servers
+    public static final String CONFIG_OF_BROKER_HEDGED_REQUEST_BUDGET_RATIO = "pinot.broker.hedged.request.budgetRatio";
+    public static final double DEFAULT_BROKER_HEDGED_REQUEST_BUDGET_RATIO = 0.05;
+    // Burst allowance of the table query quota, in seconds of the per-broker rate (1 second by default, same as the
+    // stored permits of the Guava rate limiter used before; set a smaller value to tolerate smaller bursts)
+    public static final String CONFIG_OF_BROKER_QUERY_QUOTA_MAX_BURST_SECONDS =
+        "pinot.broker.query.quota.maxBurstSeconds";
+    public static final double DEFAULT_BROKER_QUERY_QUOTA_MAX_BURST_SECONDS = 1.0;
+    // Combine the OFFLINE and REALTIME requests of a hybrid table query to the same server into a single request, which
+    // requires all the servers to support the hybrid query in the instance request
+    public static final String CONFIG_OF_BROKER_COMBINE_HYBRID_REQUESTS = "pinot.broker.combine.hybrid.requests";
+    public static final boolean DEFAULT_BROKER_COMBINE_HYBRID_REQUESTS = false;
+    // Number of netty connections from the broker to each server, requests are multiplexed over the connections
+    public static final String CONFIG_OF_BROKER_NETTY_CONNECTIONS_PER_SERVER = "pinot.broker.netty.connectionsPerServer";
+    public static final int DEFAULT_BROKER_NETTY_CONNECTIONS_PER_SERVER = 1;
+    // Pending bytes in the write buffer above which a netty connection is not writable (low water mark is half of it)
+    public static final String CONFIG_OF_BROKER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK =
+        "pinot.broker.netty.writeBufferHighWaterMark";
+    public static final int DEFAULT_BROKER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+    // Pending bytes across the netty connections to a server above which the requests are rejected, 0 for no limit
+    public static final String CONFIG_OF_BROKER_NETTY_MAX_PENDING_BYTES_PER_SERVER =
+        "pinot.broker.netty.maxPendingBytesPerServer";
+    public static final long DEFAULT_BROKER_NETTY_MAX_PENDING_BYTES_PER_SERVER = 0L;
     public static class Request {
       public static final String PQL = "pql";
       public static final String TRACE = "trace";
@@ -125,6 +168,12 @@ public class CommonConstants {
 
       public static class QueryOptionKey {
         public static final String PRESERVE_TYPE = "preserveType";
+        // Highest data table version the broker can deserialize
+        public static final String DATA_TABLE_VERSION = "dataTableVersion";
+        // Query timeout in milliseconds, used by the servers to schedule queries by deadline
+        public static final String TIMEOUT_MS = "timeoutMs";
+        // Set to true to return the per-operator execution profile with the query response
+        public static final String PROFILE = "profile";
       }
     }
   }
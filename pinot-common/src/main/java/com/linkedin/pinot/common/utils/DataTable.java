@@ -37,6 +37,7 @@ public interface DataTable {
   String TIME_USED_MS_METADATA_KEY = "timeUsedMs";
   String TRACE_INFO_METADATA_KEY = "traceInfo";
   String REQUEST_ID_METADATA_KEY = "requestId";
+  String OPERATOR_PROFILE_METADATA_KEY = "operatorProfile";
 
   void addException(@Nonnull ProcessingException processingException);
 
@@ -78,4 +79,11 @@ public interface DataTable {
 
   @Nonnull
   String[] getStringArray(int rowId, int colId);
+
+  /**
+   * Releases the resources held by the data table (e.g. the network buffer it reads from). The data table should not
+   * be accessed after being released. Releasing a data table more than once has no effect.
+   */
+  default void release() {
+  }
 }
@@ -0,0 +1,577 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.pql.parsers;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.request.FilterQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * PQL 2 compiler which caches the compiled broker requests for the queries of the same shape, i.e. queries that only
+ * differ on the literals in the WHERE clause.
+ * <p>The literals of the query are normalized into slots, and the query with the literals replaced by placeholders is
+ * used as the cache key. The first query of each shape is compiled with a unique sentinel literal in each slot of the
+ * WHERE clause, and the slots whose sentinel shows up exactly once in the filter values become the parameters of the
+ * compiled template. All the other literals (e.g. LIMIT, TOP, OPTION, function arguments) are compiled into the
+ * template as is, and the template is rebuilt when they change.
+ * <p>On cache hit, the compiled template is copied and the literal values are bound into the filter values, which
+ * skips the ANTLR parse entirely. The bound broker request is equivalent to the one compiled from the query.
+ */
+@ThreadSafe
+public class CachingPql2Compiler extends Pql2Compiler {
+  // Queries with too many literals (e.g. huge IN clause) are not cached
+  private static final int MAX_NUM_LITERALS = 1000;
+
+  private static final char SENTINEL_CHAR = '\u0000';
+  // Sentinels for numeric literals, which have the same length for all the slots so that they never overlap
+  private static final long INTEGER_SENTINEL_BASE = 7318498265417302000L;
+  private static final double FLOATING_POINT_SENTINEL_BASE = 7318498.25;
+
+  private static final Template NOT_CACHEABLE = new Template(null, null, null, null, null);
+
+  private final Cache<String, Template> _templateCache;
+
+  public CachingPql2Compiler(long maxNumTemplates) {
+    _templateCache = CacheBuilder.newBuilder().maximumSize(maxNumTemplates).build();
+  }
+
+  @Override
+  public BrokerRequest compileToBrokerRequest(String expression) throws Pql2CompilationException {
+    QueryShape queryShape = QueryShape.of(expression);
+    if (queryShape == null) {
+      return super.compileToBrokerRequest(expression);
+    }
+
+    Template template = _templateCache.getIfPresent(queryShape._key);
+    if (template == null || (template != NOT_CACHEABLE && !template.matchesInlineLiterals(queryShape))) {
+      template = buildTemplate(queryShape, template != null ? template._isParameter : null);
+      _templateCache.put(queryShape._key, template);
+    }
+    if (template != NOT_CACHEABLE) {
+      BrokerRequest brokerRequest = template.bind(queryShape);
+      if (brokerRequest != null) {
+        return brokerRequest;
+      }
+    }
+    return super.compileToBrokerRequest(expression);
+  }
+
+  @VisibleForTesting
+  long getNumTemplates() {
+    return _templateCache.size();
+  }
+
+  /**
+   * Builds the compiled template for the given query shape.
+   *
+   * @param queryShape Query shape
+   * @param isParameter Slots known to be parameters from the previous template, or <code>null</code> for a new shape
+   * @return Compiled template, or {@link #NOT_CACHEABLE} if the query cannot be parameterized
+   */
+  private Template buildTemplate(QueryShape queryShape, @Nullable boolean[] isParameter) {
+    int numLiterals = queryShape._literals.length;
+    if (isParameter == null) {
+      isParameter = Arrays.copyOf(queryShape._inWhereClause, numLiterals);
+    } else {
+      isParameter = Arrays.copyOf(isParameter, numLiterals);
+    }
+
+    // The second attempt compiles the literals that cannot be located in the filter values as is
+    for (int attempt = 0; attempt < 2; attempt++) {
+      BrokerRequest skeleton;
+      try {
+        skeleton = super.compileToBrokerRequest(queryShape.render(isParameter));
+      } catch (Pql2CompilationException e) {
+        return NOT_CACHEABLE;
+      }
+      boolean[] misplaced = new boolean[numLiterals];
+      List<BoundValue> boundValues = locateParameters(skeleton, queryShape, isParameter, misplaced);
+      boolean allLocated = true;
+      for (int i = 0; i < numLiterals; i++) {
+        if (misplaced[i]) {
+          isParameter[i] = false;
+          allLocated = false;
+        }
+      }
+      if (allLocated) {
+        String[] inlineLiterals = new String[numLiterals];
+        for (int i = 0; i < numLiterals; i++) {
+          if (!isParameter[i]) {
+            inlineLiterals[i] = queryShape._literals[i];
+          }
+        }
+        List<Integer> dedupFilterIds = new ArrayList<>();
+        if (skeleton.isSetFilterSubQueryMap()) {
+          for (FilterQuery filterQuery : skeleton.getFilterSubQueryMap().getFilterQueryMap().values()) {
+            // IN predicates keep distinct values only
+            FilterOperator operator = filterQuery.getOperator();
+            if (operator == FilterOperator.IN || operator == FilterOperator.NOT_IN) {
+              dedupFilterIds.add(filterQuery.getId());
+            }
+          }
+        }
+        return new Template(skeleton, isParameter, inlineLiterals, boundValues, dedupFilterIds);
+      }
+    }
+    return NOT_CACHEABLE;
+  }
+
+  /**
+   * Helper method to locate the sentinel of each parameter in the filter values.
+   * <p>Parameters whose sentinel does not show up exactly once in the filter values are marked as misplaced.
+   */
+  private static List<BoundValue> locateParameters(BrokerRequest skeleton, QueryShape queryShape,
+      boolean[] isParameter, boolean[] misplaced) {
+    int numLiterals = isParameter.length;
+    String[] sentinels = new String[numLiterals];
+    for (int i = 0; i < numLiterals; i++) {
+      if (isParameter[i]) {
+        sentinels[i] = getSentinelValue(queryShape._kinds[i], i);
+      }
+    }
+
+    // Sentinels outside of the filter values (e.g. inside the filter column as function argument) are misplaced
+    StringBuilder outsideFilterValues = new StringBuilder();
+    BrokerRequest copy = skeleton.deepCopy();
+    copy.unsetFilterQuery();
+    copy.unsetFilterSubQueryMap();
+    outsideFilterValues.append(copy.toString());
+
+    int[] counts = new int[numLiterals];
+    List<BoundValue> boundValues = new ArrayList<>();
+    if (skeleton.isSetFilterSubQueryMap()) {
+      for (FilterQuery filterQuery : skeleton.getFilterSubQueryMap().getFilterQueryMap().values()) {
+        outsideFilterValues.append(filterQuery.getColumn());
+        List<String> values = filterQuery.getValue();
+        if (values == null) {
+          continue;
+        }
+        for (int valueIndex = 0; valueIndex < values.size(); valueIndex++) {
+          BoundValue boundValue = BoundValue.of(filterQuery.getId(), valueIndex, values.get(valueIndex), sentinels);
+          if (boundValue != null) {
+            for (int slot : boundValue._slots) {
+              counts[slot]++;
+            }
+            boundValues.add(boundValue);
+          }
+        }
+      }
+    }
+
+    String outside = outsideFilterValues.toString();
+    for (int i = 0; i < numLiterals; i++) {
+      if (isParameter[i] && (counts[i] != 1 || outside.contains(sentinels[i]))) {
+        misplaced[i] = true;
+      }
+    }
+    return boundValues;
+  }
+
+  /**
+   * Returns the sentinel literal for the slot as written in the query.
+   */
+  private static String getSentinelLiteral(char kind, int slot) {
+    switch (kind) {
+      case QueryShape.STRING:
+        return "'" + getSentinelValue(kind, slot) + "'";
+      case QueryShape.INTEGER:
+        return Long.toString(INTEGER_SENTINEL_BASE + slot);
+      case QueryShape.FLOATING_POINT:
+        return Double.toString(FLOATING_POINT_SENTINEL_BASE + slot);
+      default:
+        throw new IllegalStateException("Unsupported literal kind: " + kind);
+    }
+  }
+
+  /**
+   * Returns the sentinel value for the slot as compiled into the broker request.
+   */
+  private static String getSentinelValue(char kind, int slot) {
+    switch (kind) {
+      case QueryShape.STRING:
+        return SENTINEL_CHAR + Integer.toString(slot) + SENTINEL_CHAR;
+      case QueryShape.INTEGER:
+        return Long.toString(INTEGER_SENTINEL_BASE + slot);
+      case QueryShape.FLOATING_POINT:
+        return Double.toString(FLOATING_POINT_SENTINEL_BASE + slot);
+      default:
+        throw new IllegalStateException("Unsupported literal kind: " + kind);
+    }
+  }
+
+  /**
+   * Returns the literal value as compiled into the broker request (same as the value of the literal AST node), or
+   * <code>null</code> if the literal cannot be compiled.
+   */
+  @Nullable
+  private static String getLiteralValue(char kind, String literal) {
+    switch (kind) {
+      case QueryShape.STRING:
+        String literalWithoutQuotes = literal.substring(1, literal.length() - 1);
+        if (literal.charAt(0) == '\'') {
+          return literalWithoutQuotes.replace("''", "'");
+        } else {
+          return literalWithoutQuotes.replace("\"\"", "\"");
+        }
+      case QueryShape.INTEGER:
+        try {
+          return Long.toString(Long.parseLong(literal));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      case QueryShape.FLOATING_POINT:
+        try {
+          return Double.toString(Double.valueOf(literal));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      default:
+        throw new IllegalStateException("Unsupported literal kind: " + kind);
+    }
+  }
+
+  /**
+   * Shape of the query, which is the query with the literals extracted.
+   * <p>The lexing rules for the literals, identifiers and keywords follow the PQL 2 grammar.
+   */
+  @VisibleForTesting
+  static class QueryShape {
+    static final char STRING = 'S';
+    static final char INTEGER = 'I';
+    static final char FLOATING_POINT = 'F';
+
+    final String _query;
+    final String _key;
+    final String[] _literals;
+    final char[] _kinds;
+    final int[] _startIndexes;
+    final int[] _endIndexes;
+    final boolean[] _inWhereClause;
+
+    private QueryShape(String query, String key, List<String> literals, List<Character> kinds,
+        List<Integer> startIndexes, List<Integer> endIndexes, List<Boolean> inWhereClause) {
+      _query = query;
+      _key = key;
+      int numLiterals = literals.size();
+      _literals = literals.toArray(new String[numLiterals]);
+      _kinds = new char[numLiterals];
+      _startIndexes = new int[numLiterals];
+      _endIndexes = new int[numLiterals];
+      _inWhereClause = new boolean[numLiterals];
+      for (int i = 0; i < numLiterals; i++) {
+        _kinds[i] = kinds.get(i);
+        _startIndexes[i] = startIndexes.get(i);
+        _endIndexes[i] = endIndexes.get(i);
+        _inWhereClause[i] = inWhereClause.get(i);
+      }
+    }
+
+    /**
+     * Extracts the literals from the query, or returns <code>null</code> if the query cannot be parameterized (e.g.
+     * contains comments, unterminated literals or too many literals).
+     */
+    @Nullable
+    static QueryShape of(String query) {
+      int length = query.length();
+      StringBuilder key = new StringBuilder(length);
+      List<String> literals = new ArrayList<>();
+      List<Character> kinds = new ArrayList<>();
+      List<Integer> startIndexes = new ArrayList<>();
+      List<Integer> endIndexes = new ArrayList<>();
+      List<Boolean> inWhereClause = new ArrayList<>();
+      boolean inWhere = false;
+
+      int i = 0;
+      while (i < length) {
+        char c = query.charAt(i);
+        int start = i;
+        char kind = 0;
+        if (c == '\'' || c == '"') {
+          // String literal, where quote is escaped by doubling it
+          i++;
+          while (true) {
+            if (i >= length) {
+              return null;
+            }
+            if (query.charAt(i) == c) {
+              if (i + 1 < length && query.charAt(i + 1) == c) {
+                i += 2;
+              } else {
+                i++;
+                break;
+              }
+            } else {
+              i++;
+            }
+          }
+          kind = STRING;
+        } else if (c == '`') {
+          // Quoted identifier
+          int end = query.indexOf('`', i + 1);
+          if (end < 0) {
+            return null;
+          }
+          i = end + 1;
+        } else if (isIdentifierStart(query, i)) {
+          i++;
+          while (i < length && isIdentifierPart(query.charAt(i))) {
+            i++;
+          }
+          // Keywords are reserved, so the clause can be tracked from the bare identifiers
+          String word = query.substring(start, i);
+          if (word.equalsIgnoreCase("WHERE")) {
+            inWhere = true;
+          } else if (word.equalsIgnoreCase("GROUP") || word.equalsIgnoreCase("ORDER") || word.equalsIgnoreCase(
+              "HAVING") || word.equalsIgnoreCase("LIMIT") || word.equalsIgnoreCase("TOP") || word.equalsIgnoreCase(
+              "OPTION")) {
+            inWhere = false;
+          }
+        } else if (c == '-' && i + 1 < length && query.charAt(i + 1) == '-') {
+          // Line comment
+          return null;
+        } else if (isNumberStart(query, i)) {
+          if (c == '+' || c == '-') {
+            i++;
+          }
+          boolean hasDigits = false;
+          while (isDigit(query, i)) {
+            i++;
+            hasDigits = true;
+          }
+          kind = INTEGER;
+          if (i < length && query.charAt(i) == '.' && (hasDigits || isDigit(query, i + 1))) {
+            i++;
+            while (isDigit(query, i)) {
+              i++;
+            }
+            kind = FLOATING_POINT;
+          }
+        } else {
+          i++;
+        }
+
+        if (kind != 0) {
+          if (literals.size() == MAX_NUM_LITERALS) {
+            return null;
+          }
+          literals.add(query.substring(start, i));
+          kinds.add(kind);
+          startIndexes.add(start);
+          endIndexes.add(i);
+          inWhereClause.add(inWhere);
+          key.append(SENTINEL_CHAR).append(kind);
+        } else {
+          key.append(query, start, i);
+        }
+      }
+      return new QueryShape(query, key.toString(), literals, kinds, startIndexes, endIndexes, inWhereClause);
+    }
+
+    private static boolean isDigit(String query, int index) {
+      if (index >= query.length()) {
+        return false;
+      }
+      char c = query.charAt(index);
+      return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(String query, int index) {
+      char c = query.charAt(index);
+      if (c == '$') {
+        return index + 1 < query.length() && isLetter(query.charAt(index + 1));
+      }
+      return isLetter(c);
+    }
+
+    private static boolean isLetter(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+      return isLetter(c) || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    private static boolean isNumberStart(String query, int index) {
+      char c = query.charAt(index);
+      if (c == '+' || c == '-') {
+        index++;
+        if (isDigit(query, index)) {
+          return true;
+        }
+        return index < query.length() && query.charAt(index) == '.' && isDigit(query, index + 1);
+      }
+      if (c == '.') {
+        return isDigit(query, index + 1);
+      }
+      return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Renders the query with the sentinel literals for the parameters.
+     */
+    String render(boolean[] isParameter) {
+      StringBuilder stringBuilder = new StringBuilder(_query.length());
+      int previousEnd = 0;
+      for (int i = 0; i < _literals.length; i++) {
+        if (isParameter[i]) {
+          stringBuilder.append(_query, previousEnd, _startIndexes[i]).append(getSentinelLiteral(_kinds[i], i));
+          previousEnd = _endIndexes[i];
+        }
+      }
+      return stringBuilder.append(_query, previousEnd, _query.length()).toString();
+    }
+  }
+
+  /**
+   * Filter value with parameters, stored as the constant pieces between the parameters.
+   */
+  private static class BoundValue {
+    final int _filterId;
+    final int _valueIndex;
+    // Has one more piece than slots
+    final String[] _pieces;
+    final int[] _slots;
+
+    BoundValue(int filterId, int valueIndex, String[] pieces, int[] slots) {
+      _filterId = filterId;
+      _valueIndex = valueIndex;
+      _pieces = pieces;
+      _slots = slots;
+    }
+
+    /**
+     * Splits the filter value on the sentinels, or returns <code>null</code> if the value contains no sentinel.
+     */
+    @Nullable
+    static BoundValue of(int filterId, int valueIndex, String value, String[] sentinels) {
+      List<String> pieces = new ArrayList<>();
+      List<Integer> slots = new ArrayList<>();
+      int start = 0;
+      while (true) {
+        // Find the next sentinel in the value
+        int nextIndex = -1;
+        int nextSlot = -1;
+        for (int slot = 0; slot < sentinels.length; slot++) {
+          if (sentinels[slot] != null) {
+            int index = value.indexOf(sentinels[slot], start);
+            if (index >= 0 && (nextIndex < 0 || index < nextIndex)) {
+              nextIndex = index;
+              nextSlot = slot;
+            }
+          }
+        }
+        if (nextIndex < 0) {
+          break;
+        }
+        pieces.add(value.substring(start, nextIndex));
+        slots.add(nextSlot);
+        start = nextIndex + sentinels[nextSlot].length();
+      }
+      if (slots.isEmpty()) {
+        return null;
+      }
+      pieces.add(value.substring(start));
+      int[] slotArray = new int[slots.size()];
+      for (int i = 0; i < slotArray.length; i++) {
+        slotArray[i] = slots.get(i);
+      }
+      return new BoundValue(filterId, valueIndex, pieces.toArray(new String[pieces.size()]), slotArray);
+    }
+
+    String bind(String[] literalValues) {
+      StringBuilder stringBuilder = new StringBuilder(_pieces[0]);
+      for (int i = 0; i < _slots.length; i++) {
+        stringBuilder.append(literalValues[_slots[i]]).append(_pieces[i + 1]);
+      }
+      return stringBuilder.toString();
+    }
+  }
+
+  /**
+   * Compiled broker request with sentinels in the parameter slots.
+   */
+  private static class Template {
+    final BrokerRequest _skeleton;
+    final boolean[] _isParameter;
+    // Literals compiled into the template as is, null for parameters
+    final String[] _inlineLiterals;
+    final List<BoundValue> _boundValues;
+    final List<Integer> _dedupFilterIds;
+
+    Template(BrokerRequest skeleton, boolean[] isParameter, String[] inlineLiterals, List<BoundValue> boundValues,
+        List<Integer> dedupFilterIds) {
+      _skeleton = skeleton;
+      _isParameter = isParameter;
+      _inlineLiterals = inlineLiterals;
+      _boundValues = boundValues;
+      _dedupFilterIds = dedupFilterIds;
+    }
+
+    boolean matchesInlineLiterals(QueryShape queryShape) {
+      for (int i = 0; i < _inlineLiterals.length; i++) {
+        if (_inlineLiterals[i] != null && !_inlineLiterals[i].equals(queryShape._literals[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Binds the literals of the query into a copy of the template, or returns <code>null</code> if some literal
+     * cannot be compiled.
+     */
+    @Nullable
+    BrokerRequest bind(QueryShape queryShape) {
+      int numLiterals = _isParameter.length;
+      String[] literalValues = new String[numLiterals];
+      for (int i = 0; i < numLiterals; i++) {
+        if (_isParameter[i]) {
+          literalValues[i] = getLiteralValue(queryShape._kinds[i], queryShape._literals[i]);
+          if (literalValues[i] == null) {
+            return null;
+          }
+        }
+      }
+
+      BrokerRequest brokerRequest = _skeleton.deepCopy();
+      if (!brokerRequest.isSetFilterSubQueryMap()) {
+        return brokerRequest;
+      }
+      Map<Integer, FilterQuery> filterQueryMap = brokerRequest.getFilterSubQueryMap().getFilterQueryMap();
+      for (BoundValue boundValue : _boundValues) {
+        filterQueryMap.get(boundValue._filterId).getValue().set(boundValue._valueIndex, boundValue.bind(literalValues));
+      }
+      for (int filterId : _dedupFilterIds) {
+        FilterQuery filterQuery = filterQueryMap.get(filterId);
+        filterQuery.setValue(new ArrayList<>(new HashSet<>(filterQuery.getValue())));
+      }
+      // Root filter query should be the same instance as the one inside the map
+      brokerRequest.setFilterQuery(filterQueryMap.get(brokerRequest.getFilterQuery().getId()));
+      return brokerRequest;
+    }
+  }
+}
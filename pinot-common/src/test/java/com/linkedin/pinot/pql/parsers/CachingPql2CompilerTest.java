@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.pql.parsers;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class CachingPql2CompilerTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+
+  @Test
+  public void testQueryShape() {
+    CachingPql2Compiler.QueryShape queryShape = CachingPql2Compiler.QueryShape.of(
+        "SELECT COUNT(*) FROM t WHERE a = 'x''y' AND b > -5 AND c IN (1.5, .5, \"q\") AND d-1 BETWEEN 3 AND +4 "
+            + "GROUP BY e TOP 10");
+    Assert.assertNotNull(queryShape);
+    Assert.assertEquals(queryShape._literals,
+        new String[]{"'x''y'", "-5", "1.5", ".5", "\"q\"", "3", "+4", "10"});
+    Assert.assertEquals(queryShape._kinds, new char[]{'S', 'I', 'F', 'F', 'S', 'I', 'I', 'I'});
+    Assert.assertEquals(queryShape._inWhereClause, new boolean[]{true, true, true, true, true, true, true, false});
+
+    // Same shape with different literals
+    CachingPql2Compiler.QueryShape otherQueryShape = CachingPql2Compiler.QueryShape.of(
+        "SELECT COUNT(*) FROM t WHERE a = 'z' AND b > 7 AND c IN (2.0, 3., 'r') AND d-1 BETWEEN 0 AND 1 "
+            + "GROUP BY e TOP 20");
+    Assert.assertNotNull(otherQueryShape);
+    Assert.assertEquals(otherQueryShape._key, queryShape._key);
+
+    // Comment and unterminated literal
+    Assert.assertNull(CachingPql2Compiler.QueryShape.of("SELECT * FROM t -- comment"));
+    Assert.assertNull(CachingPql2Compiler.QueryShape.of("SELECT * FROM t WHERE a = 'foo"));
+  }
+
+  @Test
+  public void testCompile() {
+    CachingPql2Compiler cachingCompiler = new CachingPql2Compiler(10);
+    String[] queries = new String[]{
+        "SELECT COUNT(*) FROM t WHERE a = 'foo' AND b > -5 AND c IN ('x', 'y') GROUP BY d TOP 10",
+        "SELECT COUNT(*) FROM t WHERE a = 'Martha''s Vineyard' AND b > 7 AND c IN ('z', 'z') GROUP BY d TOP 10",
+        // Different TOP
+        "SELECT COUNT(*) FROM t WHERE a = 'bar' AND b > 3 AND c IN ('x', 'z') GROUP BY d TOP 20",
+        "SELECT * FROM t WHERE a BETWEEN 1.5 AND 2 OR (b <> \"foo\" AND c NOT IN (1, 2, 3)) LIMIT 5",
+        "SELECT * FROM t WHERE a BETWEEN 0.5 AND 7 OR (b <> \"bar\" AND c NOT IN (4, 5, 6)) LIMIT 5",
+        // Literals outside of the WHERE clause
+        "SELECT SUM(a) FROM t WHERE c = 1 GROUP BY d HAVING SUM(a) > 10",
+        "SELECT SUM(a) FROM t WHERE c = 2 GROUP BY d HAVING SUM(a) > 10",
+        "SELECT SUM(a) FROM t WHERE REGEXP_LIKE(b, 'foo.*') OPTION(timeoutMs = 100)",
+        "SELECT SUM(a) FROM t WHERE REGEXP_LIKE(b, 'bar.*') OPTION(timeoutMs = 100)",
+        "SELECT COUNT(*) FROM t"
+    };
+    for (String query : queries) {
+      BrokerRequest expected = COMPILER.compileToBrokerRequest(query);
+      Assert.assertEquals(cachingCompiler.compileToBrokerRequest(query), expected, query);
+      // Compile again from the cached template
+      Assert.assertEquals(cachingCompiler.compileToBrokerRequest(query), expected, query);
+    }
+    Assert.assertEquals(cachingCompiler.getNumTemplates(), 5L);
+
+    // Invalid queries
+    for (String query : new String[]{"SELECT * FROM t WHERE a = 99999999999999999999", "SELECT * FROM t WHERE"}) {
+      try {
+        cachingCompiler.compileToBrokerRequest(query);
+        Assert.fail("Query should fail compilation: " + query);
+      } catch (Pql2CompilationException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -161,4 +161,7 @@ struct InstanceRequest {
   3: optional list<string> searchSegments;
   4: optional bool enableTrace;
   5: optional string brokerId;
+  6: optional BrokerRequest hybridQuery;
+  7: optional list<string> hybridSearchSegments;
+  8: optional bool cancel;
 }
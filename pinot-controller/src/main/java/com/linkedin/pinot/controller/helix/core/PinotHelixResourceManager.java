@@ -25,6 +25,7 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import com.linkedin.pinot.common.config.IndexingConfig;
 import com.linkedin.pinot.common.config.OfflineTagConfig;
 import com.linkedin.pinot.common.config.RealtimeTagConfig;
+import com.linkedin.pinot.common.config.RoutingConfig;
 import com.linkedin.pinot.common.config.SegmentsValidationAndRetentionConfig;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.config.TableCustomConfig;
@@ -1490,7 +1491,8 @@ public class PinotHelixResourceManager {
       // For segment validation errors we would have returned earlier.
       sendSegmentRefreshMessage(offlineSegmentZKMetadata);
       // Send a message to the brokers to update the table's time boundary info if the segment push type is APPEND.
-      if (shouldSendTimeboundaryRefreshMsg(rawTableName, tableConfig)) {
+      // The message also refreshes the segment ZK metadata cached on the brokers for pruning.
+      if (shouldSendTimeboundaryRefreshMsg(rawTableName, tableConfig) || isBrokerSegmentPruningEnabled(tableConfig)) {
         sendTimeboundaryRefreshMessageToBrokers(offlineSegmentZKMetadata);
       }
     } else {
@@ -1499,6 +1501,11 @@ public class PinotHelixResourceManager {
         LOGGER.error("Failed to refresh segment: {} of table: {} by the ONLINE->OFFLINE->ONLINE state transition",
             segmentName, offlineTableName);
       }
+      // The segment ZK metadata cached on the brokers for pruning is not refreshed on external view change for
+      // existing segments
+      if (isBrokerSegmentPruningEnabled(tableConfig)) {
+        sendTimeboundaryRefreshMessageToBrokers(offlineSegmentZKMetadata);
+      }
     }
   }
 
@@ -1613,6 +1620,13 @@ public class PinotHelixResourceManager {
     return validationConfig != null && APPEND.equals(validationConfig.getSegmentPushType());
   }
 
+  // Return true iff the brokers cache the segment ZK metadata to prune segments for the table.
+  private boolean isBrokerSegmentPruningEnabled(TableConfig tableConfig) {
+    RoutingConfig routingConfig = tableConfig.getRoutingConfig();
+    return routingConfig != null && Boolean.parseBoolean(
+        routingConfig.getRoutingTableBuilderOptions().get(RoutingConfig.ENABLE_BROKER_SEGMENT_PRUNING_KEY));
+  }
+
   /**
    * Attempt to send a message to refresh the new segment. We do not wait for any acknowledgements.
    * The message is sent as session-specific, so if a new zk session is created (e.g. server restarts)
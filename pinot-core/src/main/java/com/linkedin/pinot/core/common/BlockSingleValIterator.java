@@ -48,4 +48,19 @@ public abstract class BlockSingleValIterator implements BlockValIterator {
   public String nextStringVal() {
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Read the next int values (dictionary ids or raw int values) into the buffer in batch.
+   *
+   * @param buffer Output buffer.
+   * @param maxLength Maximum number of values to read.
+   * @return Number of values read.
+   */
+  public int nextIntVals(int[] buffer, int maxLength) {
+    int length = 0;
+    while (length < maxLength && hasNext()) {
+      buffer[length++] = nextIntVal();
+    }
+    return length;
+  }
 }
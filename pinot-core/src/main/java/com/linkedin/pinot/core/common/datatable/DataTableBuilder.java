@@ -21,9 +21,11 @@ import com.linkedin.pinot.common.request.Selection;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.core.common.ObjectSerDeUtils;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -74,6 +76,8 @@ import javax.annotation.Nonnull;
  * first.Overall having dictionary allow us to convert data table into a fixed
  * width matrix and thus allowing look up and easy traversal.
  *
+ * When building data table V3 ({@link DataTableImplV3}), the values of each column are written into their own
+ * column block instead of the rows, and the variable size data is shared with V2.
  *
  */
 // TODO: potential optimizations:
@@ -81,9 +85,17 @@ import javax.annotation.Nonnull;
 // TODO:   2. Use one dictionary for all columns (save space).
 // TODO:   3. Given a data schema, write all values one by one instead of using rowId and colId to position (save time).
 public class DataTableBuilder {
+  // Initial number of rows of the column blocks for data table V3
+  private static final int INITIAL_COLUMN_BLOCK_NUM_ROWS = 64;
+
   private final DataSchema _dataSchema;
+  private final ChunkCompressorFactory.CompressionType _compressionType;
+  // For data table V2
   private final int[] _columnOffsets;
   private final int _rowSizeInBytes;
+  // For data table V3
+  private final int[] _valueSizes;
+  private final ByteBuffer[] _columnBlocks;
   private final Map<String, Map<String, Integer>> _dictionaryMap = new HashMap<>();
   private final Map<String, Map<Integer, String>> _reverseDictionaryMap = new HashMap<>();
   private final ByteArrayOutputStream _fixedSizeDataByteArrayOutputStream = new ByteArrayOutputStream();
@@ -94,59 +106,110 @@ public class DataTableBuilder {
   private int _numRows;
   private ByteBuffer _currentRowDataByteBuffer;
 
+  /**
+   * Constructor for the data table builder, which builds the data table version negotiated by the query registered to
+   * the current thread (see {@link QueryExecutionContext}), or the default version if no query is registered.
+   */
   public DataTableBuilder(@Nonnull DataSchema dataSchema) {
+    this(dataSchema, QueryExecutionContext.get());
+  }
+
+  private DataTableBuilder(@Nonnull DataSchema dataSchema, QueryExecutionContext executionContext) {
+    this(dataSchema,
+        (executionContext != null) ? executionContext.getDataTableVersion() : DataTableFactory.DEFAULT_VERSION,
+        (executionContext != null) ? executionContext.getDataTableCompressionType()
+            : ChunkCompressorFactory.CompressionType.PASS_THROUGH);
+  }
+
+  public DataTableBuilder(@Nonnull DataSchema dataSchema, int version,
+      @Nonnull ChunkCompressorFactory.CompressionType compressionType) {
     _dataSchema = dataSchema;
-    _columnOffsets = new int[dataSchema.size()];
-    _rowSizeInBytes = DataTableUtils.computeColumnOffsets(dataSchema, _columnOffsets);
+    _compressionType = compressionType;
+    int numColumns = dataSchema.size();
+    if (version == DataTableImplV3.VERSION) {
+      _columnOffsets = null;
+      _rowSizeInBytes = 0;
+      _valueSizes = new int[numColumns];
+      _columnBlocks = new ByteBuffer[numColumns];
+      for (int colId = 0; colId < numColumns; colId++) {
+        _valueSizes[colId] = DataTableImplV3.getValueSizeInBytes(dataSchema.getColumnDataType(colId));
+        _columnBlocks[colId] = ByteBuffer.allocate(INITIAL_COLUMN_BLOCK_NUM_ROWS * _valueSizes[colId]);
+      }
+    } else {
+      _columnOffsets = new int[numColumns];
+      _rowSizeInBytes = DataTableUtils.computeColumnOffsets(dataSchema, _columnOffsets);
+      _valueSizes = null;
+      _columnBlocks = null;
+    }
   }
 
   public void startRow() {
     _numRows++;
-    _currentRowDataByteBuffer = ByteBuffer.allocate(_rowSizeInBytes);
+    if (_columnBlocks == null) {
+      _currentRowDataByteBuffer = ByteBuffer.allocate(_rowSizeInBytes);
+    } else {
+      // Grow the column blocks that cannot hold the new row
+      int numColumns = _columnBlocks.length;
+      for (int colId = 0; colId < numColumns; colId++) {
+        byte[] columnBlockBytes = _columnBlocks[colId].array();
+        int requiredSize = _numRows * _valueSizes[colId];
+        if (columnBlockBytes.length < requiredSize) {
+          _columnBlocks[colId] =
+              ByteBuffer.wrap(Arrays.copyOf(columnBlockBytes, Math.max(requiredSize, columnBlockBytes.length * 2)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the byte buffer positioned at the value of the given column for the current row.
+   */
+  private ByteBuffer getValueByteBuffer(int colId) {
+    if (_columnBlocks == null) {
+      _currentRowDataByteBuffer.position(_columnOffsets[colId]);
+      return _currentRowDataByteBuffer;
+    } else {
+      ByteBuffer columnBlock = _columnBlocks[colId];
+      columnBlock.position((_numRows - 1) * _valueSizes[colId]);
+      return columnBlock;
+    }
   }
 
   public void setColumn(int colId, boolean value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
     if (value) {
-      _currentRowDataByteBuffer.put((byte) 1);
+      byteBuffer.put((byte) 1);
     } else {
-      _currentRowDataByteBuffer.put((byte) 0);
+      byteBuffer.put((byte) 0);
     }
   }
 
   public void setColumn(int colId, byte value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.put(value);
+    getValueByteBuffer(colId).put(value);
   }
 
   public void setColumn(int colId, char value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putChar(value);
+    getValueByteBuffer(colId).putChar(value);
   }
 
   public void setColumn(int colId, short value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putShort(value);
+    getValueByteBuffer(colId).putShort(value);
   }
 
   public void setColumn(int colId, int value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(value);
+    getValueByteBuffer(colId).putInt(value);
   }
 
   public void setColumn(int colId, long value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putLong(value);
+    getValueByteBuffer(colId).putLong(value);
   }
 
   public void setColumn(int colId, float value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putFloat(value);
+    getValueByteBuffer(colId).putFloat(value);
   }
 
   public void setColumn(int colId, double value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putDouble(value);
+    getValueByteBuffer(colId).putDouble(value);
   }
 
   public void setColumn(int colId, @Nonnull String value) {
@@ -158,93 +221,92 @@ public class DataTableBuilder {
       _reverseDictionaryMap.put(columnName, new HashMap<>());
     }
 
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
     Integer dictId = dictionary.get(value);
     if (dictId == null) {
       dictId = dictionary.size();
       dictionary.put(value, dictId);
       _reverseDictionaryMap.get(columnName).put(dictId, value);
     }
-    _currentRowDataByteBuffer.putInt(dictId);
+    getValueByteBuffer(colId).putInt(dictId);
   }
 
   public void setColumn(int colId, @Nonnull Object value) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
     int objectTypeValue = ObjectSerDeUtils.ObjectType.getObjectType(value).getValue();
     byte[] bytes = ObjectSerDeUtils.serialize(value, objectTypeValue);
-    _currentRowDataByteBuffer.putInt(bytes.length);
+    byteBuffer.putInt(bytes.length);
     _variableSizeDataOutputStream.writeInt(objectTypeValue);
     _variableSizeDataByteArrayOutputStream.write(bytes);
   }
 
   public void setColumn(int colId, @Nonnull byte[] values) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (byte value : values) {
       _variableSizeDataByteArrayOutputStream.write(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull char[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (char value : values) {
       _variableSizeDataOutputStream.writeChar(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull short[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (short value : values) {
       _variableSizeDataOutputStream.writeShort(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull int[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (int value : values) {
       _variableSizeDataOutputStream.writeInt(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull long[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (long value : values) {
       _variableSizeDataOutputStream.writeLong(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull float[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (float value : values) {
       _variableSizeDataOutputStream.writeFloat(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull double[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
     for (double value : values) {
       _variableSizeDataOutputStream.writeDouble(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull String[] values) throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    ByteBuffer byteBuffer = getValueByteBuffer(colId);
+    byteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+    byteBuffer.putInt(values.length);
 
     String columnName = _dataSchema.getColumnName(colId);
     Map<String, Integer> dictionary = _dictionaryMap.get(columnName);
@@ -266,12 +328,42 @@ public class DataTableBuilder {
   }
 
   public void finishRow() throws IOException {
-    _fixedSizeDataByteArrayOutputStream.write(_currentRowDataByteBuffer.array());
+    if (_columnBlocks == null) {
+      _fixedSizeDataByteArrayOutputStream.write(_currentRowDataByteBuffer.array());
+    }
   }
 
   public DataTable build() {
-    return new DataTableImplV2(_numRows, _dataSchema, _reverseDictionaryMap,
-        _fixedSizeDataByteArrayOutputStream.toByteArray(), _variableSizeDataByteArrayOutputStream.toByteArray());
+    if (_columnBlocks == null) {
+      return new DataTableImplV2(_numRows, _dataSchema, _reverseDictionaryMap,
+          _fixedSizeDataByteArrayOutputStream.toByteArray(), _variableSizeDataByteArrayOutputStream.toByteArray());
+    }
+
+    int numColumns = _columnBlocks.length;
+    ByteBuffer[] columnData = new ByteBuffer[numColumns];
+    String[][] dictionaries = new String[numColumns][];
+    for (int colId = 0; colId < numColumns; colId++) {
+      byte[] columnBlockBytes = _columnBlocks[colId].array();
+      int columnDataSize = _numRows * _valueSizes[colId];
+      columnData[colId] = ByteBuffer.wrap((columnBlockBytes.length == columnDataSize) ? columnBlockBytes
+          : Arrays.copyOf(columnBlockBytes, columnDataSize));
+
+      DataSchema.ColumnDataType columnDataType = _dataSchema.getColumnDataType(colId);
+      if (columnDataType == DataSchema.ColumnDataType.STRING
+          || columnDataType == DataSchema.ColumnDataType.STRING_ARRAY) {
+        // Dictionary ids are assigned sequentially
+        Map<Integer, String> reverseDictionary = _reverseDictionaryMap.get(_dataSchema.getColumnName(colId));
+        String[] values = new String[(reverseDictionary != null) ? reverseDictionary.size() : 0];
+        if (reverseDictionary != null) {
+          for (Map.Entry<Integer, String> entry : reverseDictionary.entrySet()) {
+            values[entry.getKey()] = entry.getValue();
+          }
+        }
+        dictionaries[colId] = values;
+      }
+    }
+    return new DataTableImplV3(_numRows, _dataSchema, _compressionType, columnData, dictionaries,
+        _variableSizeDataByteArrayOutputStream.toByteArray());
   }
 
   /**
@@ -15,12 +15,28 @@
  */
 package com.linkedin.pinot.core.common.datatable;
 
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.DataTable;
+import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Map;
+import javax.annotation.Nonnull;
 
 
+/**
+ * Factory for data tables.
+ * <p>Brokers can read all the supported data table versions. Servers keep responding with data table V2 unless the
+ * broker advertises a higher version in the query options of the request, so that brokers and servers on different
+ * versions can still work together. The negotiated version is set into the
+ * {@link com.linkedin.pinot.core.query.request.context.QueryExecutionContext} of the query, so that the
+ * {@link DataTableBuilder} directly writes the data table in that version.
+ */
 public class DataTableFactory {
+  public static final int DEFAULT_VERSION = 2;
+  public static final int LATEST_VERSION = DataTableImplV3.VERSION;
+
   private DataTableFactory() {
   }
 
@@ -29,6 +45,8 @@ public class DataTableFactory {
     switch (version) {
       case 2:
         return new DataTableImplV2(byteBuffer);
+      case 3:
+        return new DataTableImplV3(byteBuffer);
       default:
         throw new UnsupportedOperationException("Unsupported data table version: " + version);
     }
@@ -37,4 +55,45 @@ public class DataTableFactory {
   public static DataTable getDataTable(byte[] bytes) throws IOException {
     return getDataTable(ByteBuffer.wrap(bytes));
   }
+
+  /**
+   * Deserialize a data table from a Netty buffer, which is released by the caller after this method returns.
+   * <p>Data table V2 copies each section out of the buffer while deserializing. Data table V3 reads its blocks in
+   * place without copying, so it retains the buffer until {@link DataTable#release()} is called.
+   */
+  public static DataTable getDataTable(@Nonnull ByteBuf byteBuf) throws IOException {
+    ByteBuffer byteBuffer = byteBuf.nioBuffer();
+    int version = byteBuffer.getInt();
+    if (version != DataTableImplV3.VERSION) {
+      byteBuffer.rewind();
+      return getDataTable(byteBuffer);
+    }
+    byteBuf.retain();
+    try {
+      return new DataTableImplV3(byteBuffer, byteBuf);
+    } catch (IOException | RuntimeException e) {
+      byteBuf.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the data table version to respond with for the given broker request, which is the highest version
+   * supported by both the broker (from the query options) and the server (capped by the given max version).
+   */
+  public static int getResponseVersion(@Nonnull BrokerRequest brokerRequest, int maxVersion) {
+    Map<String, String> queryOptions = brokerRequest.getQueryOptions();
+    if (queryOptions == null) {
+      return DEFAULT_VERSION;
+    }
+    String brokerVersion = queryOptions.get(CommonConstants.Broker.Request.QueryOptionKey.DATA_TABLE_VERSION);
+    if (brokerVersion == null) {
+      return DEFAULT_VERSION;
+    }
+    try {
+      return Math.max(DEFAULT_VERSION, Math.min(Math.min(Integer.parseInt(brokerVersion), maxVersion), LATEST_VERSION));
+    } catch (NumberFormatException e) {
+      return DEFAULT_VERSION;
+    }
+  }
 }
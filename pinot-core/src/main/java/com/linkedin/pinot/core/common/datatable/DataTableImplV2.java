@@ -31,7 +31,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import org.apache.commons.lang3.StringUtils;
 
 
 public class DataTableImplV2 implements DataTable {
@@ -127,7 +126,7 @@ public class DataTableImplV2 implements DataTable {
     byte[] metadataBytes = new byte[metadataLength];
     byteBuffer.position(metadataStart);
     byteBuffer.get(metadataBytes);
-    _metadata = deserializeMetadata(metadataBytes);
+    _metadata = DataTableUtils.deserializeMetadata(metadataBytes);
 
     // Read data schema.
     if (dataSchemaLength != 0) {
@@ -173,12 +172,12 @@ public class DataTableImplV2 implements DataTable {
       Map<String, Map<Integer, String>> dictionaryMap = new HashMap<>(numDictionaries);
 
       for (int i = 0; i < numDictionaries; i++) {
-        String column = decodeString(dataInputStream);
+        String column = DataTableUtils.decodeString(dataInputStream);
         int dictionarySize = dataInputStream.readInt();
         Map<Integer, String> dictionary = new HashMap<>(dictionarySize);
         for (int j = 0; j < dictionarySize; j++) {
           int key = dataInputStream.readInt();
-          String value = decodeString(dataInputStream);
+          String value = DataTableUtils.decodeString(dataInputStream);
           dictionary.put(key, value);
         }
         dictionaryMap.put(column, dictionary);
@@ -188,34 +187,6 @@ public class DataTableImplV2 implements DataTable {
     }
   }
 
-  private Map<String, String> deserializeMetadata(byte[] bytes) throws IOException {
-    try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-        DataInputStream dataInputStream = new DataInputStream(byteArrayInputStream)) {
-      int numEntries = dataInputStream.readInt();
-      Map<String, String> metadata = new HashMap<>(numEntries);
-
-      for (int i = 0; i < numEntries; i++) {
-        String key = decodeString(dataInputStream);
-        String value = decodeString(dataInputStream);
-        metadata.put(key, value);
-      }
-
-      return metadata;
-    }
-  }
-
-  private static String decodeString(DataInputStream dataInputStream) throws IOException {
-    int length = dataInputStream.readInt();
-    if (length == 0) {
-      return StringUtils.EMPTY;
-    } else {
-      byte[] buffer = new byte[length];
-      int numBytesRead = dataInputStream.read(buffer);
-      assert numBytesRead == length;
-      return StringUtil.decodeUtf8(buffer);
-    }
-  }
-
   @Override
   public void addException(@Nonnull ProcessingException processingException) {
     _metadata.put(EXCEPTION_METADATA_KEY + processingException.getErrorCode(), processingException.getMessage());
@@ -244,7 +215,7 @@ public class DataTableImplV2 implements DataTable {
 
     // Write metadata.
     dataOutputStream.writeInt(dataOffset);
-    byte[] metadataBytes = serializeMetadata();
+    byte[] metadataBytes = DataTableUtils.serializeMetadata(_metadata);
     dataOutputStream.writeInt(metadataBytes.length);
     dataOffset += metadataBytes.length;
 
@@ -318,24 +289,6 @@ public class DataTableImplV2 implements DataTable {
     return byteArrayOutputStream.toByteArray();
   }
 
-  private byte[] serializeMetadata() throws IOException {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
-
-    dataOutputStream.writeInt(_metadata.size());
-    for (Entry<String, String> entry : _metadata.entrySet()) {
-      byte[] keyBytes = StringUtil.encodeUtf8(entry.getKey());
-      dataOutputStream.writeInt(keyBytes.length);
-      dataOutputStream.write(keyBytes);
-
-      byte[] valueBytes = StringUtil.encodeUtf8(entry.getValue());
-      dataOutputStream.writeInt(valueBytes.length);
-      dataOutputStream.write(valueBytes);
-    }
-
-    return byteArrayOutputStream.toByteArray();
-  }
-
   @Nonnull
   @Override
   public Map<String, String> getMetadata() {
@@ -0,0 +1,580 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.common.datatable;
+
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.StringUtil;
+import com.linkedin.pinot.core.common.ObjectSerDeUtils;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
+import io.netty.buffer.ByteBuf;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.xerial.snappy.Snappy;
+
+
+/**
+ * Column-major data table.
+ * <p>Compared to {@link DataTableImplV2}:
+ * <ul>
+ *   <li>Values of each column are stored contiguously in their own block, FLOAT takes 4 bytes</li>
+ *   <li>STRING and STRING_ARRAY columns carry their own dictionary, stored as offsets plus UTF-8 bytes, and values
+ *   are decoded lazily on first access instead of deserializing every dictionary into a map</li>
+ *   <li>Each block can be compressed independently, uncompressed blocks are read in place from the buffer passed to
+ *   {@link #DataTableImplV3(ByteBuffer)} without copying</li>
+ *   <li>Values are read with absolute positions, so the data table can be read by multiple threads</li>
+ * </ul>
+ * <p>Data table V3 is built on the server side by the {@link DataTableBuilder}, which writes the column blocks directly
+ * when the query negotiates data table V3.
+ */
+public class DataTableImplV3 implements DataTable {
+  public static final int VERSION = 3;
+
+  // VERSION
+  // NUM_ROWS
+  // NUM_COLUMNS
+  // COMPRESSION_TYPE
+  // METADATA (START|SIZE)
+  // DATA_SCHEMA (START|SIZE)
+  // COLUMN_INDEX (START|SIZE)
+  // VARIABLE_SIZE_DATA (START|SIZE|UNCOMPRESSED_SIZE)
+  private static final int HEADER_SIZE = Integer.BYTES * 13;
+
+  // For each column:
+  // DICTIONARY (START|SIZE|UNCOMPRESSED_SIZE)
+  // COLUMN_DATA (START|SIZE|UNCOMPRESSED_SIZE)
+  private static final int COLUMN_INDEX_ENTRY_SIZE = Integer.BYTES * 6;
+
+  private final int _numRows;
+  private final int _numColumns;
+  private final DataSchema _dataSchema;
+  private final ChunkCompressorFactory.CompressionType _compressionType;
+  private final ByteBuffer[] _columnData;
+  private final ByteBuffer[] _dictionaries;
+  private final String[][] _decodedDictionaries;
+  private final ByteBuffer _variableSizeData;
+  private final Map<String, String> _metadata;
+  // Network buffer the blocks are read from, retained by the data table until it is released
+  private final ByteBuf _byteBuf;
+  private final AtomicBoolean _released = new AtomicBoolean();
+
+  /**
+   * Construct empty data table. (Server side)
+   */
+  public DataTableImplV3() {
+    _numRows = 0;
+    _numColumns = 0;
+    _dataSchema = null;
+    _compressionType = ChunkCompressorFactory.CompressionType.PASS_THROUGH;
+    _columnData = new ByteBuffer[0];
+    _dictionaries = new ByteBuffer[0];
+    _decodedDictionaries = new String[0][];
+    _variableSizeData = null;
+    _metadata = new HashMap<>();
+    _byteBuf = null;
+  }
+
+  /**
+   * Construct data table from the blocks written by the {@link DataTableBuilder}. (Server side)
+   *
+   * @param numRows Number of rows
+   * @param dataSchema Data schema
+   * @param compressionType Compression type for the blocks when serializing the data table
+   * @param columnData Fixed size values of each column, {@link #getValueSizeInBytes} bytes per row
+   * @param dictionaries Dictionary values of each STRING and STRING_ARRAY column (indexed by dictionary id), null for
+   *                     the other columns
+   * @param variableSizeDataBytes Variable size data shared by all columns
+   */
+  DataTableImplV3(int numRows, @Nonnull DataSchema dataSchema,
+      @Nonnull ChunkCompressorFactory.CompressionType compressionType, @Nonnull ByteBuffer[] columnData,
+      @Nonnull String[][] dictionaries, @Nonnull byte[] variableSizeDataBytes) {
+    _numRows = numRows;
+    _numColumns = dataSchema.size();
+    _dataSchema = dataSchema;
+    _compressionType = compressionType;
+    _columnData = columnData;
+    _dictionaries = new ByteBuffer[_numColumns];
+    _decodedDictionaries = dictionaries;
+    for (int colId = 0; colId < _numColumns; colId++) {
+      if (dictionaries[colId] != null) {
+        _dictionaries[colId] = encodeDictionary(dictionaries[colId]);
+      }
+    }
+    _variableSizeData = ByteBuffer.wrap(variableSizeDataBytes);
+    _metadata = new HashMap<>();
+    _byteBuf = null;
+  }
+
+  /**
+   * Construct data table from byte buffer. (broker side)
+   * <p>Uncompressed blocks are slices of the given byte buffer, so the byte buffer must not be modified or released
+   * while the data table is in use.
+   */
+  public DataTableImplV3(@Nonnull ByteBuffer byteBuffer) throws IOException {
+    this(byteBuffer, null);
+  }
+
+  /**
+   * Construct data table from the nio buffer of a (retained) Netty buffer. (broker side)
+   * <p>Uncompressed blocks are read in place from the Netty buffer, which is released when the data table is released.
+   */
+  DataTableImplV3(@Nonnull ByteBuffer byteBuffer, @Nullable ByteBuf byteBuf) throws IOException {
+    _byteBuf = byteBuf;
+
+    // Read header.
+    _numRows = byteBuffer.getInt();
+    _numColumns = byteBuffer.getInt();
+    _compressionType = getCompressionType(byteBuffer.getInt());
+    int metadataStart = byteBuffer.getInt();
+    int metadataLength = byteBuffer.getInt();
+    int dataSchemaStart = byteBuffer.getInt();
+    int dataSchemaLength = byteBuffer.getInt();
+    int columnIndexStart = byteBuffer.getInt();
+    int columnIndexLength = byteBuffer.getInt();
+    int variableSizeDataStart = byteBuffer.getInt();
+    int variableSizeDataLength = byteBuffer.getInt();
+    int variableSizeDataUncompressedLength = byteBuffer.getInt();
+
+    // Read metadata.
+    byte[] metadataBytes = new byte[metadataLength];
+    byteBuffer.position(metadataStart);
+    byteBuffer.get(metadataBytes);
+    _metadata = DataTableUtils.deserializeMetadata(metadataBytes);
+
+    // Read data schema.
+    if (dataSchemaLength != 0) {
+      byte[] schemaBytes = new byte[dataSchemaLength];
+      byteBuffer.position(dataSchemaStart);
+      byteBuffer.get(schemaBytes);
+      _dataSchema = DataSchema.fromBytes(schemaBytes);
+    } else {
+      _dataSchema = null;
+    }
+
+    // Read column index and locate the column blocks.
+    assert columnIndexLength == _numColumns * COLUMN_INDEX_ENTRY_SIZE;
+    _columnData = new ByteBuffer[_numColumns];
+    _dictionaries = new ByteBuffer[_numColumns];
+    _decodedDictionaries = new String[_numColumns][];
+    int columnIndexOffset = columnIndexStart;
+    for (int colId = 0; colId < _numColumns; colId++) {
+      int dictionaryStart = byteBuffer.getInt(columnIndexOffset);
+      int dictionaryLength = byteBuffer.getInt(columnIndexOffset + 4);
+      int dictionaryUncompressedLength = byteBuffer.getInt(columnIndexOffset + 8);
+      int columnDataStart = byteBuffer.getInt(columnIndexOffset + 12);
+      int columnDataLength = byteBuffer.getInt(columnIndexOffset + 16);
+      int columnDataUncompressedLength = byteBuffer.getInt(columnIndexOffset + 20);
+      columnIndexOffset += COLUMN_INDEX_ENTRY_SIZE;
+
+      if (dictionaryUncompressedLength != 0) {
+        _dictionaries[colId] =
+            readBlock(byteBuffer, dictionaryStart, dictionaryLength, dictionaryUncompressedLength);
+      }
+      _columnData[colId] = readBlock(byteBuffer, columnDataStart, columnDataLength, columnDataUncompressedLength);
+    }
+
+    // Read variable size data.
+    _variableSizeData =
+        readBlock(byteBuffer, variableSizeDataStart, variableSizeDataLength, variableSizeDataUncompressedLength);
+  }
+
+  /**
+   * Returns the size of each value in the column block for the given column data type.
+   */
+  static int getValueSizeInBytes(DataSchema.ColumnDataType columnDataType) {
+    switch (columnDataType) {
+      case INT:
+      case FLOAT:
+      case STRING:
+        return 4;
+      case LONG:
+      case DOUBLE:
+        return 8;
+      // Object and array. (POSITION|LENGTH)
+      default:
+        return 8;
+    }
+  }
+
+  private static ChunkCompressorFactory.CompressionType getCompressionType(int value) {
+    for (ChunkCompressorFactory.CompressionType compressionType : ChunkCompressorFactory.CompressionType.values()) {
+      if (compressionType.getValue() == value) {
+        return compressionType;
+      }
+    }
+    throw new UnsupportedOperationException("Unsupported compression type value: " + value);
+  }
+
+  /**
+   * Encode the dictionary values as: NUM_VALUES, (NUM_VALUES + 1) end exclusive offsets, UTF-8 bytes of all values.
+   */
+  private static ByteBuffer encodeDictionary(String[] values) {
+    int numValues = values.length;
+    byte[][] valueBytes = new byte[numValues][];
+    int numValueBytes = 0;
+    for (int i = 0; i < numValues; i++) {
+      valueBytes[i] = StringUtil.encodeUtf8(values[i]);
+      numValueBytes += valueBytes[i].length;
+    }
+
+    byte[] bytes = new byte[Integer.BYTES * (numValues + 2) + numValueBytes];
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    byteBuffer.putInt(numValues);
+    int offset = 0;
+    byteBuffer.putInt(offset);
+    for (byte[] value : valueBytes) {
+      offset += value.length;
+      byteBuffer.putInt(offset);
+    }
+    for (byte[] value : valueBytes) {
+      byteBuffer.put(value);
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private ByteBuffer readBlock(ByteBuffer byteBuffer, int start, int length, int uncompressedLength)
+      throws IOException {
+    ByteBuffer block = byteBuffer.duplicate();
+    block.limit(start + length);
+    block.position(start);
+    block = block.slice();
+    if (length == uncompressedLength) {
+      return block;
+    }
+
+    switch (_compressionType) {
+      case SNAPPY:
+        byte[] uncompressedBytes = new byte[uncompressedLength];
+        if (block.hasArray()) {
+          Snappy.uncompress(block.array(), block.arrayOffset(), length, uncompressedBytes, 0);
+        } else {
+          byte[] compressedBytes = new byte[length];
+          block.get(compressedBytes);
+          Snappy.uncompress(compressedBytes, 0, length, uncompressedBytes, 0);
+        }
+        return ByteBuffer.wrap(uncompressedBytes);
+      default:
+        throw new IllegalStateException(
+            "Block size: " + length + " does not match uncompressed size: " + uncompressedLength
+                + " for compression type: " + _compressionType);
+    }
+  }
+
+  /**
+   * Returns the bytes to write for the given block, compressed only if that makes it smaller.
+   */
+  private byte[] compressBlock(ByteBuffer block) throws IOException {
+    byte[] bytes;
+    if (block.hasArray() && block.arrayOffset() == 0 && block.position() == 0
+        && block.remaining() == block.array().length) {
+      bytes = block.array();
+    } else {
+      bytes = new byte[block.remaining()];
+      block.duplicate().get(bytes);
+    }
+    if (_compressionType == ChunkCompressorFactory.CompressionType.SNAPPY && bytes.length > 0) {
+      byte[] compressedBytes = Snappy.compress(bytes);
+      if (compressedBytes.length < bytes.length) {
+        return compressedBytes;
+      }
+    }
+    return bytes;
+  }
+
+  @Override
+  public void addException(@Nonnull ProcessingException processingException) {
+    _metadata.put(EXCEPTION_METADATA_KEY + processingException.getErrorCode(), processingException.getMessage());
+  }
+
+  @Nonnull
+  @Override
+  public byte[] toBytes() throws IOException {
+    byte[] metadataBytes = DataTableUtils.serializeMetadata(_metadata);
+    byte[] dataSchemaBytes = (_dataSchema != null) ? _dataSchema.toBytes() : new byte[0];
+    byte[][] dictionaryBytes = new byte[_numColumns][];
+    byte[][] columnDataBytes = new byte[_numColumns][];
+    for (int colId = 0; colId < _numColumns; colId++) {
+      if (_dictionaries[colId] != null) {
+        dictionaryBytes[colId] = compressBlock(_dictionaries[colId]);
+      }
+      columnDataBytes[colId] = compressBlock(_columnData[colId]);
+    }
+    byte[] variableSizeDataBytes = (_variableSizeData != null) ? compressBlock(_variableSizeData) : new byte[0];
+
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    dataOutputStream.writeInt(VERSION);
+    dataOutputStream.writeInt(_numRows);
+    dataOutputStream.writeInt(_numColumns);
+    dataOutputStream.writeInt(_compressionType.getValue());
+    int dataOffset = HEADER_SIZE;
+
+    // Write metadata.
+    dataOutputStream.writeInt(dataOffset);
+    dataOutputStream.writeInt(metadataBytes.length);
+    dataOffset += metadataBytes.length;
+
+    // Write data schema.
+    dataOutputStream.writeInt(dataOffset);
+    dataOutputStream.writeInt(dataSchemaBytes.length);
+    dataOffset += dataSchemaBytes.length;
+
+    // Write column index.
+    int columnIndexLength = _numColumns * COLUMN_INDEX_ENTRY_SIZE;
+    dataOutputStream.writeInt(dataOffset);
+    dataOutputStream.writeInt(columnIndexLength);
+    dataOffset += columnIndexLength;
+
+    // Write variable size data.
+    dataOutputStream.writeInt(dataOffset);
+    dataOutputStream.writeInt(variableSizeDataBytes.length);
+    dataOutputStream.writeInt((_variableSizeData != null) ? _variableSizeData.remaining() : 0);
+    dataOffset += variableSizeDataBytes.length;
+
+    // Write actual data.
+    dataOutputStream.write(metadataBytes);
+    dataOutputStream.write(dataSchemaBytes);
+    for (int colId = 0; colId < _numColumns; colId++) {
+      if (dictionaryBytes[colId] != null) {
+        dataOutputStream.writeInt(dataOffset);
+        dataOutputStream.writeInt(dictionaryBytes[colId].length);
+        dataOutputStream.writeInt(_dictionaries[colId].remaining());
+        dataOffset += dictionaryBytes[colId].length;
+      } else {
+        dataOutputStream.writeInt(dataOffset);
+        dataOutputStream.writeInt(0);
+        dataOutputStream.writeInt(0);
+      }
+      dataOutputStream.writeInt(dataOffset);
+      dataOutputStream.writeInt(columnDataBytes[colId].length);
+      dataOutputStream.writeInt(_columnData[colId].remaining());
+      dataOffset += columnDataBytes[colId].length;
+    }
+    dataOutputStream.write(variableSizeDataBytes);
+    for (int colId = 0; colId < _numColumns; colId++) {
+      if (dictionaryBytes[colId] != null) {
+        dataOutputStream.write(dictionaryBytes[colId]);
+      }
+      dataOutputStream.write(columnDataBytes[colId]);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  @Nonnull
+  @Override
+  public Map<String, String> getMetadata() {
+    return _metadata;
+  }
+
+  @Nullable
+  @Override
+  public DataSchema getDataSchema() {
+    return _dataSchema;
+  }
+
+  @Override
+  public int getNumberOfRows() {
+    return _numRows;
+  }
+
+  @Override
+  public int getInt(int rowId, int colId) {
+    return _columnData[colId].getInt(rowId * Integer.BYTES);
+  }
+
+  @Override
+  public long getLong(int rowId, int colId) {
+    return _columnData[colId].getLong(rowId * Long.BYTES);
+  }
+
+  @Override
+  public float getFloat(int rowId, int colId) {
+    return _columnData[colId].getFloat(rowId * Float.BYTES);
+  }
+
+  @Override
+  public double getDouble(int rowId, int colId) {
+    return _columnData[colId].getDouble(rowId * Double.BYTES);
+  }
+
+  @Nonnull
+  @Override
+  public String getString(int rowId, int colId) {
+    return getDictionaryValue(colId, _columnData[colId].getInt(rowId * Integer.BYTES));
+  }
+
+  @Nonnull
+  @Override
+  public <T> T getObject(int rowId, int colId) {
+    ByteBuffer columnData = _columnData[colId];
+    int position = columnData.getInt(rowId * 8);
+    int size = columnData.getInt(rowId * 8 + 4);
+    int objectTypeValue = _variableSizeData.getInt(position);
+    ByteBuffer byteBuffer = _variableSizeData.duplicate();
+    byteBuffer.limit(position + Integer.BYTES + size);
+    byteBuffer.position(position + Integer.BYTES);
+    return ObjectSerDeUtils.deserialize(byteBuffer.slice(), objectTypeValue);
+  }
+
+  @Nonnull
+  @Override
+  public int[] getIntArray(int rowId, int colId) {
+    ByteBuffer columnData = _columnData[colId];
+    int position = columnData.getInt(rowId * 8);
+    int length = columnData.getInt(rowId * 8 + 4);
+    int[] ints = new int[length];
+    for (int i = 0; i < length; i++) {
+      ints[i] = _variableSizeData.getInt(position + i * Integer.BYTES);
+    }
+    return ints;
+  }
+
+  @Nonnull
+  @Override
+  public long[] getLongArray(int rowId, int colId) {
+    ByteBuffer columnData = _columnData[colId];
+    int position = columnData.getInt(rowId * 8);
+    int length = columnData.getInt(rowId * 8 + 4);
+    long[] longs = new long[length];
+    for (int i = 0; i < length; i++) {
+      longs[i] = _variableSizeData.getLong(position + i * Long.BYTES);
+    }
+    return longs;
+  }
+
+  @Nonnull
+  @Override
+  public float[] getFloatArray(int rowId, int colId) {
+    ByteBuffer columnData = _columnData[colId];
+    int position = columnData.getInt(rowId * 8);
+    int length = columnData.getInt(rowId * 8 + 4);
+    float[] floats = new float[length];
+    for (int i = 0; i < length; i++) {
+      floats[i] = _variableSizeData.getFloat(position + i * Float.BYTES);
+    }
+    return floats;
+  }
+
+  @Nonnull
+  @Override
+  public double[] getDoubleArray(int rowId, int colId) {
+    ByteBuffer columnData = _columnData[colId];
+    int position = columnData.getInt(rowId * 8);
+    int length = columnData.getInt(rowId * 8 + 4);
+    double[] doubles = new double[length];
+    for (int i = 0; i < length; i++) {
+      doubles[i] = _variableSizeData.getDouble(position + i * Double.BYTES);
+    }
+    return doubles;
+  }
+
+  @Nonnull
+  @Override
+  public String[] getStringArray(int rowId, int colId) {
+    ByteBuffer columnData = _columnData[colId];
+    int position = columnData.getInt(rowId * 8);
+    int length = columnData.getInt(rowId * 8 + 4);
+    String[] strings = new String[length];
+    for (int i = 0; i < length; i++) {
+      strings[i] = getDictionaryValue(colId, _variableSizeData.getInt(position + i * Integer.BYTES));
+    }
+    return strings;
+  }
+
+  /**
+   * Returns the dictionary value for the given column and dictionary id, decoding it on first access.
+   * <p>Concurrent readers may decode the same value more than once, which is harmless.
+   */
+  private String getDictionaryValue(int colId, int dictId) {
+    ByteBuffer dictionary = _dictionaries[colId];
+    String[] values = _decodedDictionaries[colId];
+    if (values == null) {
+      values = new String[dictionary.getInt(0)];
+      _decodedDictionaries[colId] = values;
+    }
+    String value = values[dictId];
+    if (value == null) {
+      int valuesStart = Integer.BYTES * (values.length + 2);
+      int startOffset = dictionary.getInt(Integer.BYTES * (dictId + 1));
+      int endOffset = dictionary.getInt(Integer.BYTES * (dictId + 2));
+      byte[] bytes = new byte[endOffset - startOffset];
+      ByteBuffer valueBuffer = dictionary.duplicate();
+      valueBuffer.position(valuesStart + startOffset);
+      valueBuffer.get(bytes);
+      value = StringUtil.decodeUtf8(bytes);
+      values[dictId] = value;
+    }
+    return value;
+  }
+
+  @Override
+  public void release() {
+    if (_byteBuf != null && _released.compareAndSet(false, true)) {
+      _byteBuf.release();
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (_dataSchema == null) {
+      return _metadata.toString();
+    }
+
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(_dataSchema.toString()).append('\n');
+    stringBuilder.append("numRows: ").append(_numRows).append('\n');
+
+    for (int rowId = 0; rowId < _numRows; rowId++) {
+      for (int colId = 0; colId < _numColumns; colId++) {
+        ByteBuffer columnData = _columnData[colId];
+        switch (_dataSchema.getColumnDataType(colId)) {
+          case INT:
+            stringBuilder.append(getInt(rowId, colId));
+            break;
+          case LONG:
+            stringBuilder.append(getLong(rowId, colId));
+            break;
+          case FLOAT:
+            stringBuilder.append(getFloat(rowId, colId));
+            break;
+          case DOUBLE:
+            stringBuilder.append(getDouble(rowId, colId));
+            break;
+          case STRING:
+            stringBuilder.append(columnData.getInt(rowId * Integer.BYTES));
+            break;
+          // Object and array.
+          default:
+            stringBuilder.append(
+                String.format("(%s:%s)", columnData.getInt(rowId * 8), columnData.getInt(rowId * 8 + 4)));
+            break;
+        }
+        stringBuilder.append("\t");
+      }
+      stringBuilder.append("\n");
+    }
+    return stringBuilder.toString();
+  }
+}
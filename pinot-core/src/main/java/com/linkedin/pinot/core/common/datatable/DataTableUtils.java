@@ -16,7 +16,16 @@
 package com.linkedin.pinot.core.common.datatable;
 
 import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.StringUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.Nonnull;
+import org.apache.commons.lang3.StringUtils;
 
 
 /**
@@ -68,4 +77,66 @@ public class DataTableUtils {
 
     return rowSizeInBytes;
   }
+
+  /**
+   * Serialize the data table metadata into bytes.
+   * <p>Shared by all data table versions.
+   *
+   * @param metadata data table metadata.
+   * @return serialized metadata.
+   */
+  public static byte[] serializeMetadata(@Nonnull Map<String, String> metadata) throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+
+    dataOutputStream.writeInt(metadata.size());
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      byte[] keyBytes = StringUtil.encodeUtf8(entry.getKey());
+      dataOutputStream.writeInt(keyBytes.length);
+      dataOutputStream.write(keyBytes);
+
+      byte[] valueBytes = StringUtil.encodeUtf8(entry.getValue());
+      dataOutputStream.writeInt(valueBytes.length);
+      dataOutputStream.write(valueBytes);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * Deserialize the data table metadata from bytes.
+   *
+   * @param bytes serialized metadata.
+   * @return data table metadata.
+   */
+  public static Map<String, String> deserializeMetadata(@Nonnull byte[] bytes) throws IOException {
+    try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
+        DataInputStream dataInputStream = new DataInputStream(byteArrayInputStream)) {
+      int numEntries = dataInputStream.readInt();
+      Map<String, String> metadata = new HashMap<>(numEntries);
+
+      for (int i = 0; i < numEntries; i++) {
+        String key = decodeString(dataInputStream);
+        String value = decodeString(dataInputStream);
+        metadata.put(key, value);
+      }
+
+      return metadata;
+    }
+  }
+
+  /**
+   * Decode a length prefixed UTF-8 string from the input stream.
+   */
+  public static String decodeString(@Nonnull DataInputStream dataInputStream) throws IOException {
+    int length = dataInputStream.readInt();
+    if (length == 0) {
+      return StringUtils.EMPTY;
+    } else {
+      byte[] buffer = new byte[length];
+      int numBytesRead = dataInputStream.read(buffer);
+      assert numBytesRead == length;
+      return StringUtil.decodeUtf8(buffer);
+    }
+  }
 }
@@ -20,6 +20,7 @@ import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.metrics.ServerGauge;
 import com.linkedin.pinot.common.metrics.ServerMeter;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.immutable.ImmutableSegment;
@@ -189,6 +190,19 @@ public abstract class BaseTableDataManager implements TableDataManager {
     }
   }
 
+  @Nonnull
+  @Override
+  public List<SegmentMetadata> getSegmentMetadata(@Nonnull List<String> segmentNames) {
+    List<SegmentMetadata> segmentMetadataList = new ArrayList<>(segmentNames.size());
+    for (String segmentName : segmentNames) {
+      SegmentDataManager segmentDataManager = _segmentDataManagerMap.get(segmentName);
+      if (segmentDataManager != null) {
+        segmentMetadataList.add(segmentDataManager.getSegment().getSegmentMetadata());
+      }
+    }
+    return segmentMetadataList;
+  }
+
   private void handleMissingSegment(String segmentName) {
     // could not find segment
     LOGGER.error("Could not find segment " + segmentName + " for table " + _tableNameWithType);
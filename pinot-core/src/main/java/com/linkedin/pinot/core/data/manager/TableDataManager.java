@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.data.manager;
 
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.immutable.ImmutableSegment;
 import com.linkedin.pinot.core.segment.index.loader.IndexLoadingConfig;
@@ -109,6 +110,17 @@ public interface TableDataManager {
    */
   void releaseSegment(@Nonnull SegmentDataManager segmentDataManager);
 
+  /**
+   * Returns the metadata of the segments with the given segment names, skipping the missing segments.
+   * <p>The segments are not acquired, so the returned metadata can only be used for estimations (e.g. the query cost)
+   * and should not be used to access the segment data.
+   *
+   * @param segmentNames List of names of the segments
+   * @return List of segment metadata
+   */
+  @Nonnull
+  List<SegmentMetadata> getSegmentMetadata(@Nonnull List<String> segmentNames);
+
   /**
    * Returns the table name managed by this instance.
    */
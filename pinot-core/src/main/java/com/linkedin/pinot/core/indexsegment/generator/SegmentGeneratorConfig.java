@@ -105,6 +105,8 @@ public class SegmentGeneratorConfig {
   private String _simpleDateFormat = null;
   // Use on-heap or off-heap memory to generate index (currently only affect inverted index and star-tree v2)
   private boolean _onHeap = false;
+  // Number of threads used to create the indexes of the columns in parallel (1 to create them on a single thread)
+  private int _numIndexingThreads = 1;
 
   public SegmentGeneratorConfig() {
   }
@@ -151,6 +153,7 @@ public class SegmentGeneratorConfig {
     _timeColumnType = config._timeColumnType;
     _simpleDateFormat = config._simpleDateFormat;
     _onHeap = config._onHeap;
+    _numIndexingThreads = config._numIndexingThreads;
   }
 
   /**
@@ -561,6 +564,15 @@ public class SegmentGeneratorConfig {
     _onHeap = onHeap;
   }
 
+  public int getNumIndexingThreads() {
+    return _numIndexingThreads;
+  }
+
+  public void setNumIndexingThreads(int numIndexingThreads) {
+    Preconditions.checkArgument(numIndexingThreads > 0, "Number of indexing threads must be positive");
+    _numIndexingThreads = numIndexingThreads;
+  }
+
   public Map<String, ChunkCompressorFactory.CompressionType> getRawIndexCompressionType() {
     return _rawIndexCompressionType;
   }
@@ -498,7 +498,7 @@ public class MutableSegmentImpl implements MutableSegment {
         numValues);
 
     for (int i = 0; i < numValues; i++) {
-      intIterators[i] = invertedIndex.getDocIds(dictionary.indexOf(values[i])).getIntIterator();
+      intIterators[i] = invertedIndex.getDocIdIterator(dictionary.indexOf(values[i]));
     }
     return intIterators;
   }
@@ -520,7 +520,7 @@ public class MutableSegmentImpl implements MutableSegment {
         numValues);
 
     for (int i = 0; i < numValues; i++) {
-      intIterators[i] = invertedIndex.getDocIds(dictionary.indexOf(values[i])).getIntIterator();
+      intIterators[i] = invertedIndex.getDocIdIterator(dictionary.indexOf(values[i]));
     }
     return intIterators;
   }
@@ -542,7 +542,7 @@ public class MutableSegmentImpl implements MutableSegment {
         numValues);
 
     for (int i = 0; i < numValues; i++) {
-      intIterators[i] = invertedIndex.getDocIds(dictionary.indexOf(values[i])).getIntIterator();
+      intIterators[i] = invertedIndex.getDocIdIterator(dictionary.indexOf(values[i]));
     }
     return intIterators;
   }
@@ -564,7 +564,7 @@ public class MutableSegmentImpl implements MutableSegment {
         column, numValues);
 
     for (int i = 0; i < numValues; i++) {
-      intIterators[i] = invertedIndex.getDocIds(dictionary.indexOf(values[i])).getIntIterator();
+      intIterators[i] = invertedIndex.getDocIdIterator(dictionary.indexOf(values[i]));
     }
     return intIterators;
   }
@@ -586,7 +586,7 @@ public class MutableSegmentImpl implements MutableSegment {
         column, numValues);
 
     for (int i = 0; i < numValues; i++) {
-      intIterators[i] = invertedIndex.getDocIds(dictionary.indexOf(values[i])).getIntIterator();
+      intIterators[i] = invertedIndex.getDocIdIterator(dictionary.indexOf(values[i]));
     }
     return intIterators;
   }
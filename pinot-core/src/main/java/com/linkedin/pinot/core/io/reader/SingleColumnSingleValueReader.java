@@ -145,4 +145,14 @@ public interface SingleColumnSingleValueReader<T extends ReaderContext> extends
    * @param valuesStartPos Start offset of 'values' array to write the values.
    */
   void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos);
+
+  /**
+   * Read the int values for a range of consecutive rows.
+   *
+   * @param startRow First row to read.
+   * @param length Number of rows to read.
+   * @param values Output array.
+   * @param context Reader context.
+   */
+  void readIntValues(int startRow, int length, int[] values, T context);
 }
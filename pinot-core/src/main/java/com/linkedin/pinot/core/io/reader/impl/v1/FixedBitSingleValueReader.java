@@ -47,6 +47,16 @@ public final class FixedBitSingleValueReader extends BaseSingleColumnSingleValue
     }
   }
 
+  /**
+   * Bulk unpacks the bit-packed values for the consecutive rows.
+   */
+  @Override
+  public void readIntValues(int startRow, int length, int[] values, ReaderContext context) {
+    if (length > 0) {
+      _reader.readInt(startRow, length, values);
+    }
+  }
+
   @Override
   public ReaderContext createContext() {
     return null;
@@ -43,6 +43,13 @@ public abstract class BaseSingleColumnSingleValueReaderWriter<T extends ReaderCo
     return getInt(row);
   }
 
+  @Override
+  public void readIntValues(int startRow, int length, int[] values, T context) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getInt(startRow + i, context);
+    }
+  }
+
   @Override
   public long getLong(int row) {
     throw new UnsupportedOperationException();
@@ -17,6 +17,8 @@ package com.linkedin.pinot.core.operator;
 
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import com.linkedin.pinot.core.util.trace.TraceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,12 +26,32 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Any other Pinot Operators should extend BaseOperator
+ * <p>Before fetching each block, checks the {@link QueryExecutionContext} registered to the current thread (if any), so
+ * that cancelled queries or queries exceeding their deadline stop at the next block boundary. When profiling is
+ * enabled for the query, also records the number of calls and the time spent in each operator.
  */
 public abstract class BaseOperator<T extends Block> implements Operator<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(BaseOperator.class);
 
   @Override
   public final T nextBlock() {
+    QueryExecutionContext queryExecutionContext = QueryExecutionContext.get();
+    QueryProfile queryProfile = null;
+    if (queryExecutionContext != null) {
+      queryExecutionContext.checkTermination();
+      queryProfile = queryExecutionContext.getProfile();
+    }
+    if (queryProfile != null) {
+      long startTimeNs = System.nanoTime();
+      T nextBlock = getNextBlockWithTrace();
+      queryProfile.addCall(getProfileName(), System.nanoTime() - startTimeNs);
+      return nextBlock;
+    } else {
+      return getNextBlockWithTrace();
+    }
+  }
+
+  private T getNextBlockWithTrace() {
     if (TraceContext.traceEnabled()) {
       long start = System.currentTimeMillis();
       T nextBlock = getNextBlock();
@@ -50,6 +72,14 @@ public abstract class BaseOperator<T extends Block> implements Operator<T> {
   // as opposed to this super class calling getClass().getSimpleName().
   public abstract String getOperatorName();
 
+  /**
+   * Returns the name of the operator in the query profile, which can be overridden to distinguish the operators of the
+   * same type (e.g. filter operators on different columns).
+   */
+  protected String getProfileName() {
+    return getOperatorName();
+  }
+
   @Override
   public ExecutionStatistics getExecutionStatistics() {
     throw new UnsupportedOperationException();
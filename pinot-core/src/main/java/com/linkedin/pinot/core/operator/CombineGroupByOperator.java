@@ -27,6 +27,11 @@ import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUti
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.LongGroupKeyEncoding;
+import com.linkedin.pinot.core.query.aggregation.groupby.StripedLongKeyResultsTable;
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
+import com.linkedin.pinot.core.util.QueryParallelismUtils;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -51,14 +56,36 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
   private static final Logger LOGGER = LoggerFactory.getLogger(CombineGroupByOperator.class);
   private static final String OPERATOR_NAME = "CombineGroupByOperator";
 
+  // Number of stripes for the long key results table, should be power of 2
+  private static final int NUM_RESULTS_TABLE_STRIPES =
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4);
+
   private final List<Operator> _operators;
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
   private final long _timeOutMs;
   private final int _numGroupsLimit;
+  private final long _numTotalDocs;
 
   public CombineGroupByOperator(List<Operator> operators, BrokerRequest brokerRequest, ExecutorService executorService,
       long timeOutMs, int numGroupsLimit) {
+    this(operators, brokerRequest, executorService, timeOutMs, numGroupsLimit, -1L);
+  }
+
+  /**
+   * Constructor for the class.
+   * <p>The operators are processed with work stealing (see {@link CombineOperator}), so they should be ordered from the
+   * most expensive to the least expensive.
+   *
+   * @param operators List of operators to combine, ordered from the most expensive to the least expensive
+   * @param brokerRequest Broker request
+   * @param executorService Executor service
+   * @param timeOutMs Time out in milliseconds
+   * @param numGroupsLimit Limit on number of groups for the combined result
+   * @param numTotalDocs Total number of documents of the operators, or negative if unknown
+   */
+  public CombineGroupByOperator(List<Operator> operators, BrokerRequest brokerRequest, ExecutorService executorService,
+      long timeOutMs, int numGroupsLimit, long numTotalDocs) {
     Preconditions.checkArgument(brokerRequest.isSetAggregationsInfo() && brokerRequest.isSetGroupBy());
 
     _operators = operators;
@@ -66,6 +93,7 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
     _executorService = executorService;
     _timeOutMs = timeOutMs;
     _numGroupsLimit = numGroupsLimit;
+    _numTotalDocs = numTotalDocs;
   }
 
   /**
@@ -76,6 +104,9 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
    * <ul>
    *   <li>
    *     Concurrently merge group-by results form multiple result blocks into a map from group key to group results
+   *     <p>If the group keys can be packed into long values (see {@link LongGroupKeyEncoding}), merge them into a
+   *     striped long key results table to avoid building string group keys for each segment, and only convert the long
+   *     keys into string keys after all the results are merged
    *   </li>
    *   <li>
    *     Sort and trim the results map based on {@code TOP N} in the request
@@ -90,7 +121,10 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
   @Override
   protected IntermediateResultsBlock getNextBlock() {
     int numOperators = _operators.size();
-    CountDownLatch operatorLatch = new CountDownLatch(numOperators);
+    // Number of tasks is bounded by the number of operators, the number of documents and the load of the server
+    int numTasks = QueryParallelismUtils.getNumTasks(numOperators, _numTotalDocs);
+    AtomicInteger nextOperatorIndex = new AtomicInteger();
+    CountDownLatch taskLatch = new CountDownLatch(numTasks);
     ConcurrentHashMap<String, Object[]> resultsMap = new ConcurrentHashMap<>();
     AtomicInteger numGroups = new AtomicInteger();
     ConcurrentLinkedQueue<ProcessingException> mergedProcessingExceptions = new ConcurrentLinkedQueue<>();
@@ -102,65 +136,36 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
     for (int i = 0; i < numAggregationFunctions; i++) {
       aggregationFunctions[i] = aggregationFunctionContexts[i].getAggregationFunction();
     }
+    StripedLongKeyResultsTable longKeyResultsTable =
+        new StripedLongKeyResultsTable(aggregationFunctions, _numGroupsLimit, NUM_RESULTS_TABLE_STRIPES);
 
-    Future[] futures = new Future[numOperators];
-    for (int i = 0; i < numOperators; i++) {
-      int index = i;
+    Future[] futures = new Future[numTasks];
+    for (int i = 0; i < numTasks; i++) {
       futures[i] = _executorService.submit(new TraceRunnable() {
-        @SuppressWarnings("unchecked")
         @Override
         public void runJob() {
-          AggregationGroupByResult aggregationGroupByResult;
-
+          QueryParallelismUtils.onTaskStart();
           try {
-            IntermediateResultsBlock intermediateResultsBlock =
-                (IntermediateResultsBlock) _operators.get(index).nextBlock();
-
-            // Merge processing exceptions.
-            List<ProcessingException> processingExceptionsToMerge = intermediateResultsBlock.getProcessingExceptions();
-            if (processingExceptionsToMerge != null) {
-              mergedProcessingExceptions.addAll(processingExceptionsToMerge);
-            }
-
-            // Merge aggregation group-by result.
-            aggregationGroupByResult = intermediateResultsBlock.getAggregationGroupByResult();
-            if (aggregationGroupByResult != null) {
-              // Iterate over the group-by keys, for each key, update the group-by result in the resultsMap.
-              Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
-              while (groupKeyIterator.hasNext()) {
-                GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
-                resultsMap.compute(groupKey._stringKey, (key, value) -> {
-                  if (value == null) {
-                    if (numGroups.get() < _numGroupsLimit) {
-                      numGroups.getAndIncrement();
-                      value = new Object[numAggregationFunctions];
-                      for (int i = 0; i < numAggregationFunctions; i++) {
-                        value[i] = aggregationGroupByResult.getResultForKey(groupKey, i);
-                      }
-                    }
-                  } else {
-                    for (int i = 0; i < numAggregationFunctions; i++) {
-                      value[i] = aggregationFunctions[i].merge(value[i],
-                          aggregationGroupByResult.getResultForKey(groupKey, i));
-                    }
-                  }
-                  return value;
-                });
-              }
+            int operatorIndex;
+            while ((operatorIndex = nextOperatorIndex.getAndIncrement()) < numOperators) {
+              mergeOperator(operatorIndex, resultsMap, numGroups, longKeyResultsTable, aggregationFunctions,
+                  mergedProcessingExceptions);
             }
-          } catch (Exception e) {
-            LOGGER.error("Exception processing CombineGroupBy for index {}, operator {}", index,
-                _operators.get(index).getClass().getName(), e);
-            mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+          } finally {
+            QueryParallelismUtils.onTaskFinish();
+            taskLatch.countDown();
           }
-
-          operatorLatch.countDown();
         }
       });
     }
 
     try {
-      boolean opCompleted = operatorLatch.await(_timeOutMs, TimeUnit.MILLISECONDS);
+      long waitStartTimeNs = System.nanoTime();
+      boolean opCompleted = taskLatch.await(_timeOutMs, TimeUnit.MILLISECONDS);
+      QueryProfile queryProfile = QueryProfile.get();
+      if (queryProfile != null) {
+        queryProfile.add(OPERATOR_NAME, QueryProfile.WAIT_TIME_NS, System.nanoTime() - waitStartTimeNs);
+      }
       if (!opCompleted) {
         // If this happens, the broker side should already timed out, just log the error and return
         String errorMessage = "Timed out while combining group-by results after " + _timeOutMs + "ms";
@@ -168,6 +173,9 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
         return new IntermediateResultsBlock(new TimeoutException(errorMessage));
       }
 
+      // Convert the long keys into string keys and merge them into the results map.
+      longKeyResultsTable.dumpToResultsMap(resultsMap);
+
       // Trim the results map.
       AggregationGroupByTrimmingService aggregationGroupByTrimmingService =
           new AggregationGroupByTrimmingService(aggregationFunctions, (int) _brokerRequest.getGroupBy().getTopN());
@@ -196,7 +204,7 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
       mergedBlock.setNumSegmentsMatched(executionStatistics.getNumSegmentsMatched());
       mergedBlock.setNumTotalRawDocs(executionStatistics.getNumTotalRawDocs());
       // NOTE: numGroups might go slightly over numGroupsLimit because the comparison is not atomic
-      if (numGroups.get() >= _numGroupsLimit) {
+      if (numGroups.get() + longKeyResultsTable.getNumGroups() >= _numGroupsLimit) {
         mergedBlock.setNumGroupsLimitReached(true);
       }
 
@@ -213,6 +221,60 @@ public class CombineGroupByOperator extends BaseOperator<IntermediateResultsBloc
     }
   }
 
+  /**
+   * Helper method to execute the operator at the given index and merge its result block into the results.
+   */
+  @SuppressWarnings("unchecked")
+  private void mergeOperator(int index, ConcurrentHashMap<String, Object[]> resultsMap, AtomicInteger numGroups,
+      StripedLongKeyResultsTable longKeyResultsTable, AggregationFunction[] aggregationFunctions,
+      ConcurrentLinkedQueue<ProcessingException> mergedProcessingExceptions) {
+    int numAggregationFunctions = aggregationFunctions.length;
+    try {
+      IntermediateResultsBlock intermediateResultsBlock = (IntermediateResultsBlock) _operators.get(index).nextBlock();
+
+      // Merge processing exceptions.
+      List<ProcessingException> processingExceptionsToMerge = intermediateResultsBlock.getProcessingExceptions();
+      if (processingExceptionsToMerge != null) {
+        mergedProcessingExceptions.addAll(processingExceptionsToMerge);
+      }
+
+      // Merge aggregation group-by result.
+      AggregationGroupByResult aggregationGroupByResult = intermediateResultsBlock.getAggregationGroupByResult();
+      if (aggregationGroupByResult != null && !longKeyResultsTable.merge(aggregationGroupByResult)) {
+        // Group keys cannot be packed into long values, fall back to merge on string group keys.
+        // Iterate over the group-by keys, for each key, update the group-by result in the resultsMap.
+        Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+        while (groupKeyIterator.hasNext()) {
+          GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+          resultsMap.compute(groupKey._stringKey, (key, value) -> {
+            if (value == null) {
+              if (numGroups.get() + longKeyResultsTable.getNumGroups() < _numGroupsLimit) {
+                numGroups.getAndIncrement();
+                value = new Object[numAggregationFunctions];
+                for (int i = 0; i < numAggregationFunctions; i++) {
+                  value[i] = aggregationGroupByResult.getResultForKey(groupKey, i);
+                }
+              }
+            } else {
+              for (int i = 0; i < numAggregationFunctions; i++) {
+                value[i] =
+                    aggregationFunctions[i].merge(value[i], aggregationGroupByResult.getResultForKey(groupKey, i));
+              }
+            }
+            return value;
+          });
+        }
+      }
+    } catch (QueryCancelledException e) {
+      LOGGER.debug("Query cancelled while processing CombineGroupBy for index {}: {}", index, e.getMessage());
+      mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_CANCELLATION_ERROR, e));
+    } catch (Exception e) {
+      LOGGER.error("Exception processing CombineGroupBy for index {}, operator {}", index,
+          _operators.get(index).getClass().getName(), e);
+      mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+    }
+  }
+
   @Override
   public String getOperatorName() {
     return OPERATOR_NAME;
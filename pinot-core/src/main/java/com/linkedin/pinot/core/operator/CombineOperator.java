@@ -20,10 +20,14 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
 import com.linkedin.pinot.core.query.reduce.CombineService;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
+import com.linkedin.pinot.core.util.QueryParallelismUtils;
 import com.linkedin.pinot.core.util.trace.TraceCallable;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -32,6 +36,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,30 +47,40 @@ import org.slf4j.LoggerFactory;
 public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
   private static final Logger LOGGER = LoggerFactory.getLogger(CombineOperator.class);
   private static final String OPERATOR_NAME = "CombineOperator";
+  // Placeholder offered by the tasks that do not process any operator, which should not be merged
+  private static final IntermediateResultsBlock NO_OPERATOR_PROCESSED_BLOCK =
+      new IntermediateResultsBlock(new AggregationFunctionContext[0], (AggregationGroupByResult) null);
 
   private final List<Operator> _operators;
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
   private final long _timeOutMs;
-  //Make this configurable
-  //These two control the parallelism on a per query basis, depending on the number of segments to process
-  private static final int MIN_THREADS_PER_QUERY;
-  private static final int MAX_THREADS_PER_QUERY;
-  private static final int MIN_SEGMENTS_PER_THREAD = 10;
+  private final long _numTotalDocs;
 
-  static {
-    int numCores = Runtime.getRuntime().availableProcessors();
-    MIN_THREADS_PER_QUERY = Math.max(1, (int) (numCores * .5));
-    //Dont have more than 10 threads per query
-    MAX_THREADS_PER_QUERY = Math.min(10, (int) (numCores * .5));
+  public CombineOperator(List<Operator> operators, ExecutorService executorService, long timeOutMs,
+      BrokerRequest brokerRequest) {
+    this(operators, executorService, timeOutMs, brokerRequest, -1L);
   }
 
+  /**
+   * Constructor for the class.
+   * <p>The operators are processed with work stealing: each task pulls the next operator from a shared index until all
+   * of them are processed, so the operators should be ordered from the most expensive to the least expensive to reduce
+   * the tail latency.
+   *
+   * @param operators List of operators to combine, ordered from the most expensive to the least expensive
+   * @param executorService Executor service
+   * @param timeOutMs Time out in milliseconds
+   * @param brokerRequest Broker request
+   * @param numTotalDocs Total number of documents of the operators, or negative if unknown
+   */
   public CombineOperator(List<Operator> operators, ExecutorService executorService, long timeOutMs,
-      BrokerRequest brokerRequest) {
+      BrokerRequest brokerRequest, long numTotalDocs) {
     _operators = operators;
     _executorService = executorService;
     _brokerRequest = brokerRequest;
     _timeOutMs = timeOutMs;
+    _numTotalDocs = numTotalDocs;
   }
 
   @Override
@@ -73,28 +88,23 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
     final long startTime = System.currentTimeMillis();
     final long queryEndTime = System.currentTimeMillis() + _timeOutMs;
     final int numOperators = _operators.size();
-    // Ensure that the number of groups is not more than the number of segments
-    final int numGroups = Math.min(numOperators, Math.max(MIN_THREADS_PER_QUERY,
-        Math.min(MAX_THREADS_PER_QUERY, (numOperators + MIN_SEGMENTS_PER_THREAD - 1) / MIN_SEGMENTS_PER_THREAD)));
-
-    final List<List<Operator>> operatorGroups = new ArrayList<>(numGroups);
-    for (int i = 0; i < numGroups; i++) {
-      operatorGroups.add(new ArrayList<Operator>());
-    }
-    for (int i = 0; i < numOperators; i++) {
-      operatorGroups.get(i % numGroups).add(_operators.get(i));
-    }
+    // Number of tasks is bounded by the number of operators, the number of documents and the load of the server
+    final int numTasks = QueryParallelismUtils.getNumTasks(numOperators, _numTotalDocs);
+    final AtomicInteger nextOperatorIndex = new AtomicInteger();
 
-    final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<>(numGroups);
+    final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<>(numTasks);
     // Submit operators.
-    for (final List<Operator> operatorGroup : operatorGroups) {
+    for (int i = 0; i < numTasks; i++) {
       _executorService.submit(new TraceRunnable() {
         @Override
         public void runJob() {
+          QueryParallelismUtils.onTaskStart();
           IntermediateResultsBlock mergedBlock = null;
           try {
-            for (Operator operator : operatorGroup) {
-              IntermediateResultsBlock blockToMerge = (IntermediateResultsBlock) operator.nextBlock();
+            int operatorIndex;
+            while ((operatorIndex = nextOperatorIndex.getAndIncrement()) < numOperators) {
+              IntermediateResultsBlock blockToMerge =
+                  (IntermediateResultsBlock) _operators.get(operatorIndex).nextBlock();
               if (mergedBlock == null) {
                 mergedBlock = blockToMerge;
               } else {
@@ -107,12 +117,17 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
                 }
               }
             }
+          } catch (QueryCancelledException e) {
+            LOGGER.debug("Query cancelled while executing query: {}", e.getMessage());
+            mergedBlock = new IntermediateResultsBlock(e);
           } catch (Exception e) {
             LOGGER.error("Caught exception while executing query.", e);
             mergedBlock = new IntermediateResultsBlock(e);
+          } finally {
+            QueryParallelismUtils.onTaskFinish();
           }
-          assert mergedBlock != null;
-          blockingQueue.offer(mergedBlock);
+          // The other tasks might have processed all the operators before this task starts
+          blockingQueue.offer(mergedBlock != null ? mergedBlock : NO_OPERATOR_PROCESSED_BLOCK);
         }
       });
     }
@@ -126,19 +141,24 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
               throws Exception {
             int mergedBlocksNumber = 0;
             IntermediateResultsBlock mergedBlock = null;
-            while (mergedBlocksNumber < numGroups) {
+            while (mergedBlocksNumber < numTasks) {
               if (mergedBlock == null) {
                 mergedBlock = (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
                     TimeUnit.MILLISECONDS);
                 if (mergedBlock != null) {
                   mergedBlocksNumber++;
+                  if (mergedBlock == NO_OPERATOR_PROCESSED_BLOCK) {
+                    mergedBlock = null;
+                  }
                 }
                 LOGGER.debug("Got response from operator 0 after: {}", (System.currentTimeMillis() - startTime));
               } else {
                 IntermediateResultsBlock blockToMerge =
                     (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
                         TimeUnit.MILLISECONDS);
-                if (blockToMerge != null) {
+                if (blockToMerge == NO_OPERATOR_PROCESSED_BLOCK) {
+                  mergedBlocksNumber++;
+                } else if (blockToMerge != null) {
                   try {
                     LOGGER.debug("Got response from operator {} after: {}", mergedBlocksNumber,
                         (System.currentTimeMillis() - startTime));
@@ -160,6 +180,7 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
 
     // Get merge results.
     IntermediateResultsBlock mergedBlock;
+    long waitStartTimeNs = System.nanoTime();
     try {
       mergedBlock = mergedBlockFuture.get(queryEndTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
@@ -174,6 +195,10 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
       mergedBlock =
           new IntermediateResultsBlock(QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
     }
+    QueryProfile queryProfile = QueryProfile.get();
+    if (queryProfile != null) {
+      queryProfile.add(OPERATOR_NAME, QueryProfile.WAIT_TIME_NS, System.nanoTime() - waitStartTimeNs);
+    }
 
     // Update execution statistics.
     ExecutionStatistics executionStatistics = new ExecutionStatistics();
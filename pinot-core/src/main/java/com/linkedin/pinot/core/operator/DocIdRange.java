@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * The <code>DocIdRange</code> class represents a range of document ids [startDocId, endDocId) inside a segment (a
+ * morsel), which allows one segment to be processed by multiple operators in parallel.
+ * <p>The results of the operators on the disjoint ranges of one segment are combined the same way as the results of
+ * separate segments. To keep the execution statistics accurate, the segment is counted as processed only by the first
+ * range, and as matched only by the first range that matches any document.
+ */
+public class DocIdRange {
+  private final int _startDocId;
+  // Exclusive
+  private final int _endDocId;
+  // Shared by all the ranges of the same segment
+  private final AtomicBoolean _segmentMatched;
+
+  private DocIdRange(int startDocId, int endDocId, AtomicBoolean segmentMatched) {
+    _startDocId = startDocId;
+    _endDocId = endDocId;
+    _segmentMatched = segmentMatched;
+  }
+
+  /**
+   * Splits the documents [0, numDocs) of a segment into the given number of disjoint ranges with similar size.
+   */
+  public static List<DocIdRange> split(int numDocs, int numRanges) {
+    Preconditions.checkArgument(numRanges > 0 && numRanges <= Math.max(1, numDocs),
+        "Invalid number of ranges: %s for number of documents: %s", numRanges, numDocs);
+    AtomicBoolean segmentMatched = new AtomicBoolean();
+    List<DocIdRange> docIdRanges = new ArrayList<>(numRanges);
+    int startDocId = 0;
+    for (int i = 0; i < numRanges; i++) {
+      // Distribute the remainder to the first ranges
+      int endDocId = startDocId + numDocs / numRanges + (i < numDocs % numRanges ? 1 : 0);
+      docIdRanges.add(new DocIdRange(startDocId, endDocId, segmentMatched));
+      startDocId = endDocId;
+    }
+    return docIdRanges;
+  }
+
+  public int getStartDocId() {
+    return _startDocId;
+  }
+
+  public int getEndDocId() {
+    return _endDocId;
+  }
+
+  public int getNumDocs() {
+    return _endDocId - _startDocId;
+  }
+
+  /**
+   * Returns the execution statistics for the operator processing this range. The total number of raw documents is
+   * the number of documents in the range, so that the sum over all the ranges is the number of documents in the
+   * segment.
+   * <p>Should be called only once per range.
+   */
+  public ExecutionStatistics getExecutionStatistics(long numDocsScanned, long numEntriesScannedInFilter,
+      long numEntriesScannedPostFilter) {
+    long numSegmentsProcessed = _startDocId == 0 ? 1 : 0;
+    long numSegmentsMatched = numDocsScanned > 0 && _segmentMatched.compareAndSet(false, true) ? 1 : 0;
+    return new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
+        getNumDocs(), numSegmentsProcessed, numSegmentsMatched);
+  }
+
+  @Override
+  public String toString() {
+    return "[" + _startDocId + ", " + _endDocId + ")";
+  }
+}
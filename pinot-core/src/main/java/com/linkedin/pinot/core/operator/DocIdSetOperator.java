@@ -22,6 +22,8 @@ import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.docidsets.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
 import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import javax.annotation.Nonnull;
 
 
@@ -75,6 +77,15 @@ public class DocIdSetOperator extends BaseOperator<DocIdSetBlock> {
       docIds[pos++] = _currentDocId;
     }
     if (pos > 0) {
+      // Account the matched documents in the budget of the query
+      QueryExecutionContext queryExecutionContext = QueryExecutionContext.get();
+      if (queryExecutionContext != null) {
+        queryExecutionContext.addNumDocsScanned(pos);
+        QueryProfile queryProfile = queryExecutionContext.getProfile();
+        if (queryProfile != null) {
+          queryProfile.add(OPERATOR_NAME, QueryProfile.NUM_ROWS_OUT, pos);
+        }
+      }
       return new DocIdSetBlock(docIds, pos);
     } else {
       return null;
@@ -88,6 +99,9 @@ public class DocIdSetOperator extends BaseOperator<DocIdSetBlock> {
 
   @Override
   public ExecutionStatistics getExecutionStatistics() {
-    return new ExecutionStatistics(0L, _filterBlockDocIdSet.getNumEntriesScannedInFilter(), 0L, 0L);
+    // Filter block document Id set is not initialized if the query is terminated before the first block
+    long numEntriesScannedInFilter =
+        _filterBlockDocIdSet != null ? _filterBlockDocIdSet.getNumEntriesScannedInFilter() : 0L;
+    return new ExecutionStatistics(0L, numEntriesScannedInFilter, 0L, 0L);
   }
 }
@@ -39,6 +39,16 @@ public class ExecutionStatistics {
     _numSegmentsMatched = (numDocsScanned == 0) ? 0 : 1;
   }
 
+  public ExecutionStatistics(long numDocsScanned, long numEntriesScannedInFilter, long numEntriesScannedPostFilter,
+      long numTotalRawDocs, long numSegmentsProcessed, long numSegmentsMatched) {
+    _numDocsScanned = numDocsScanned;
+    _numEntriesScannedInFilter = numEntriesScannedInFilter;
+    _numEntriesScannedPostFilter = numEntriesScannedPostFilter;
+    _numTotalRawDocs = numTotalRawDocs;
+    _numSegmentsProcessed = numSegmentsProcessed;
+    _numSegmentsMatched = numSegmentsMatched;
+  }
+
   public long getNumDocsScanned() {
     return _numDocsScanned;
   }
@@ -0,0 +1,510 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.LongGroupKeyEncoding;
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
+import com.linkedin.pinot.core.util.QueryParallelismUtils;
+import com.linkedin.pinot.core.util.trace.TraceRunnable;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>PartitionedCombineGroupByOperator</code> class is the operator to combine aggregation group-by results by
+ * hash partitioning the group keys.
+ * <p>Unlike {@link CombineGroupByOperator} where all the threads merge results into one shared concurrent map, this
+ * operator merges the results in two phases without any synchronization on the group keys:
+ * <ul>
+ *   <li>
+ *     Phase 1: for each segment, execute the underlying operator and hash partition the group ids into N buckets
+ *   </li>
+ *   <li>
+ *     Phase 2: for each partition, merge the bucket for the partition from all segments into a local map, reading the
+ *     intermediate results straight from the result holders of the segments
+ *   </li>
+ * </ul>
+ * <p>In both phases, the segments/partitions are processed with work stealing by a number of tasks decided by
+ * {@link QueryParallelismUtils}.
+ * <p>Limit on number of groups is applied on the total number of groups across all partitions, so that skewed group
+ * keys do not get dropped while other partitions are under-used.
+ */
+public class PartitionedCombineGroupByOperator extends BaseOperator<IntermediateResultsBlock> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedCombineGroupByOperator.class);
+  private static final String OPERATOR_NAME = "PartitionedCombineGroupByOperator";
+
+  private final List<Operator> _operators;
+  private final BrokerRequest _brokerRequest;
+  private final ExecutorService _executorService;
+  private final long _timeOutMs;
+  private final int _numPartitions;
+  private final int _numGroupsLimit;
+  private final long _numTotalDocs;
+
+  public PartitionedCombineGroupByOperator(List<Operator> operators, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int numGroupsLimit, int numPartitions) {
+    this(operators, brokerRequest, executorService, timeOutMs, numGroupsLimit, numPartitions, -1L);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param operators List of operators to combine, ordered from the most expensive to the least expensive
+   * @param brokerRequest Broker request
+   * @param executorService Executor service
+   * @param timeOutMs Time out in milliseconds
+   * @param numGroupsLimit Limit on number of groups for the combined result
+   * @param numPartitions Number of partitions to hash partition the groups
+   * @param numTotalDocs Total number of documents of the operators, or negative if unknown
+   */
+  public PartitionedCombineGroupByOperator(List<Operator> operators, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int numGroupsLimit, int numPartitions, long numTotalDocs) {
+    Preconditions.checkArgument(brokerRequest.isSetAggregationsInfo() && brokerRequest.isSetGroupBy());
+    Preconditions.checkArgument(numPartitions > 0, "Invalid number of partitions: %s", numPartitions);
+
+    _operators = operators;
+    _brokerRequest = brokerRequest;
+    _executorService = executorService;
+    _timeOutMs = timeOutMs;
+    _numPartitions = numPartitions;
+    _numGroupsLimit = numGroupsLimit;
+    _numTotalDocs = numTotalDocs;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Combines the group-by result blocks from underlying operators and returns a merged, sorted and trimmed group-by
+   * result block.
+   * <ul>
+   *   <li>
+   *     Concurrently execute the underlying operators and hash partition the groups from each result block
+   *   </li>
+   *   <li>
+   *     Concurrently merge the groups within each partition into a map from group key to group results
+   *   </li>
+   *   <li>
+   *     Sort and trim the results map based on {@code TOP N} in the request
+   *   </li>
+   *   <li>
+   *     Set all exceptions encountered during execution into the merged result block
+   *   </li>
+   * </ul>
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  protected IntermediateResultsBlock getNextBlock() {
+    long endTimeMs = System.currentTimeMillis() + _timeOutMs;
+    int numOperators = _operators.size();
+    ConcurrentLinkedQueue<ProcessingException> mergedProcessingExceptions = new ConcurrentLinkedQueue<>();
+
+    AggregationFunctionContext[] aggregationFunctionContexts =
+        AggregationFunctionUtils.getAggregationFunctionContexts(_brokerRequest.getAggregationsInfo(), null);
+    int numAggregationFunctions = aggregationFunctionContexts.length;
+    AggregationFunction[] aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      aggregationFunctions[i] = aggregationFunctionContexts[i].getAggregationFunction();
+    }
+
+    // Phase 1: execute the operators and partition the groups
+    // NOTE: each operator writes only its own slot, and the latch guarantees the visibility for the partition tasks
+    PartitionGroups[][] partitionGroupsPerOperator = new PartitionGroups[numOperators][];
+    int numOperatorTasks = QueryParallelismUtils.getNumTasks(numOperators, _numTotalDocs);
+    AtomicInteger nextOperatorIndex = new AtomicInteger();
+    CountDownLatch operatorLatch = new CountDownLatch(numOperatorTasks);
+    Future[] operatorFutures = new Future[numOperatorTasks];
+    for (int i = 0; i < numOperatorTasks; i++) {
+      operatorFutures[i] = _executorService.submit(new TraceRunnable() {
+        @Override
+        public void runJob() {
+          QueryParallelismUtils.onTaskStart();
+          try {
+            int operatorIndex;
+            while ((operatorIndex = nextOperatorIndex.getAndIncrement()) < numOperators) {
+              partitionGroupsPerOperator[operatorIndex] = executeOperator(operatorIndex, mergedProcessingExceptions);
+            }
+          } finally {
+            QueryParallelismUtils.onTaskFinish();
+            operatorLatch.countDown();
+          }
+        }
+      });
+    }
+
+    // Phase 2: merge the groups within each partition
+    // NOTE: each partition writes only its own slot, and the latch guarantees the visibility for the main thread
+    Map<String, Object[]>[] resultsMaps = new Map[_numPartitions];
+    // Number of groups across all partitions
+    AtomicInteger numGroups = new AtomicInteger();
+    int numPartitionTasks = QueryParallelismUtils.getNumTasks(_numPartitions, -1L);
+    AtomicInteger nextPartitionId = new AtomicInteger();
+    CountDownLatch partitionLatch = new CountDownLatch(numPartitionTasks);
+    Future[] partitionFutures = new Future[numPartitionTasks];
+
+    try {
+      long waitStartTimeNs = System.nanoTime();
+      boolean opCompleted = operatorLatch.await(endTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      QueryProfile queryProfile = QueryProfile.get();
+      if (queryProfile != null) {
+        queryProfile.add(OPERATOR_NAME, QueryProfile.WAIT_TIME_NS, System.nanoTime() - waitStartTimeNs);
+      }
+      if (!opCompleted) {
+        // If this happens, the broker side should already timed out, just log the error and return
+        String errorMessage = "Timed out while executing operators after " + _timeOutMs + "ms";
+        LOGGER.error(errorMessage);
+        return new IntermediateResultsBlock(new TimeoutException(errorMessage));
+      }
+
+      for (int i = 0; i < numPartitionTasks; i++) {
+        partitionFutures[i] = _executorService.submit(new TraceRunnable() {
+          @Override
+          public void runJob() {
+            QueryParallelismUtils.onTaskStart();
+            try {
+              int partitionId;
+              while ((partitionId = nextPartitionId.getAndIncrement()) < _numPartitions) {
+                try {
+                  resultsMaps[partitionId] = mergePartition(partitionGroupsPerOperator, partitionId,
+                      aggregationFunctions, numGroups);
+                } catch (Exception e) {
+                  LOGGER.error("Exception merging PartitionedCombineGroupBy for partition {}", partitionId, e);
+                  mergedProcessingExceptions.add(QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
+                }
+              }
+            } finally {
+              QueryParallelismUtils.onTaskFinish();
+              partitionLatch.countDown();
+            }
+          }
+        });
+      }
+
+      boolean mergeCompleted = partitionLatch.await(endTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      if (!mergeCompleted) {
+        String errorMessage = "Timed out while combining group-by results after " + _timeOutMs + "ms";
+        LOGGER.error(errorMessage);
+        return new IntermediateResultsBlock(new TimeoutException(errorMessage));
+      }
+
+      // Collect the results from all partitions.
+      // NOTE: group keys from different partitions can only collide when segments generate different kinds of keys
+      // (e.g. long keys for some segments and string keys for others because of schema evolution).
+      Map<String, Object[]> resultsMap = new HashMap<>();
+      for (int i = 0; i < _numPartitions; i++) {
+        Map<String, Object[]> partitionResultsMap = resultsMaps[i];
+        if (partitionResultsMap != null) {
+          if (resultsMap.isEmpty()) {
+            resultsMap = partitionResultsMap;
+          } else {
+            mergeResultsMap(resultsMap, partitionResultsMap, aggregationFunctions);
+          }
+        }
+      }
+
+      // Trim the results map.
+      AggregationGroupByTrimmingService aggregationGroupByTrimmingService =
+          new AggregationGroupByTrimmingService(aggregationFunctions, (int) _brokerRequest.getGroupBy().getTopN());
+      List<Map<String, Object>> trimmedResults =
+          aggregationGroupByTrimmingService.trimIntermediateResultsMap(resultsMap);
+      IntermediateResultsBlock mergedBlock =
+          new IntermediateResultsBlock(aggregationFunctionContexts, trimmedResults, true);
+
+      // Set the processing exceptions.
+      if (!mergedProcessingExceptions.isEmpty()) {
+        mergedBlock.setProcessingExceptions(new ArrayList<>(mergedProcessingExceptions));
+      }
+
+      // Set the execution statistics.
+      ExecutionStatistics executionStatistics = new ExecutionStatistics();
+      for (Operator operator : _operators) {
+        ExecutionStatistics executionStatisticsToMerge = operator.getExecutionStatistics();
+        if (executionStatisticsToMerge != null) {
+          executionStatistics.merge(executionStatisticsToMerge);
+        }
+      }
+      mergedBlock.setNumDocsScanned(executionStatistics.getNumDocsScanned());
+      mergedBlock.setNumEntriesScannedInFilter(executionStatistics.getNumEntriesScannedInFilter());
+      mergedBlock.setNumEntriesScannedPostFilter(executionStatistics.getNumEntriesScannedPostFilter());
+      mergedBlock.setNumSegmentsProcessed(executionStatistics.getNumSegmentsProcessed());
+      mergedBlock.setNumSegmentsMatched(executionStatistics.getNumSegmentsMatched());
+      mergedBlock.setNumTotalRawDocs(executionStatistics.getNumTotalRawDocs());
+      mergedBlock.setNumGroupsLimitReached(numGroups.get() >= _numGroupsLimit);
+
+      return mergedBlock;
+    } catch (Exception e) {
+      return new IntermediateResultsBlock(e);
+    } finally {
+      // Cancel all ongoing jobs
+      cancelFutures(operatorFutures);
+      cancelFutures(partitionFutures);
+    }
+  }
+
+  /**
+   * Helper method to execute the operator at the given index and hash partition the groups inside its result block.
+   *
+   * @return Groups for each partition, or null if the operator does not return any group-by result
+   */
+  private PartitionGroups[] executeOperator(int index,
+      ConcurrentLinkedQueue<ProcessingException> mergedProcessingExceptions) {
+    try {
+      IntermediateResultsBlock intermediateResultsBlock = (IntermediateResultsBlock) _operators.get(index).nextBlock();
+
+      // Merge processing exceptions.
+      List<ProcessingException> processingExceptionsToMerge = intermediateResultsBlock.getProcessingExceptions();
+      if (processingExceptionsToMerge != null) {
+        mergedProcessingExceptions.addAll(processingExceptionsToMerge);
+      }
+
+      // Partition aggregation group-by result.
+      AggregationGroupByResult aggregationGroupByResult = intermediateResultsBlock.getAggregationGroupByResult();
+      if (aggregationGroupByResult != null) {
+        return partition(aggregationGroupByResult);
+      }
+    } catch (QueryCancelledException e) {
+      LOGGER.debug("Query cancelled while processing PartitionedCombineGroupBy for index {}: {}", index,
+          e.getMessage());
+      mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_CANCELLATION_ERROR, e));
+    } catch (Exception e) {
+      LOGGER.error("Exception processing PartitionedCombineGroupBy for index {}, operator {}", index,
+          _operators.get(index).getClass().getName(), e);
+      mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+    }
+    return null;
+  }
+
+  /**
+   * Helper method to hash partition the groups inside the given aggregation group-by result.
+   * <p>Only the group keys and group ids are partitioned, the intermediate results are read from the result holders
+   * when merging the partitions.
+   */
+  private PartitionGroups[] partition(AggregationGroupByResult aggregationGroupByResult) {
+    PartitionGroups[] partitionGroupsArray = new PartitionGroups[_numPartitions];
+    LongGroupKeyEncoding longGroupKeyEncoding = aggregationGroupByResult.getLongGroupKeyEncoding();
+    for (int i = 0; i < _numPartitions; i++) {
+      partitionGroupsArray[i] = new PartitionGroups(aggregationGroupByResult, longGroupKeyEncoding);
+    }
+
+    if (longGroupKeyEncoding != null) {
+      Iterator<GroupKeyGenerator.LongGroupKey> groupKeyIterator = aggregationGroupByResult.getLongGroupKeyIterator();
+      while (groupKeyIterator.hasNext()) {
+        GroupKeyGenerator.LongGroupKey groupKey = groupKeyIterator.next();
+        PartitionGroups partitionGroups = partitionGroupsArray[getPartitionId(groupKey._rawKey)];
+        partitionGroups._longKeys.add(groupKey._rawKey);
+        partitionGroups._groupIds.add(groupKey._groupId);
+      }
+    } else {
+      Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+      while (groupKeyIterator.hasNext()) {
+        GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+        PartitionGroups partitionGroups = partitionGroupsArray[getPartitionId(groupKey._stringKey.hashCode())];
+        partitionGroups._stringKeys.add(groupKey._stringKey);
+        partitionGroups._groupIds.add(groupKey._groupId);
+      }
+    }
+    return partitionGroupsArray;
+  }
+
+  private int getPartitionId(long hash) {
+    hash *= 0x9E3779B97F4A7C15L;
+    return (int) (((hash ^ (hash >>> 32)) & Integer.MAX_VALUE) % _numPartitions);
+  }
+
+  /**
+   * Helper method to merge the groups within one partition from all the operators into a map from string group key to
+   * intermediate results.
+   * <p>Long keys are merged on the primitive long values, and only converted into string keys at the end.
+   * <p>Results are merged straight from the result holders of the segments, and results arrays are only allocated for
+   * the groups of the merged map.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, Object[]> mergePartition(PartitionGroups[][] partitionGroupsPerOperator, int partitionId,
+      AggregationFunction[] aggregationFunctions, AtomicInteger numGroups) {
+    int numAggregationFunctions = aggregationFunctions.length;
+    Long2ObjectOpenHashMap<Object[]> longKeyResultsMap = new Long2ObjectOpenHashMap<>();
+    LongGroupKeyEncoding longGroupKeyEncoding = null;
+    Map<String, Object[]> stringKeyResultsMap = new HashMap<>();
+
+    for (PartitionGroups[] partitionGroupsArray : partitionGroupsPerOperator) {
+      if (partitionGroupsArray == null) {
+        continue;
+      }
+      PartitionGroups partitionGroups = partitionGroupsArray[partitionId];
+      int numGroupsToMerge = partitionGroups._groupIds.size();
+
+      if (partitionGroups._longGroupKeyEncoding != null && (longGroupKeyEncoding == null
+          || longGroupKeyEncoding == partitionGroups._longGroupKeyEncoding)) {
+        // Merge on long keys
+        longGroupKeyEncoding = partitionGroups._longGroupKeyEncoding;
+        LongArrayList longKeys = partitionGroups._longKeys;
+        for (int i = 0; i < numGroupsToMerge; i++) {
+          long longKey = longKeys.getLong(i);
+          Object[] existingResults = longKeyResultsMap.get(longKey);
+          if (existingResults == null) {
+            if (addGroup(numGroups)) {
+              longKeyResultsMap.put(longKey, partitionGroups.getResults(i, numAggregationFunctions));
+            }
+          } else {
+            partitionGroups.mergeResults(i, existingResults, aggregationFunctions);
+          }
+        }
+      } else {
+        // Merge on string keys
+        for (int i = 0; i < numGroupsToMerge; i++) {
+          String stringKey = partitionGroups.getStringKey(i);
+          Object[] existingResults = stringKeyResultsMap.get(stringKey);
+          if (existingResults == null) {
+            if (addGroup(numGroups)) {
+              stringKeyResultsMap.put(stringKey, partitionGroups.getResults(i, numAggregationFunctions));
+            }
+          } else {
+            partitionGroups.mergeResults(i, existingResults, aggregationFunctions);
+          }
+        }
+      }
+    }
+
+    // Convert long keys into string keys
+    if (longGroupKeyEncoding != null) {
+      Map<String, Object[]> longKeyToStringKeyResultsMap = new HashMap<>(longKeyResultsMap.size());
+      ObjectIterator<Long2ObjectMap.Entry<Object[]>> iterator = longKeyResultsMap.long2ObjectEntrySet().fastIterator();
+      while (iterator.hasNext()) {
+        Long2ObjectMap.Entry<Object[]> entry = iterator.next();
+        longKeyToStringKeyResultsMap.put(longGroupKeyEncoding.toStringKey(entry.getLongKey()), entry.getValue());
+      }
+      mergeResultsMap(longKeyToStringKeyResultsMap, stringKeyResultsMap, aggregationFunctions);
+      return longKeyToStringKeyResultsMap;
+    } else {
+      return stringKeyResultsMap;
+    }
+  }
+
+  /**
+   * Helper method to count a new group against the limit on number of groups shared by all partitions, returns
+   * {@code false} if the limit has been reached.
+   * <p>NOTE: the counter might go slightly over the limit when it is reached concurrently, but the number of groups
+   * added never exceeds the limit.
+   */
+  private boolean addGroup(AtomicInteger numGroups) {
+    return numGroups.get() < _numGroupsLimit && numGroups.getAndIncrement() < _numGroupsLimit;
+  }
+
+  /**
+   * Helper method to merge the source results map into the destination results map.
+   */
+  @SuppressWarnings("unchecked")
+  private static void mergeResultsMap(Map<String, Object[]> destination, Map<String, Object[]> source,
+      AggregationFunction[] aggregationFunctions) {
+    int numAggregationFunctions = aggregationFunctions.length;
+    for (Map.Entry<String, Object[]> entry : source.entrySet()) {
+      Object[] results = entry.getValue();
+      Object[] existingResults = destination.putIfAbsent(entry.getKey(), results);
+      if (existingResults != null) {
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          existingResults[i] = aggregationFunctions[i].merge(existingResults[i], results[i]);
+        }
+      }
+    }
+  }
+
+  private static void cancelFutures(Future[] futures) {
+    for (Future future : futures) {
+      if (future != null && !future.isDone()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public String getOperatorName() {
+    return OPERATOR_NAME;
+  }
+
+  /**
+   * Groups from one segment that belong to one partition.
+   */
+  private static class PartitionGroups {
+    // Holds the intermediate results of the segment, which are not modified after the operator is executed
+    final AggregationGroupByResult _aggregationGroupByResult;
+    // Encoding of the long keys, or null if the groups are keyed by string keys
+    final LongGroupKeyEncoding _longGroupKeyEncoding;
+    final LongArrayList _longKeys = new LongArrayList();
+    final List<String> _stringKeys = new ArrayList<>();
+    final IntArrayList _groupIds = new IntArrayList();
+
+    PartitionGroups(AggregationGroupByResult aggregationGroupByResult, LongGroupKeyEncoding longGroupKeyEncoding) {
+      _aggregationGroupByResult = aggregationGroupByResult;
+      _longGroupKeyEncoding = longGroupKeyEncoding;
+    }
+
+    Object[] getResults(int index, int numAggregationFunctions) {
+      int groupId = _groupIds.getInt(index);
+      Object[] results = new Object[numAggregationFunctions];
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        results[i] = _aggregationGroupByResult.getResultForGroupId(groupId, i);
+      }
+      return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    void mergeResults(int index, Object[] existingResults, AggregationFunction[] aggregationFunctions) {
+      int groupId = _groupIds.getInt(index);
+      int numAggregationFunctions = aggregationFunctions.length;
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        Object result = _aggregationGroupByResult.getResultForGroupId(groupId, i);
+        existingResults[i] = aggregationFunctions[i].merge(existingResults[i], result);
+      }
+    }
+
+    String getStringKey(int index) {
+      if (_longGroupKeyEncoding != null) {
+        return _longGroupKeyEncoding.toStringKey(_longKeys.getLong(index));
+      } else {
+        return _stringKeys.get(index);
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ import com.linkedin.pinot.core.common.datatable.DataTableBuilder;
 import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -103,7 +104,8 @@ public class IntermediateResultsBlock implements Block {
    * Constructor for exception block.
    */
   public IntermediateResultsBlock(@Nonnull Exception e) {
-    this(QueryException.QUERY_EXECUTION_ERROR, e);
+    this(e instanceof QueryCancelledException ? QueryException.QUERY_CANCELLATION_ERROR
+        : QueryException.QUERY_EXECUTION_ERROR, e);
   }
 
   @Nullable
@@ -147,6 +149,11 @@ public class IntermediateResultsBlock implements Block {
     return _aggregationGroupByResult;
   }
 
+  @Nullable
+  public List<Map<String, Object>> getCombinedAggregationGroupByResult() {
+    return _combinedAggregationGroupByResult;
+  }
+
   @Nullable
   public List<ProcessingException> getProcessingExceptions() {
     return _processingExceptions;
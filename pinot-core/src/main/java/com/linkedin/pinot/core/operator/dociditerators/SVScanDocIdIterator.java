@@ -24,7 +24,15 @@ import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.roaringbitmap.IntIterator;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
+/**
+ * Scan based doc id iterator for single-value column.
+ * <p>For dictionary-encoded and raw int columns, {@link #next()} reads the values for a batch of consecutive documents
+ * at once and evaluates the whole batch with {@link PredicateEvaluator#applySV(int[], int, int, int[])}, which avoids
+ * one virtual call per document and lets the forward index bulk unpack the values.
+ */
 public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
+  private static final int BATCH_SIZE = 256;
+
   private int _currentDocId = -1;
   private final BlockSingleValIterator _valueIterator;
   private int _startDocId;
@@ -34,6 +42,14 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
   private int _numEntriesScanned = 0;
   private final ValueMatcher _valueMatcher;
 
+  // Batch evaluation, null if not supported
+  private final int[] _valueBuffer;
+  private final int[] _matchingDocIdBuffer;
+  private int _numMatchingDocIds;
+  private int _matchingDocIdIndex;
+  // Next document to be read into the batch
+  private int _nextBatchDocId;
+
   public SVScanDocIdIterator(String datasourceName, BlockValSet blockValSet, BlockMetadata blockMetadata,
       PredicateEvaluator evaluator) {
     _datasourceName = datasourceName;
@@ -55,6 +71,20 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
       _valueMatcher = getValueMatcherForType(blockMetadata.getDataType());
     }
     _valueMatcher.setEvaluator(evaluator);
+
+    if (_valueMatcher instanceof IntMatcher && !evaluator.isAlwaysFalse()) {
+      _valueBuffer = new int[BATCH_SIZE];
+      _matchingDocIdBuffer = new int[BATCH_SIZE];
+    } else {
+      _valueBuffer = null;
+      _matchingDocIdBuffer = null;
+    }
+  }
+
+  private void resetBatch(int nextBatchDocId) {
+    _numMatchingDocIds = 0;
+    _matchingDocIdIndex = 0;
+    _nextBatchDocId = nextBatchDocId;
   }
 
   /**
@@ -66,6 +96,7 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     _currentDocId = startDocId - 1;
     _valueIterator.skipTo(startDocId);
     _startDocId = startDocId;
+    resetBatch(startDocId);
   }
 
   /**
@@ -102,6 +133,18 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
       return _currentDocId;
     } else {
       _currentDocId = targetDocId - 1;
+      if (_valueBuffer != null) {
+        if (targetDocId < _nextBatchDocId) {
+          // Target is inside the current batch, skip the matching documents before it
+          while (_matchingDocIdIndex < _numMatchingDocIds
+              && _matchingDocIdBuffer[_matchingDocIdIndex] < targetDocId) {
+            _matchingDocIdIndex++;
+          }
+        } else {
+          resetBatch(targetDocId);
+        }
+        return next();
+      }
       _valueIterator.skipTo(targetDocId);
       return next();
     }
@@ -112,6 +155,9 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     if (_currentDocId == Constants.EOF) {
       return Constants.EOF;
     }
+    if (_valueBuffer != null) {
+      return nextInBatch();
+    }
     while (_valueIterator.hasNext() && _currentDocId < _endDocId) {
       _currentDocId = _currentDocId + 1;
       _numEntriesScanned++;
@@ -123,6 +169,31 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     return Constants.EOF;
   }
 
+  /**
+   * Returns the next matching document from the current batch, or evaluates the next batches until a matching
+   * document is found.
+   */
+  private int nextInBatch() {
+    while (_matchingDocIdIndex == _numMatchingDocIds) {
+      if (_nextBatchDocId > _endDocId) {
+        _currentDocId = Constants.EOF;
+        return Constants.EOF;
+      }
+      _valueIterator.skipTo(_nextBatchDocId);
+      int length = _valueIterator.nextIntVals(_valueBuffer, Math.min(BATCH_SIZE, _endDocId - _nextBatchDocId + 1));
+      if (length == 0) {
+        _currentDocId = Constants.EOF;
+        return Constants.EOF;
+      }
+      _numEntriesScanned += length;
+      _numMatchingDocIds = _evaluator.applySV(_valueBuffer, length, _nextBatchDocId, _matchingDocIdBuffer);
+      _matchingDocIdIndex = 0;
+      _nextBatchDocId += length;
+    }
+    _currentDocId = _matchingDocIdBuffer[_matchingDocIdIndex++];
+    return _currentDocId;
+  }
+
   @Override
   public int currentDocId() {
     return _currentDocId;
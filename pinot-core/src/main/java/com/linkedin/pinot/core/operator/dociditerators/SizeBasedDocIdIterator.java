@@ -21,9 +21,17 @@ import com.linkedin.pinot.core.common.Constants;
 
 public final class SizeBasedDocIdIterator implements BlockDocIdIterator {
   private final int _maxDocId;
-  private int _currentDocId = -1;
+  private int _currentDocId;
 
   public SizeBasedDocIdIterator(int maxDocId) {
+    this(0, maxDocId);
+  }
+
+  /**
+   * Constructor for the iterator over all documents in range [minDocId, maxDocId] (both inclusive).
+   */
+  public SizeBasedDocIdIterator(int minDocId, int maxDocId) {
+    _currentDocId = minDocId - 1;
     _maxDocId = maxDocId;
   }
 
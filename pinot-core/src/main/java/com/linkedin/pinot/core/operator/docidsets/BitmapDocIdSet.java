@@ -17,46 +17,87 @@ package com.linkedin.pinot.core.operator.docidsets;
 
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.operator.dociditerators.BitmapDocIdIterator;
+import com.linkedin.pinot.core.util.ChainedIntIterator;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 
 public class BitmapDocIdSet implements FilterBlockDocIdSet {
-  private final ImmutableRoaringBitmap _bitmap;
+  // Bitmaps with ascending and disjoint document id ranges, iterated in order without merging them
+  private final ImmutableRoaringBitmap[] _chainedBitmaps;
+  // Lazily merged from the chained bitmaps when they are set
+  private ImmutableRoaringBitmap _bitmap;
   private int _startDocId;
   // Inclusive
   private int _endDocId;
 
   public BitmapDocIdSet(ImmutableRoaringBitmap[] bitmaps, int startDocId, int endDocId, boolean exclusive) {
+    ImmutableRoaringBitmap resultBitmap;
     int numBitmaps = bitmaps.length;
     if (numBitmaps > 1) {
       MutableRoaringBitmap orBitmap = MutableRoaringBitmap.or(bitmaps);
       if (exclusive) {
         orBitmap.flip(startDocId, endDocId + 1);
       }
-      _bitmap = orBitmap;
+      resultBitmap = orBitmap;
     } else if (numBitmaps == 1) {
       if (exclusive) {
         // NOTE: cannot use ImmutableRoaringBitmap.flip() because the library has a bug in that method
         // TODO: the bug has been fixed in the latest version of ImmutableRoaringBitmap, update the version
         MutableRoaringBitmap bitmap = bitmaps[0].toMutableRoaringBitmap();
         bitmap.flip(startDocId, endDocId + 1);
-        _bitmap = bitmap;
+        resultBitmap = bitmap;
       } else {
-        _bitmap = bitmaps[0];
+        resultBitmap = bitmaps[0];
       }
     } else {
       MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
       if (exclusive) {
         bitmap.add(startDocId, endDocId + 1);
       }
-      _bitmap = bitmap;
+      resultBitmap = bitmap;
     }
 
+    // For range inside the segment (morsel), clip the bitmap so that the iterator does not need to skip all the
+    // documents before the start document id
+    if (startDocId > 0) {
+      MutableRoaringBitmap rangeBitmap = new MutableRoaringBitmap();
+      rangeBitmap.add(startDocId, endDocId + 1);
+      resultBitmap = ImmutableRoaringBitmap.and(resultBitmap, rangeBitmap);
+    }
+    _bitmap = resultBitmap;
+    _chainedBitmaps = null;
+
     _startDocId = startDocId;
     _endDocId = endDocId;
   }
 
+  private BitmapDocIdSet(ImmutableRoaringBitmap[] chainedBitmaps, int startDocId, int endDocId) {
+    _chainedBitmaps = chainedBitmaps;
+    _startDocId = startDocId;
+    _endDocId = endDocId;
+  }
+
+  /**
+   * Creates a (non-exclusive) doc id set from bitmaps with ascending and disjoint document id ranges, such as the
+   * posting list of a consuming segment. The bitmaps are iterated in order without being merged into a new bitmap.
+   */
+  public static BitmapDocIdSet fromChainedBitmaps(ImmutableRoaringBitmap[] bitmaps, int startDocId, int endDocId) {
+    // For range inside the segment (morsel), clip the bitmaps so that the iterator does not need to skip all the
+    // documents before the start document id
+    if (startDocId > 0) {
+      MutableRoaringBitmap rangeBitmap = new MutableRoaringBitmap();
+      rangeBitmap.add(startDocId, endDocId + 1);
+      int numBitmaps = bitmaps.length;
+      ImmutableRoaringBitmap[] clippedBitmaps = new ImmutableRoaringBitmap[numBitmaps];
+      for (int i = 0; i < numBitmaps; i++) {
+        clippedBitmaps[i] = ImmutableRoaringBitmap.and(bitmaps[i], rangeBitmap);
+      }
+      bitmaps = clippedBitmaps;
+    }
+    return new BitmapDocIdSet(bitmaps, startDocId, endDocId);
+  }
+
   @Override
   public int getMinDocId() {
     return _startDocId;
@@ -84,7 +125,12 @@ public class BitmapDocIdSet implements FilterBlockDocIdSet {
 
   @Override
   public BlockDocIdIterator iterator() {
-    BitmapDocIdIterator bitmapDocIdIterator = new BitmapDocIdIterator(_bitmap.getIntIterator());
+    BitmapDocIdIterator bitmapDocIdIterator;
+    if (_chainedBitmaps != null) {
+      bitmapDocIdIterator = new BitmapDocIdIterator(new ChainedIntIterator(_chainedBitmaps));
+    } else {
+      bitmapDocIdIterator = new BitmapDocIdIterator(_bitmap.getIntIterator());
+    }
     bitmapDocIdIterator.setStartDocId(_startDocId);
     bitmapDocIdIterator.setEndDocId(_endDocId);
     return bitmapDocIdIterator;
@@ -93,6 +139,9 @@ public class BitmapDocIdSet implements FilterBlockDocIdSet {
   @SuppressWarnings("unchecked")
   @Override
   public <T> T getRaw() {
+    if (_bitmap == null) {
+      _bitmap = MutableRoaringBitmap.or(_chainedBitmaps);
+    }
     return (T) _bitmap;
   }
 }
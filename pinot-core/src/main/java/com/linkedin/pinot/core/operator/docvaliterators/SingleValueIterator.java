@@ -39,6 +39,17 @@ public final class SingleValueIterator extends BlockSingleValIterator {
     return _reader.getInt(_nextDocId++, _context);
   }
 
+  @Override
+  public int nextIntVals(int[] buffer, int maxLength) {
+    int length = Math.min(maxLength, _numDocs - _nextDocId);
+    if (length <= 0) {
+      return 0;
+    }
+    _reader.readIntValues(_nextDocId, length, buffer, _context);
+    _nextDocId += length;
+    return length;
+  }
+
   @Override
   public long nextLongVal() {
     return _reader.getLong(_nextDocId++, _context);
@@ -15,8 +15,10 @@
  */
 package com.linkedin.pinot.core.operator.filter;
 
+import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.operator.BaseOperator;
 import com.linkedin.pinot.core.operator.blocks.FilterBlock;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 
 
 /**
@@ -37,4 +39,13 @@ public abstract class BaseFilterOperator extends BaseOperator<FilterBlock> {
   public boolean isResultMatchingAll() {
     return false;
   }
+
+  /**
+   * Returns the name of the leaf filter operator in the query profile, which includes the data source and the predicate
+   * type so that the access path (bitmap, sorted or scan) chosen for each predicate can be told apart.
+   */
+  protected static String getProfileName(String operatorName, DataSource dataSource,
+      PredicateEvaluator predicateEvaluator) {
+    return operatorName + "(" + dataSource.getOperatorName() + ", " + predicateEvaluator.getPredicateType() + ")";
+  }
 }
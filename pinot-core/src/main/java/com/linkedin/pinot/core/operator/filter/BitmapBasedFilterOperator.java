@@ -22,6 +22,7 @@ import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.slf4j.Logger;
@@ -80,21 +81,32 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
     InvertedIndexReader invertedIndex = _dataSource.getInvertedIndex();
     int length = dictIds.length;
     List<ImmutableRoaringBitmap> bitmaps = new ArrayList<>(length);
+    int numMissingDictIds = 0;
     for (int dictId : dictIds) {
-      ImmutableRoaringBitmap bitmap = (ImmutableRoaringBitmap) invertedIndex.getDocIds(dictId);
-      if (bitmap != null) {
-        bitmaps.add(bitmap);
+      Object docIds = invertedIndex.getDocIds(dictId);
+      if (docIds == null) {
+        numMissingDictIds++;
+      } else if (docIds instanceof ImmutableRoaringBitmap[]) {
+        // Realtime inverted index returns the posting list as bitmaps with ascending and disjoint document id ranges,
+        // which can be iterated without merging them when there is only one matching dict id
+        ImmutableRoaringBitmap[] chainedBitmaps = (ImmutableRoaringBitmap[]) docIds;
+        if (length == 1 && !_exclusive) {
+          return new FilterBlock(BitmapDocIdSet.fromChainedBitmaps(chainedBitmaps, _startDocId, _endDocId));
+        }
+        Collections.addAll(bitmaps, chainedBitmaps);
+      } else {
+        bitmaps.add((ImmutableRoaringBitmap) docIds);
       }
     }
 
     // Log size diff to verify the fix
-    int numBitmaps = bitmaps.size();
-    if (numBitmaps != length) {
-      LOGGER.info("Not all inverted indexes are generated, numDictIds: {}, numBitmaps: {}", length, numBitmaps);
+    if (numMissingDictIds != 0) {
+      LOGGER.info("Not all inverted indexes are generated, numDictIds: {}, numMissingDictIds: {}", length,
+          numMissingDictIds);
     }
 
     return new FilterBlock(
-        new BitmapDocIdSet(bitmaps.toArray(new ImmutableRoaringBitmap[numBitmaps]), _startDocId, _endDocId,
+        new BitmapDocIdSet(bitmaps.toArray(new ImmutableRoaringBitmap[bitmaps.size()]), _startDocId, _endDocId,
             _exclusive));
   }
 
@@ -102,4 +114,9 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
   public String getOperatorName() {
     return OPERATOR_NAME;
   }
+
+  @Override
+  protected String getProfileName() {
+    return getProfileName(OPERATOR_NAME, _dataSource, _predicateEvaluator);
+  }
 }
@@ -39,16 +39,24 @@ public class FilterOperatorUtils {
    */
   public static BaseFilterOperator getLeafFilterOperator(PredicateEvaluator predicateEvaluator, DataSource dataSource,
       int numDocs) {
+    return getLeafFilterOperator(predicateEvaluator, dataSource, 0, numDocs);
+  }
+
+  /**
+   * Returns the leaf filter operator (i.e. not {@link AndFilterOperator} or {@link OrFilterOperator}) which only
+   * matches documents in range [startDocId, endDocId).
+   */
+  public static BaseFilterOperator getLeafFilterOperator(PredicateEvaluator predicateEvaluator, DataSource dataSource,
+      int startDocId, int endDocId) {
     if (predicateEvaluator.isAlwaysFalse()) {
       return EmptyFilterOperator.getInstance();
     } else if (predicateEvaluator.isAlwaysTrue()) {
-      return new MatchAllFilterOperator(numDocs);
+      return new MatchAllFilterOperator(startDocId, endDocId);
     }
 
-    int startDocId = 0;
-    // NOTE: end document Id is inclusive
+    // NOTE: end document Id is inclusive for the filter operators
     // TODO: make it exclusive
-    int endDocId = numDocs - 1;
+    int inclusiveEndDocId = endDocId - 1;
 
     // Use inverted index if the predicate type is not RANGE or REGEXP_LIKE for efficiency
     DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
@@ -56,12 +64,13 @@ public class FilterOperatorUtils {
     if (dataSourceMetadata.hasInvertedIndex() && (predicateType != Predicate.Type.RANGE) && (predicateType
         != Predicate.Type.REGEXP_LIKE)) {
       if (dataSourceMetadata.isSorted()) {
-        return new SortedInvertedIndexBasedFilterOperator(predicateEvaluator, dataSource, startDocId, endDocId);
+        return new SortedInvertedIndexBasedFilterOperator(predicateEvaluator, dataSource, startDocId,
+            inclusiveEndDocId);
       } else {
-        return new BitmapBasedFilterOperator(predicateEvaluator, dataSource, startDocId, endDocId);
+        return new BitmapBasedFilterOperator(predicateEvaluator, dataSource, startDocId, inclusiveEndDocId);
       }
     } else {
-      return new ScanBasedFilterOperator(predicateEvaluator, dataSource, startDocId, endDocId);
+      return new ScanBasedFilterOperator(predicateEvaluator, dataSource, startDocId, inclusiveEndDocId);
     }
   }
 
@@ -70,6 +79,15 @@ public class FilterOperatorUtils {
    */
   public static BaseFilterOperator getAndFilterOperator(List<BaseFilterOperator> filterOperators, int numDocs,
       @Nullable Map<String, String> debugOptions) {
+    return getAndFilterOperator(filterOperators, 0, numDocs, debugOptions);
+  }
+
+  /**
+   * Returns the AND filter operator or equivalent filter operator, where the child filter operators only match
+   * documents in range [startDocId, endDocId).
+   */
+  public static BaseFilterOperator getAndFilterOperator(List<BaseFilterOperator> filterOperators, int startDocId,
+      int endDocId, @Nullable Map<String, String> debugOptions) {
     List<BaseFilterOperator> childFilterOperators = new ArrayList<>(filterOperators.size());
     for (BaseFilterOperator filterOperator : filterOperators) {
       if (filterOperator.isResultEmpty()) {
@@ -81,7 +99,7 @@ public class FilterOperatorUtils {
     int numChildFilterOperators = childFilterOperators.size();
     if (numChildFilterOperators == 0) {
       // Return match all filter operator if all child filter operators match all records
-      return new MatchAllFilterOperator(numDocs);
+      return new MatchAllFilterOperator(startDocId, endDocId);
     } else if (numChildFilterOperators == 1) {
       // Return the child filter operator if only one left
       return childFilterOperators.get(0);
@@ -97,10 +115,19 @@ public class FilterOperatorUtils {
    */
   public static BaseFilterOperator getOrFilterOperator(List<BaseFilterOperator> filterOperators, int numDocs,
       @Nullable Map<String, String> debugOptions) {
+    return getOrFilterOperator(filterOperators, 0, numDocs, debugOptions);
+  }
+
+  /**
+   * Returns the OR filter operator or equivalent filter operator, where the child filter operators only match
+   * documents in range [startDocId, endDocId).
+   */
+  public static BaseFilterOperator getOrFilterOperator(List<BaseFilterOperator> filterOperators, int startDocId,
+      int endDocId, @Nullable Map<String, String> debugOptions) {
     List<BaseFilterOperator> childFilterOperators = new ArrayList<>(filterOperators.size());
     for (BaseFilterOperator filterOperator : filterOperators) {
       if (filterOperator.isResultMatchingAll()) {
-        return new MatchAllFilterOperator(numDocs);
+        return new MatchAllFilterOperator(startDocId, endDocId);
       } else if (!filterOperator.isResultEmpty()) {
         childFilterOperators.add(filterOperator);
       }
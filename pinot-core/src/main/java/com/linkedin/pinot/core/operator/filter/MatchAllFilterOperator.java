@@ -22,10 +22,19 @@ import com.linkedin.pinot.core.operator.docidsets.SizeBasedDocIdSet;
 public class MatchAllFilterOperator extends BaseFilterOperator {
   private static final String OPERATOR_NAME = "MatchEntireSegmentOperator";
 
-  private int _maxDocId;
+  private final int _minDocId;
+  private final int _maxDocId;
 
   public MatchAllFilterOperator(int totalDocs) {
-    _maxDocId = totalDocs - 1;
+    this(0, totalDocs);
+  }
+
+  /**
+   * Constructor for the filter operator matching all documents in range [startDocId, endDocId).
+   */
+  public MatchAllFilterOperator(int startDocId, int endDocId) {
+    _minDocId = startDocId;
+    _maxDocId = endDocId - 1;
   }
 
   @Override
@@ -35,7 +44,7 @@ public class MatchAllFilterOperator extends BaseFilterOperator {
 
   @Override
   protected FilterBlock getNextBlock() {
-    return new FilterBlock(new SizeBasedDocIdSet(_maxDocId));
+    return new FilterBlock(new SizeBasedDocIdSet(_minDocId, _maxDocId));
   }
 
   @Override
@@ -79,6 +79,11 @@ public class ScanBasedFilterOperator extends BaseFilterOperator {
     return OPERATOR_NAME;
   }
 
+  @Override
+  protected String getProfileName() {
+    return getProfileName(OPERATOR_NAME, _dataSource, _predicateEvaluator);
+  }
+
   /**
    * Returns the predicate evaluator associated with the scan filter.
    */
@@ -158,4 +158,9 @@ public class SortedInvertedIndexBasedFilterOperator extends BaseFilterOperator {
   public String getOperatorName() {
     return OPERATOR_NAME;
   }
+
+  @Override
+  protected String getProfileName() {
+    return getProfileName(OPERATOR_NAME, _dataSource, _predicateEvaluator);
+  }
 }
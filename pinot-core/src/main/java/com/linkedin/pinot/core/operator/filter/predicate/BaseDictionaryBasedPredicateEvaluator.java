@@ -89,6 +89,28 @@ public abstract class BaseDictionaryBasedPredicateEvaluator extends BasePredicat
   @Override
   public abstract boolean applySV(int dictId);
 
+  /**
+   * Apply a batch of single-value entries for consecutive documents to the predicate.
+   * <p>NOTE: override it with a tight loop over the dictionary ids for the commonly used predicates, so that the
+   * scan does not make one virtual call per document.
+   *
+   * @param dictIds Array of dictionary ids
+   * @param length Number of dictionary ids in the batch
+   * @param startDocId Document id of the first entry
+   * @param matchingDocIds Output array for the matching document ids
+   * @return Number of matching documents
+   */
+  @Override
+  public int applySV(int[] dictIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      if (applySV(dictIds[i])) {
+        matchingDocIds[numMatchingDocs++] = startDocId + i;
+      }
+    }
+    return numMatchingDocs;
+  }
+
   /**
    * Apply a multi-value entry to the predicate.
    *
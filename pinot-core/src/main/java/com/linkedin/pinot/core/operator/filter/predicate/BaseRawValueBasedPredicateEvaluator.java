@@ -80,6 +80,26 @@ public abstract class BaseRawValueBasedPredicateEvaluator extends BasePredicateE
     }
   }
 
+  /**
+   * Apply a batch of single-value entries for consecutive documents to the predicate.
+   *
+   * @param values Array of raw values
+   * @param length Number of values in the batch
+   * @param startDocId Document id of the first entry
+   * @param matchingDocIds Output array for the matching document ids
+   * @return Number of matching documents
+   */
+  @Override
+  public int applySV(int[] values, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      if (applySV(values[i])) {
+        matchingDocIds[numMatchingDocs++] = startDocId + i;
+      }
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public boolean applySV(long value) {
     throw new UnsupportedOperationException();
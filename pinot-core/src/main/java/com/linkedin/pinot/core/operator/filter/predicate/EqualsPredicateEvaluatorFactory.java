@@ -92,6 +92,17 @@ public class EqualsPredicateEvaluatorFactory {
       return _matchingDictId == dictId;
     }
 
+    @Override
+    public int applySV(int[] dictIds, int length, int startDocId, int[] matchingDocIds) {
+      // Always write the document id and only advance the index on match to avoid branches
+      int numMatchingDocs = 0;
+      for (int i = 0; i < length; i++) {
+        matchingDocIds[numMatchingDocs] = startDocId + i;
+        numMatchingDocs += _matchingDictId == dictIds[i] ? 1 : 0;
+      }
+      return numMatchingDocs;
+    }
+
     @Override
     public int[] getMatchingDictIds() {
       return _matchingDictIds;
@@ -114,6 +125,16 @@ public class EqualsPredicateEvaluatorFactory {
     public boolean applySV(int value) {
       return _matchingValue == value;
     }
+
+    @Override
+    public int applySV(int[] values, int length, int startDocId, int[] matchingDocIds) {
+      int numMatchingDocs = 0;
+      for (int i = 0; i < length; i++) {
+        matchingDocIds[numMatchingDocs] = startDocId + i;
+        numMatchingDocs += _matchingValue == values[i] ? 1 : 0;
+      }
+      return numMatchingDocs;
+    }
   }
 
   private static final class LongRawValueBasedEqPredicateEvaluator extends BaseRawValueBasedPredicateEvaluator {
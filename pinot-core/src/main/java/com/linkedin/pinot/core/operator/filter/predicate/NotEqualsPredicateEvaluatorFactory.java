@@ -95,6 +95,16 @@ public class NotEqualsPredicateEvaluatorFactory {
       return _nonMatchingDictId != dictId;
     }
 
+    @Override
+    public int applySV(int[] dictIds, int length, int startDocId, int[] matchingDocIds) {
+      int numMatchingDocs = 0;
+      for (int i = 0; i < length; i++) {
+        matchingDocIds[numMatchingDocs] = startDocId + i;
+        numMatchingDocs += _nonMatchingDictId != dictIds[i] ? 1 : 0;
+      }
+      return numMatchingDocs;
+    }
+
     @Override
     public int[] getMatchingDictIds() {
       if (_matchingDictIds == null) {
@@ -65,6 +65,19 @@ public interface PredicateEvaluator {
    */
   boolean applyMV(int[] values, int length);
 
+  /**
+   * Apply a batch of single-value entries for consecutive documents to the predicate, and collect the matching
+   * document ids.
+   *
+   * @param values Array of dictionary ids or raw values, where the value at index i belongs to document
+   *               (startDocId + i)
+   * @param length Number of entries in the batch
+   * @param startDocId Document id of the first entry
+   * @param matchingDocIds Output array (no smaller than length) for the matching document ids
+   * @return Number of matching documents
+   */
+  int applySV(int[] values, int length, int startDocId, int[] matchingDocIds);
+
   /**
    * APIs for dictionary based predicate evaluator
    */
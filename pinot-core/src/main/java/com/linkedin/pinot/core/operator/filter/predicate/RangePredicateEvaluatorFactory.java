@@ -134,6 +134,18 @@ public class RangePredicateEvaluatorFactory {
       return _startDictId <= dictId && _endDictId > dictId;
     }
 
+    @Override
+    public int applySV(int[] dictIds, int length, int startDocId, int[] matchingDocIds) {
+      // Always write the document id and only advance the index on match to avoid branches
+      int numMatchingDocs = 0;
+      for (int i = 0; i < length; i++) {
+        int dictId = dictIds[i];
+        matchingDocIds[numMatchingDocs] = startDocId + i;
+        numMatchingDocs += (_startDictId <= dictId & _endDictId > dictId) ? 1 : 0;
+      }
+      return numMatchingDocs;
+    }
+
     @Override
     public int getNumMatchingDictIds() {
       return _numMatchingDictIds;
@@ -256,6 +268,20 @@ public class RangePredicateEvaluatorFactory {
       }
       return result;
     }
+
+    @Override
+    public int applySV(int[] values, int length, int startDocId, int[] matchingDocIds) {
+      // Convert the boundaries to inclusive ones so that the loop has no branch on the boundary types
+      long lowerBoundary = _includeLowerBoundary ? _lowerBoundary : (long) _lowerBoundary + 1;
+      long upperBoundary = _includeUpperBoundary ? _upperBoundary : (long) _upperBoundary - 1;
+      int numMatchingDocs = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        matchingDocIds[numMatchingDocs] = startDocId + i;
+        numMatchingDocs += (lowerBoundary <= value & upperBoundary >= value) ? 1 : 0;
+      }
+      return numMatchingDocs;
+    }
   }
 
   private static final class LongRawValueBasedRangePredicateEvaluator extends BaseRawValueBasedPredicateEvaluator {
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.operator.query;
 
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.ExecutionStatistics;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.blocks.TransformBlock;
@@ -25,8 +26,10 @@ import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
 import com.linkedin.pinot.core.query.aggregation.groupby.DefaultGroupByExecutor;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByExecutor;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import com.linkedin.pinot.core.startree.executor.StarTreeGroupByExecutor;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -42,12 +45,33 @@ public class AggregationGroupByOperator extends BaseOperator<IntermediateResults
   private final TransformOperator _transformOperator;
   private final long _numTotalRawDocs;
   private final boolean _useStarTree;
+  private final DocIdRange _docIdRange;
 
   private ExecutionStatistics _executionStatistics;
 
   public AggregationGroupByOperator(@Nonnull AggregationFunctionContext[] functionContexts, @Nonnull GroupBy groupBy,
       int maxInitialResultHolderCapacity, int numGroupsLimit, @Nonnull TransformOperator transformOperator,
       long numTotalRawDocs, boolean useStarTree) {
+    this(functionContexts, groupBy, maxInitialResultHolderCapacity, numGroupsLimit, transformOperator, numTotalRawDocs,
+        useStarTree, null);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param functionContexts Aggregation function contexts
+   * @param groupBy Group-by
+   * @param maxInitialResultHolderCapacity Maximum initial capacity of the result holders
+   * @param numGroupsLimit Limit on number of groups
+   * @param transformOperator Transform operator
+   * @param numTotalRawDocs Total number of raw documents in the segment
+   * @param useStarTree Whether the transform operator is based on star-tree
+   * @param docIdRange Range of documents processed by the transform operator, or null if it processes all documents
+   *                   of the segment
+   */
+  public AggregationGroupByOperator(@Nonnull AggregationFunctionContext[] functionContexts, @Nonnull GroupBy groupBy,
+      int maxInitialResultHolderCapacity, int numGroupsLimit, @Nonnull TransformOperator transformOperator,
+      long numTotalRawDocs, boolean useStarTree, @Nullable DocIdRange docIdRange) {
     _functionContexts = functionContexts;
     _groupBy = groupBy;
     _maxInitialResultHolderCapacity = maxInitialResultHolderCapacity;
@@ -55,6 +79,7 @@ public class AggregationGroupByOperator extends BaseOperator<IntermediateResults
     _transformOperator = transformOperator;
     _numTotalRawDocs = numTotalRawDocs;
     _useStarTree = useStarTree;
+    _docIdRange = docIdRange;
   }
 
   @Override
@@ -82,9 +107,19 @@ public class AggregationGroupByOperator extends BaseOperator<IntermediateResults
     // Gather execution statistics
     long numEntriesScannedInFilter = _transformOperator.getExecutionStatistics().getNumEntriesScannedInFilter();
     long numEntriesScannedPostFilter = numDocsScanned * _transformOperator.getNumColumnsProjected();
-    _executionStatistics =
-        new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
-            _numTotalRawDocs);
+    if (_docIdRange != null) {
+      _executionStatistics = _docIdRange.getExecutionStatistics(numDocsScanned, numEntriesScannedInFilter,
+          numEntriesScannedPostFilter);
+    } else {
+      _executionStatistics =
+          new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
+              _numTotalRawDocs);
+    }
+
+    QueryProfile queryProfile = QueryProfile.get();
+    if (queryProfile != null) {
+      queryProfile.add(OPERATOR_NAME, QueryProfile.NUM_ROWS_IN, numDocsScanned);
+    }
 
     // Build intermediate result block based on aggregation group-by result from the executor
     return new IntermediateResultsBlock(_functionContexts, groupByResult);
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.operator.query;
 
 import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.ExecutionStatistics;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.blocks.TransformBlock;
@@ -23,9 +24,11 @@ import com.linkedin.pinot.core.operator.transform.TransformOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationExecutor;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.DefaultAggregationExecutor;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import com.linkedin.pinot.core.startree.executor.StarTreeAggregationExecutor;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -38,15 +41,33 @@ public class AggregationOperator extends BaseOperator<IntermediateResultsBlock>
   private final TransformOperator _transformOperator;
   private final long _numTotalRawDocs;
   private final boolean _useStarTree;
+  private final DocIdRange _docIdRange;
 
   private ExecutionStatistics _executionStatistics;
 
   public AggregationOperator(@Nonnull AggregationFunctionContext[] functionContexts,
       @Nonnull TransformOperator transformOperator, long numTotalRawDocs, boolean useStarTree) {
+    this(functionContexts, transformOperator, numTotalRawDocs, useStarTree, null);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param functionContexts Aggregation function contexts
+   * @param transformOperator Transform operator
+   * @param numTotalRawDocs Total number of raw documents in the segment
+   * @param useStarTree Whether the transform operator is based on star-tree
+   * @param docIdRange Range of documents processed by the transform operator, or null if it processes all documents
+   *                   of the segment
+   */
+  public AggregationOperator(@Nonnull AggregationFunctionContext[] functionContexts,
+      @Nonnull TransformOperator transformOperator, long numTotalRawDocs, boolean useStarTree,
+      @Nullable DocIdRange docIdRange) {
     _functionContexts = functionContexts;
     _transformOperator = transformOperator;
     _numTotalRawDocs = numTotalRawDocs;
     _useStarTree = useStarTree;
+    _docIdRange = docIdRange;
   }
 
   @Override
@@ -70,9 +91,19 @@ public class AggregationOperator extends BaseOperator<IntermediateResultsBlock>
     // Create execution statistics
     long numEntriesScannedInFilter = _transformOperator.getExecutionStatistics().getNumEntriesScannedInFilter();
     long numEntriesScannedPostFilter = numDocsScanned * _transformOperator.getNumColumnsProjected();
-    _executionStatistics =
-        new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
-            _numTotalRawDocs);
+    if (_docIdRange != null) {
+      _executionStatistics = _docIdRange.getExecutionStatistics(numDocsScanned, numEntriesScannedInFilter,
+          numEntriesScannedPostFilter);
+    } else {
+      _executionStatistics =
+          new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
+              _numTotalRawDocs);
+    }
+
+    QueryProfile queryProfile = QueryProfile.get();
+    if (queryProfile != null) {
+      queryProfile.addRows(OPERATOR_NAME, numDocsScanned, 1);
+    }
 
     // Build intermediate result block based on aggregation result from the executor
     return new IntermediateResultsBlock(_functionContexts, aggregationResult, false);
@@ -25,6 +25,7 @@ import com.linkedin.pinot.core.operator.ProjectionOperator;
 import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import com.linkedin.pinot.core.query.selection.SelectionFetcher;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
 import java.io.Serializable;
@@ -91,6 +92,11 @@ public class SelectionOnlyOperator extends BaseOperator<IntermediateResultsBlock
         new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
             numTotalRawDocs);
 
+    QueryProfile queryProfile = QueryProfile.get();
+    if (queryProfile != null) {
+      queryProfile.addRows(OPERATOR_NAME, numDocsScanned, _rowEvents.size());
+    }
+
     return new IntermediateResultsBlock(_dataSchema, _rowEvents);
   }
 
@@ -19,29 +19,42 @@ import com.linkedin.pinot.common.request.Selection;
 import com.linkedin.pinot.common.request.SelectionSort;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.io.reader.impl.v1.SortedIndexReader;
 import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.ExecutionStatistics;
 import com.linkedin.pinot.core.operator.ProjectionOperator;
-import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.plan.ProjectionPlanNode;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorService;
+import com.linkedin.pinot.core.query.selection.SelectionOrderByThreshold;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 
 /**
  * This MSelectionOperator will take care of applying a selection query to one IndexSegment.
  * nextBlock() will return an IntermediateResultBlock for the given IndexSegment.
- *
- *
+ * <p>When the first sort column is sorted inside the segment, the segment is scanned in doc id ranges starting from
+ * the end with the best values, and the scan stops once the best value of the next range cannot get into the results.
+ * The whole segment is skipped if its best value (from the min/max value in the segment metadata) cannot beat the
+ * rows already selected from the other segments.
  */
 public class SelectionOrderByOperator extends BaseOperator<IntermediateResultsBlock> {
   private static final String OPERATOR_NAME = "SelectionOrderByOperator";
 
   private final IndexSegment _indexSegment;
-  private final ProjectionOperator _projectionOperator;
+  // Projection plan nodes for the doc id ranges in the scan order, or one plan node for the whole segment
+  private final List<ProjectionPlanNode> _projectionPlanNodes;
+  private final List<DocIdRange> _docIdRanges;
+  private final SelectionOrderByThreshold _threshold;
   private final Selection _selection;
   private final SelectionOperatorService _selectionOperatorService;
   private final DataSchema _dataSchema;
@@ -49,11 +62,24 @@ public class SelectionOrderByOperator extends BaseOperator<IntermediateResultsBl
   private final Set<String> _selectionColumns = new HashSet<>();
   private ExecutionStatistics _executionStatistics;
 
+  /**
+   * Constructor for the selection order-by operator.
+   *
+   * @param indexSegment Index segment.
+   * @param selection Selection.
+   * @param projectionPlanNodes Projection plan nodes in scan order.
+   * @param docIdRanges Doc id ranges sorted on the first sort column (same order as the plan nodes), or
+   *                    <code>null</code> if the segment is scanned as a whole.
+   * @param threshold Threshold shared across segments, or <code>null</code> if not available.
+   */
   public SelectionOrderByOperator(IndexSegment indexSegment, Selection selection,
-      ProjectionOperator projectionOperator) {
+      List<ProjectionPlanNode> projectionPlanNodes, @Nullable List<DocIdRange> docIdRanges,
+      @Nullable SelectionOrderByThreshold threshold) {
     _indexSegment = indexSegment;
     _selection = selection;
-    _projectionOperator = projectionOperator;
+    _projectionPlanNodes = projectionPlanNodes;
+    _docIdRanges = docIdRanges;
+    _threshold = threshold;
 
     initColumnarDataSourcePlanNodeMap(indexSegment);
     _selectionOperatorService = new SelectionOperatorService(_selection, indexSegment);
@@ -81,27 +107,76 @@ public class SelectionOrderByOperator extends BaseOperator<IntermediateResultsBl
 
   @Override
   protected IntermediateResultsBlock getNextBlock() {
-    int numDocsScanned = 0;
+    long numTotalRawDocs = _indexSegment.getSegmentMetadata().getTotalRawDocs();
+
+    // Skip the whole segment if its best value cannot get into the results
+    if (_threshold != null && _threshold.canSkip(_threshold.getBestValue(_indexSegment))) {
+      _executionStatistics = new ExecutionStatistics(0L, 0L, 0L, numTotalRawDocs);
+      return new IntermediateResultsBlock(_dataSchema, _selectionOperatorService.getRows());
+    }
 
-    ProjectionBlock projectionBlock;
-    while ((projectionBlock = _projectionOperator.nextBlock()) != null) {
+    // Only read the sort columns while scanning, fetch the selection rows for the top documents at the end.
+    long numEntriesScannedInFilter = 0L;
+    int numColumnsProjected = 0;
+    ProjectionBlock lastProjectionBlock = null;
+    int numRanges = _projectionPlanNodes.size();
+    for (int i = 0; i < numRanges; i++) {
+      if (i > 0 && canSkipRange(_docIdRanges.get(i))) {
+        // The ranges are sorted, none of the remaining ranges can get into the results
+        break;
+      }
+      ProjectionOperator projectionOperator = _projectionPlanNodes.get(i).run();
+      ProjectionBlock projectionBlock;
+      while ((projectionBlock = projectionOperator.nextBlock()) != null) {
+        _selectionOperatorService.addBlockWithOrdering(projectionBlock);
+        lastProjectionBlock = projectionBlock;
+      }
+      numEntriesScannedInFilter += projectionOperator.getExecutionStatistics().getNumEntriesScannedInFilter();
+      numColumnsProjected = projectionOperator.getNumColumnsProjected();
+    }
+    if (lastProjectionBlock != null) {
       for (int i = 0; i < _dataSchema.size(); i++) {
-        _blocks[i] = projectionBlock.getBlock(_dataSchema.getColumnName(i));
+        _blocks[i] = lastProjectionBlock.getBlock(_dataSchema.getColumnName(i));
       }
-      DocIdSetBlock docIdSetBlock = projectionBlock.getDocIdSetBlock();
-      _selectionOperatorService.iterateOnBlocksWithOrdering(docIdSetBlock.getBlockDocIdSet().iterator(), _blocks);
+      _selectionOperatorService.fetchRowsWithOrdering(_blocks);
+    }
+    if (_threshold != null) {
+      _threshold.addRows(_selectionOperatorService.getRows());
     }
 
     // Create execution statistics.
-    numDocsScanned += _selectionOperatorService.getNumDocsScanned();
-    long numEntriesScannedInFilter = _projectionOperator.getExecutionStatistics().getNumEntriesScannedInFilter();
-    long numEntriesScannedPostFilter = numDocsScanned * _projectionOperator.getNumColumnsProjected();
-    long numTotalRawDocs = _indexSegment.getSegmentMetadata().getTotalRawDocs();
+    long numDocsScanned = _selectionOperatorService.getNumDocsScanned();
+    long numEntriesScannedPostFilter = numDocsScanned * numColumnsProjected;
     _executionStatistics =
         new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
             numTotalRawDocs);
 
-    return new IntermediateResultsBlock(_selectionOperatorService.getDataSchema(), _selectionOperatorService.getRows());
+    QueryProfile queryProfile = QueryProfile.get();
+    if (queryProfile != null) {
+      queryProfile.addRows(OPERATOR_NAME, numDocsScanned, _selectionOperatorService.getRows().size());
+    }
+
+    return new IntermediateResultsBlock(_dataSchema, _selectionOperatorService.getRows());
+  }
+
+  /**
+   * Returns whether the given doc id range can be skipped based on the best value of the first sort column inside the
+   * range, which is the first document for ascending order and the last document for descending order.
+   */
+  private boolean canSkipRange(DocIdRange docIdRange) {
+    SelectionSort firstSelectionSort = _selection.getSelectionSortSequence().get(0);
+    DataSource dataSource = _indexSegment.getDataSource(firstSelectionSort.getColumn());
+    SortedIndexReader sortedIndexReader = (SortedIndexReader) dataSource.getInvertedIndex();
+    int bestDocId = firstSelectionSort.isIsAsc() ? docIdRange.getStartDocId() : docIdRange.getEndDocId() - 1;
+    int bestDictId = sortedIndexReader.getInt(bestDocId);
+    if (_selectionOperatorService.canSkipFirstSortDictId(bestDictId)) {
+      return true;
+    }
+    if (_threshold != null) {
+      Dictionary dictionary = dataSource.getDictionary();
+      return _threshold.canSkip(dictionary.get(bestDictId));
+    }
+    return false;
   }
 
   @Override
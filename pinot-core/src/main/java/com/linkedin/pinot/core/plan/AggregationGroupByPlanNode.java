@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.query.AggregationGroupByOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
@@ -33,6 +34,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,10 +54,27 @@ public class AggregationGroupByPlanNode implements PlanNode {
   private final GroupBy _groupBy;
   private final TransformPlanNode _transformPlanNode;
   private final StarTreeTransformPlanNode _starTreeTransformPlanNode;
+  private final DocIdRange _docIdRange;
 
   public AggregationGroupByPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
       int maxInitialResultHolderCapacity, int numGroupsLimit) {
+    this(indexSegment, brokerRequest, maxInitialResultHolderCapacity, numGroupsLimit, null);
+  }
+
+  /**
+   * Constructor for the class.
+   * <p>When the range of documents is specified, star-tree is not used because it does not preserve the document ids.
+   *
+   * @param indexSegment Segment to process
+   * @param brokerRequest Broker request
+   * @param maxInitialResultHolderCapacity Maximum initial capacity of the result holders
+   * @param numGroupsLimit Limit on number of groups
+   * @param docIdRange Range of documents to process, or null to process all documents of the segment
+   */
+  public AggregationGroupByPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      int maxInitialResultHolderCapacity, int numGroupsLimit, @Nullable DocIdRange docIdRange) {
     _indexSegment = indexSegment;
+    _docIdRange = docIdRange;
     _maxInitialResultHolderCapacity = maxInitialResultHolderCapacity;
     _numGroupsLimit = numGroupsLimit;
     _aggregationInfos = brokerRequest.getAggregationsInfo();
@@ -64,7 +83,7 @@ public class AggregationGroupByPlanNode implements PlanNode {
     _groupBy = brokerRequest.getGroupBy();
 
     List<StarTreeV2> starTrees = indexSegment.getStarTrees();
-    if (starTrees != null) {
+    if (starTrees != null && docIdRange == null) {
       if (!StarTreeUtils.isStarTreeDisabled(brokerRequest)) {
         Set<AggregationFunctionColumnPair> aggregationFunctionColumnPairs = new HashSet<>();
         for (AggregationInfo aggregationInfo : _aggregationInfos) {
@@ -88,7 +107,7 @@ public class AggregationGroupByPlanNode implements PlanNode {
       }
     }
 
-    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest);
+    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest, docIdRange);
     _starTreeTransformPlanNode = null;
   }
 
@@ -98,7 +117,7 @@ public class AggregationGroupByPlanNode implements PlanNode {
     if (_transformPlanNode != null) {
       // Do not use star-tree
       return new AggregationGroupByOperator(_functionContexts, _groupBy, _maxInitialResultHolderCapacity,
-          _numGroupsLimit, _transformPlanNode.run(), numTotalRawDocs, false);
+          _numGroupsLimit, _transformPlanNode.run(), numTotalRawDocs, false, _docIdRange);
     } else {
       // Use star-tree
       return new AggregationGroupByOperator(_functionContexts, _groupBy, _maxInitialResultHolderCapacity,
@@ -113,6 +132,9 @@ public class AggregationGroupByPlanNode implements PlanNode {
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
     LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
     LOGGER.debug(prefix + "Argument 2: GroupBy - " + _groupBy);
+    if (_docIdRange != null) {
+      LOGGER.debug(prefix + "DocIdRange - " + _docIdRange);
+    }
     if (_transformPlanNode != null) {
       LOGGER.debug(prefix + "Argument 3: TransformPlanNode -");
       _transformPlanNode.showTree(prefix + "    ");
@@ -20,6 +20,7 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.query.AggregationOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
@@ -31,6 +32,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,15 +49,30 @@ public class AggregationPlanNode implements PlanNode {
   private final AggregationFunctionContext[] _functionContexts;
   private final TransformPlanNode _transformPlanNode;
   private final StarTreeTransformPlanNode _starTreeTransformPlanNode;
+  private final DocIdRange _docIdRange;
 
   public AggregationPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest) {
+    this(indexSegment, brokerRequest, null);
+  }
+
+  /**
+   * Constructor for the class.
+   * <p>When the range of documents is specified, star-tree is not used because it does not preserve the document ids.
+   *
+   * @param indexSegment Segment to process
+   * @param brokerRequest Broker request
+   * @param docIdRange Range of documents to process, or null to process all documents of the segment
+   */
+  public AggregationPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      @Nullable DocIdRange docIdRange) {
     _indexSegment = indexSegment;
+    _docIdRange = docIdRange;
     _aggregationInfos = brokerRequest.getAggregationsInfo();
     _functionContexts =
         AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, indexSegment.getSegmentMetadata());
 
     List<StarTreeV2> starTrees = indexSegment.getStarTrees();
-    if (starTrees != null) {
+    if (starTrees != null && docIdRange == null) {
       if (!StarTreeUtils.isStarTreeDisabled(brokerRequest)) {
         Set<AggregationFunctionColumnPair> aggregationFunctionColumnPairs = new HashSet<>();
         for (AggregationInfo aggregationInfo : _aggregationInfos) {
@@ -75,7 +92,7 @@ public class AggregationPlanNode implements PlanNode {
       }
     }
 
-    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest);
+    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest, docIdRange);
     _starTreeTransformPlanNode = null;
   }
 
@@ -84,7 +101,8 @@ public class AggregationPlanNode implements PlanNode {
     int numTotalRawDocs = _indexSegment.getSegmentMetadata().getTotalRawDocs();
     if (_transformPlanNode != null) {
       // Do not use star-tree
-      return new AggregationOperator(_functionContexts, _transformPlanNode.run(), numTotalRawDocs, false);
+      return new AggregationOperator(_functionContexts, _transformPlanNode.run(), numTotalRawDocs, false,
+          _docIdRange);
     } else {
       // Use star-tree
       return new AggregationOperator(_functionContexts, _starTreeTransformPlanNode.run(), numTotalRawDocs, true);
@@ -97,6 +115,9 @@ public class AggregationPlanNode implements PlanNode {
     LOGGER.debug(prefix + "Operator: AggregationOperator");
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
     LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
+    if (_docIdRange != null) {
+      LOGGER.debug(prefix + "DocIdRange - " + _docIdRange);
+    }
     if (_transformPlanNode != null) {
       LOGGER.debug(prefix + "Argument 2: TransformPlanNode -");
       _transformPlanNode.showTree(prefix + "    ");
@@ -19,13 +19,17 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.CombineGroupByOperator;
 import com.linkedin.pinot.core.operator.CombineOperator;
+import com.linkedin.pinot.core.operator.PartitionedCombineGroupByOperator;
 import com.linkedin.pinot.core.query.exception.BadQueryRequestException;
+import com.linkedin.pinot.core.util.QueryParallelismUtils;
 import com.linkedin.pinot.core.util.trace.TraceCallable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,8 +40,8 @@ import org.slf4j.LoggerFactory;
 public class CombinePlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(CombinePlanNode.class);
 
-  private static final int MAX_PLAN_THREADS = Math.min(10, (int) (Runtime.getRuntime().availableProcessors() * .5));
-  private static final int MIN_TASKS_PER_THREAD = 10;
+  // Plan nodes are cheap to run, only run them in parallel when there are more than this number of plan nodes
+  private static final int MAX_PLAN_NODES_TO_RUN_SEQUENTIALLY = 10;
   private static final int TIME_OUT_IN_MILLISECONDS_FOR_PARALLEL_RUN = 10_000;
 
   private final List<PlanNode> _planNodes;
@@ -45,6 +49,8 @@ public class CombinePlanNode implements PlanNode {
   private final ExecutorService _executorService;
   private final long _timeOutMs;
   private final int _numGroupsLimit;
+  private final int _numGroupByPartitions;
+  private final long _numTotalDocs;
 
   /**
    * Constructor for the class.
@@ -53,14 +59,50 @@ public class CombinePlanNode implements PlanNode {
    * @param brokerRequest Broker request
    * @param executorService Executor service
    * @param timeOutMs Time out in milliseconds for query execution (not for planning phase)
+   * @param numGroupsLimit Limit on number of groups for the combined result
    */
   public CombinePlanNode(List<PlanNode> planNodes, BrokerRequest brokerRequest, ExecutorService executorService,
       long timeOutMs, int numGroupsLimit) {
+    this(planNodes, brokerRequest, executorService, timeOutMs, numGroupsLimit, 0);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param planNodes List of underlying plan nodes
+   * @param brokerRequest Broker request
+   * @param executorService Executor service
+   * @param timeOutMs Time out in milliseconds for query execution (not for planning phase)
+   * @param numGroupsLimit Limit on number of groups for the combined result
+   * @param numGroupByPartitions Number of partitions to combine aggregation group-by results, 0 to combine into a
+   *                             single shared map
+   */
+  public CombinePlanNode(List<PlanNode> planNodes, BrokerRequest brokerRequest, ExecutorService executorService,
+      long timeOutMs, int numGroupsLimit, int numGroupByPartitions) {
+    this(planNodes, brokerRequest, executorService, timeOutMs, numGroupsLimit, numGroupByPartitions, -1L);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param planNodes List of underlying plan nodes, ordered from the most expensive to the least expensive
+   * @param brokerRequest Broker request
+   * @param executorService Executor service
+   * @param timeOutMs Time out in milliseconds for query execution (not for planning phase)
+   * @param numGroupsLimit Limit on number of groups for the combined result
+   * @param numGroupByPartitions Number of partitions to combine aggregation group-by results, 0 to combine into a
+   *                             single shared map
+   * @param numTotalDocs Total number of documents of the underlying segments, or negative if unknown
+   */
+  public CombinePlanNode(List<PlanNode> planNodes, BrokerRequest brokerRequest, ExecutorService executorService,
+      long timeOutMs, int numGroupsLimit, int numGroupByPartitions, long numTotalDocs) {
     _planNodes = planNodes;
     _brokerRequest = brokerRequest;
     _executorService = executorService;
     _timeOutMs = timeOutMs;
     _numGroupsLimit = numGroupsLimit;
+    _numGroupByPartitions = numGroupByPartitions;
+    _numTotalDocs = numTotalDocs;
   }
 
   @Override
@@ -68,7 +110,7 @@ public class CombinePlanNode implements PlanNode {
     int numPlanNodes = _planNodes.size();
     List<Operator> operators = new ArrayList<>(numPlanNodes);
 
-    if (numPlanNodes <= MIN_TASKS_PER_THREAD) {
+    if (numPlanNodes <= MAX_PLAN_NODES_TO_RUN_SEQUENTIALLY) {
       // Small number of plan nodes, run them sequentially
       for (PlanNode planNode : _planNodes) {
         operators.add(planNode.run());
@@ -79,24 +121,28 @@ public class CombinePlanNode implements PlanNode {
       // Calculate the time out timestamp
       long endTime = System.currentTimeMillis() + TIME_OUT_IN_MILLISECONDS_FOR_PARALLEL_RUN;
 
-      int threads = Math.min(numPlanNodes/MIN_TASKS_PER_THREAD + ((numPlanNodes % MIN_TASKS_PER_THREAD == 0) ? 0 : 1), // ceil without using double arithmetic
-          MAX_PLAN_THREADS);
-      int opsPerThread = Math.max(numPlanNodes/threads + ((numPlanNodes % threads == 0) ? 0 : 1), // ceil without using double arithmetic
-          MIN_TASKS_PER_THREAD);
+      // Each task pulls the next plan node until all of them are run, and puts the operator at the same index to keep
+      // the order of the plan nodes
+      int numTasks = QueryParallelismUtils.getNumTasks(
+          (numPlanNodes + MAX_PLAN_NODES_TO_RUN_SEQUENTIALLY - 1) / MAX_PLAN_NODES_TO_RUN_SEQUENTIALLY, -1L);
+      final Operator[] operatorArray = new Operator[numPlanNodes];
+      final AtomicInteger nextPlanNodeIndex = new AtomicInteger();
       // Submit all jobs
-      Future[] futures = new Future[threads];
-      for (int i = 0; i < threads; i++) {
-        final int index = i;
-        futures[i] = _executorService.submit(new TraceCallable<List<Operator>>() {
+      Future[] futures = new Future[numTasks];
+      for (int i = 0; i < numTasks; i++) {
+        futures[i] = _executorService.submit(new TraceCallable<Void>() {
           @Override
-          public List<Operator> callJob() throws Exception {
-            List<Operator> operators = new ArrayList<>();
-            int start = index * opsPerThread;
-            int limit = Math.min(opsPerThread, numPlanNodes - start);
-            for(int count = start; count < start + limit; count++) {
-              operators.add(_planNodes.get(count).run());
+          public Void callJob() throws Exception {
+            QueryParallelismUtils.onTaskStart();
+            try {
+              int planNodeIndex;
+              while ((planNodeIndex = nextPlanNodeIndex.getAndIncrement()) < numPlanNodes) {
+                operatorArray[planNodeIndex] = _planNodes.get(planNodeIndex).run();
+              }
+            } finally {
+              QueryParallelismUtils.onTaskFinish();
             }
-            return operators;
+            return null;
           }
         });
       }
@@ -104,9 +150,9 @@ public class CombinePlanNode implements PlanNode {
       // Get all results
       try {
         for (Future future : futures) {
-          List<Operator> ops = (List<Operator>) future.get(endTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-          operators.addAll(ops);
+          future.get(endTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
         }
+        operators.addAll(Arrays.asList(operatorArray));
       } catch (Exception e) {
         // Future object will throw ExecutionException for execution exception, need to check the cause to determine
         // whether it is caused by bad query
@@ -129,10 +175,16 @@ public class CombinePlanNode implements PlanNode {
     // TODO: use the same combine operator for both aggregation and selection query.
     if (_brokerRequest.isSetAggregationsInfo() && _brokerRequest.getGroupBy() != null) {
       // Aggregation group-by query
-      return new CombineGroupByOperator(operators, _brokerRequest, _executorService, _timeOutMs, _numGroupsLimit);
+      if (_numGroupByPartitions > 0) {
+        return new PartitionedCombineGroupByOperator(operators, _brokerRequest, _executorService, _timeOutMs,
+            _numGroupsLimit, _numGroupByPartitions, _numTotalDocs);
+      } else {
+        return new CombineGroupByOperator(operators, _brokerRequest, _executorService, _timeOutMs, _numGroupsLimit,
+            _numTotalDocs);
+      }
     } else {
       // Selection or aggregation only query
-      return new CombineOperator(operators, _executorService, _timeOutMs, _brokerRequest);
+      return new CombineOperator(operators, _executorService, _timeOutMs, _brokerRequest, _numTotalDocs);
     }
   }
 
@@ -18,8 +18,10 @@ package com.linkedin.pinot.core.plan;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.DocIdSetOperator;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,9 +36,22 @@ public class DocIdSetPlanNode implements PlanNode {
   private final int _maxDocPerCall;
 
   public DocIdSetPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest, int maxDocPerCall) {
+    this(indexSegment, brokerRequest, maxDocPerCall, null);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param indexSegment Segment to process
+   * @param brokerRequest Broker request
+   * @param maxDocPerCall Maximum number of documents returned per call
+   * @param docIdRange Range of documents to process, or null to process all documents of the segment
+   */
+  public DocIdSetPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest, int maxDocPerCall,
+      @Nullable DocIdRange docIdRange) {
     Preconditions.checkState(maxDocPerCall > 0 && maxDocPerCall <= MAX_DOC_PER_CALL);
     _indexSegment = indexSegment;
-    _filterPlanNode = new FilterPlanNode(_indexSegment, brokerRequest);
+    _filterPlanNode = new FilterPlanNode(_indexSegment, brokerRequest, docIdRange);
     _maxDocPerCall = maxDocPerCall;
   }
 
@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
 import com.linkedin.pinot.core.operator.filter.EmptyFilterOperator;
 import com.linkedin.pinot.core.operator.filter.FilterOperatorUtils;
@@ -40,26 +41,48 @@ public class FilterPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(FilterPlanNode.class);
   private final BrokerRequest _brokerRequest;
   private final IndexSegment _segment;
+  private final DocIdRange _docIdRange;
 
   public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest) {
+    this(segment, brokerRequest, null);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param segment Segment to filter
+   * @param brokerRequest Broker request
+   * @param docIdRange Range of documents to filter, or null to filter all documents of the segment
+   */
+  public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest, @Nullable DocIdRange docIdRange) {
     _segment = segment;
     _brokerRequest = brokerRequest;
+    _docIdRange = docIdRange;
   }
 
   @Override
   public BaseFilterOperator run() {
     FilterQueryTree rootFilterNode = RequestUtils.generateFilterQueryTree(_brokerRequest);
-    return constructPhysicalOperator(rootFilterNode, _segment, _brokerRequest.getDebugOptions());
+    int startDocId;
+    int endDocId;
+    if (_docIdRange != null) {
+      startDocId = _docIdRange.getStartDocId();
+      endDocId = _docIdRange.getEndDocId();
+    } else {
+      startDocId = 0;
+      endDocId = _segment.getSegmentMetadata().getTotalRawDocs();
+    }
+    return constructPhysicalOperator(rootFilterNode, _segment, startDocId, endDocId, _brokerRequest.getDebugOptions());
   }
 
   /**
-   * Helper method to build the operator tree from the filter query tree.
+   * Helper method to build the operator tree from the filter query tree, which only matches documents in range
+   * [startDocId, endDocId).
    */
   private static BaseFilterOperator constructPhysicalOperator(FilterQueryTree filterQueryTree, IndexSegment segment,
-      @Nullable Map<String, String> debugOptions) {
-    int numDocs = segment.getSegmentMetadata().getTotalRawDocs();
+      int startDocId, int endDocId, @Nullable Map<String, String> debugOptions) {
     if (filterQueryTree == null) {
-      return new MatchAllFilterOperator(numDocs);
+      return new MatchAllFilterOperator(startDocId, endDocId);
     }
 
     // For non-leaf node, recursively create the child filter operators
@@ -71,7 +94,8 @@ public class FilterPlanNode implements PlanNode {
       if (filterType == FilterOperator.AND) {
         // AND operator
         for (FilterQueryTree childFilter : childFilters) {
-          BaseFilterOperator childFilterOperator = constructPhysicalOperator(childFilter, segment, debugOptions);
+          BaseFilterOperator childFilterOperator =
+              constructPhysicalOperator(childFilter, segment, startDocId, endDocId, debugOptions);
           if (childFilterOperator.isResultEmpty()) {
             // Return empty filter operator if any of the child filter operator's result is empty
             return EmptyFilterOperator.getInstance();
@@ -80,27 +104,30 @@ public class FilterPlanNode implements PlanNode {
             childFilterOperators.add(childFilterOperator);
           }
         }
-        return FilterOperatorUtils.getAndFilterOperator(childFilterOperators, numDocs, debugOptions);
+        return FilterOperatorUtils.getAndFilterOperator(childFilterOperators, startDocId, endDocId,
+            debugOptions);
       } else {
         // OR operator
         for (FilterQueryTree childFilter : childFilters) {
-          BaseFilterOperator childFilterOperator = constructPhysicalOperator(childFilter, segment, debugOptions);
+          BaseFilterOperator childFilterOperator =
+              constructPhysicalOperator(childFilter, segment, startDocId, endDocId, debugOptions);
           if (childFilterOperator.isResultMatchingAll()) {
             // Return match all filter operator if any of the child filter operator matches all records
-            return new MatchAllFilterOperator(numDocs);
+            return new MatchAllFilterOperator(startDocId, endDocId);
           } else if (!childFilterOperator.isResultEmpty()) {
             // Remove child filter operators whose result is empty
             childFilterOperators.add(childFilterOperator);
           }
         }
-        return FilterOperatorUtils.getOrFilterOperator(childFilterOperators, numDocs, debugOptions);
+        return FilterOperatorUtils.getOrFilterOperator(childFilterOperators, startDocId, endDocId,
+            debugOptions);
       }
     } else {
       // Leaf filter operator
       Predicate predicate = Predicate.newPredicate(filterQueryTree);
       DataSource dataSource = segment.getDataSource(filterQueryTree.getColumn());
       PredicateEvaluator predicateEvaluator = PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dataSource);
-      return FilterOperatorUtils.getLeafFilterOperator(predicateEvaluator, dataSource, numDocs);
+      return FilterOperatorUtils.getLeafFilterOperator(predicateEvaluator, dataSource, startDocId, endDocId);
     }
   }
 
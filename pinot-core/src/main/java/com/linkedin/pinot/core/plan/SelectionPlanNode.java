@@ -17,29 +17,62 @@ package com.linkedin.pinot.core.plan;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.DataSourceMetadata;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.io.reader.impl.v1.SortedIndexReader;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.query.EmptySelectionOperator;
 import com.linkedin.pinot.core.operator.query.SelectionOnlyOperator;
 import com.linkedin.pinot.core.operator.query.SelectionOrderByOperator;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
+import com.linkedin.pinot.core.query.selection.SelectionOrderByThreshold;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
  * The <code>SelectionPlanNode</code> class provides the execution plan for selection query on a single segment.
+ * <p>For selection order-by queries where the first sort column is sorted inside the segment, the segment is split
+ * into doc id ranges ordered from the best values to the worst values, so that the scan can stop early.
  */
 public class SelectionPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(SelectionPlanNode.class);
 
+  // Number of documents in each doc id range when the first sort column is sorted
+  public static final int NUM_DOCS_PER_SORTED_RANGE = 100_000;
+
   private final IndexSegment _indexSegment;
   private final Selection _selection;
-  private final ProjectionPlanNode _projectionPlanNode;
+  private final List<ProjectionPlanNode> _projectionPlanNodes;
+  private final List<DocIdRange> _docIdRanges;
+  private final SelectionOrderByThreshold _threshold;
 
   public SelectionPlanNode(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    this(indexSegment, brokerRequest, null);
+  }
+
+  /**
+   * Constructor for the selection plan node.
+   *
+   * @param indexSegment Index segment.
+   * @param brokerRequest Broker request.
+   * @param threshold Threshold for selection order-by query shared across segments, or <code>null</code> if not
+   *                  available.
+   */
+  public SelectionPlanNode(IndexSegment indexSegment, BrokerRequest brokerRequest,
+      @Nullable SelectionOrderByThreshold threshold) {
     _indexSegment = indexSegment;
     _selection = brokerRequest.getSelections();
+    _threshold = threshold;
 
     if (_selection.getSize() > 0) {
       int maxDocPerNextCall = DocIdSetPlanNode.MAX_DOC_PER_CALL;
@@ -49,21 +82,68 @@ public class SelectionPlanNode implements PlanNode {
         maxDocPerNextCall = Math.min(_selection.getOffset() + _selection.getSize(), maxDocPerNextCall);
       }
 
-      DocIdSetPlanNode docIdSetPlanNode = new DocIdSetPlanNode(_indexSegment, brokerRequest, maxDocPerNextCall);
-      _projectionPlanNode = new ProjectionPlanNode(_indexSegment,
-          SelectionOperatorUtils.extractSelectionRelatedColumns(_selection, indexSegment), docIdSetPlanNode);
+      Set<String> projectionColumns = SelectionOperatorUtils.extractSelectionRelatedColumns(_selection, indexSegment);
+      _docIdRanges = getSortedDocIdRanges();
+      if (_docIdRanges != null) {
+        _projectionPlanNodes = new ArrayList<>(_docIdRanges.size());
+        for (DocIdRange docIdRange : _docIdRanges) {
+          DocIdSetPlanNode docIdSetPlanNode =
+              new DocIdSetPlanNode(_indexSegment, brokerRequest, maxDocPerNextCall, docIdRange);
+          _projectionPlanNodes.add(new ProjectionPlanNode(_indexSegment, projectionColumns, docIdSetPlanNode));
+        }
+      } else {
+        DocIdSetPlanNode docIdSetPlanNode = new DocIdSetPlanNode(_indexSegment, brokerRequest, maxDocPerNextCall);
+        _projectionPlanNodes =
+            Collections.singletonList(new ProjectionPlanNode(_indexSegment, projectionColumns, docIdSetPlanNode));
+      }
     } else {
-      _projectionPlanNode = null;
+      _docIdRanges = null;
+      _projectionPlanNodes = null;
     }
   }
 
+  /**
+   * Returns the doc id ranges in scan order if the first sort column is sorted inside the segment and the segment is
+   * large enough to be split, or <code>null</code> otherwise.
+   * <p>The ranges are scanned from the first document for ascending order and from the last document for descending
+   * order.
+   */
+  @Nullable
+  private List<DocIdRange> getSortedDocIdRanges() {
+    if (!_selection.isSetSelectionSortSequence()) {
+      return null;
+    }
+    int numDocs = _indexSegment.getSegmentMetadata().getTotalRawDocs();
+    if (numDocs <= NUM_DOCS_PER_SORTED_RANGE) {
+      return null;
+    }
+    SelectionSort firstSelectionSort = _selection.getSelectionSortSequence().get(0);
+    DataSource dataSource = _indexSegment.getDataSource(firstSelectionSort.getColumn());
+    if (dataSource == null) {
+      return null;
+    }
+    DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
+    Dictionary dictionary = dataSource.getDictionary();
+    if (!dataSourceMetadata.isSingleValue() || !dataSourceMetadata.isSorted() || dictionary == null
+        || !dictionary.isSorted() || !(dataSource.getInvertedIndex() instanceof SortedIndexReader)) {
+      return null;
+    }
+    int numRanges = (numDocs + NUM_DOCS_PER_SORTED_RANGE - 1) / NUM_DOCS_PER_SORTED_RANGE;
+    List<DocIdRange> docIdRanges = DocIdRange.split(numDocs, numRanges);
+    if (!firstSelectionSort.isIsAsc()) {
+      Collections.reverse(docIdRanges);
+    }
+    return docIdRanges;
+  }
+
   @Override
   public Operator run() {
     if (_selection.getSize() > 0) {
       if (_selection.isSetSelectionSortSequence()) {
-        return new SelectionOrderByOperator(_indexSegment, _selection, _projectionPlanNode.run());
+        return new SelectionOrderByOperator(_indexSegment, _selection, _projectionPlanNodes, _docIdRanges,
+            _threshold);
       } else {
-        return new SelectionOnlyOperator(_indexSegment, _selection, _projectionPlanNode.run());
+        return new SelectionOnlyOperator(_indexSegment, _selection, _projectionPlanNodes.get(0).run());
       }
     } else {
       return new EmptySelectionOperator(_indexSegment, _selection);
@@ -85,8 +165,11 @@ public class SelectionPlanNode implements PlanNode {
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
     LOGGER.debug(prefix + "Argument 1: Selections - " + _selection);
     if (_selection.getSize() > 0) {
-      LOGGER.debug(prefix + "Argument 2: Projection -");
-      _projectionPlanNode.showTree(prefix + "    ");
+      if (_docIdRanges != null) {
+        LOGGER.debug(prefix + "Argument 2: Sorted DocIdRanges - " + _docIdRanges);
+      }
+      LOGGER.debug(prefix + "Argument 3: Projection -");
+      _projectionPlanNodes.get(0).showTree(prefix + "    ");
     }
   }
 }
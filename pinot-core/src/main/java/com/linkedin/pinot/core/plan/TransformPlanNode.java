@@ -19,12 +19,14 @@ import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.operator.transform.TransformOperator;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionType;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import java.util.HashSet;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,10 +49,22 @@ public class TransformPlanNode implements PlanNode {
    * @param brokerRequest BrokerRequest to process
    */
   public TransformPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest) {
+    this(indexSegment, brokerRequest, null);
+  }
+
+  /**
+   * Constructor for the class
+   *
+   * @param indexSegment Segment to process
+   * @param brokerRequest BrokerRequest to process
+   * @param docIdRange Range of documents to process, or null to process all documents of the segment
+   */
+  public TransformPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      @Nullable DocIdRange docIdRange) {
     _segmentName = indexSegment.getSegmentName();
     extractColumnsAndTransforms(brokerRequest);
-    _projectionPlanNode =
-        new ProjectionPlanNode(indexSegment, _projectionColumns, new DocIdSetPlanNode(indexSegment, brokerRequest));
+    _projectionPlanNode = new ProjectionPlanNode(indexSegment, _projectionColumns,
+        new DocIdSetPlanNode(indexSegment, brokerRequest, DocIdSetPlanNode.MAX_DOC_PER_CALL, docIdRange));
   }
 
   /**
@@ -19,9 +19,12 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.Selection;
 import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
 import com.linkedin.pinot.core.data.manager.SegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.immutable.ImmutableSegment;
+import com.linkedin.pinot.core.operator.DocIdRange;
 import com.linkedin.pinot.core.plan.AggregationGroupByPlanNode;
 import com.linkedin.pinot.core.plan.AggregationPlanNode;
 import com.linkedin.pinot.core.plan.CombinePlanNode;
@@ -35,10 +38,15 @@ import com.linkedin.pinot.core.plan.SelectionPlanNode;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionType;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
+import com.linkedin.pinot.core.query.selection.SelectionOrderByThreshold;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,21 +61,45 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   public static final int DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY = 10_000;
   public static final String NUM_GROUPS_LIMIT = "num.groups.limit";
   public static final int DEFAULT_NUM_GROUPS_LIMIT = 100_000;
+  // Number of partitions to combine aggregation group-by results, 0 to combine into a single shared map
+  public static final String NUM_GROUP_BY_PARTITIONS_KEY = "num.group.by.partitions";
+  public static final int DEFAULT_NUM_GROUP_BY_PARTITIONS = 0;
+  // Number of documents per morsel (doc id range) when splitting large immutable segments for aggregation queries, 0
+  // to not split the segments
+  public static final String NUM_DOCS_PER_MORSEL_KEY = "num.docs.per.morsel";
+  public static final int DEFAULT_NUM_DOCS_PER_MORSEL = 0;
 
   private final int _maxInitialResultHolderCapacity;
   // Limit on number of groups, beyond which no new group will be created
   private final int _numGroupsLimit;
+  private final int _numGroupByPartitions;
+  private final int _numDocsPerMorsel;
 
   @VisibleForTesting
   public InstancePlanMakerImplV2() {
     _maxInitialResultHolderCapacity = DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY;
     _numGroupsLimit = DEFAULT_NUM_GROUPS_LIMIT;
+    _numGroupByPartitions = DEFAULT_NUM_GROUP_BY_PARTITIONS;
+    _numDocsPerMorsel = DEFAULT_NUM_DOCS_PER_MORSEL;
   }
 
   @VisibleForTesting
   public InstancePlanMakerImplV2(int maxInitialResultHolderCapacity, int numGroupsLimit) {
+    this(maxInitialResultHolderCapacity, numGroupsLimit, DEFAULT_NUM_GROUP_BY_PARTITIONS);
+  }
+
+  @VisibleForTesting
+  public InstancePlanMakerImplV2(int maxInitialResultHolderCapacity, int numGroupsLimit, int numGroupByPartitions) {
+    this(maxInitialResultHolderCapacity, numGroupsLimit, numGroupByPartitions, DEFAULT_NUM_DOCS_PER_MORSEL);
+  }
+
+  @VisibleForTesting
+  public InstancePlanMakerImplV2(int maxInitialResultHolderCapacity, int numGroupsLimit, int numGroupByPartitions,
+      int numDocsPerMorsel) {
     _maxInitialResultHolderCapacity = maxInitialResultHolderCapacity;
     _numGroupsLimit = numGroupsLimit;
+    _numGroupByPartitions = numGroupByPartitions;
+    _numDocsPerMorsel = numDocsPerMorsel;
   }
 
   /**
@@ -75,6 +107,8 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
    * <ul>
    *   <li>Set limit on the initial result holder capacity</li>
    *   <li>Set limit on number of groups returned from each segment and combined result</li>
+   *   <li>Set number of partitions to combine aggregation group-by results</li>
+   *   <li>Set number of documents per morsel when splitting large segments</li>
    * </ul>
    *
    * @param queryExecutorConfig Query executor configuration
@@ -83,11 +117,15 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _maxInitialResultHolderCapacity = queryExecutorConfig.getConfig()
         .getInt(MAX_INITIAL_RESULT_HOLDER_CAPACITY_KEY, DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY);
     _numGroupsLimit = queryExecutorConfig.getConfig().getInt(NUM_GROUPS_LIMIT, DEFAULT_NUM_GROUPS_LIMIT);
+    _numGroupByPartitions =
+        queryExecutorConfig.getConfig().getInt(NUM_GROUP_BY_PARTITIONS_KEY, DEFAULT_NUM_GROUP_BY_PARTITIONS);
+    _numDocsPerMorsel = queryExecutorConfig.getConfig().getInt(NUM_DOCS_PER_MORSEL_KEY, DEFAULT_NUM_DOCS_PER_MORSEL);
     Preconditions.checkState(_maxInitialResultHolderCapacity <= _numGroupsLimit,
         "Invalid configuration: maxInitialResultHolderCapacity: %d must be smaller or equal to numGroupsLimit: %d",
         _maxInitialResultHolderCapacity, _numGroupsLimit);
-    LOGGER.info("Initializing plan maker with maxInitialResultHolderCapacity: {}, numGroupsLimit: {}",
-        _maxInitialResultHolderCapacity, _numGroupsLimit);
+    LOGGER.info("Initializing plan maker with maxInitialResultHolderCapacity: {}, numGroupsLimit: {}, "
+            + "numGroupByPartitions: {}, numDocsPerMorsel: {}", _maxInitialResultHolderCapacity, _numGroupsLimit,
+        _numGroupByPartitions, _numDocsPerMorsel);
   }
 
   @Override
@@ -115,23 +153,153 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   @Override
   public Plan makeInterSegmentPlan(List<SegmentDataManager> segmentDataManagers, BrokerRequest brokerRequest,
       ExecutorService executorService, long timeOutMs) {
+    List<IndexSegment> indexSegments = getIndexSegments(segmentDataManagers);
+    BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
+    return makeInterSegmentPlan(indexSegments, Collections.nCopies(indexSegments.size(), brokerRequest), brokerRequest,
+        executorService, timeOutMs);
+  }
+
+  @Override
+  public Plan makeInterSegmentPlan(List<SegmentDataManager> segmentDataManagers, BrokerRequest brokerRequest,
+      List<SegmentDataManager> hybridSegmentDataManagers, BrokerRequest hybridBrokerRequest,
+      ExecutorService executorService, long timeOutMs) {
+    // Pre-process the broker requests separately because the segments of the 2 tables might have different schema
+    List<IndexSegment> indexSegments = getIndexSegments(segmentDataManagers);
+    BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
+    List<IndexSegment> hybridIndexSegments = getIndexSegments(hybridSegmentDataManagers);
+    BrokerRequestPreProcessor.preProcess(hybridIndexSegments, hybridBrokerRequest);
+
+    int numSegments = indexSegments.size() + hybridIndexSegments.size();
+    List<IndexSegment> allIndexSegments = new ArrayList<>(numSegments);
+    allIndexSegments.addAll(indexSegments);
+    allIndexSegments.addAll(hybridIndexSegments);
+    List<BrokerRequest> segmentBrokerRequests = new ArrayList<>(numSegments);
+    segmentBrokerRequests.addAll(Collections.nCopies(indexSegments.size(), brokerRequest));
+    segmentBrokerRequests.addAll(Collections.nCopies(hybridIndexSegments.size(), hybridBrokerRequest));
+
+    // The 2 broker requests only differ in the table name and the time filter, so the results of all segments can be
+    // combined with either of them
+    return makeInterSegmentPlan(allIndexSegments, segmentBrokerRequests, brokerRequest, executorService, timeOutMs);
+  }
+
+  private static List<IndexSegment> getIndexSegments(List<SegmentDataManager> segmentDataManagers) {
     // TODO: pass in List<IndexSegment> directly.
     List<IndexSegment> indexSegments = new ArrayList<>(segmentDataManagers.size());
     for (SegmentDataManager segmentDataManager : segmentDataManagers) {
       indexSegments.add(segmentDataManager.getSegment());
     }
-    BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
+    return indexSegments;
+  }
+
+  /**
+   * Makes the instance level plan on the given segments, each processed with its own broker request, and combined with
+   * the given broker request.
+   */
+  private Plan makeInterSegmentPlan(List<IndexSegment> indexSegments, List<BrokerRequest> segmentBrokerRequests,
+      BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs) {
+    // Segments are processed with work stealing, so plan the largest segments first to reduce the tail latency
+    // NOTE: snapshot the number of documents because it keeps changing for the consuming segments
+    int numSegments = indexSegments.size();
+    final int[] numDocsArray = new int[numSegments];
+    Integer[] sortedIndices = new Integer[numSegments];
+    long numTotalDocs = 0L;
+    for (int i = 0; i < numSegments; i++) {
+      int numDocs = indexSegments.get(i).getSegmentMetadata().getTotalRawDocs();
+      numDocsArray[i] = numDocs;
+      numTotalDocs += numDocs;
+      sortedIndices[i] = i;
+    }
+
+    // For selection order-by queries, plan the segments with the best values of the first sort column first so that
+    // the segments planned later can be skipped once enough rows are selected
+    final SelectionOrderByThreshold threshold = getSelectionOrderByThreshold(brokerRequest);
+    final Comparable[] bestValues = new Comparable[numSegments];
+    if (threshold != null) {
+      for (int i = 0; i < numSegments; i++) {
+        bestValues[i] = threshold.getBestValue(indexSegments.get(i));
+      }
+    }
 
-    List<PlanNode> planNodes = new ArrayList<>();
-    for (IndexSegment indexSegment : indexSegments) {
-      planNodes.add(makeInnerSegmentPlan(indexSegment, brokerRequest));
+    Arrays.sort(sortedIndices, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        if (threshold != null) {
+          int result = threshold.compareBestValues(bestValues[o1], bestValues[o2]);
+          if (result != 0) {
+            return result;
+          }
+        }
+        return Integer.compare(numDocsArray[o2], numDocsArray[o1]);
+      }
+    });
+
+    List<PlanNode> planNodes = new ArrayList<>(numSegments);
+    for (int index : sortedIndices) {
+      IndexSegment indexSegment = indexSegments.get(index);
+      BrokerRequest segmentBrokerRequest = segmentBrokerRequests.get(index);
+      int numDocs = numDocsArray[index];
+      if (shouldSplitIntoMorsels(indexSegment, numDocs, segmentBrokerRequest)) {
+        // Large segment, split it into doc id ranges which are combined the same way as separate segments
+        int numMorsels = (numDocs + _numDocsPerMorsel - 1) / _numDocsPerMorsel;
+        for (DocIdRange docIdRange : DocIdRange.split(numDocs, numMorsels)) {
+          planNodes.add(makeMorselPlan(indexSegment, segmentBrokerRequest, docIdRange));
+        }
+      } else if (threshold != null) {
+        planNodes.add(new SelectionPlanNode(indexSegment, segmentBrokerRequest, threshold));
+      } else {
+        planNodes.add(makeInnerSegmentPlan(indexSegment, segmentBrokerRequest));
+      }
     }
     CombinePlanNode combinePlanNode =
-        new CombinePlanNode(planNodes, brokerRequest, executorService, timeOutMs, _numGroupsLimit);
+        new CombinePlanNode(planNodes, brokerRequest, executorService, timeOutMs, _numGroupsLimit,
+            _numGroupByPartitions, numTotalDocs);
 
     return new GlobalPlanImplV0(new InstanceResponsePlanNode(combinePlanNode));
   }
 
+  /**
+   * Returns the threshold shared across segments for selection order-by queries, or <code>null</code> for other
+   * queries.
+   */
+  @Nullable
+  private static SelectionOrderByThreshold getSelectionOrderByThreshold(BrokerRequest brokerRequest) {
+    if (brokerRequest.isSetAggregationsInfo() || !brokerRequest.isSetSelections()) {
+      return null;
+    }
+    Selection selection = brokerRequest.getSelections();
+    if (selection.getSize() <= 0 || !selection.isSetSelectionSortSequence()) {
+      return null;
+    }
+    return new SelectionOrderByThreshold(selection.getSelectionSortSequence().get(0),
+        selection.getOffset() + selection.getSize());
+  }
+
+  /**
+   * Returns whether the segment should be split into doc id ranges (morsels) to be processed in parallel.
+   * <p>Only large immutable segments without star-tree are split for aggregation queries that are not served by
+   * metadata or dictionary.
+   */
+  private boolean shouldSplitIntoMorsels(IndexSegment indexSegment, int numDocs, BrokerRequest brokerRequest) {
+    if (_numDocsPerMorsel <= 0 || numDocs <= _numDocsPerMorsel || !(indexSegment instanceof ImmutableSegment)
+        || indexSegment.getStarTrees() != null || !brokerRequest.isSetAggregationsInfo()) {
+      return false;
+    }
+    return brokerRequest.isSetGroupBy() || !(isFitForMetadataBasedPlan(brokerRequest, indexSegment)
+        || isFitForDictionaryBasedPlan(brokerRequest, indexSegment));
+  }
+
+  /**
+   * Returns the plan node for the given doc id range (morsel) of the segment.
+   */
+  private PlanNode makeMorselPlan(IndexSegment indexSegment, BrokerRequest brokerRequest, DocIdRange docIdRange) {
+    if (brokerRequest.isSetGroupBy()) {
+      return new AggregationGroupByPlanNode(indexSegment, brokerRequest, _maxInitialResultHolderCapacity,
+          _numGroupsLimit, docIdRange);
+    } else {
+      return new AggregationPlanNode(indexSegment, brokerRequest, docIdRange);
+    }
+  }
+
   /**
    * Helper method to identify if query is fit to be be served purely based on metadata.
    * Currently count queries without any filters are supported.
@@ -49,4 +49,21 @@ public interface PlanMaker {
    */
   Plan makeInterSegmentPlan(List<SegmentDataManager> segmentDataManagers, BrokerRequest brokerRequest,
       ExecutorService executorService, long timeOutMs);
+
+  /**
+   * Make instance level {@link Plan} for a hybrid table query, which contains execution plan on the segments of both
+   * the query and the hybrid query (on the table of the other type), each processed with its own broker request, and
+   * combined into a single response.
+   *
+   * @param segmentDataManagers list of segment data manager for the query.
+   * @param brokerRequest broker request for the query.
+   * @param hybridSegmentDataManagers list of segment data manager for the hybrid query.
+   * @param hybridBrokerRequest broker request for the hybrid query.
+   * @param executorService executor service.
+   * @param timeOutMs time out in milliseconds.
+   * @return instance level plan.
+   */
+  Plan makeInterSegmentPlan(List<SegmentDataManager> segmentDataManagers, BrokerRequest brokerRequest,
+      List<SegmentDataManager> hybridSegmentDataManagers, BrokerRequest hybridBrokerRequest,
+      ExecutorService executorService, long timeOutMs);
 }
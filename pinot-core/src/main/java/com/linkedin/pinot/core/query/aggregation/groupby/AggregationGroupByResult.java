@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.query.aggregation.groupby;
 
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 
 
 /**
@@ -44,6 +45,29 @@ public class AggregationGroupByResult {
     return _groupKeyGenerator.getUniqueGroupKeys();
   }
 
+  /**
+   * Returns the encoding of the long raw keys, or {@code null} if the group keys cannot be packed into long values.
+   */
+  @Nullable
+  public LongGroupKeyEncoding getLongGroupKeyEncoding() {
+    return _groupKeyGenerator.getLongGroupKeyEncoding();
+  }
+
+  /**
+   * Returns an iterator for group-by keys with long raw keys.
+   * <p>Should only be called when {@link #getLongGroupKeyEncoding()} returns non-null value.
+   */
+  public Iterator<GroupKeyGenerator.LongGroupKey> getLongGroupKeyIterator() {
+    return _groupKeyGenerator.getUniqueLongGroupKeys();
+  }
+
+  /**
+   * Returns the result holder for the aggregation function at the given index.
+   */
+  public GroupByResultHolder getResultHolder(int index) {
+    return _resultHolders[index];
+  }
+
   /**
    *
    * Given a group-by key and an index into the result holder array, returns
@@ -62,6 +86,13 @@ public class AggregationGroupByResult {
    * @return
    */
   public Object getResultForKey(GroupKeyGenerator.GroupKey groupKey, int index) {
-    return _aggregationFunctions[index].extractGroupByResult(_resultHolders[index], groupKey._groupId);
+    return getResultForGroupId(groupKey._groupId, index);
+  }
+
+  /**
+   * Given a group id and an index into the result holder array, returns the corresponding aggregation result.
+   */
+  public Object getResultForGroupId(int groupId, int index) {
+    return _aggregationFunctions[index].extractGroupByResult(_resultHolders[index], groupId);
   }
 }
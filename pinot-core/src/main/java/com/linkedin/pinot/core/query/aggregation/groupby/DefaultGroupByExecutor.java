@@ -25,6 +25,10 @@ import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionType;
+import com.linkedin.pinot.core.query.aggregation.function.DistinctCountHLLAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.PercentileTDigestAggregationFunction;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import java.util.List;
 import javax.annotation.Nonnull;
 
@@ -45,6 +49,23 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
   private static final ThreadLocal<int[][]> THREAD_LOCAL_MV_GROUP_KEYS =
       ThreadLocal.withInitial(() -> new int[DocIdSetPlanNode.MAX_DOC_PER_CALL][]);
 
+  // Estimated sizes of the intermediate result objects stored in the object result holders (object header, fields and
+  // the arrays allocated on creation). Value sets and lists grow with the values, so their sizes are lower bounds.
+  private static final long OBJECT_REFERENCE_BYTES = 8L;
+  // AvgPair and MinMaxRangePair: header and two 8-byte fields
+  private static final long PAIR_BYTES = 32L;
+  // IntOpenHashSet: object and the int array for the default capacity of 16
+  private static final long INT_SET_BYTES = 144L;
+  // DoubleArrayList: object and the double array for the default capacity of 10
+  private static final long DOUBLE_LIST_BYTES = 120L;
+  // HyperLogLog: objects and the int array of registers (6 registers of 5 bits per int)
+  private static final long HLL_BYTES = 64L + ((1 << DistinctCountHLLAggregationFunction.DEFAULT_LOG2M) / 6 + 1) * 4L;
+  // QuantileDigest: objects and the nodes of the digest, which is bounded by the max error
+  private static final long QUANTILE_DIGEST_BYTES = 1024L;
+  // MergingDigest: the centroid and buffer arrays allocated on creation (about 12 doubles per unit of compression)
+  private static final long TDIGEST_BYTES =
+      12L * PercentileTDigestAggregationFunction.DEFAULT_TDIGEST_COMPRESSION * Double.BYTES;
+
   protected final int _numFunctions;
   protected final AggregationFunction[] _functions;
   protected final TransformExpressionTree[] _aggregationExpressions;
@@ -54,6 +75,11 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
   protected final boolean _hasNoDictionaryGroupByExpression;
   protected final int[] _svGroupKeys;
   protected final int[][] _mvGroupKeys;
+  // Estimated bytes per group of all the result holders
+  private final long _bytesPerGroup;
+
+  // Number of groups already accounted in the group-by bytes budget of the query (also used for query profile)
+  private int _numGroupsAccounted = 0;
 
   /**
    * Constructor for the class.
@@ -111,9 +137,12 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
     int maxNumResults = _groupKeyGenerator.getGlobalGroupKeyUpperBound();
     int initialCapacity = Math.min(maxNumResults, maxInitialResultHolderCapacity);
     _resultHolders = new GroupByResultHolder[_numFunctions];
+    long bytesPerGroup = 0L;
     for (int i = 0; i < _numFunctions; i++) {
       _resultHolders[i] = _functions[i].createGroupByResultHolder(initialCapacity, maxNumResults);
+      bytesPerGroup += getBytesPerGroup(_functions[i], _resultHolders[i]);
     }
+    _bytesPerGroup = bytesPerGroup;
 
     // Initialize map from document Id to group key
     if (_hasMVGroupByExpression) {
@@ -137,6 +166,7 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
 
     int length = transformBlock.getNumDocs();
     int capacityNeeded = _groupKeyGenerator.getCurrentGroupKeyUpperBound();
+    accountGroupByBytes(capacityNeeded);
     for (int i = 0; i < _numFunctions; i++) {
       GroupByResultHolder resultHolder = _resultHolders[i];
       resultHolder.ensureCapacity(capacityNeeded);
@@ -144,6 +174,58 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
     }
   }
 
+  /**
+   * Accounts the (estimated) bytes of the result holders for the new groups in the budget of the query, before growing
+   * the result holders. The estimate is charged per aggregation function based on its result holder type (see
+   * {@link #getBytesPerGroup(AggregationFunction, GroupByResultHolder)}).
+   */
+  private void accountGroupByBytes(int capacityNeeded) {
+    if (capacityNeeded > _numGroupsAccounted) {
+      QueryExecutionContext queryExecutionContext = QueryExecutionContext.get();
+      if (queryExecutionContext != null) {
+        long numNewGroups = capacityNeeded - _numGroupsAccounted;
+        queryExecutionContext.addGroupByBytes(numNewGroups * _bytesPerGroup);
+      }
+      _numGroupsAccounted = capacityNeeded;
+    }
+  }
+
+  /**
+   * Returns the estimated bytes per group of the given result holder: one double value for the double result holders,
+   * or one reference and the estimated size of the intermediate result object for the object result holders.
+   */
+  static long getBytesPerGroup(AggregationFunction function, GroupByResultHolder resultHolder) {
+    if (!(resultHolder instanceof ObjectGroupByResultHolder)) {
+      return Double.BYTES;
+    }
+    switch (function.getType()) {
+      case AVG:
+      case AVGMV:
+      case MINMAXRANGE:
+      case MINMAXRANGEMV:
+        return OBJECT_REFERENCE_BYTES + PAIR_BYTES;
+      case DISTINCTCOUNT:
+      case DISTINCTCOUNTMV:
+        return OBJECT_REFERENCE_BYTES + INT_SET_BYTES;
+      case DISTINCTCOUNTHLL:
+      case DISTINCTCOUNTHLLMV:
+      case FASTHLL:
+        return OBJECT_REFERENCE_BYTES + HLL_BYTES;
+      case PERCENTILE:
+      case PERCENTILEMV:
+        return OBJECT_REFERENCE_BYTES + DOUBLE_LIST_BYTES;
+      case PERCENTILEEST:
+      case PERCENTILEESTMV:
+        return OBJECT_REFERENCE_BYTES + QUANTILE_DIGEST_BYTES;
+      case PERCENTILETDIGEST:
+      case PERCENTILETDIGESTMV:
+        return OBJECT_REFERENCE_BYTES + TDIGEST_BYTES;
+      default:
+        // Other intermediate results are assumed to be small objects
+        return OBJECT_REFERENCE_BYTES + PAIR_BYTES;
+    }
+  }
+
   protected void aggregate(@Nonnull TransformBlock transformBlock, int length, int functionIndex) {
     AggregationFunction function = _functions[functionIndex];
     GroupByResultHolder resultHolder = _resultHolders[functionIndex];
@@ -166,6 +248,28 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
 
   @Override
   public AggregationGroupByResult getResult() {
+    QueryProfile queryProfile = QueryProfile.get();
+    if (queryProfile != null) {
+      recordProfile(queryProfile);
+    }
     return new AggregationGroupByResult(_groupKeyGenerator, _functions, _resultHolders);
   }
+
+  /**
+   * Records the type of the group key generator and result holders, and their size in the query profile.
+   */
+  private void recordProfile(QueryProfile queryProfile) {
+    StringBuilder profileName = new StringBuilder("GroupBy(").append(_groupKeyGenerator.getClass().getSimpleName());
+    if (_groupKeyGenerator instanceof DictionaryBasedGroupKeyGenerator) {
+      profileName.append(", ").append(((DictionaryBasedGroupKeyGenerator) _groupKeyGenerator).getRawKeyHolderType());
+    }
+    for (GroupByResultHolder resultHolder : _resultHolders) {
+      profileName.append(", ").append(resultHolder.getClass().getSimpleName());
+    }
+    String operator = profileName.append(')').toString();
+    queryProfile.add(operator, QueryProfile.NUM_SEGMENTS, 1L);
+    queryProfile.add(operator, QueryProfile.GROUP_KEY_UPPER_BOUND, _groupKeyGenerator.getCurrentGroupKeyUpperBound());
+    long resultHolderBytes = _numGroupsAccounted * _bytesPerGroup;
+    queryProfile.add(operator, QueryProfile.RESULT_HOLDER_BYTES, resultHolderBytes);
+  }
 }
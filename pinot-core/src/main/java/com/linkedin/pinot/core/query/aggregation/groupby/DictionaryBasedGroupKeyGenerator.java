@@ -15,10 +15,13 @@
  */
 package com.linkedin.pinot.core.query.aggregation.groupby;
 
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.operator.blocks.TransformBlock;
 import com.linkedin.pinot.core.operator.transform.TransformOperator;
+import com.linkedin.pinot.core.operator.transform.TransformResultMetadata;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
@@ -30,6 +33,7 @@ import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -72,6 +76,7 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
 
   private final int _globalGroupIdUpperBound;
   private final RawKeyHolder _rawKeyHolder;
+  private final LongGroupKeyEncoding _longGroupKeyEncoding;
 
   public DictionaryBasedGroupKeyGenerator(TransformOperator transformOperator,
       TransformExpressionTree[] groupByExpressions, int numGroupsLimit, int arrayBasedThreshold) {
@@ -85,6 +90,7 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
     _dictionaries = new Dictionary[_numGroupByExpressions];
     _singleValueDictIds = new int[_numGroupByExpressions][];
     _multiValueDictIds = new int[_numGroupByExpressions][][];
+    FieldSpec.DataType[] dataTypes = new FieldSpec.DataType[_numGroupByExpressions];
 
     long cardinalityProduct = 1L;
     boolean longOverflow = false;
@@ -101,8 +107,11 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
         }
       }
 
-      _isSingleValueColumn[i] = transformOperator.getResultMetadata(groupByExpression).isSingleValue();
+      TransformResultMetadata transformResultMetadata = transformOperator.getResultMetadata(groupByExpression);
+      _isSingleValueColumn[i] = transformResultMetadata.isSingleValue();
+      dataTypes[i] = transformResultMetadata.getDataType();
     }
+    _longGroupKeyEncoding = LongGroupKeyEncoding.getEncoding(dataTypes);
 
     if (longOverflow) {
       _globalGroupIdUpperBound = numGroupsLimit;
@@ -158,11 +167,31 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
     return _rawKeyHolder.getGroupIdUpperBound();
   }
 
+  /**
+   * Returns the type of the holder for the raw keys (array or map based), which is chosen based on the cardinality of
+   * the group-by columns.
+   */
+  public String getRawKeyHolderType() {
+    return _rawKeyHolder.getClass().getSimpleName();
+  }
+
   @Override
   public Iterator<GroupKey> getUniqueGroupKeys() {
     return _rawKeyHolder.iterator();
   }
 
+  @Nullable
+  @Override
+  public LongGroupKeyEncoding getLongGroupKeyEncoding() {
+    return _longGroupKeyEncoding;
+  }
+
+  @Override
+  public Iterator<LongGroupKey> getUniqueLongGroupKeys() {
+    Preconditions.checkState(_longGroupKeyEncoding != null, "Long group keys are not supported");
+    return _rawKeyHolder.longGroupKeyIterator();
+  }
+
   private interface RawKeyHolder extends Iterable<GroupKey> {
 
     /**
@@ -187,6 +216,13 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
      * @return Upper bound of group id inside the holder
      */
     int getGroupIdUpperBound();
+
+    /**
+     * Returns an iterator of group keys with long raw keys (values packed based on the long group key encoding).
+     *
+     * @return Iterator of group keys with long raw keys
+     */
+    Iterator<LongGroupKey> longGroupKeyIterator();
   }
 
   private class ArrayBasedHolder implements RawKeyHolder {
@@ -253,6 +289,38 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
         }
       };
     }
+
+    @Override
+    public Iterator<LongGroupKey> longGroupKeyIterator() {
+      return new Iterator<LongGroupKey>() {
+        private int _currentGroupId;
+        private final LongGroupKey _groupKey = new LongGroupKey();
+
+        @Override
+        public boolean hasNext() {
+          while (_currentGroupId < _globalGroupIdUpperBound && !_flags[_currentGroupId]) {
+            _currentGroupId++;
+          }
+          return _currentGroupId < _globalGroupIdUpperBound;
+        }
+
+        @Override
+        public LongGroupKey next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          _groupKey._groupId = _currentGroupId;
+          _groupKey._rawKey = getLongRawKey(_currentGroupId);
+          _currentGroupId++;
+          return _groupKey;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
   }
 
   private class IntMapBasedHolder implements RawKeyHolder {
@@ -329,6 +397,32 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
         }
       };
     }
+
+    @Override
+    public Iterator<LongGroupKey> longGroupKeyIterator() {
+      return new Iterator<LongGroupKey>() {
+        private final ObjectIterator<Int2IntMap.Entry> _iterator = _rawKeyToGroupIdMap.int2IntEntrySet().fastIterator();
+        private final LongGroupKey _groupKey = new LongGroupKey();
+
+        @Override
+        public boolean hasNext() {
+          return _iterator.hasNext();
+        }
+
+        @Override
+        public LongGroupKey next() {
+          Int2IntMap.Entry entry = _iterator.next();
+          _groupKey._groupId = entry.getIntValue();
+          _groupKey._rawKey = getLongRawKey(entry.getIntKey());
+          return _groupKey;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
   }
 
   /**
@@ -509,6 +603,33 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
         }
       };
     }
+
+    @Override
+    public Iterator<LongGroupKey> longGroupKeyIterator() {
+      return new Iterator<LongGroupKey>() {
+        private final ObjectIterator<Long2IntMap.Entry> _iterator =
+            _rawKeyToGroupIdMap.long2IntEntrySet().fastIterator();
+        private final LongGroupKey _groupKey = new LongGroupKey();
+
+        @Override
+        public boolean hasNext() {
+          return _iterator.hasNext();
+        }
+
+        @Override
+        public LongGroupKey next() {
+          Long2IntMap.Entry entry = _iterator.next();
+          _groupKey._groupId = entry.getIntValue();
+          _groupKey._rawKey = getLongRawKey(entry.getLongKey());
+          return _groupKey;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
   }
 
   /**
@@ -679,6 +800,13 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
         }
       };
     }
+
+    @Override
+    public Iterator<LongGroupKey> longGroupKeyIterator() {
+      // NOTE: ARRAY_MAP_BASED holder is only used when the cardinality product cannot fit into long, in which case the
+      // group keys cannot be packed into long values
+      throw new UnsupportedOperationException();
+    }
   }
 
   /**
@@ -773,6 +901,32 @@ public class DictionaryBasedGroupKeyGenerator implements GroupKeyGenerator {
     return groupKeyBuilder.toString();
   }
 
+  /**
+   * Helper method to get the long raw key (values packed based on the long group key encoding) from the dictionary
+   * based raw key.
+   *
+   * @param rawKey Dictionary based raw key
+   * @return Long raw key
+   */
+  private long getLongRawKey(long rawKey) {
+    switch (_longGroupKeyEncoding) {
+      case INT:
+        return _dictionaries[0].getIntValue((int) rawKey);
+      case LONG:
+        return _dictionaries[0].getLongValue((int) rawKey);
+      case FLOAT:
+        return LongGroupKeyEncoding.encodeFloat(_dictionaries[0].getFloatValue((int) rawKey));
+      case DOUBLE:
+        return LongGroupKeyEncoding.encodeDouble(_dictionaries[0].getDoubleValue((int) rawKey));
+      case INT_INT:
+        int cardinality = _cardinalities[0];
+        return LongGroupKeyEncoding.encodeIntInt(_dictionaries[0].getIntValue((int) (rawKey % cardinality)),
+            _dictionaries[1].getIntValue((int) (rawKey / cardinality)));
+      default:
+        throw new IllegalStateException("Unsupported long group key encoding: " + _longGroupKeyEncoding);
+    }
+  }
+
   /**
    * Drop un-necessary checks for highest performance.
    */
@@ -18,6 +18,7 @@ package com.linkedin.pinot.core.query.aggregation.groupby;
 import com.linkedin.pinot.core.operator.blocks.TransformBlock;
 import java.util.Iterator;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -69,6 +70,24 @@ public interface GroupKeyGenerator {
    */
   Iterator<GroupKey> getUniqueGroupKeys();
 
+  /**
+   * Returns the encoding of the long raw keys if the group keys can be packed into long values that are consistent
+   * across segments, or {@code null} if not supported.
+   *
+   * @return encoding of the long raw keys, or {@code null} if not supported.
+   */
+  @Nullable
+  LongGroupKeyEncoding getLongGroupKeyEncoding();
+
+  /**
+   * Returns an iterator of group keys with long raw keys. Use this interface to iterate through all the group keys
+   * without building the string group keys.
+   * <p>Should only be called when {@link #getLongGroupKeyEncoding()} returns non-null value.
+   *
+   * @return iterator of group keys with long raw keys.
+   */
+  Iterator<LongGroupKey> getUniqueLongGroupKeys();
+
   /**
    * This class encapsulates the integer group id and the string group key.
    */
@@ -76,4 +95,12 @@ public interface GroupKeyGenerator {
     public int _groupId;
     public String _stringKey;
   }
+
+  /**
+   * This class encapsulates the integer group id and the long raw key.
+   */
+  class LongGroupKey {
+    public int _groupId;
+    public long _rawKey;
+  }
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>LongGroupKeyEncoding</code> enum describes how the values of the group-by expressions are packed into a
+ * single long raw key.
+ * <p>Unlike dictionary ids, the long raw keys are built from the actual values, so they are consistent across segments
+ * and can be used to merge group-by results without building string group keys. The long raw key can be converted back
+ * into the same string group key as the one generated by {@link GroupKeyGenerator#getUniqueGroupKeys()}.
+ */
+public enum LongGroupKeyEncoding {
+  // Single INT group-by expression, raw key is the value
+  INT {
+    @Override
+    public String toStringKey(long rawKey) {
+      return Integer.toString((int) rawKey);
+    }
+  },
+
+  // Single LONG group-by expression, raw key is the value
+  LONG {
+    @Override
+    public String toStringKey(long rawKey) {
+      return Long.toString(rawKey);
+    }
+  },
+
+  // Single FLOAT group-by expression, raw key is the int bits of the value
+  FLOAT {
+    @Override
+    public String toStringKey(long rawKey) {
+      return Float.toString(Float.intBitsToFloat((int) rawKey));
+    }
+  },
+
+  // Single DOUBLE group-by expression, raw key is the long bits of the value
+  DOUBLE {
+    @Override
+    public String toStringKey(long rawKey) {
+      return Double.toString(Double.longBitsToDouble(rawKey));
+    }
+  },
+
+  // Two INT group-by expressions, raw key is the first value in the high 32 bits and the second value in the low 32
+  // bits
+  INT_INT {
+    @Override
+    public String toStringKey(long rawKey) {
+      return Integer.toString((int) (rawKey >>> 32)) + AggregationGroupByTrimmingService.GROUP_KEY_DELIMITER
+          + Integer.toString((int) rawKey);
+    }
+  };
+
+  /**
+   * Converts the long raw key back into the string group key.
+   */
+  public abstract String toStringKey(long rawKey);
+
+  public static long encodeFloat(float value) {
+    return Float.floatToIntBits(value);
+  }
+
+  public static long encodeDouble(double value) {
+    return Double.doubleToLongBits(value);
+  }
+
+  public static long encodeIntInt(int firstValue, int secondValue) {
+    return ((long) firstValue << 32) | (secondValue & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Returns the encoding for the given data types of the group-by expressions, or {@code null} if the values cannot be
+   * packed into a long raw key.
+   */
+  @Nullable
+  public static LongGroupKeyEncoding getEncoding(@Nonnull FieldSpec.DataType[] dataTypes) {
+    if (dataTypes.length == 1) {
+      switch (dataTypes[0]) {
+        case INT:
+          return INT;
+        case LONG:
+          return LONG;
+        case FLOAT:
+          return FLOAT;
+        case DOUBLE:
+          return DOUBLE;
+        default:
+          return null;
+      }
+    }
+    if (dataTypes.length == 2 && dataTypes[0] == FieldSpec.DataType.INT && dataTypes[1] == FieldSpec.DataType.INT) {
+      return INT_INT;
+    }
+    return null;
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.query.aggregation.groupby;
 
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
 import com.linkedin.pinot.core.common.BlockValSet;
@@ -25,10 +26,14 @@ import com.linkedin.pinot.core.query.aggregation.groupby.utils.ValueToIdMap;
 import com.linkedin.pinot.core.query.aggregation.groupby.utils.ValueToIdMapFactory;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.util.FixedIntArray;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -48,6 +53,7 @@ public class NoDictionaryMultiColumnGroupKeyGenerator implements GroupKeyGenerat
   private final ValueToIdMap[] _onTheFlyDictionaries;
   private final Object2IntOpenHashMap<FixedIntArray> _groupKeyMap;
   private final int _globalGroupIdUpperBound;
+  private final LongGroupKeyEncoding _longGroupKeyEncoding;
 
   private int _numGroups = 0;
 
@@ -73,6 +79,7 @@ public class NoDictionaryMultiColumnGroupKeyGenerator implements GroupKeyGenerat
     _groupKeyMap = new Object2IntOpenHashMap<>();
     _groupKeyMap.defaultReturnValue(INVALID_ID);
     _globalGroupIdUpperBound = numGroupsLimit;
+    _longGroupKeyEncoding = LongGroupKeyEncoding.getEncoding(_dataTypes);
   }
 
   @Override
@@ -147,6 +154,19 @@ public class NoDictionaryMultiColumnGroupKeyGenerator implements GroupKeyGenerat
     return new GroupKeyIterator(_groupKeyMap);
   }
 
+  @Nullable
+  @Override
+  public LongGroupKeyEncoding getLongGroupKeyEncoding() {
+    return _longGroupKeyEncoding;
+  }
+
+  @Override
+  public Iterator<LongGroupKey> getUniqueLongGroupKeys() {
+    Preconditions.checkState(_longGroupKeyEncoding != null, "Long group keys are not supported for data types: %s",
+        Arrays.toString(_dataTypes));
+    return new LongGroupKeyIterator();
+  }
+
   /**
    * Helper method to get or create group-id for a group key.
    *
@@ -195,6 +215,48 @@ public class NoDictionaryMultiColumnGroupKeyGenerator implements GroupKeyGenerat
     }
   }
 
+  /**
+   * Iterator for {Long-Raw-Key, Group-id) pair, only for two INT group-by expressions.
+   * <p>The dictionary (or on-the-fly dictionary) ids are converted back into values, so that the raw keys are
+   * consistent across segments.
+   */
+  class LongGroupKeyIterator implements Iterator<LongGroupKey> {
+    final ObjectIterator<Object2IntMap.Entry<FixedIntArray>> _iterator;
+    final LongGroupKey _groupKey;
+
+    public LongGroupKeyIterator() {
+      _iterator = _groupKeyMap.object2IntEntrySet().fastIterator();
+      _groupKey = new LongGroupKey();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _iterator.hasNext();
+    }
+
+    @Override
+    public LongGroupKey next() {
+      Object2IntMap.Entry<FixedIntArray> entry = _iterator.next();
+      int[] ids = entry.getKey().elements();
+      _groupKey._groupId = entry.getIntValue();
+      _groupKey._rawKey = LongGroupKeyEncoding.encodeIntInt(getIntValue(0, ids[0]), getIntValue(1, ids[1]));
+      return _groupKey;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private int getIntValue(int index, int id) {
+    if (_dictionaries[index] != null) {
+      return _dictionaries[index].getIntValue(id);
+    } else {
+      return _onTheFlyDictionaries[index].getInt(id);
+    }
+  }
+
   private String buildStringKeyFromIds(FixedIntArray keyList) {
     StringBuilder builder = new StringBuilder();
     int[] keys = keyList.elements();
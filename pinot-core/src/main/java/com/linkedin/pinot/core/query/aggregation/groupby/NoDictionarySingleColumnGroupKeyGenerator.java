@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.query.aggregation.groupby;
 
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
 import com.linkedin.pinot.core.common.BlockValSet;
@@ -30,9 +31,11 @@ import it.unimi.dsi.fastutil.longs.Long2IntMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.util.Iterator;
 import java.util.Map;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -45,6 +48,7 @@ public class NoDictionarySingleColumnGroupKeyGenerator implements GroupKeyGenera
   private final FieldSpec.DataType _dataType;
   private final Map _groupKeyMap;
   private final int _globalGroupIdUpperBound;
+  private final LongGroupKeyEncoding _longGroupKeyEncoding;
 
   private int _numGroups = 0;
 
@@ -54,6 +58,7 @@ public class NoDictionarySingleColumnGroupKeyGenerator implements GroupKeyGenera
     _dataType = transformOperator.getResultMetadata(_groupByExpression).getDataType();
     _groupKeyMap = createGroupKeyMap(_dataType);
     _globalGroupIdUpperBound = numGroupsLimit;
+    _longGroupKeyEncoding = LongGroupKeyEncoding.getEncoding(new FieldSpec.DataType[]{_dataType});
   }
 
   @Override
@@ -164,6 +169,19 @@ public class NoDictionarySingleColumnGroupKeyGenerator implements GroupKeyGenera
     return new GroupKeyIterator(_groupKeyMap);
   }
 
+  @Nullable
+  @Override
+  public LongGroupKeyEncoding getLongGroupKeyEncoding() {
+    return _longGroupKeyEncoding;
+  }
+
+  @Override
+  public Iterator<LongGroupKey> getUniqueLongGroupKeys() {
+    Preconditions.checkState(_longGroupKeyEncoding != null, "Long group keys are not supported for data type: %s",
+        _dataType);
+    return new LongGroupKeyIterator();
+  }
+
   @SuppressWarnings("unchecked")
   private int getKeyForValue(int value) {
     Int2IntMap map = (Int2IntMap) _groupKeyMap;
@@ -260,4 +278,72 @@ public class NoDictionarySingleColumnGroupKeyGenerator implements GroupKeyGenera
       throw new UnsupportedOperationException();
     }
   }
+
+  /**
+   * Iterator for {Long-Raw-Key, Group-id) pair, only for numeric group-by column.
+   */
+  class LongGroupKeyIterator implements Iterator<LongGroupKey> {
+    final ObjectIterator<? extends Map.Entry> _iterator;
+    final LongGroupKey _groupKey;
+
+    public LongGroupKeyIterator() {
+      switch (_dataType) {
+        case INT:
+          _iterator = ((Int2IntOpenHashMap) _groupKeyMap).int2IntEntrySet().fastIterator();
+          break;
+        case LONG:
+          _iterator = ((Long2IntOpenHashMap) _groupKeyMap).long2IntEntrySet().fastIterator();
+          break;
+        case FLOAT:
+          _iterator = ((Float2IntOpenHashMap) _groupKeyMap).float2IntEntrySet().fastIterator();
+          break;
+        case DOUBLE:
+          _iterator = ((Double2IntOpenHashMap) _groupKeyMap).double2IntEntrySet().fastIterator();
+          break;
+        default:
+          throw new IllegalStateException("Long group keys are not supported for data type: " + _dataType);
+      }
+      _groupKey = new LongGroupKey();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _iterator.hasNext();
+    }
+
+    @Override
+    public LongGroupKey next() {
+      Map.Entry entry = _iterator.next();
+      switch (_dataType) {
+        case INT:
+          Int2IntMap.Entry intEntry = (Int2IntMap.Entry) entry;
+          _groupKey._groupId = intEntry.getIntValue();
+          _groupKey._rawKey = intEntry.getIntKey();
+          break;
+        case LONG:
+          Long2IntMap.Entry longEntry = (Long2IntMap.Entry) entry;
+          _groupKey._groupId = longEntry.getIntValue();
+          _groupKey._rawKey = longEntry.getLongKey();
+          break;
+        case FLOAT:
+          Float2IntMap.Entry floatEntry = (Float2IntMap.Entry) entry;
+          _groupKey._groupId = floatEntry.getIntValue();
+          _groupKey._rawKey = LongGroupKeyEncoding.encodeFloat(floatEntry.getFloatKey());
+          break;
+        case DOUBLE:
+          Double2IntMap.Entry doubleEntry = (Double2IntMap.Entry) entry;
+          _groupKey._groupId = doubleEntry.getIntValue();
+          _groupKey._rawKey = LongGroupKeyEncoding.encodeDouble(doubleEntry.getDoubleKey());
+          break;
+        default:
+          throw new IllegalStateException();
+      }
+      return _groupKey;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
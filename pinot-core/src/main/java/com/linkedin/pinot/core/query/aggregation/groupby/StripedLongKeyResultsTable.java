@@ -0,0 +1,303 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>StripedLongKeyResultsTable</code> class is a concurrent table to merge aggregation group-by results from
+ * multiple segments based on the long raw keys (see {@link LongGroupKeyEncoding}).
+ * <p>The table is split into power of 2 stripes based on the hash of the long raw key. Each stripe is an open
+ * addressing hash map from long raw key to group index, plus the merged results stored in the group index:
+ * <ul>
+ *   <li>
+ *     For COUNT, SUM, MIN, MAX (and their MV versions), results are stored in primitive double arrays
+ *   </li>
+ *   <li>
+ *     For other aggregation functions, results are stored in object arrays
+ *   </li>
+ * </ul>
+ * <p>To reduce the contention, each merge call first buckets the group keys of the segment result by stripe, then
+ * acquires the lock of each stripe only once to merge all the group keys within the stripe.
+ * <p>String group keys are only generated when dumping the merged results into the results map at the end.
+ */
+public class StripedLongKeyResultsTable {
+  private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+  private enum MergeType {
+    SUM, MIN, MAX, OBJECT
+  }
+
+  private final AggregationFunction[] _aggregationFunctions;
+  private final int _numAggregationFunctions;
+  private final MergeType[] _mergeTypes;
+  private final int _numGroupsLimit;
+  private final int _stripeMask;
+  private final Stripe[] _stripes;
+  private final AtomicInteger _numGroups = new AtomicInteger();
+  private final AtomicReference<LongGroupKeyEncoding> _longGroupKeyEncoding = new AtomicReference<>();
+
+  /**
+   * Constructor for the class.
+   *
+   * @param aggregationFunctions Array of aggregation functions
+   * @param numGroupsLimit Limit on number of groups stored in the table
+   * @param numStripes Number of stripes, must be power of 2
+   */
+  public StripedLongKeyResultsTable(@Nonnull AggregationFunction[] aggregationFunctions, int numGroupsLimit,
+      int numStripes) {
+    Preconditions.checkArgument(numStripes > 0 && Integer.bitCount(numStripes) == 1,
+        "Number of stripes: %s is not power of 2", numStripes);
+
+    _aggregationFunctions = aggregationFunctions;
+    _numAggregationFunctions = aggregationFunctions.length;
+    _mergeTypes = new MergeType[_numAggregationFunctions];
+    for (int i = 0; i < _numAggregationFunctions; i++) {
+      _mergeTypes[i] = getMergeType(aggregationFunctions[i].getType());
+    }
+    _numGroupsLimit = numGroupsLimit;
+    _stripeMask = numStripes - 1;
+    _stripes = new Stripe[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      _stripes[i] = new Stripe();
+    }
+  }
+
+  private static MergeType getMergeType(AggregationFunctionType aggregationFunctionType) {
+    switch (aggregationFunctionType) {
+      case COUNT:
+      case COUNTMV:
+      case SUM:
+      case SUMMV:
+        return MergeType.SUM;
+      case MIN:
+      case MINMV:
+        return MergeType.MIN;
+      case MAX:
+      case MAXMV:
+        return MergeType.MAX;
+      default:
+        return MergeType.OBJECT;
+    }
+  }
+
+  /**
+   * Merges the given aggregation group-by result (from one segment) into the table.
+   * <p>This method can be called concurrently from multiple threads.
+   *
+   * @param aggregationGroupByResult Aggregation group-by result to merge
+   * @return Whether the result is merged, {@code false} if the group keys of the result cannot be packed into long raw
+   *         keys or are packed with a different encoding, in which case the caller should fall back to merge on the
+   *         string group keys
+   */
+  public boolean merge(@Nonnull AggregationGroupByResult aggregationGroupByResult) {
+    LongGroupKeyEncoding longGroupKeyEncoding = aggregationGroupByResult.getLongGroupKeyEncoding();
+    if (longGroupKeyEncoding == null) {
+      return false;
+    }
+    if (!_longGroupKeyEncoding.compareAndSet(null, longGroupKeyEncoding)
+        && _longGroupKeyEncoding.get() != longGroupKeyEncoding) {
+      return false;
+    }
+
+    // Bucket the group keys by stripe
+    int numStripes = _stripes.length;
+    LongArrayList[] rawKeysPerStripe = new LongArrayList[numStripes];
+    IntArrayList[] groupIdsPerStripe = new IntArrayList[numStripes];
+    Iterator<GroupKeyGenerator.LongGroupKey> groupKeyIterator = aggregationGroupByResult.getLongGroupKeyIterator();
+    while (groupKeyIterator.hasNext()) {
+      GroupKeyGenerator.LongGroupKey groupKey = groupKeyIterator.next();
+      int stripeId = getStripeId(groupKey._rawKey);
+      if (rawKeysPerStripe[stripeId] == null) {
+        rawKeysPerStripe[stripeId] = new LongArrayList();
+        groupIdsPerStripe[stripeId] = new IntArrayList();
+      }
+      rawKeysPerStripe[stripeId].add(groupKey._rawKey);
+      groupIdsPerStripe[stripeId].add(groupKey._groupId);
+    }
+
+    // Merge the group keys into each stripe
+    for (int i = 0; i < numStripes; i++) {
+      LongArrayList rawKeys = rawKeysPerStripe[i];
+      if (rawKeys != null) {
+        Stripe stripe = _stripes[i];
+        synchronized (stripe) {
+          stripe.merge(rawKeys, groupIdsPerStripe[i], aggregationGroupByResult);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of groups in the table.
+   */
+  public int getNumGroups() {
+    return _numGroups.get();
+  }
+
+  /**
+   * Dumps the merged results into the given map from string group key to intermediate results. If the group key already
+   * exists in the map, merges the results.
+   * <p>This method should be called after all the merges are done.
+   *
+   * @param resultsMap Map from string group key to intermediate results
+   */
+  @SuppressWarnings("unchecked")
+  public void dumpToResultsMap(@Nonnull Map<String, Object[]> resultsMap) {
+    LongGroupKeyEncoding longGroupKeyEncoding = _longGroupKeyEncoding.get();
+    if (longGroupKeyEncoding == null) {
+      return;
+    }
+    for (Stripe stripe : _stripes) {
+      synchronized (stripe) {
+        ObjectIterator<Long2IntMap.Entry> iterator = stripe._rawKeyToIndexMap.long2IntEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+          Long2IntMap.Entry entry = iterator.next();
+          String stringKey = longGroupKeyEncoding.toStringKey(entry.getLongKey());
+          Object[] results = stripe.getResults(entry.getIntValue());
+          Object[] existingResults = resultsMap.get(stringKey);
+          if (existingResults == null) {
+            resultsMap.put(stringKey, results);
+          } else {
+            for (int i = 0; i < _numAggregationFunctions; i++) {
+              existingResults[i] = _aggregationFunctions[i].merge(existingResults[i], results[i]);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private int getStripeId(long rawKey) {
+    long hash = rawKey * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & _stripeMask;
+  }
+
+  /**
+   * One stripe of the table, should be accessed while holding the lock of the stripe.
+   */
+  private class Stripe {
+    final Long2IntOpenHashMap _rawKeyToIndexMap = new Long2IntOpenHashMap();
+    final double[][] _doubleResults = new double[_numAggregationFunctions][];
+    final Object[][] _objectResults = new Object[_numAggregationFunctions][];
+    int _capacity = INITIAL_STRIPE_CAPACITY;
+
+    Stripe() {
+      _rawKeyToIndexMap.defaultReturnValue(GroupKeyGenerator.INVALID_ID);
+      for (int i = 0; i < _numAggregationFunctions; i++) {
+        if (_mergeTypes[i] == MergeType.OBJECT) {
+          _objectResults[i] = new Object[_capacity];
+        } else {
+          _doubleResults[i] = new double[_capacity];
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void merge(LongArrayList rawKeys, IntArrayList groupIds, AggregationGroupByResult aggregationGroupByResult) {
+      int numKeys = rawKeys.size();
+      for (int i = 0; i < numKeys; i++) {
+        long rawKey = rawKeys.getLong(i);
+        int groupId = groupIds.getInt(i);
+        int index = _rawKeyToIndexMap.get(rawKey);
+        if (index == GroupKeyGenerator.INVALID_ID) {
+          // NOTE: numGroups might go slightly over numGroupsLimit because the comparison is not atomic
+          if (_numGroups.get() >= _numGroupsLimit) {
+            continue;
+          }
+          _numGroups.getAndIncrement();
+          index = _rawKeyToIndexMap.size();
+          ensureCapacity(index + 1);
+          _rawKeyToIndexMap.put(rawKey, index);
+          for (int j = 0; j < _numAggregationFunctions; j++) {
+            if (_mergeTypes[j] == MergeType.OBJECT) {
+              _objectResults[j][index] = aggregationGroupByResult.getResultForGroupId(groupId, j);
+            } else {
+              _doubleResults[j][index] = aggregationGroupByResult.getResultHolder(j).getDoubleResult(groupId);
+            }
+          }
+        } else {
+          for (int j = 0; j < _numAggregationFunctions; j++) {
+            switch (_mergeTypes[j]) {
+              case SUM:
+                _doubleResults[j][index] += aggregationGroupByResult.getResultHolder(j).getDoubleResult(groupId);
+                break;
+              case MIN:
+                _doubleResults[j][index] = Math.min(_doubleResults[j][index],
+                    aggregationGroupByResult.getResultHolder(j).getDoubleResult(groupId));
+                break;
+              case MAX:
+                _doubleResults[j][index] = Math.max(_doubleResults[j][index],
+                    aggregationGroupByResult.getResultHolder(j).getDoubleResult(groupId));
+                break;
+              default:
+                _objectResults[j][index] = _aggregationFunctions[j].merge(_objectResults[j][index],
+                    aggregationGroupByResult.getResultForGroupId(groupId, j));
+                break;
+            }
+          }
+        }
+      }
+    }
+
+    void ensureCapacity(int capacity) {
+      if (capacity > _capacity) {
+        int newCapacity = Math.max(capacity, _capacity * 2);
+        for (int i = 0; i < _numAggregationFunctions; i++) {
+          if (_mergeTypes[i] == MergeType.OBJECT) {
+            _objectResults[i] = Arrays.copyOf(_objectResults[i], newCapacity);
+          } else {
+            _doubleResults[i] = Arrays.copyOf(_doubleResults[i], newCapacity);
+          }
+        }
+        _capacity = newCapacity;
+      }
+    }
+
+    Object[] getResults(int index) {
+      Object[] results = new Object[_numAggregationFunctions];
+      for (int i = 0; i < _numAggregationFunctions; i++) {
+        if (_mergeTypes[i] == MergeType.OBJECT) {
+          results[i] = _objectResults[i][index];
+        } else {
+          double value = _doubleResults[i][index];
+          if (_aggregationFunctions[i].getIntermediateResultColumnType() == DataSchema.ColumnDataType.LONG) {
+            results[i] = (long) value;
+          } else {
+            results[i] = value;
+          }
+        }
+      }
+      return results;
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.core.query.config;
 
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 
@@ -32,6 +34,15 @@ public class QueryExecutorConfig {
   public static final String QUERY_PLANNER = "queryPlanner";
   // Prefix key of TimeOut
   public static final String TIME_OUT = "timeout";
+  // Highest data table version to respond with, the broker may only support a lower version
+  public static final String DATA_TABLE_VERSION = "data.table.version";
+  // Compression type for data table blocks (only applies to data table V3)
+  public static final String DATA_TABLE_COMPRESSION_TYPE = "data.table.compression.type";
+  // Maximum number of documents scanned per query, the query is terminated once exceeding it (non-positive: no limit)
+  public static final String MAX_DOCS_SCANNED = "max.docs.scanned";
+  // Maximum (estimated) bytes of group-by result holders per query, the query is terminated once exceeding it
+  // (non-positive: no limit)
+  public static final String MAX_GROUP_BY_BYTES = "max.group.by.bytes";
 
   private static final String[] REQUIRED_KEYS = {};
 
@@ -39,6 +50,10 @@ public class QueryExecutorConfig {
   private SegmentPrunerConfig _segmentPrunerConfig;
   private QueryPlannerConfig _queryPlannerConfig;
   private final long _timeOutMs;
+  private final int _maxDataTableVersion;
+  private final ChunkCompressorFactory.CompressionType _dataTableCompressionType;
+  private final long _maxDocsScanned;
+  private final long _maxGroupByBytes;
 
   public QueryExecutorConfig(Configuration config) throws ConfigurationException {
     _queryExecutorConfig = config;
@@ -46,6 +61,12 @@ public class QueryExecutorConfig {
     _segmentPrunerConfig = new SegmentPrunerConfig(_queryExecutorConfig.subset(QUERY_PRUNER));
     _queryPlannerConfig = new QueryPlannerConfig(_queryExecutorConfig.subset(QUERY_PLANNER));
     _timeOutMs = _queryExecutorConfig.getLong(TIME_OUT, -1);
+    _maxDataTableVersion = _queryExecutorConfig.getInt(DATA_TABLE_VERSION, DataTableFactory.LATEST_VERSION);
+    _dataTableCompressionType = ChunkCompressorFactory.CompressionType.valueOf(
+        _queryExecutorConfig.getString(DATA_TABLE_COMPRESSION_TYPE,
+            ChunkCompressorFactory.CompressionType.PASS_THROUGH.name()).toUpperCase());
+    _maxDocsScanned = _queryExecutorConfig.getLong(MAX_DOCS_SCANNED, -1);
+    _maxGroupByBytes = _queryExecutorConfig.getLong(MAX_GROUP_BY_BYTES, -1);
   }
 
   private void checkRequiredKeys() throws ConfigurationException {
@@ -71,4 +92,20 @@ public class QueryExecutorConfig {
   public long getTimeOut() {
     return _timeOutMs;
   }
+
+  public int getMaxDataTableVersion() {
+    return _maxDataTableVersion;
+  }
+
+  public ChunkCompressorFactory.CompressionType getDataTableCompressionType() {
+    return _dataTableCompressionType;
+  }
+
+  public long getMaxDocsScanned() {
+    return _maxDocsScanned;
+  }
+
+  public long getMaxGroupByBytes() {
+    return _maxGroupByBytes;
+  }
 }
@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.exception;
+
+/**
+ * Thrown when a query is cancelled by the broker, or terminated because it exceeded its time or resource budget.
+ */
+public class QueryCancelledException extends RuntimeException {
+  public QueryCancelledException(String message) {
+    super(message);
+  }
+
+  public QueryCancelledException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public QueryCancelledException(Throwable cause) {
+    super(cause);
+  }
+}
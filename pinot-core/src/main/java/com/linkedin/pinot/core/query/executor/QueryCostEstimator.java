@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.executor;
+
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.core.query.request.ServerQueryRequest;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>QueryCostEstimator</code> class estimates the cost of a query on a segment before executing the query,
+ * based on the segment metadata only (no index is read, and the segment does not need to be acquired).
+ * <p>The cost is the estimated number of entries scanned (in filter and post filter, same as the query stats in the
+ * data table), plus a fixed overhead per segment and the number of groups for group-by queries:
+ * <ul>
+ *   <li>
+ *     Filter: columns with inverted index or sorted columns do not scan entries, other columns scan all documents.
+ *     The selectivity of the predicates is estimated from the column cardinality (e.g. 1/cardinality for EQUALITY).
+ *     Columns without column metadata (e.g. in consuming segments) are assumed to scan all documents.
+ *   </li>
+ *   <li>Post filter: the estimated matching documents times the number of projected columns.</li>
+ *   <li>Group-by: the estimated number of groups, bounded by the product of the cardinalities of group-by columns.</li>
+ * </ul>
+ */
+public class QueryCostEstimator {
+  private QueryCostEstimator() {
+  }
+
+  // Overhead of processing a segment (planning, combining results, etc.) in number of entries scanned
+  public static final long SEGMENT_OVERHEAD_COST = 1000L;
+  // Default selectivity of predicates that cannot be estimated from the cardinality (e.g. RANGE, REGEXP_LIKE)
+  private static final double DEFAULT_SELECTIVITY = 0.3;
+
+  /**
+   * Estimates the cost of the query on the given segment.
+   */
+  public static long estimateCost(SegmentMetadata segmentMetadata, ServerQueryRequest queryRequest) {
+    long numDocs = segmentMetadata.getTotalDocs();
+
+    // Filter
+    FilterQueryTree filterQueryTree = queryRequest.getFilterQueryTree();
+    double selectivity = 1.0;
+    long numEntriesScannedInFilter = 0L;
+    if (filterQueryTree != null) {
+      FilterEstimate filterEstimate = estimateFilter(segmentMetadata, filterQueryTree, numDocs);
+      selectivity = filterEstimate._selectivity;
+      numEntriesScannedInFilter = filterEstimate._numEntriesScanned;
+    }
+    long numMatchedDocs = (long) Math.ceil(numDocs * selectivity);
+
+    // Post filter
+    int numProjectedColumns = queryRequest.getAllColumns().size();
+    Set<String> filterColumns = queryRequest.getFilterColumns();
+    if (filterColumns != null) {
+      // Filter columns are only projected if used in other clauses
+      for (String filterColumn : filterColumns) {
+        if (!isProjected(queryRequest, filterColumn)) {
+          numProjectedColumns--;
+        }
+      }
+    }
+    long numEntriesScannedPostFilter = numMatchedDocs * numProjectedColumns;
+
+    // Group-by
+    long numGroups = 0L;
+    Set<String> groupByColumns = queryRequest.getGroupByColumns();
+    if (groupByColumns != null && numMatchedDocs > 0) {
+      numGroups = 1L;
+      for (String groupByColumn : groupByColumns) {
+        int cardinality = getCardinality(segmentMetadata, groupByColumn);
+        numGroups = cardinality > 0 ? numGroups * cardinality : numMatchedDocs;
+        if (numGroups >= numMatchedDocs) {
+          numGroups = numMatchedDocs;
+          break;
+        }
+      }
+    }
+
+    return SEGMENT_OVERHEAD_COST + numEntriesScannedInFilter + numEntriesScannedPostFilter + numGroups;
+  }
+
+  private static boolean isProjected(ServerQueryRequest queryRequest, String column) {
+    return contains(queryRequest.getAggregationColumns(), column) || contains(queryRequest.getGroupByColumns(), column)
+        || contains(queryRequest.getSelectionColumns(), column);
+  }
+
+  private static boolean contains(@Nullable Set<String> columns, String column) {
+    return columns != null && columns.contains(column);
+  }
+
+  private static FilterEstimate estimateFilter(SegmentMetadata segmentMetadata, FilterQueryTree filterQueryTree,
+      long numDocs) {
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+    if (children != null && !children.isEmpty()) {
+      double selectivity;
+      long numEntriesScanned = 0L;
+      switch (filterQueryTree.getOperator()) {
+        case AND:
+          selectivity = 1.0;
+          for (FilterQueryTree child : children) {
+            FilterEstimate childEstimate = estimateFilter(segmentMetadata, child, numDocs);
+            selectivity *= childEstimate._selectivity;
+            numEntriesScanned += childEstimate._numEntriesScanned;
+          }
+          return new FilterEstimate(selectivity, numEntriesScanned);
+        case OR:
+          selectivity = 0.0;
+          for (FilterQueryTree child : children) {
+            FilterEstimate childEstimate = estimateFilter(segmentMetadata, child, numDocs);
+            selectivity += childEstimate._selectivity;
+            numEntriesScanned += childEstimate._numEntriesScanned;
+          }
+          return new FilterEstimate(Math.min(selectivity, 1.0), numEntriesScanned);
+        default:
+          throw new IllegalStateException("Unsupported filter operator: " + filterQueryTree.getOperator());
+      }
+    }
+
+    ColumnMetadata columnMetadata = getColumnMetadata(segmentMetadata, filterQueryTree.getColumn());
+    if (columnMetadata == null) {
+      return new FilterEstimate(DEFAULT_SELECTIVITY, numDocs);
+    }
+    int cardinality = Math.max(columnMetadata.getCardinality(), 1);
+    int numValues = filterQueryTree.getValue().size();
+    double selectivity;
+    switch (filterQueryTree.getOperator()) {
+      case EQUALITY:
+        selectivity = 1.0 / cardinality;
+        break;
+      case IN:
+        selectivity = Math.min((double) numValues / cardinality, 1.0);
+        break;
+      case NOT:
+        selectivity = 1.0 - 1.0 / cardinality;
+        break;
+      case NOT_IN:
+        selectivity = Math.max(1.0 - (double) numValues / cardinality, 0.0);
+        break;
+      default:
+        selectivity = DEFAULT_SELECTIVITY;
+        break;
+    }
+    boolean scanBased = !columnMetadata.hasInvertedIndex() && !columnMetadata.isSorted();
+    return new FilterEstimate(selectivity, scanBased ? numDocs : 0L);
+  }
+
+  private static int getCardinality(SegmentMetadata segmentMetadata, String column) {
+    ColumnMetadata columnMetadata = getColumnMetadata(segmentMetadata, column);
+    return columnMetadata != null ? columnMetadata.getCardinality() : -1;
+  }
+
+  @Nullable
+  private static ColumnMetadata getColumnMetadata(SegmentMetadata segmentMetadata, String column) {
+    if (segmentMetadata instanceof SegmentMetadataImpl) {
+      return ((SegmentMetadataImpl) segmentMetadata).getColumnMetadataFor(column);
+    }
+    return null;
+  }
+
+  private static class FilterEstimate {
+    final double _selectivity;
+    final long _numEntriesScanned;
+
+    FilterEstimate(double selectivity, long numEntriesScanned) {
+      _selectivity = selectivity;
+      _numEntriesScanned = numEntriesScanned;
+    }
+  }
+}
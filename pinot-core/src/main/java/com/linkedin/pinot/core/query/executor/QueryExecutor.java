@@ -52,6 +52,14 @@ public interface QueryExecutor {
    */
   DataTable processQuery(ServerQueryRequest queryRequest, ExecutorService executorService);
 
+  /**
+   * Estimates the cost of the query before processing it, in number of entries to be scanned (see
+   * {@link QueryCostEstimator}), or returns -1 if the cost cannot be estimated.
+   */
+  default long estimateQueryCost(ServerQueryRequest queryRequest) {
+    return -1L;
+  }
+
   /**
    * Sets the timeout for the given table, instead of using the global timeout.
    */
@@ -21,23 +21,31 @@ import com.linkedin.pinot.common.metrics.ServerMeter;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.metrics.ServerQueryPhase;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.core.common.datatable.DataTableBuilder;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
 import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
 import com.linkedin.pinot.core.data.manager.InstanceDataManager;
 import com.linkedin.pinot.core.data.manager.SegmentDataManager;
 import com.linkedin.pinot.core.data.manager.TableDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.plan.maker.PlanMaker;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import com.linkedin.pinot.core.query.exception.BadQueryRequestException;
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
 import com.linkedin.pinot.core.query.pruner.SegmentPrunerService;
 import com.linkedin.pinot.core.query.request.ServerQueryRequest;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
 import com.linkedin.pinot.core.query.request.context.TimerContext;
 import com.linkedin.pinot.core.util.trace.TraceContext;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +67,11 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
   private SegmentPrunerService _segmentPrunerService = null;
   private PlanMaker _planMaker = null;
   private long _defaultTimeOutMs = CommonConstants.Server.DEFAULT_QUERY_EXECUTOR_TIMEOUT_MS;
+  private int _maxDataTableVersion = DataTableFactory.LATEST_VERSION;
+  private ChunkCompressorFactory.CompressionType _dataTableCompressionType =
+      ChunkCompressorFactory.CompressionType.PASS_THROUGH;
+  private long _maxDocsScanned = Long.MAX_VALUE;
+  private long _maxGroupByBytes = Long.MAX_VALUE;
   private final Map<String, Long> _tableTimeoutMs = new ConcurrentHashMap<>();
   private ServerMetrics _serverMetrics;
 
@@ -72,6 +85,18 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       _defaultTimeOutMs = queryExecutorConfig.getTimeOut();
     }
     LOGGER.info("Default timeout for query executor : {}", _defaultTimeOutMs);
+    _maxDataTableVersion = queryExecutorConfig.getMaxDataTableVersion();
+    _dataTableCompressionType = queryExecutorConfig.getDataTableCompressionType();
+    LOGGER.info("Max data table version: {}, data table compression type: {}", _maxDataTableVersion,
+        _dataTableCompressionType);
+    if (queryExecutorConfig.getMaxDocsScanned() > 0) {
+      _maxDocsScanned = queryExecutorConfig.getMaxDocsScanned();
+    }
+    if (queryExecutorConfig.getMaxGroupByBytes() > 0) {
+      _maxGroupByBytes = queryExecutorConfig.getMaxGroupByBytes();
+    }
+    LOGGER.info("Max docs scanned per query: {}, max group-by bytes per query: {}", _maxDocsScanned,
+        _maxGroupByBytes);
     LOGGER.info("Trying to build SegmentPrunerService");
     _segmentPrunerService = new SegmentPrunerService(queryExecutorConfig.getPrunerConfig());
     LOGGER.info("Trying to build QueryPlanMaker");
@@ -104,6 +129,10 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     LOGGER.debug("Incoming request Id: {}, query: {}", requestId, brokerRequest);
     String tableNameWithType = queryRequest.getTableNameWithType();
     long queryTimeoutMs = _tableTimeoutMs.getOrDefault(tableNameWithType, _defaultTimeOutMs);
+    // No need to process the query longer than the timeout on the broker
+    if (queryRequest.getTimeoutMs() > 0) {
+      queryTimeoutMs = Math.min(queryTimeoutMs, queryRequest.getTimeoutMs());
+    }
     long remainingTimeMs = queryTimeoutMs - querySchedulingTimeMs;
 
     // Query scheduler wait time already exceeds query timeout, directly return
@@ -118,21 +147,60 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       return dataTable;
     }
 
+    // Operators check the execution context at block boundaries, and stop once the query is cancelled (e.g. by the
+    // broker) or exceeds its deadline or budgets
+    QueryExecutionContext executionContext = queryRequest.getExecutionContext();
+    executionContext.setBudgets(timerContext.getQueryArrivalTimeMs() + queryTimeoutMs, _maxDocsScanned,
+        _maxGroupByBytes);
+    QueryProfile queryProfile = queryRequest.isEnableProfile() ? new QueryProfile() : null;
+    executionContext.setProfile(queryProfile);
+    // Data table builders of the query write the highest version supported by both the broker and the server
+    executionContext.setDataTableFormat(DataTableFactory.getResponseVersion(brokerRequest, _maxDataTableVersion),
+        _dataTableCompressionType);
+
+    // Query cancelled while waiting in the scheduler, directly return
+    if (executionContext.isTerminated()) {
+      _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERIES_CANCELLED, 1);
+      DataTable dataTable = new DataTableImplV2();
+      dataTable.addException(QueryException.getException(QueryException.QUERY_CANCELLATION_ERROR,
+          executionContext.getTerminationReason()));
+      LOGGER.info("Query cancelled before processing requestId: {}, {}", requestId,
+          executionContext.getTerminationReason());
+      return dataTable;
+    }
+
     TableDataManager tableDataManager = _instanceDataManager.getTableDataManager(tableNameWithType);
     Preconditions.checkState(tableDataManager != null, "Failed to find data manager for table: " + tableNameWithType);
+    // For hybrid table, the segments of the table of the other type are processed together if the hybrid query exists
+    ServerQueryRequest hybridQueryRequest = queryRequest.getHybridQueryRequest();
+    TableDataManager hybridTableDataManager = null;
+    if (hybridQueryRequest != null) {
+      String hybridTableNameWithType = hybridQueryRequest.getTableNameWithType();
+      hybridTableDataManager = _instanceDataManager.getTableDataManager(hybridTableNameWithType);
+      Preconditions.checkState(hybridTableDataManager != null,
+          "Failed to find data manager for table: " + hybridTableNameWithType);
+    }
     List<SegmentDataManager> segmentDataManagers = tableDataManager.acquireSegments(queryRequest.getSegmentsToQuery());
-    int numSegmentsQueried = segmentDataManagers.size();
+    List<SegmentDataManager> hybridSegmentDataManagers =
+        hybridTableDataManager != null ? hybridTableDataManager.acquireSegments(
+            hybridQueryRequest.getSegmentsToQuery()) : Collections.<SegmentDataManager>emptyList();
+    int numSegmentsQueried = segmentDataManagers.size() + hybridSegmentDataManagers.size();
     boolean enableTrace = queryRequest.isEnableTrace();
     if (enableTrace) {
       TraceContext.register(requestId);
     }
 
+    QueryExecutionContext.register(executionContext);
+
     DataTable dataTable = null;
     try {
       TimerContext.Timer segmentPruneTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.SEGMENT_PRUNING);
       long totalRawDocs = pruneSegments(tableDataManager, segmentDataManagers, queryRequest);
+      if (hybridTableDataManager != null) {
+        totalRawDocs += pruneSegments(hybridTableDataManager, hybridSegmentDataManagers, hybridQueryRequest);
+      }
       segmentPruneTimer.stopAndRecord();
-      int numSegmentsMatchedAfterPruning = segmentDataManagers.size();
+      int numSegmentsMatchedAfterPruning = segmentDataManagers.size() + hybridSegmentDataManagers.size();
       LOGGER.debug("Matched {} segments after pruning", numSegmentsMatchedAfterPruning);
       if (numSegmentsMatchedAfterPruning == 0) {
         dataTable = DataTableBuilder.buildEmptyDataTable(brokerRequest);
@@ -145,8 +213,14 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         metadata.put(DataTable.NUM_SEGMENTS_MATCHED, "0");
       } else {
         TimerContext.Timer planBuildTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.BUILD_QUERY_PLAN);
-        Plan globalQueryPlan =
-            _planMaker.makeInterSegmentPlan(segmentDataManagers, brokerRequest, executorService, remainingTimeMs);
+        Plan globalQueryPlan;
+        if (hybridQueryRequest != null) {
+          globalQueryPlan = _planMaker.makeInterSegmentPlan(segmentDataManagers, brokerRequest,
+              hybridSegmentDataManagers, hybridQueryRequest.getBrokerRequest(), executorService, remainingTimeMs);
+        } else {
+          globalQueryPlan =
+              _planMaker.makeInterSegmentPlan(segmentDataManagers, brokerRequest, executorService, remainingTimeMs);
+        }
         planBuildTimer.stopAndRecord();
 
         if (PRINT_QUERY_PLAN) {
@@ -163,6 +237,11 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         // Update the total docs in the metadata based on un-pruned segments.
         dataTable.getMetadata().put(DataTable.TOTAL_DOCS_METADATA_KEY, Long.toString(totalRawDocs));
       }
+    } catch (QueryCancelledException e) {
+      // Do not log error for QueryCancelledException because the query is cancelled on purpose
+      LOGGER.info("Query cancelled while processing requestId: {}, {}", requestId, e.getMessage());
+      dataTable = new DataTableImplV2();
+      dataTable.addException(QueryException.getException(QueryException.QUERY_CANCELLATION_ERROR, e));
     } catch (Exception e) {
       _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
 
@@ -176,9 +255,25 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       dataTable = new DataTableImplV2();
       dataTable.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
     } finally {
+      QueryExecutionContext.unregister();
+      if (executionContext.isTerminated()) {
+        _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERIES_CANCELLED, 1);
+      }
+      // Stop the tasks of the query still running in the executor service (e.g. after the combine timeout)
+      executionContext.cancel("Query already finished");
       for (SegmentDataManager segmentDataManager : segmentDataManagers) {
         tableDataManager.releaseSegment(segmentDataManager);
       }
+      for (SegmentDataManager segmentDataManager : hybridSegmentDataManagers) {
+        hybridTableDataManager.releaseSegment(segmentDataManager);
+      }
+      if (queryProfile != null && dataTable != null) {
+        try {
+          dataTable.getMetadata().put(DataTable.OPERATOR_PROFILE_METADATA_KEY, queryProfile.toJsonString());
+        } catch (IOException e) {
+          LOGGER.warn("Caught exception while serializing query profile for requestId: {}", requestId, e);
+        }
+      }
       if (enableTrace) {
         if (dataTable != null) {
           dataTable.getMetadata().put(DataTable.TRACE_INFO_METADATA_KEY, TraceContext.getTraceInfo());
@@ -223,6 +318,35 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     return totalRawDocs;
   }
 
+  @Override
+  public long estimateQueryCost(ServerQueryRequest queryRequest) {
+    long cost = estimateQueryCost(queryRequest.getTableNameWithType(), queryRequest);
+    ServerQueryRequest hybridQueryRequest = queryRequest.getHybridQueryRequest();
+    if (hybridQueryRequest != null) {
+      long hybridCost = estimateQueryCost(hybridQueryRequest.getTableNameWithType(), hybridQueryRequest);
+      cost = (cost >= 0 && hybridCost >= 0) ? cost + hybridCost : -1L;
+    }
+    return cost;
+  }
+
+  private long estimateQueryCost(String tableNameWithType, ServerQueryRequest queryRequest) {
+    TableDataManager tableDataManager = _instanceDataManager.getTableDataManager(tableNameWithType);
+    if (tableDataManager == null) {
+      return -1L;
+    }
+    // Estimate from the segment metadata without acquiring the segments, as this is invoked on query submission
+    try {
+      long cost = 0L;
+      for (SegmentMetadata segmentMetadata : tableDataManager.getSegmentMetadata(queryRequest.getSegmentsToQuery())) {
+        cost += QueryCostEstimator.estimateCost(segmentMetadata, queryRequest);
+      }
+      return cost;
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while estimating the cost of requestId: {}", queryRequest.getRequestId(), e);
+      return -1L;
+    }
+  }
+
   @Override
   public void setTableTimeoutMs(String tableNameWithType, long timeOutMs) {
     _tableTimeoutMs.put(tableNameWithType, timeOutMs);
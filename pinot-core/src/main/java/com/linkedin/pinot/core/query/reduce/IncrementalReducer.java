@@ -0,0 +1,543 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.reduce;
+
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.request.HavingFilterQuery;
+import com.linkedin.pinot.common.request.HavingFilterQueryMap;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.common.response.broker.QueryProcessingException;
+import com.linkedin.pinot.common.response.broker.SelectionResults;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
+import com.linkedin.pinot.core.query.request.context.QueryProfile;
+import com.linkedin.pinot.core.query.selection.SelectionOperatorService;
+import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>IncrementalReducer</code> class reduces data tables from multiple servers into a
+ * {@link BrokerResponseNative} one data table at a time, so that each server response can be folded into the result
+ * as soon as it arrives and released right after.
+ * <ul>
+ *   <li>Execution statistics, exceptions, trace info and operator profile are accumulated for every data table</li>
+ *   <li>Aggregation results and group-by result maps are merged into the results reduced so far</li>
+ *   <li>Selection order-by rows are added into a bounded priority queue, selection rows without ordering are only
+ *   collected until the limit is reached</li>
+ * </ul>
+ * <p>Call {@link #reduce(ServerInstance, DataTable)} for each server response, then {@link #getBrokerResponse()} once
+ * to finish the results (extract final results, trim, format) with whatever has been reduced so far.
+ */
+@ThreadSafe
+public class IncrementalReducer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalReducer.class);
+
+  private final BrokerRequest _brokerRequest;
+  private final BrokerMetrics _brokerMetrics;
+  private final BrokerResponseNative _brokerResponseNative = new BrokerResponseNative();
+  private final boolean _enableProfile;
+
+  private int _numDataTablesReduced = 0;
+  private long _numDocsScanned = 0L;
+  private long _numEntriesScannedInFilter = 0L;
+  private long _numEntriesScannedPostFilter = 0L;
+  private long _numSegmentsQueried = 0L;
+  private long _numSegmentsProcessed = 0L;
+  private long _numSegmentsMatched = 0L;
+  private long _numTotalRawDocs = 0L;
+  private boolean _numGroupsLimitReached = false;
+
+  // Cache a data schema from data tables (try to cache one with data rows associated with it).
+  private DataSchema _cachedDataSchema;
+  private boolean _hasDataRows = false;
+
+  // For selection queries
+  private DataSchema _masterDataSchema;
+  private final List<String> _droppedServers = new ArrayList<>();
+  private SelectionOperatorService _selectionService;
+  private List<Serializable[]> _selectionRows;
+
+  // For aggregation queries
+  private AggregationFunction[] _aggregationFunctions;
+  private Object[] _intermediateResults;
+  private String[] _groupByColumnNames;
+  private Map<String, Object>[] _intermediateResultMaps;
+
+  public IncrementalReducer(@Nonnull BrokerRequest brokerRequest, @Nullable BrokerMetrics brokerMetrics) {
+    _brokerRequest = brokerRequest;
+    _brokerMetrics = brokerMetrics;
+    Map<String, String> queryOptions = brokerRequest.getQueryOptions();
+    _enableProfile = queryOptions != null && Boolean.parseBoolean(queryOptions.get(QueryOptionKey.PROFILE));
+    if (_enableProfile) {
+      _brokerResponseNative.setOperatorProfile(new TreeMap<>());
+    }
+  }
+
+  /**
+   * Reduce the data table from one server into the results reduced so far.
+   *
+   * @param serverInstance server the data table comes from.
+   * @param dataTable data table from the server.
+   */
+  public synchronized void reduce(@Nonnull ServerInstance serverInstance, @Nonnull DataTable dataTable) {
+    _numDataTablesReduced++;
+    Map<String, String> metadata = dataTable.getMetadata();
+
+    // Reduce on trace info.
+    if (_brokerRequest.isEnableTrace()) {
+      _brokerResponseNative.getTraceInfo()
+          .put(serverInstance.getHostname(), metadata.get(DataTable.TRACE_INFO_METADATA_KEY));
+    }
+
+    // Reduce on operator profile.
+    if (_enableProfile) {
+      String operatorProfile = metadata.get(DataTable.OPERATOR_PROFILE_METADATA_KEY);
+      if (operatorProfile != null) {
+        try {
+          QueryProfile.mergeJsonString(_brokerResponseNative.getOperatorProfile(), operatorProfile);
+        } catch (IOException e) {
+          LOGGER.warn("Caught exception while merging operator profile from server: {}", serverInstance, e);
+        }
+      }
+    }
+
+    // Reduce on exceptions.
+    List<QueryProcessingException> processingExceptions = _brokerResponseNative.getProcessingExceptions();
+    for (String key : metadata.keySet()) {
+      if (key.startsWith(DataTable.EXCEPTION_METADATA_KEY)) {
+        processingExceptions.add(new QueryProcessingException(Integer.parseInt(key.substring(9)), metadata.get(key)));
+      }
+    }
+
+    // Reduce on execution statistics.
+    _numDocsScanned += getLongValue(metadata, DataTable.NUM_DOCS_SCANNED_METADATA_KEY);
+    _numEntriesScannedInFilter += getLongValue(metadata, DataTable.NUM_ENTRIES_SCANNED_IN_FILTER_METADATA_KEY);
+    _numEntriesScannedPostFilter += getLongValue(metadata, DataTable.NUM_ENTRIES_SCANNED_POST_FILTER_METADATA_KEY);
+    _numSegmentsQueried += getLongValue(metadata, DataTable.NUM_SEGMENTS_QUERIED);
+    _numSegmentsProcessed += getLongValue(metadata, DataTable.NUM_SEGMENTS_PROCESSED);
+    _numSegmentsMatched += getLongValue(metadata, DataTable.NUM_SEGMENTS_MATCHED);
+    _numTotalRawDocs += getLongValue(metadata, DataTable.TOTAL_DOCS_METADATA_KEY);
+    _numGroupsLimitReached |= Boolean.valueOf(metadata.get(DataTable.NUM_GROUPS_LIMIT_REACHED_KEY));
+
+    // After processing the metadata, skip data tables without data rows inside.
+    DataSchema dataSchema = dataTable.getDataSchema();
+    if (dataSchema == null) {
+      return;
+    }
+    if (dataTable.getNumberOfRows() == 0) {
+      if (_cachedDataSchema == null) {
+        _cachedDataSchema = dataSchema;
+      }
+      return;
+    }
+    _cachedDataSchema = dataSchema;
+
+    if (_brokerRequest.isSetSelections()) {
+      reduceSelection(serverInstance, dataTable, dataSchema);
+    } else if (!_brokerRequest.isSetGroupBy()) {
+      reduceAggregation(dataTable, dataSchema);
+    } else {
+      reduceGroupBy(dataTable);
+    }
+    _hasDataRows = true;
+  }
+
+  private static long getLongValue(Map<String, String> metadata, String key) {
+    String value = metadata.get(key);
+    return (value != null) ? Long.parseLong(value) : 0L;
+  }
+
+  private void reduceSelection(ServerInstance serverInstance, DataTable dataTable, DataSchema dataSchema) {
+    Selection selection = _brokerRequest.getSelections();
+    int selectionSize = selection.getSize();
+    if (_masterDataSchema == null) {
+      _masterDataSchema = dataSchema.clone();
+      if (selection.isSetSelectionSortSequence() && selectionSize != 0) {
+        // The master data schema is upgraded in place to cover the data tables reduced later
+        _selectionService = new SelectionOperatorService(selection, _masterDataSchema);
+      } else {
+        _selectionRows = new ArrayList<>(selectionSize);
+      }
+    } else {
+      // Drop the data tables that are not compatible with the master data schema.
+      if (!_masterDataSchema.isTypeCompatibleWith(dataSchema)) {
+        _droppedServers.add(serverInstance.toString());
+        return;
+      }
+      _masterDataSchema.upgradeToCover(dataSchema);
+    }
+
+    if (_selectionService != null) {
+      // Selection order-by.
+      _selectionService.reduceWithOrdering(dataTable);
+    } else {
+      // Selection only, data tables arriving after the limit is reached are skipped.
+      int numRows = dataTable.getNumberOfRows();
+      for (int rowId = 0; rowId < numRows && _selectionRows.size() < selectionSize; rowId++) {
+        _selectionRows.add(SelectionOperatorUtils.extractRowFromDataTable(dataTable, rowId));
+      }
+    }
+  }
+
+  private void reduceAggregation(DataTable dataTable, DataSchema dataSchema) {
+    if (_aggregationFunctions == null) {
+      _aggregationFunctions = AggregationFunctionUtils.getAggregationFunctions(_brokerRequest.getAggregationsInfo());
+      _intermediateResults = new Object[_aggregationFunctions.length];
+    }
+
+    int numAggregationFunctions = _aggregationFunctions.length;
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      Object intermediateResultToMerge;
+      DataSchema.ColumnDataType columnDataType = dataSchema.getColumnDataType(i);
+      switch (columnDataType) {
+        case LONG:
+          intermediateResultToMerge = dataTable.getLong(0, i);
+          break;
+        case DOUBLE:
+          intermediateResultToMerge = dataTable.getDouble(0, i);
+          break;
+        case OBJECT:
+          intermediateResultToMerge = dataTable.getObject(0, i);
+          break;
+        default:
+          throw new IllegalStateException("Illegal column data type in aggregation results: " + columnDataType);
+      }
+      Object mergedIntermediateResult = _intermediateResults[i];
+      if (mergedIntermediateResult == null) {
+        _intermediateResults[i] = intermediateResultToMerge;
+      } else {
+        _intermediateResults[i] = _aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void reduceGroupBy(DataTable dataTable) {
+    if (_aggregationFunctions == null) {
+      _aggregationFunctions = AggregationFunctionUtils.getAggregationFunctions(_brokerRequest.getAggregationsInfo());
+      _groupByColumnNames = new String[_aggregationFunctions.length];
+      _intermediateResultMaps = new Map[_aggregationFunctions.length];
+    }
+
+    int numAggregationFunctions = _aggregationFunctions.length;
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      if (_groupByColumnNames[i] == null) {
+        _groupByColumnNames[i] = dataTable.getString(i, 0);
+        _intermediateResultMaps[i] = dataTable.getObject(i, 1);
+      } else {
+        Map<String, Object> mergedIntermediateResultMap = _intermediateResultMaps[i];
+        Map<String, Object> intermediateResultMapToMerge = dataTable.getObject(i, 1);
+        for (Map.Entry<String, Object> entry : intermediateResultMapToMerge.entrySet()) {
+          String groupKey = entry.getKey();
+          Object intermediateResultToMerge = entry.getValue();
+          Object mergedIntermediateResult = mergedIntermediateResultMap.get(groupKey);
+          if (mergedIntermediateResult != null) {
+            mergedIntermediateResultMap.put(groupKey,
+                _aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge));
+          } else {
+            mergedIntermediateResultMap.put(groupKey, intermediateResultToMerge);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of data tables reduced so far.
+   */
+  public synchronized int getNumDataTablesReduced() {
+    return _numDataTablesReduced;
+  }
+
+  /**
+   * Finish the results reduced so far and set them into the broker response.
+   * <p>Should be called only once, after all the data tables to reduce have been reduced.
+   *
+   * @return broker response.
+   */
+  @Nonnull
+  public synchronized BrokerResponseNative getBrokerResponse() {
+    if (_numDataTablesReduced == 0) {
+      // Empty response.
+      return BrokerResponseNative.empty();
+    }
+
+    // Set execution statistics.
+    _brokerResponseNative.setNumDocsScanned(_numDocsScanned);
+    _brokerResponseNative.setNumEntriesScannedInFilter(_numEntriesScannedInFilter);
+    _brokerResponseNative.setNumEntriesScannedPostFilter(_numEntriesScannedPostFilter);
+    _brokerResponseNative.setNumSegmentsQueried(_numSegmentsQueried);
+    _brokerResponseNative.setNumSegmentsProcessed(_numSegmentsProcessed);
+    _brokerResponseNative.setNumSegmentsMatched(_numSegmentsMatched);
+    _brokerResponseNative.setTotalDocs(_numTotalRawDocs);
+    _brokerResponseNative.setNumGroupsLimitReached(_numGroupsLimitReached);
+
+    // Update broker metrics.
+    String tableName = _brokerRequest.getQuerySource().getTableName();
+    String rawTableName = TableNameBuilder.extractRawTableName(tableName);
+    if (_brokerMetrics != null) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.DOCUMENTS_SCANNED, _numDocsScanned);
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.ENTRIES_SCANNED_IN_FILTER,
+          _numEntriesScannedInFilter);
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.ENTRIES_SCANNED_POST_FILTER,
+          _numEntriesScannedPostFilter);
+    }
+
+    // Parse the option from request whether to preserve the type
+    String preserveTypeString = (_brokerRequest.getQueryOptions() == null) ? "false" : _brokerRequest.getQueryOptions()
+        .getOrDefault(CommonConstants.Broker.Request.QueryOptionKey.PRESERVE_TYPE, "false");
+    boolean preserveType = Boolean.valueOf(preserveTypeString);
+
+    if (!_hasDataRows) {
+      // For no data rows, construct empty result using the cached data schema.
+
+      // This will only happen to selection query.
+      if (_cachedDataSchema != null && _brokerRequest.isSetSelections()) {
+        List<String> selectionColumns =
+            SelectionOperatorUtils.getSelectionColumns(_brokerRequest.getSelections().getSelectionColumns(),
+                _cachedDataSchema);
+        _brokerResponseNative.setSelectionResults(new SelectionResults(selectionColumns, new ArrayList<>(0)));
+      }
+    } else {
+      // Set the reduced query results into the broker response.
+      assert _cachedDataSchema != null;
+
+      if (_brokerRequest.isSetSelections()) {
+        // Selection query.
+        if (!_droppedServers.isEmpty()) {
+          String errorMessage =
+              QueryException.MERGE_RESPONSE_ERROR.getMessage() + ": responses for table: " + tableName
+                  + " from servers: " + _droppedServers + " got dropped due to data schema inconsistency.";
+          LOGGER.info(errorMessage);
+          if (_brokerMetrics != null) {
+            _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESPONSE_MERGE_EXCEPTIONS, 1L);
+          }
+          _brokerResponseNative.addToExceptions(
+              new QueryProcessingException(QueryException.MERGE_RESPONSE_ERROR_CODE, errorMessage));
+        }
+        setSelectionResults(_brokerRequest.getSelections(), preserveType);
+      } else if (!_brokerRequest.isSetGroupBy()) {
+        // Aggregation only query.
+        setAggregationResults(_cachedDataSchema, preserveType);
+      } else {
+        // Aggregation group-by query.
+        boolean[] aggregationFunctionSelectStatus =
+            AggregationFunctionUtils.getAggregationFunctionsSelectStatus(_brokerRequest.getAggregationsInfo());
+        setGroupByHavingResults(aggregationFunctionSelectStatus, _brokerRequest.getGroupBy(),
+            _brokerRequest.getHavingFilterQuery(), _brokerRequest.getHavingFilterSubQueryMap(), preserveType);
+        if (_brokerMetrics != null && (!_brokerResponseNative.getAggregationResults().isEmpty())) {
+          // We emit the group by size when the result isn't empty. All the sizes among group-by results should be the same.
+          // Thus, we can just emit the one from the 1st result.
+          _brokerMetrics.addMeteredQueryValue(_brokerRequest, BrokerMeter.GROUP_BY_SIZE,
+              _brokerResponseNative.getAggregationResults().get(0).getGroupByResult().size());
+        }
+      }
+    }
+    return _brokerResponseNative;
+  }
+
+  /**
+   * Render the reduced selection results and set them into the broker response.
+   *
+   * @param selection selection information.
+   * @param preserveType whether to preserve the type of the values.
+   */
+  private void setSelectionResults(@Nonnull Selection selection, boolean preserveType) {
+    SelectionResults selectionResults;
+    int[] columnIndices;
+    List<String> selectionColumns =
+        SelectionOperatorUtils.getSelectionColumns(selection.getSelectionColumns(), _masterDataSchema);
+    if (_selectionService != null) {
+      // Selection order-by.
+      selectionResults = _selectionService.renderSelectionResultsWithOrdering();
+      columnIndices = SelectionOperatorUtils.getColumnIndicesWithOrdering(selectionColumns, _masterDataSchema);
+    } else {
+      // Selection only.
+      selectionResults =
+          SelectionOperatorUtils.renderSelectionResultsWithoutOrdering(_selectionRows, _masterDataSchema,
+              selectionColumns);
+      columnIndices = SelectionOperatorUtils.getColumnIndicesWithoutOrdering(selectionColumns, _masterDataSchema);
+    }
+
+    // TODO: use "formatRowsWithoutOrdering", "formatRowsWithOrdering" properly for selection when the server is updated
+    // to the latest code
+    if (!preserveType) {
+      selectionResults.setRows(
+          SelectionOperatorUtils.formatRowsWithOrdering(selectionResults.getRows(), columnIndices, _masterDataSchema));
+    }
+
+    _brokerResponseNative.setSelectionResults(selectionResults);
+  }
+
+  /**
+   * Extract the final aggregation results and set them into the broker response.
+   *
+   * @param dataSchema data schema.
+   * @param preserveType whether to preserve the type of the values.
+   */
+  private void setAggregationResults(@Nonnull DataSchema dataSchema, boolean preserveType) {
+    int numAggregationFunctions = _aggregationFunctions.length;
+    List<AggregationResult> reducedAggregationResults = new ArrayList<>(numAggregationFunctions);
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      Serializable resultValue = AggregationFunctionUtils.getSerializableValue(
+          _aggregationFunctions[i].extractFinalResult(_intermediateResults[i]));
+
+      // Format the value into string if required
+      if (!preserveType) {
+        resultValue = AggregationFunctionUtils.formatValue(resultValue);
+      }
+      reducedAggregationResults.add(new AggregationResult(dataSchema.getColumnName(i), resultValue));
+    }
+    _brokerResponseNative.setAggregationResults(reducedAggregationResults);
+  }
+
+  /**
+   * Extract, filter and trim the final group-by results and set them into the broker response.
+   *
+   * @param aggregationFunctionsSelectStatus whether each aggregation function is in the select list.
+   * @param groupBy group-by information.
+   * @param havingFilterQuery having filter query
+   * @param havingFilterQueryMap having filter query map
+   * @param preserveType whether to preserve the type of the values.
+   */
+  @SuppressWarnings("unchecked")
+  private void setGroupByHavingResults(boolean[] aggregationFunctionsSelectStatus, @Nonnull GroupBy groupBy,
+      HavingFilterQuery havingFilterQuery, HavingFilterQueryMap havingFilterQueryMap, boolean preserveType) {
+    AggregationFunction[] aggregationFunctions = _aggregationFunctions;
+    String[] columnNames = _groupByColumnNames;
+    int numAggregationFunctions = aggregationFunctions.length;
+
+    // Extract final result maps from the merged intermediate result maps.
+    Map<String, Comparable>[] finalResultMaps = new Map[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      Map<String, Object> intermediateResultMap = _intermediateResultMaps[i];
+      Map<String, Comparable> finalResultMap = new HashMap<>();
+      for (String groupKey : intermediateResultMap.keySet()) {
+        Object intermediateResult = intermediateResultMap.get(groupKey);
+        finalResultMap.put(groupKey, aggregationFunctions[i].extractFinalResult(intermediateResult));
+      }
+      finalResultMaps[i] = finalResultMap;
+    }
+    //If HAVING clause is set, we further filter the group by results based on the HAVING predicate
+    if (havingFilterQuery != null) {
+      HavingClauseComparisonTree havingClauseComparisonTree =
+          HavingClauseComparisonTree.buildHavingClauseComparisonTree(havingFilterQuery, havingFilterQueryMap);
+      //Applying close policy
+      //We just keep those groups (from different aggregation functions) that are exist in the result set of all aggregation functions.
+      //In other words, we just keep intersection of groups of different aggregation functions.
+      //Here we calculate the intersection of group key sets of different aggregation functions
+      Set<String> intersectionOfKeySets = finalResultMaps[0].keySet();
+      for (int i = 1; i < numAggregationFunctions; i++) {
+        intersectionOfKeySets.retainAll(finalResultMaps[i].keySet());
+      }
+
+      //Now it is time to remove those groups that do not validate HAVING clause predicate
+      //We use TreeMap which supports CASE_INSENSITIVE_ORDER
+      Map<String, Comparable> singleGroupAggResults = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      Map<String, Comparable>[] finalFilteredResultMaps = new Map[numAggregationFunctions];
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        finalFilteredResultMaps[i] = new HashMap<>();
+      }
+
+      for (String groupKey : intersectionOfKeySets) {
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          singleGroupAggResults.put(columnNames[i], finalResultMaps[i].get(groupKey));
+        }
+        //if this group validate HAVING predicate keep it in the new map
+        if (havingClauseComparisonTree.isThisGroupPassPredicates(singleGroupAggResults)) {
+          for (int i = 0; i < numAggregationFunctions; i++) {
+            finalFilteredResultMaps[i].put(groupKey, singleGroupAggResults.get(columnNames[i]));
+          }
+        }
+      }
+      //update the final results
+      finalResultMaps = finalFilteredResultMaps;
+    }
+
+    int aggregationNumsInFinalResult = 0;
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      if (aggregationFunctionsSelectStatus[i]) {
+        aggregationNumsInFinalResult++;
+      }
+    }
+
+    if (aggregationNumsInFinalResult > 0) {
+      String[] finalColumnNames = new String[aggregationNumsInFinalResult];
+      Map<String, Comparable>[] finalOutResultMaps = new Map[aggregationNumsInFinalResult];
+      AggregationFunction[] finalAggregationFunctions = new AggregationFunction[aggregationNumsInFinalResult];
+      int count = 0;
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        if (aggregationFunctionsSelectStatus[i]) {
+          finalColumnNames[count] = columnNames[i];
+          finalOutResultMaps[count] = finalResultMaps[i];
+          finalAggregationFunctions[count] = aggregationFunctions[i];
+          count++;
+        }
+      }
+      // Trim the final result maps to topN and set them into the broker response.
+      AggregationGroupByTrimmingService aggregationGroupByTrimmingService =
+          new AggregationGroupByTrimmingService(finalAggregationFunctions, (int) groupBy.getTopN());
+      List<GroupByResult>[] groupByResultLists =
+          aggregationGroupByTrimmingService.trimFinalResults(finalOutResultMaps);
+
+      // Format the value into string if required
+      if (!preserveType) {
+        for (List<GroupByResult> groupByResultList: groupByResultLists) {
+          for (GroupByResult groupByResult: groupByResultList) {
+            groupByResult.setValue(AggregationFunctionUtils.formatValue(groupByResult.getValue()));
+          }
+        }
+      }
+
+      List<AggregationResult> aggregationResults = new ArrayList<>(count);
+      for (int i = 0; i < aggregationNumsInFinalResult; i++) {
+        List<GroupByResult> groupByResultList = groupByResultLists[i];
+        aggregationResults.add(new AggregationResult(groupByResultList, groupBy.getExpressions(), finalColumnNames[i]));
+      }
+      _brokerResponseNative.setAggregationResults(aggregationResults);
+    } else {
+      throw new IllegalStateException(
+          "There should be minimum one aggregation function in the select list of a Group by query");
+    }
+  }
+}
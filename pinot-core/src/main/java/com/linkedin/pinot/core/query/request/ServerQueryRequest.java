@@ -22,13 +22,16 @@ import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.request.Selection;
 import com.linkedin.pinot.common.request.transform.TransformExpressionTree;
+import com.linkedin.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionType;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
 import com.linkedin.pinot.core.query.request.context.TimerContext;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -38,6 +41,9 @@ import javax.annotation.Nullable;
  * context.
  * <p>All segment independent information should be pre-computed and stored in this class to avoid repetitive work on a
  * per segment basis.
+ * <p>For hybrid tables, the instance request might also contain the query on the table of the other type (the hybrid
+ * query), which is encapsulated in the nested hybrid query request, and is processed together with the query into a
+ * single response.
  */
 public class ServerQueryRequest {
   private final long _requestId;
@@ -45,10 +51,15 @@ public class ServerQueryRequest {
   private final String _tableNameWithType;
   private final List<String> _segmentsToQuery;
   private final boolean _enableTrace;
+  private final boolean _enableProfile;
   private final String _brokerId;
+  private final ServerQueryRequest _hybridQueryRequest;
+  private final long _timeoutMs;
 
   // Timing information for different phases of query execution
   private final TimerContext _timerContext;
+  // Cancellation and budgets of the query execution
+  private final QueryExecutionContext _executionContext = new QueryExecutionContext();
 
   // Pre-computed segment independent information
   private final Set<String> _allColumns;
@@ -62,14 +73,27 @@ public class ServerQueryRequest {
 
   // Query processing context
   private volatile int _segmentCountAfterPruning = -1;
+  private volatile long _numEntriesScanned = -1;
 
   public ServerQueryRequest(InstanceRequest instanceRequest, ServerMetrics serverMetrics, long queryArrivalTimeMs) {
+    this(instanceRequest, instanceRequest.getQuery(), instanceRequest.getSearchSegments(), serverMetrics,
+        queryArrivalTimeMs, instanceRequest.isSetHybridQuery() ? new ServerQueryRequest(instanceRequest,
+            instanceRequest.getHybridQuery(), instanceRequest.getHybridSearchSegments(), serverMetrics,
+            queryArrivalTimeMs, null) : null);
+  }
+
+  private ServerQueryRequest(InstanceRequest instanceRequest, BrokerRequest brokerRequest,
+      List<String> segmentsToQuery, ServerMetrics serverMetrics, long queryArrivalTimeMs,
+      @Nullable ServerQueryRequest hybridQueryRequest) {
     _requestId = instanceRequest.getRequestId();
-    _brokerRequest = instanceRequest.getQuery();
+    _brokerRequest = brokerRequest;
     _tableNameWithType = _brokerRequest.getQuerySource().getTableName();
-    _segmentsToQuery = instanceRequest.getSearchSegments();
+    _segmentsToQuery = segmentsToQuery;
     _enableTrace = instanceRequest.isEnableTrace();
+    _enableProfile = isEnableProfile(brokerRequest);
     _brokerId = instanceRequest.getBrokerId() != null ? instanceRequest.getBrokerId() : "unknown";
+    _hybridQueryRequest = hybridQueryRequest;
+    _timeoutMs = extractTimeoutMs(brokerRequest);
     _timerContext = new TimerContext(_tableNameWithType, serverMetrics, queryArrivalTimeMs);
 
     // Pre-compute segment independent information
@@ -141,18 +165,71 @@ public class ServerQueryRequest {
     return _segmentsToQuery;
   }
 
+  /**
+   * Returns the number of segments to query, including the segments for the hybrid query.
+   */
+  public int getNumSegmentsToQuery() {
+    int numSegmentsToQuery = _segmentsToQuery.size();
+    if (_hybridQueryRequest != null) {
+      numSegmentsToQuery += _hybridQueryRequest.getNumSegmentsToQuery();
+    }
+    return numSegmentsToQuery;
+  }
+
   public boolean isEnableTrace() {
     return _enableTrace;
   }
 
+  /**
+   * Returns whether the per-operator execution profile is enabled in the query options.
+   */
+  public boolean isEnableProfile() {
+    return _enableProfile;
+  }
+
   public String getBrokerId() {
     return _brokerId;
   }
 
+  /**
+   * Returns the request for the hybrid query on the table of the other type, or {@code null} if there is no hybrid
+   * query.
+   */
+  @Nullable
+  public ServerQueryRequest getHybridQueryRequest() {
+    return _hybridQueryRequest;
+  }
+
+  /**
+   * Returns the query timeout passed by the broker in the query options, or -1 if not available.
+   */
+  public long getTimeoutMs() {
+    return _timeoutMs;
+  }
+
+  /**
+   * Returns the number of entries scanned (in filter and post filter) to process the query, or -1 if the query is not
+   * processed yet.
+   */
+  public long getNumEntriesScanned() {
+    return _numEntriesScanned;
+  }
+
+  public void setNumEntriesScanned(long numEntriesScanned) {
+    _numEntriesScanned = numEntriesScanned;
+  }
+
   public TimerContext getTimerContext() {
     return _timerContext;
   }
 
+  /**
+   * Returns the execution context used to cancel the query and to enforce its budgets.
+   */
+  public QueryExecutionContext getExecutionContext() {
+    return _executionContext;
+  }
+
   public Set<String> getAllColumns() {
     return _allColumns;
   }
@@ -191,4 +268,24 @@ public class ServerQueryRequest {
   public Set<String> getSelectionColumns() {
     return _selectionColumns;
   }
+
+  private static boolean isEnableProfile(BrokerRequest brokerRequest) {
+    Map<String, String> queryOptions = brokerRequest.getQueryOptions();
+    return queryOptions != null && Boolean.parseBoolean(queryOptions.get(QueryOptionKey.PROFILE));
+  }
+
+  private static long extractTimeoutMs(BrokerRequest brokerRequest) {
+    Map<String, String> queryOptions = brokerRequest.getQueryOptions();
+    if (queryOptions != null) {
+      String timeoutMsString = queryOptions.get(QueryOptionKey.TIMEOUT_MS);
+      if (timeoutMsString != null) {
+        try {
+          return Long.parseLong(timeoutMsString);
+        } catch (NumberFormatException e) {
+          // Ignore the invalid timeout
+        }
+      }
+    }
+    return -1L;
+  }
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.request.context;
+
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>QueryExecutionContext</code> class keeps track of the work done by a query on the server, and allows the
+ * query to be cancelled cooperatively.
+ * <p>The context is registered to the threads executing the query (see {@link #register(QueryExecutionContext)}), and
+ * the operators check it at block boundaries. Once the query is cancelled, or exceeds its deadline or one of its
+ * budgets (number of documents scanned, bytes of group-by result holders), the next check throws a
+ * {@link QueryCancelledException} so that all the threads of the query stop processing.
+ * <p>The context also carries the {@link QueryProfile} of the query when profiling is enabled, and the data table
+ * version negotiated with the broker, which is used by the data table builders of the query.
+ */
+public class QueryExecutionContext {
+  private static final ThreadLocal<QueryExecutionContext> CONTEXT = new ThreadLocal<>();
+
+  private final AtomicLong _numDocsScanned = new AtomicLong(0L);
+  private final AtomicLong _groupByBytes = new AtomicLong(0L);
+
+  private volatile long _deadlineMs = Long.MAX_VALUE;
+  private volatile long _maxNumDocsScanned = Long.MAX_VALUE;
+  private volatile long _maxGroupByBytes = Long.MAX_VALUE;
+  private volatile String _terminationReason;
+  private volatile QueryProfile _profile;
+  private volatile int _dataTableVersion = DataTableFactory.DEFAULT_VERSION;
+  private volatile ChunkCompressorFactory.CompressionType _dataTableCompressionType =
+      ChunkCompressorFactory.CompressionType.PASS_THROUGH;
+
+  /**
+   * Returns the context registered to the current thread, or <code>null</code> if no context is registered.
+   */
+  @Nullable
+  public static QueryExecutionContext get() {
+    return CONTEXT.get();
+  }
+
+  /**
+   * Registers the context to the current thread (<code>null</code> clears the registered context).
+   */
+  public static void register(@Nullable QueryExecutionContext context) {
+    if (context != null) {
+      CONTEXT.set(context);
+    } else {
+      CONTEXT.remove();
+    }
+  }
+
+  /**
+   * Un-registers the context from the current thread.
+   */
+  public static void unregister() {
+    CONTEXT.remove();
+  }
+
+  /**
+   * Sets the deadline and the budgets of the query, use {@link Long#MAX_VALUE} for no limit.
+   */
+  public void setBudgets(long deadlineMs, long maxNumDocsScanned, long maxGroupByBytes) {
+    _deadlineMs = deadlineMs;
+    _maxNumDocsScanned = maxNumDocsScanned;
+    _maxGroupByBytes = maxGroupByBytes;
+  }
+
+  /**
+   * Cancels the query, only the first termination reason is kept.
+   */
+  public synchronized void cancel(String reason) {
+    if (_terminationReason == null) {
+      _terminationReason = reason;
+    }
+  }
+
+  public boolean isTerminated() {
+    return _terminationReason != null;
+  }
+
+  @Nullable
+  public String getTerminationReason() {
+    return _terminationReason;
+  }
+
+  /**
+   * Throws a {@link QueryCancelledException} if the query is cancelled or exceeds its deadline.
+   */
+  public void checkTermination() {
+    if (_terminationReason == null && System.currentTimeMillis() > _deadlineMs) {
+      cancel("Query exceeded its deadline: " + _deadlineMs);
+    }
+    String terminationReason = _terminationReason;
+    if (terminationReason != null) {
+      throw new QueryCancelledException(terminationReason);
+    }
+  }
+
+  /**
+   * Adds the number of documents scanned, and terminates the query if it exceeds its budget.
+   */
+  public void addNumDocsScanned(long numDocsScanned) {
+    long totalNumDocsScanned = _numDocsScanned.addAndGet(numDocsScanned);
+    if (totalNumDocsScanned > _maxNumDocsScanned) {
+      cancel("Query exceeded its budget of documents scanned: " + _maxNumDocsScanned);
+      checkTermination();
+    }
+  }
+
+  /**
+   * Adds the (estimated) bytes of group-by result holders, and terminates the query if it exceeds its budget.
+   */
+  public void addGroupByBytes(long groupByBytes) {
+    long totalGroupByBytes = _groupByBytes.addAndGet(groupByBytes);
+    if (totalGroupByBytes > _maxGroupByBytes) {
+      cancel("Query exceeded its budget of group-by bytes: " + _maxGroupByBytes);
+      checkTermination();
+    }
+  }
+
+  /**
+   * Returns the profile of the query, or <code>null</code> if profiling is not enabled.
+   */
+  @Nullable
+  public QueryProfile getProfile() {
+    return _profile;
+  }
+
+  public void setProfile(@Nullable QueryProfile profile) {
+    _profile = profile;
+  }
+
+  /**
+   * Sets the version and the block compression type of the data table to respond with.
+   */
+  public void setDataTableFormat(int dataTableVersion, ChunkCompressorFactory.CompressionType compressionType) {
+    _dataTableVersion = dataTableVersion;
+    _dataTableCompressionType = compressionType;
+  }
+
+  public int getDataTableVersion() {
+    return _dataTableVersion;
+  }
+
+  public ChunkCompressorFactory.CompressionType getDataTableCompressionType() {
+    return _dataTableCompressionType;
+  }
+
+  public long getNumDocsScanned() {
+    return _numDocsScanned.get();
+  }
+
+  public long getGroupByBytes() {
+    return _groupByBytes.get();
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.request.context;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+
+
+/**
+ * The <code>QueryProfile</code> class collects structured per-operator timing and counters for a query, when profiling
+ * is enabled for the query (query option {@code profile=true}).
+ * <p>The counters are keyed by operator (e.g. <code>ScanBasedFilterOperator(ColumnDataSource [column], RANGE)</code>)
+ * and summed across all the segments and threads of the query. Times are inclusive of the child operators. The profile
+ * is returned in the data table metadata as a JSON map from operator to counters, and summed across servers by the
+ * broker.
+ */
+public class QueryProfile {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  // Counters recorded for all operators
+  public static final String NUM_CALLS = "numCalls";
+  public static final String TIME_NS = "timeNs";
+  // Counters recorded by specific operators
+  public static final String NUM_ROWS_IN = "numRowsIn";
+  public static final String NUM_ROWS_OUT = "numRowsOut";
+  public static final String NUM_SEGMENTS = "numSegments";
+  public static final String GROUP_KEY_UPPER_BOUND = "groupKeyUpperBound";
+  public static final String RESULT_HOLDER_BYTES = "resultHolderBytes";
+  public static final String WAIT_TIME_NS = "waitTimeNs";
+
+  private final Map<String, Map<String, LongAdder>> _operatorCounters = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the profile of the query executed by the current thread, or <code>null</code> if profiling is not enabled.
+   */
+  @Nullable
+  public static QueryProfile get() {
+    QueryExecutionContext queryExecutionContext = QueryExecutionContext.get();
+    return queryExecutionContext != null ? queryExecutionContext.getProfile() : null;
+  }
+
+  /**
+   * Records a call to fetch the next block of the operator.
+   */
+  public void addCall(String operator, long timeNs) {
+    add(operator, NUM_CALLS, 1L);
+    add(operator, TIME_NS, timeNs);
+  }
+
+  /**
+   * Records the rows processed by the operator.
+   */
+  public void addRows(String operator, long numRowsIn, long numRowsOut) {
+    add(operator, NUM_ROWS_IN, numRowsIn);
+    add(operator, NUM_ROWS_OUT, numRowsOut);
+  }
+
+  public void add(String operator, String counter, long value) {
+    _operatorCounters.computeIfAbsent(operator, k -> new ConcurrentHashMap<>())
+        .computeIfAbsent(counter, k -> new LongAdder())
+        .add(value);
+  }
+
+  /**
+   * Returns a snapshot of the counters, sorted by operator and counter.
+   */
+  public Map<String, Map<String, Long>> getCounters() {
+    Map<String, Map<String, Long>> counters = new TreeMap<>();
+    for (Map.Entry<String, Map<String, LongAdder>> operatorEntry : _operatorCounters.entrySet()) {
+      Map<String, Long> operatorCounters = new TreeMap<>();
+      for (Map.Entry<String, LongAdder> counterEntry : operatorEntry.getValue().entrySet()) {
+        operatorCounters.put(counterEntry.getKey(), counterEntry.getValue().sum());
+      }
+      counters.put(operatorEntry.getKey(), operatorCounters);
+    }
+    return counters;
+  }
+
+  public String toJsonString() throws IOException {
+    return OBJECT_MAPPER.writeValueAsString(getCounters());
+  }
+
+  /**
+   * Parses the counters serialized by {@link #toJsonString()}, and adds them into the given counters.
+   */
+  public static void mergeJsonString(Map<String, Map<String, Long>> counters, String jsonString) throws IOException {
+    Map<String, Map<String, Long>> countersToMerge =
+        OBJECT_MAPPER.readValue(jsonString, new TypeReference<Map<String, Map<String, Long>>>() {
+        });
+    for (Map.Entry<String, Map<String, Long>> operatorEntry : countersToMerge.entrySet()) {
+      Map<String, Long> operatorCounters = counters.computeIfAbsent(operatorEntry.getKey(), k -> new TreeMap<>());
+      for (Map.Entry<String, Long> counterEntry : operatorEntry.getValue().entrySet()) {
+        operatorCounters.merge(counterEntry.getKey(), counterEntry.getValue(), Long::sum);
+      }
+    }
+  }
+}
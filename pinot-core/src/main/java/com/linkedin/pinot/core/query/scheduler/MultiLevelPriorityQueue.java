@@ -142,6 +142,19 @@ public class MultiLevelPriorityQueue implements SchedulerPriorityQueue {
     return pending;
   }
 
+  /**
+   * Returns a snapshot of the scheduler groups in the queue.
+   */
+  @Nonnull
+  public List<SchedulerGroup> getSchedulerGroups() {
+    queueLock.lock();
+    try {
+      return new ArrayList<>(schedulerGroups.values());
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
   private SchedulerQueryContext takeNextInternal() {
     SchedulerGroup currentWinnerGroup = null;
     long startTime = System.nanoTime();
@@ -194,7 +207,7 @@ public class MultiLevelPriorityQueue implements SchedulerPriorityQueue {
       if (LOGGER.isDebugEnabled()) {
         sb.append(String.format(" Winner: %s: [%d,%d,%d,%d]", currentWinnerGroup.name(),
             queryRequest.getTimerContext().getQueryArrivalTimeMs(), queryRequest.getRequestId(),
-            queryRequest.getSegmentsToQuery().size(), startTime));
+            queryRequest.getNumSegmentsToQuery(), startTime));
       }
       query = currentWinnerGroup.removeFirst();
     }
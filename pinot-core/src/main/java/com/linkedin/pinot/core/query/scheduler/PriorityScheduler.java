@@ -68,6 +68,10 @@ public abstract class PriorityScheduler extends QueryScheduler {
     }
     queryRequest.getTimerContext().startNewPhaseTimer(ServerQueryPhase.SCHEDULER_WAIT);
     final SchedulerQueryContext schedQueryContext = new SchedulerQueryContext(queryRequest);
+    ListenableFuture<byte[]> rejectedResponse = rejectOnSubmit(schedQueryContext);
+    if (rejectedResponse != null) {
+      return rejectedResponse;
+    }
     try {
       queryQueue.put(schedQueryContext);
     } catch (OutOfCapacityException e) {
@@ -101,6 +105,12 @@ public abstract class PriorityScheduler extends QueryScheduler {
               continue;
             }
             ServerQueryRequest queryRequest = request.getQueryRequest();
+            ListenableFuture<byte[]> rejectedResponse = rejectBeforeExecution(request);
+            if (rejectedResponse != null) {
+              request.setResultFuture(rejectedResponse);
+              runningQueriesSemaphore.release();
+              continue;
+            }
             final QueryExecutorService executor = resourceManager.getExecutorService(queryRequest,
                 request.getSchedulerGroup());
             final ListenableFutureTask<byte[]> queryFutureTask = createQueryFutureTask(queryRequest, executor);
@@ -109,6 +119,7 @@ public abstract class PriorityScheduler extends QueryScheduler {
               public void run() {
                 executor.releaseWorkers();
                 request.getSchedulerGroup().endQuery();
+                onQueryFinished(request);
                 runningQueriesSemaphore.release();
                 checkStopResourceManager();
                 if (!isRunning && runningQueriesSemaphore.availablePermits() == numRunners) {
@@ -137,6 +148,30 @@ public abstract class PriorityScheduler extends QueryScheduler {
     scheduler.start();
   }
 
+  /**
+   * Invoked when the query is submitted, before putting it into the queue. Returns an error response to reject the
+   * query, or {@code null} to accept it.
+   */
+  @Nullable
+  protected ListenableFuture<byte[]> rejectOnSubmit(@Nonnull SchedulerQueryContext queryContext) {
+    return null;
+  }
+
+  /**
+   * Invoked when the query is taken from the queue, before executing it. Returns an error response to reject the
+   * query, or {@code null} to execute it.
+   */
+  @Nullable
+  protected ListenableFuture<byte[]> rejectBeforeExecution(@Nonnull SchedulerQueryContext queryContext) {
+    return null;
+  }
+
+  /**
+   * Invoked after the query is executed.
+   */
+  protected void onQueryFinished(@Nonnull SchedulerQueryContext queryContext) {
+  }
+
   @Override
   public void stop() {
     super.stop();
@@ -18,6 +18,7 @@ package com.linkedin.pinot.core.query.scheduler;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.core.query.executor.QueryExecutor;
+import com.linkedin.pinot.core.query.scheduler.deadline.DeadlinePriorityScheduler;
 import com.linkedin.pinot.core.query.scheduler.fcfs.BoundedFCFSScheduler;
 import com.linkedin.pinot.core.query.scheduler.fcfs.FCFSQueryScheduler;
 import com.linkedin.pinot.core.query.scheduler.tokenbucket.TokenPriorityScheduler;
@@ -38,6 +39,7 @@ public class QuerySchedulerFactory {
   private static final String DEFAULT_QUERY_SCHEDULER_ALGORITHM = FCFS_ALGORITHM;
   public static final String TOKEN_BUCKET_ALGORITHM = "tokenbucket";
   public static final String BOUNDED_FCFS_ALGORITHM = "bounded_fcfs";
+  public static final String DEADLINE_ALGORITHM = "deadline";
   public static final String ALGORITHM_NAME_CONFIG_KEY = "name";
   private static Logger LOGGER = LoggerFactory.getLogger(QuerySchedulerFactory.class);
 
@@ -64,6 +66,9 @@ public class QuerySchedulerFactory {
       return TokenPriorityScheduler.create(schedulerConfig, queryExecutor, serverMetrics, latestQueryTime);
     } else if (schedulerName.equals(BOUNDED_FCFS_ALGORITHM)) {
       return BoundedFCFSScheduler.create(schedulerConfig, queryExecutor, serverMetrics, latestQueryTime);
+    } else if (schedulerName.equals(DEADLINE_ALGORITHM)) {
+      LOGGER.info("Using Deadline scheduler");
+      return DeadlinePriorityScheduler.create(schedulerConfig, queryExecutor, serverMetrics, latestQueryTime);
     }
 
     // didn't find by name so try by classname
@@ -31,6 +31,10 @@ public class SchedulerQueryContext {
   private final ServerQueryRequest queryRequest;
   private final SettableFuture<byte[]> resultFuture;
   private SchedulerGroup schedulerGroup;
+  // Estimated cost of the query (-1 if not estimated) and the deadline for the query to finish, set by schedulers
+  // scheduling queries by cost and deadline
+  private long estimatedCost = -1;
+  private long deadlineMs = Long.MAX_VALUE;
 
   public SchedulerQueryContext(@Nonnull ServerQueryRequest queryRequest) {
     Preconditions.checkNotNull(queryRequest);
@@ -60,6 +64,22 @@ public class SchedulerQueryContext {
     return schedulerGroup;
   }
 
+  public long getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  public void setEstimatedCost(long estimatedCost) {
+    this.estimatedCost = estimatedCost;
+  }
+
+  public long getDeadlineMs() {
+    return deadlineMs;
+  }
+
+  public void setDeadlineMs(long deadlineMs) {
+    this.deadlineMs = deadlineMs;
+  }
+
   /**
    * Convenience method to get query arrival time
    * @return
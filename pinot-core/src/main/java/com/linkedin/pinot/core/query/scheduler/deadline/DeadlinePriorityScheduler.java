@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.deadline;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.metrics.ServerQueryPhase;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.core.query.executor.QueryExecutor;
+import com.linkedin.pinot.core.query.request.ServerQueryRequest;
+import com.linkedin.pinot.core.query.scheduler.MultiLevelPriorityQueue;
+import com.linkedin.pinot.core.query.scheduler.PriorityScheduler;
+import com.linkedin.pinot.core.query.scheduler.SchedulerGroup;
+import com.linkedin.pinot.core.query.scheduler.SchedulerGroupFactory;
+import com.linkedin.pinot.core.query.scheduler.SchedulerQueryContext;
+import com.linkedin.pinot.core.query.scheduler.TableBasedGroupMapper;
+import com.linkedin.pinot.core.query.scheduler.resources.PolicyBasedResourceManager;
+import com.linkedin.pinot.core.query.scheduler.resources.ResourceManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Schedules queries in the order of their deadline (earliest deadline first), and sheds the queries that are predicted
+ * to miss their deadline instead of letting them wait in the queue.
+ *
+ * The deadline of a query is its arrival time plus the timeout passed by the broker in the query options (or the
+ * configured default timeout). The cost of each query is estimated before queueing it from the segment metadata
+ * (see {@link QueryExecutor#estimateQueryCost(ServerQueryRequest)}), and converted into time with the processing time
+ * per unit of cost learnt from the finished queries. A query is rejected when it is submitted, or when it is taken
+ * from the queue, if the time to drain the queries ahead of it plus its own processing time exceeds its deadline.
+ * The queries ahead of a new query are the pending queries with a deadline no later than its deadline, plus the
+ * remaining work of the running queries.
+ */
+public class DeadlinePriorityScheduler extends PriorityScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeadlinePriorityScheduler.class);
+
+  public static final String DEFAULT_QUERY_TIMEOUT_MS_KEY = "default_query_timeout_ms";
+  public static final String LOAD_SHEDDING_ENABLED_KEY = "load_shedding_enabled";
+  // Initial processing time per unit of cost, before learning from the finished queries
+  public static final String INITIAL_NANOS_PER_COST_KEY = "initial_nanos_per_cost";
+  private static final double DEFAULT_INITIAL_NANOS_PER_COST = 10.0;
+  // Weight of the latest query when updating the processing time per unit of cost
+  private static final double NANOS_PER_COST_ALPHA = 0.1;
+
+  private final long defaultQueryTimeoutMs;
+  private final boolean loadSheddingEnabled;
+  private final int numRunners;
+  // Start time (in nanoseconds) of the running queries
+  private final Map<SchedulerQueryContext, Long> runningQueryStartTimeNs = new ConcurrentHashMap<>();
+  private volatile double nanosPerCost;
+
+  public static DeadlinePriorityScheduler create(@Nonnull Configuration config, @Nonnull QueryExecutor queryExecutor,
+      @Nonnull ServerMetrics metrics, @Nonnull LongAccumulator latestQueryTime) {
+    final ResourceManager rm = new PolicyBasedResourceManager(config);
+    final SchedulerGroupFactory groupFactory = new SchedulerGroupFactory() {
+      @Override
+      public SchedulerGroup create(Configuration config, String groupName) {
+        return new DeadlineSchedulerGroup(groupName);
+      }
+    };
+
+    MultiLevelPriorityQueue queue = new MultiLevelPriorityQueue(config, rm, groupFactory, new TableBasedGroupMapper());
+    return new DeadlinePriorityScheduler(config, rm, queryExecutor, queue, metrics, latestQueryTime);
+  }
+
+  @VisibleForTesting
+  DeadlinePriorityScheduler(@Nonnull Configuration config, @Nonnull ResourceManager resourceManager,
+      @Nonnull QueryExecutor queryExecutor, @Nonnull MultiLevelPriorityQueue queue, @Nonnull ServerMetrics metrics,
+      @Nonnull LongAccumulator latestQueryTime) {
+    super(resourceManager, queryExecutor, queue, metrics, latestQueryTime);
+    defaultQueryTimeoutMs =
+        config.getLong(DEFAULT_QUERY_TIMEOUT_MS_KEY, CommonConstants.Server.DEFAULT_QUERY_EXECUTOR_TIMEOUT_MS);
+    loadSheddingEnabled = config.getBoolean(LOAD_SHEDDING_ENABLED_KEY, true);
+    nanosPerCost = config.getDouble(INITIAL_NANOS_PER_COST_KEY, DEFAULT_INITIAL_NANOS_PER_COST);
+    numRunners = Math.max(resourceManager.getNumQueryRunnerThreads(), 1);
+  }
+
+  @Nullable
+  @Override
+  protected ListenableFuture<byte[]> rejectOnSubmit(@Nonnull SchedulerQueryContext queryContext) {
+    ServerQueryRequest queryRequest = queryContext.getQueryRequest();
+    long timeoutMs = queryRequest.getTimeoutMs();
+    if (timeoutMs <= 0) {
+      timeoutMs = defaultQueryTimeoutMs;
+    }
+    queryContext.setDeadlineMs(queryContext.getArrivalTimeMs() + timeoutMs);
+    queryContext.setEstimatedCost(queryExecutor.estimateQueryCost(queryRequest));
+    if (!loadSheddingEnabled) {
+      return null;
+    }
+
+    // Pending queries scheduled before this one (earliest deadline first) and the remaining work of the running queries
+    // are drained by all the runner threads in parallel
+    long costAhead = getPendingCost(queryContext.getDeadlineMs()) + getRemainingRunningCost();
+    long predictedFinishTimeMs = System.currentTimeMillis() + toMillis(costAhead / numRunners + getCost(queryContext));
+    if (predictedFinishTimeMs > queryContext.getDeadlineMs()) {
+      return shed(queryContext, null, predictedFinishTimeMs);
+    }
+    return null;
+  }
+
+  @Nullable
+  @Override
+  protected ListenableFuture<byte[]> rejectBeforeExecution(@Nonnull SchedulerQueryContext queryContext) {
+    DeadlineSchedulerGroup group = (DeadlineSchedulerGroup) queryContext.getSchedulerGroup();
+    long now = System.currentTimeMillis();
+    if (loadSheddingEnabled) {
+      long predictedFinishTimeMs = now + toMillis(getCost(queryContext));
+      if (predictedFinishTimeMs > queryContext.getDeadlineMs()) {
+        return shed(queryContext, group, predictedFinishTimeMs);
+      }
+    }
+    group.onQueryScheduled(now - queryContext.getArrivalTimeMs());
+    runningQueryStartTimeNs.put(queryContext, System.nanoTime());
+    return null;
+  }
+
+  @Override
+  protected void onQueryFinished(@Nonnull SchedulerQueryContext queryContext) {
+    long cost = getCost(queryContext);
+    runningQueryStartTimeNs.remove(queryContext);
+    ServerQueryRequest queryRequest = queryContext.getQueryRequest();
+    long processingTimeMs = queryRequest.getTimerContext().getPhaseDurationMs(ServerQueryPhase.QUERY_PROCESSING);
+    ((DeadlineSchedulerGroup) queryContext.getSchedulerGroup()).onQueryFinished(cost,
+        queryRequest.getNumEntriesScanned(), processingTimeMs);
+    if (cost > 0 && processingTimeMs >= 0) {
+      updateNanosPerCost((double) TimeUnit.MILLISECONDS.toNanos(processingTimeMs) / cost);
+    }
+  }
+
+  private synchronized void updateNanosPerCost(double latestNanosPerCost) {
+    nanosPerCost = NANOS_PER_COST_ALPHA * latestNanosPerCost + (1 - NANOS_PER_COST_ALPHA) * nanosPerCost;
+  }
+
+  private ListenableFuture<byte[]> shed(SchedulerQueryContext queryContext, @Nullable DeadlineSchedulerGroup group,
+      long predictedFinishTimeMs) {
+    ServerQueryRequest queryRequest = queryContext.getQueryRequest();
+    String errorMessage = String.format(
+        "Query %d for table %s predicted to finish at %d after its deadline %d (estimated cost: %d), shed by scheduler",
+        queryRequest.getRequestId(), queryRequest.getTableNameWithType(), predictedFinishTimeMs,
+        queryContext.getDeadlineMs(), queryContext.getEstimatedCost());
+    LOGGER.debug(errorMessage);
+    if (group != null) {
+      group.onQueryShed();
+    }
+    serverMetrics.addMeteredTableValue(queryRequest.getTableNameWithType(), ServerMeter.QUERIES_SHED_BY_SCHEDULER, 1);
+    return immediateErrorResponse(queryRequest,
+        QueryException.getException(QueryException.QUERY_SCHEDULING_TIMEOUT_ERROR, errorMessage));
+  }
+
+  /**
+   * Returns the estimated cost of the pending queries across all the groups with deadline no later than the given
+   * deadline.
+   */
+  private long getPendingCost(long deadlineMs) {
+    long pendingCost = 0;
+    for (SchedulerGroup group : ((MultiLevelPriorityQueue) queryQueue).getSchedulerGroups()) {
+      pendingCost += ((DeadlineSchedulerGroup) group).getPendingCost(deadlineMs);
+    }
+    return pendingCost;
+  }
+
+  /**
+   * Returns the estimated remaining cost of the running queries, which is their estimated cost minus the cost already
+   * processed since they started (converted from the elapsed time).
+   */
+  private long getRemainingRunningCost() {
+    long now = System.nanoTime();
+    double nanosPerCost = this.nanosPerCost;
+    long remainingCost = 0;
+    for (Map.Entry<SchedulerQueryContext, Long> entry : runningQueryStartTimeNs.entrySet()) {
+      long processedCost = (long) ((now - entry.getValue()) / nanosPerCost);
+      remainingCost += Math.max(getCost(entry.getKey()) - processedCost, 0L);
+    }
+    return remainingCost;
+  }
+
+  private static long getCost(SchedulerQueryContext queryContext) {
+    return Math.max(queryContext.getEstimatedCost(), 0L);
+  }
+
+  private long toMillis(long cost) {
+    return (long) (cost * nanosPerCost / TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  @VisibleForTesting
+  double getNanosPerCost() {
+    return nanosPerCost;
+  }
+
+  /**
+   * Returns the stats of all the scheduler groups.
+   */
+  @Nonnull
+  public List<SchedulerGroupStats> getSchedulerGroupStats() {
+    List<SchedulerGroup> groups = ((MultiLevelPriorityQueue) queryQueue).getSchedulerGroups();
+    List<SchedulerGroupStats> stats = new ArrayList<>(groups.size());
+    for (SchedulerGroup group : groups) {
+      stats.add(new SchedulerGroupStats((DeadlineSchedulerGroup) group));
+    }
+    return stats;
+  }
+
+  @Override
+  public String name() {
+    return "Deadline";
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.deadline;
+
+import com.linkedin.pinot.core.query.scheduler.AbstractSchedulerGroup;
+import com.linkedin.pinot.core.query.scheduler.SchedulerGroup;
+import com.linkedin.pinot.core.query.scheduler.SchedulerGroupAccountant;
+import com.linkedin.pinot.core.query.scheduler.SchedulerQueryContext;
+import com.linkedin.pinot.core.query.scheduler.fcfs.FCFSSchedulerGroup;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Scheduler group that orders the pending queries by deadline (earliest deadline first), and keeps track of the
+ * estimated cost of the pending queries.
+ *
+ * Between groups, the group with the earliest deadline for its first pending query has higher priority. Groups
+ * with the same deadline fall back to arrival time ordering.
+ */
+public class DeadlineSchedulerGroup extends AbstractSchedulerGroup {
+  private static final Comparator<SchedulerQueryContext> DEADLINE_COMPARATOR =
+      Comparator.comparingLong(SchedulerQueryContext::getDeadlineMs)
+          .thenComparingLong(SchedulerQueryContext::getArrivalTimeMs);
+
+  // Pending queries of this group ordered by deadline, used instead of the arrival ordered queue of the base class
+  private final PriorityBlockingQueue<SchedulerQueryContext> deadlineQueue =
+      new PriorityBlockingQueue<>(11, DEADLINE_COMPARATOR);
+  // Estimated cost of the pending queries of this group
+  private final AtomicLong pendingCost = new AtomicLong(0);
+
+  // Stats for the queries of this group
+  private final AtomicLong numQueriesScheduled = new AtomicLong(0);
+  private final AtomicLong totalQueueWaitMs = new AtomicLong(0);
+  private final AtomicLong numQueriesFinished = new AtomicLong(0);
+  private final AtomicLong totalEstimatedCost = new AtomicLong(0);
+  private final AtomicLong totalNumEntriesScanned = new AtomicLong(0);
+  private final AtomicLong totalProcessingTimeMs = new AtomicLong(0);
+  private final AtomicLong numQueriesShed = new AtomicLong(0);
+
+  DeadlineSchedulerGroup(@Nonnull String name) {
+    super(name);
+  }
+
+  @Override
+  public void addLast(SchedulerQueryContext query) {
+    addPendingCost(query, 1);
+    deadlineQueue.add(query);
+  }
+
+  @Override
+  public SchedulerQueryContext peekFirst() {
+    return deadlineQueue.peek();
+  }
+
+  @Override
+  public SchedulerQueryContext removeFirst() {
+    SchedulerQueryContext query = deadlineQueue.poll();
+    if (query != null) {
+      addPendingCost(query, -1);
+    }
+    return query;
+  }
+
+  @Override
+  public void trimExpired(long deadlineMillis) {
+    Iterator<SchedulerQueryContext> iter = deadlineQueue.iterator();
+    while (iter.hasNext()) {
+      SchedulerQueryContext next = iter.next();
+      if (next.getArrivalTimeMs() < deadlineMillis) {
+        iter.remove();
+        addPendingCost(next, -1);
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return deadlineQueue.isEmpty();
+  }
+
+  @Override
+  public int numPending() {
+    return deadlineQueue.size();
+  }
+
+  private void addPendingCost(SchedulerQueryContext query, int sign) {
+    pendingCost.addAndGet(Math.max(query.getEstimatedCost(), 0L) * sign);
+  }
+
+  /**
+   * Returns the estimated cost of the pending queries with deadline no later than the given deadline, which are
+   * scheduled before a query with that deadline.
+   */
+  long getPendingCost(long deadlineMs) {
+    long cost = 0;
+    for (SchedulerQueryContext query : deadlineQueue) {
+      if (query.getDeadlineMs() <= deadlineMs) {
+        cost += Math.max(query.getEstimatedCost(), 0L);
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * Group that has pending query with earlier deadline has higher priority.
+   * @param rhs
+   * @return 1 if this has earlier deadline than rhs
+   *         -1 if this has later deadline than rhs
+   *         result of arrival time comparison if deadlines are equal
+   */
+  @Override
+  public int compareTo(SchedulerGroupAccountant rhs) {
+    if (rhs == this) {
+      return 0;
+    }
+    if (rhs == null) {
+      return 1;
+    }
+    SchedulerQueryContext lhsFirst = peekFirst();
+    SchedulerQueryContext rhsFirst = ((SchedulerGroup) rhs).peekFirst();
+    if (lhsFirst != null && rhsFirst != null && lhsFirst.getDeadlineMs() != rhsFirst.getDeadlineMs()) {
+      return Long.compare(rhsFirst.getDeadlineMs(), lhsFirst.getDeadlineMs());
+    }
+    return FCFSSchedulerGroup.compare(this, (SchedulerGroup) rhs);
+  }
+
+  void onQueryScheduled(long queueWaitMs) {
+    numQueriesScheduled.incrementAndGet();
+    totalQueueWaitMs.addAndGet(queueWaitMs);
+  }
+
+  void onQueryFinished(long estimatedCost, long numEntriesScanned, long processingTimeMs) {
+    numQueriesFinished.incrementAndGet();
+    totalEstimatedCost.addAndGet(Math.max(estimatedCost, 0L));
+    totalNumEntriesScanned.addAndGet(Math.max(numEntriesScanned, 0L));
+    totalProcessingTimeMs.addAndGet(Math.max(processingTimeMs, 0L));
+  }
+
+  void onQueryShed() {
+    numQueriesShed.incrementAndGet();
+  }
+
+  long getPendingCost() {
+    return pendingCost.get();
+  }
+
+  long getNumQueriesScheduled() {
+    return numQueriesScheduled.get();
+  }
+
+  long getTotalQueueWaitMs() {
+    return totalQueueWaitMs.get();
+  }
+
+  long getNumQueriesFinished() {
+    return numQueriesFinished.get();
+  }
+
+  long getTotalEstimatedCost() {
+    return totalEstimatedCost.get();
+  }
+
+  long getTotalNumEntriesScanned() {
+    return totalNumEntriesScanned.get();
+  }
+
+  long getTotalProcessingTimeMs() {
+    return totalProcessingTimeMs.get();
+  }
+
+  long getNumQueriesShed() {
+    return numQueriesShed.get();
+  }
+}
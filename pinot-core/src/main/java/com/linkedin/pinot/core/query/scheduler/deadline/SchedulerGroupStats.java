@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.deadline;
+
+/**
+ * Snapshot of the stats of a {@link DeadlineSchedulerGroup}, used to tune the scheduler.
+ */
+public class SchedulerGroupStats {
+  private final String name;
+  private final int numPending;
+  private final int numRunning;
+  private final long pendingCost;
+  private final long numQueriesScheduled;
+  private final long avgQueueWaitMs;
+  private final long numQueriesFinished;
+  private final long avgEstimatedCost;
+  private final long avgNumEntriesScanned;
+  private final long avgProcessingTimeMs;
+  private final long numQueriesShed;
+
+  SchedulerGroupStats(DeadlineSchedulerGroup group) {
+    name = group.name();
+    numPending = group.numPending();
+    numRunning = group.numRunning();
+    pendingCost = group.getPendingCost();
+    numQueriesScheduled = group.getNumQueriesScheduled();
+    avgQueueWaitMs = numQueriesScheduled > 0 ? group.getTotalQueueWaitMs() / numQueriesScheduled : 0;
+    numQueriesFinished = group.getNumQueriesFinished();
+    avgEstimatedCost = numQueriesFinished > 0 ? group.getTotalEstimatedCost() / numQueriesFinished : 0;
+    avgNumEntriesScanned = numQueriesFinished > 0 ? group.getTotalNumEntriesScanned() / numQueriesFinished : 0;
+    avgProcessingTimeMs = numQueriesFinished > 0 ? group.getTotalProcessingTimeMs() / numQueriesFinished : 0;
+    numQueriesShed = group.getNumQueriesShed();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getNumPending() {
+    return numPending;
+  }
+
+  public int getNumRunning() {
+    return numRunning;
+  }
+
+  public long getPendingCost() {
+    return pendingCost;
+  }
+
+  public long getNumQueriesScheduled() {
+    return numQueriesScheduled;
+  }
+
+  public long getAvgQueueWaitMs() {
+    return avgQueueWaitMs;
+  }
+
+  public long getNumQueriesFinished() {
+    return numQueriesFinished;
+  }
+
+  public long getAvgEstimatedCost() {
+    return avgEstimatedCost;
+  }
+
+  public long getAvgNumEntriesScanned() {
+    return avgNumEntriesScanned;
+  }
+
+  public long getAvgProcessingTimeMs() {
+    return avgProcessingTimeMs;
+  }
+
+  public long getNumQueriesShed() {
+    return numQueriesShed;
+  }
+}
@@ -0,0 +1,457 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.selection;
+
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.common.utils.primitive.ByteArray;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.DataSourceMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
+import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>DocIdTopKHeap</code> class keeps the top K document ids of a segment for selection queries with
+ * <code>ORDER BY</code>. (Inner segment)
+ * <p>The sort keys are stored column by column in primitive arrays indexed by heap slot: dictionary ids for columns
+ * with sorted dictionary, values otherwise. While scanning, documents are compared using the values fetched in batch
+ * for the block, so that no value is boxed and no row is materialized. The selection rows are only fetched for the
+ * surviving document ids after the segment is scanned (late materialization).
+ * <p>The root of the heap is the document ranked last, which is the one to be replaced by a better document.
+ */
+public class DocIdTopKHeap {
+  private final int _maxNumDocs;
+  private final SortColumn[] _sortColumns;
+  // Document id for each slot
+  private final int[] _docIds;
+  // Slot for each heap position
+  private final int[] _heap;
+  private int _size = 0;
+
+  public DocIdTopKHeap(@Nonnull List<SelectionSort> sortSequence, @Nonnull IndexSegment indexSegment,
+      int maxNumDocs) {
+    _maxNumDocs = maxNumDocs;
+    int numSortColumns = sortSequence.size();
+    _sortColumns = new SortColumn[numSortColumns];
+    for (int i = 0; i < numSortColumns; i++) {
+      SelectionSort selectionSort = sortSequence.get(i);
+      String column = selectionSort.getColumn();
+      _sortColumns[i] =
+          createSortColumn(column, selectionSort.isIsAsc(), indexSegment.getDataSource(column), maxNumDocs);
+    }
+    _docIds = new int[maxNumDocs];
+    _heap = new int[maxNumDocs];
+  }
+
+  private static SortColumn createSortColumn(String column, boolean ascending, DataSource dataSource,
+      int maxNumDocs) {
+    DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
+
+    // Only compare single-value columns
+    if (!dataSourceMetadata.isSingleValue()) {
+      return new SortColumn(column, ascending);
+    }
+
+    // Dictionary ids follow the value order for sorted dictionary
+    Dictionary dictionary = dataSource.getDictionary();
+    if (dictionary != null && dictionary.isSorted()) {
+      return new IntSortColumn(column, ascending, maxNumDocs, true);
+    }
+
+    switch (dataSourceMetadata.getDataType().getStoredType()) {
+      case INT:
+        return new IntSortColumn(column, ascending, maxNumDocs, false);
+      case LONG:
+        return new LongSortColumn(column, ascending, maxNumDocs);
+      case FLOAT:
+        return new FloatSortColumn(column, ascending, maxNumDocs);
+      case DOUBLE:
+        return new DoubleSortColumn(column, ascending, maxNumDocs);
+      case STRING:
+        return new StringSortColumn(column, ascending, maxNumDocs);
+      case BYTES:
+        return new BytesSortColumn(column, ascending, maxNumDocs);
+      default:
+        return new SortColumn(column, ascending);
+    }
+  }
+
+  /**
+   * Add the documents in the given projection block into the heap.
+   *
+   * @param projectionBlock projection block.
+   * @return number of documents in the projection block.
+   */
+  public int addBlock(@Nonnull ProjectionBlock projectionBlock) {
+    DocIdSetBlock docIdSetBlock = projectionBlock.getDocIdSetBlock();
+    int[] docIds = docIdSetBlock.getDocIdSet();
+    int length = docIdSetBlock.getSearchableLength();
+    if (_maxNumDocs == 0) {
+      return length;
+    }
+
+    for (SortColumn sortColumn : _sortColumns) {
+      sortColumn.fetchBlockValues(projectionBlock.getBlockValueSet(sortColumn._column));
+    }
+
+    int index = 0;
+
+    // Fill the heap
+    while (index < length && _size < _maxNumDocs) {
+      int slot = _size;
+      copyToSlot(index, slot, docIds[index]);
+      _heap[_size] = slot;
+      siftUp(_size++);
+      index++;
+    }
+
+    // Replace the root when the document is ranked before it
+    while (index < length) {
+      int rootSlot = _heap[0];
+      if (compareWithSlot(index, rootSlot) < 0) {
+        copyToSlot(index, rootSlot, docIds[index]);
+        siftDown(0);
+      }
+      index++;
+    }
+
+    return length;
+  }
+
+  /**
+   * Returns the surviving document ids in ascending order, so that the selection rows can be fetched sequentially.
+   */
+  @Nonnull
+  public int[] getSortedDocIds() {
+    int[] docIds = Arrays.copyOf(_docIds, _size);
+    Arrays.sort(docIds);
+    return docIds;
+  }
+
+  /**
+   * Returns whether the documents with first sort column dictionary id ranked at or after the given dictionary id
+   * cannot get into the heap. Only applies when the first sort column is compared with dictionary ids.
+   *
+   * @param dictId best dictionary id of the first sort column among the documents to skip.
+   */
+  public boolean canSkipFirstSortDictId(int dictId) {
+    if (_size < _maxNumDocs || _size == 0) {
+      return false;
+    }
+    SortColumn firstSortColumn = _sortColumns[0];
+    if (!(firstSortColumn instanceof IntSortColumn) || !((IntSortColumn) firstSortColumn)._useDictIds) {
+      return false;
+    }
+    IntSortColumn intSortColumn = (IntSortColumn) firstSortColumn;
+    return intSortColumn.applyOrder(Integer.compare(dictId, intSortColumn._values[_heap[0]])) > 0;
+  }
+
+  /**
+   * Returns the number of documents in the heap.
+   */
+  public int size() {
+    return _size;
+  }
+
+  private void copyToSlot(int index, int slot, int docId) {
+    _docIds[slot] = docId;
+    for (SortColumn sortColumn : _sortColumns) {
+      sortColumn.copyToSlot(index, slot);
+    }
+  }
+
+  /**
+   * Compares the document at the given index of the current block with the document in the given slot, returns
+   * negative value if the document in the block is ranked before.
+   */
+  private int compareWithSlot(int index, int slot) {
+    for (SortColumn sortColumn : _sortColumns) {
+      int result = sortColumn.compareWithSlot(index, slot);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Compares the documents in the given slots, returns negative value if the document in the first slot is ranked
+   * before.
+   */
+  private int compareSlots(int slot1, int slot2) {
+    for (SortColumn sortColumn : _sortColumns) {
+      int result = sortColumn.compareSlots(slot1, slot2);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  private void siftUp(int position) {
+    int slot = _heap[position];
+    while (position > 0) {
+      int parentPosition = (position - 1) >>> 1;
+      int parentSlot = _heap[parentPosition];
+      if (compareSlots(parentSlot, slot) >= 0) {
+        break;
+      }
+      _heap[position] = parentSlot;
+      position = parentPosition;
+    }
+    _heap[position] = slot;
+  }
+
+  private void siftDown(int position) {
+    int slot = _heap[position];
+    int half = _size >>> 1;
+    while (position < half) {
+      int childPosition = (position << 1) + 1;
+      int childSlot = _heap[childPosition];
+      int rightPosition = childPosition + 1;
+      if (rightPosition < _size && compareSlots(_heap[rightPosition], childSlot) > 0) {
+        childPosition = rightPosition;
+        childSlot = _heap[childPosition];
+      }
+      if (compareSlots(slot, childSlot) >= 0) {
+        break;
+      }
+      _heap[position] = childSlot;
+      position = childPosition;
+    }
+    _heap[position] = slot;
+  }
+
+  /**
+   * Sort column that cannot be compared (e.g. multi-value column), which does not affect the ordering.
+   */
+  private static class SortColumn {
+    final String _column;
+    final boolean _ascending;
+
+    SortColumn(String column, boolean ascending) {
+      _column = column;
+      _ascending = ascending;
+    }
+
+    void fetchBlockValues(BlockValSet blockValSet) {
+    }
+
+    void copyToSlot(int index, int slot) {
+    }
+
+    int compareWithSlot(int index, int slot) {
+      return 0;
+    }
+
+    int compareSlots(int slot1, int slot2) {
+      return 0;
+    }
+
+    int applyOrder(int result) {
+      return _ascending ? result : -result;
+    }
+  }
+
+  private static final class IntSortColumn extends SortColumn {
+    final boolean _useDictIds;
+    final int[] _values;
+    int[] _blockValues;
+
+    IntSortColumn(String column, boolean ascending, int maxNumDocs, boolean useDictIds) {
+      super(column, ascending);
+      _useDictIds = useDictIds;
+      _values = new int[maxNumDocs];
+    }
+
+    @Override
+    void fetchBlockValues(BlockValSet blockValSet) {
+      _blockValues = _useDictIds ? blockValSet.getDictionaryIdsSV() : blockValSet.getIntValuesSV();
+    }
+
+    @Override
+    void copyToSlot(int index, int slot) {
+      _values[slot] = _blockValues[index];
+    }
+
+    @Override
+    int compareWithSlot(int index, int slot) {
+      return applyOrder(Integer.compare(_blockValues[index], _values[slot]));
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return applyOrder(Integer.compare(_values[slot1], _values[slot2]));
+    }
+  }
+
+  private static final class LongSortColumn extends SortColumn {
+    final long[] _values;
+    long[] _blockValues;
+
+    LongSortColumn(String column, boolean ascending, int maxNumDocs) {
+      super(column, ascending);
+      _values = new long[maxNumDocs];
+    }
+
+    @Override
+    void fetchBlockValues(BlockValSet blockValSet) {
+      _blockValues = blockValSet.getLongValuesSV();
+    }
+
+    @Override
+    void copyToSlot(int index, int slot) {
+      _values[slot] = _blockValues[index];
+    }
+
+    @Override
+    int compareWithSlot(int index, int slot) {
+      return applyOrder(Long.compare(_blockValues[index], _values[slot]));
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return applyOrder(Long.compare(_values[slot1], _values[slot2]));
+    }
+  }
+
+  private static final class FloatSortColumn extends SortColumn {
+    final float[] _values;
+    float[] _blockValues;
+
+    FloatSortColumn(String column, boolean ascending, int maxNumDocs) {
+      super(column, ascending);
+      _values = new float[maxNumDocs];
+    }
+
+    @Override
+    void fetchBlockValues(BlockValSet blockValSet) {
+      _blockValues = blockValSet.getFloatValuesSV();
+    }
+
+    @Override
+    void copyToSlot(int index, int slot) {
+      _values[slot] = _blockValues[index];
+    }
+
+    @Override
+    int compareWithSlot(int index, int slot) {
+      return applyOrder(Float.compare(_blockValues[index], _values[slot]));
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return applyOrder(Float.compare(_values[slot1], _values[slot2]));
+    }
+  }
+
+  private static final class DoubleSortColumn extends SortColumn {
+    final double[] _values;
+    double[] _blockValues;
+
+    DoubleSortColumn(String column, boolean ascending, int maxNumDocs) {
+      super(column, ascending);
+      _values = new double[maxNumDocs];
+    }
+
+    @Override
+    void fetchBlockValues(BlockValSet blockValSet) {
+      _blockValues = blockValSet.getDoubleValuesSV();
+    }
+
+    @Override
+    void copyToSlot(int index, int slot) {
+      _values[slot] = _blockValues[index];
+    }
+
+    @Override
+    int compareWithSlot(int index, int slot) {
+      return applyOrder(Double.compare(_blockValues[index], _values[slot]));
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return applyOrder(Double.compare(_values[slot1], _values[slot2]));
+    }
+  }
+
+  private static final class StringSortColumn extends SortColumn {
+    final String[] _values;
+    String[] _blockValues;
+
+    StringSortColumn(String column, boolean ascending, int maxNumDocs) {
+      super(column, ascending);
+      _values = new String[maxNumDocs];
+    }
+
+    @Override
+    void fetchBlockValues(BlockValSet blockValSet) {
+      _blockValues = blockValSet.getStringValuesSV();
+    }
+
+    @Override
+    void copyToSlot(int index, int slot) {
+      _values[slot] = _blockValues[index];
+    }
+
+    @Override
+    int compareWithSlot(int index, int slot) {
+      return applyOrder(_blockValues[index].compareTo(_values[slot]));
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return applyOrder(_values[slot1].compareTo(_values[slot2]));
+    }
+  }
+
+  private static final class BytesSortColumn extends SortColumn {
+    final byte[][] _values;
+    byte[][] _blockValues;
+
+    BytesSortColumn(String column, boolean ascending, int maxNumDocs) {
+      super(column, ascending);
+      _values = new byte[maxNumDocs][];
+    }
+
+    @Override
+    void fetchBlockValues(BlockValSet blockValSet) {
+      _blockValues = blockValSet.getBytesValuesSV();
+    }
+
+    @Override
+    void copyToSlot(int index, int slot) {
+      // The byte arrays might be reused for the next block
+      _values[slot] = _blockValues[index].clone();
+    }
+
+    @Override
+    int compareWithSlot(int index, int slot) {
+      return applyOrder(ByteArray.compare(_blockValues[index], _values[slot]));
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return applyOrder(ByteArray.compare(_values[slot1], _values[slot2]));
+    }
+  }
+}
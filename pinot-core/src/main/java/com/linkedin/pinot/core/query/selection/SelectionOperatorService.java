@@ -22,13 +22,10 @@ import com.linkedin.pinot.common.response.broker.SelectionResults;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
-import com.linkedin.pinot.core.query.selection.comparator.CompositeDocIdValComparator;
+import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -71,6 +68,8 @@ public class SelectionOperatorService {
   private final int _selectionOffset;
   private final int _maxNumRows;
   private final PriorityQueue<Serializable[]> _rows;
+  // Only used inner segment
+  private final DocIdTopKHeap _docIdTopKHeap;
 
   private long _numDocsScanned = 0;
 
@@ -88,6 +87,7 @@ public class SelectionOperatorService {
     _selectionOffset = selection.getOffset();
     _maxNumRows = _selectionOffset + selection.getSize();
     _rows = new PriorityQueue<>(_maxNumRows, getStrictComparator());
+    _docIdTopKHeap = new DocIdTopKHeap(_sortSequence, indexSegment, _maxNumRows);
   }
 
   /**
@@ -104,6 +104,7 @@ public class SelectionOperatorService {
     _selectionOffset = selection.getOffset();
     _maxNumRows = _selectionOffset + selection.getSize();
     _rows = new PriorityQueue<>(_maxNumRows, getTypeCompatibleComparator());
+    _docIdTopKHeap = null;
   }
 
   /**
@@ -265,27 +266,37 @@ public class SelectionOperatorService {
   }
 
   /**
-   * Iterate over {@link Block}s, extract values from them and merge the values to the selection results for selection
-   * queries with <code>ORDER BY</code>. (Inner segment)
+   * Add the documents in the {@link ProjectionBlock} into the top document ids for selection queries with
+   * <code>ORDER BY</code>, only the sort columns are read. (Inner segment)
    *
-   * @param blockDocIdIterator block document id iterator.
-   * @param blocks {@link Block} array.
+   * @param projectionBlock projection block.
    */
-  public void iterateOnBlocksWithOrdering(@Nonnull BlockDocIdIterator blockDocIdIterator, @Nonnull Block[] blocks) {
-    Comparator<Integer> rowDocIdComparator = new CompositeDocIdValComparator(_sortSequence, blocks);
-    PriorityQueue<Integer> rowDocIdPriorityQueue = new PriorityQueue<>(_maxNumRows, rowDocIdComparator);
-    int docId;
-    while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
-      _numDocsScanned++;
-      SelectionOperatorUtils.addToPriorityQueue(docId, rowDocIdPriorityQueue, _maxNumRows);
-    }
+  public void addBlockWithOrdering(@Nonnull ProjectionBlock projectionBlock) {
+    _numDocsScanned += _docIdTopKHeap.addBlock(projectionBlock);
+  }
+
+  /**
+   * Returns whether the documents with first sort column dictionary id ranked at or after the given dictionary id
+   * cannot get into the top document ids. (Inner segment)
+   *
+   * @param dictId best dictionary id of the first sort column among the documents to skip.
+   */
+  public boolean canSkipFirstSortDictId(int dictId) {
+    return _docIdTopKHeap.canSkipFirstSortDictId(dictId);
+  }
 
+  /**
+   * Fetch the selection rows for the top document ids from {@link Block}s for selection queries with
+   * <code>ORDER BY</code>. (Inner segment)
+   * <p>Should be called after all the {@link ProjectionBlock}s of the segment are added.
+   *
+   * @param blocks {@link Block} array for the columns in the data schema.
+   */
+  public void fetchRowsWithOrdering(@Nonnull Block[] blocks) {
     SelectionFetcher selectionFetcher = new SelectionFetcher(blocks, _dataSchema);
-    Collection<Serializable[]> rows = new ArrayList<>(rowDocIdPriorityQueue.size());
-    for (int rowDocId : rowDocIdPriorityQueue) {
-      rows.add(selectionFetcher.getRow(rowDocId));
+    for (int docId : _docIdTopKHeap.getSortedDocIds()) {
+      SelectionOperatorUtils.addToPriorityQueue(selectionFetcher.getRow(docId), _rows, _maxNumRows);
     }
-    SelectionOperatorUtils.mergeWithOrdering(_rows, rows, _maxNumRows);
   }
 
   /**
@@ -296,14 +307,70 @@ public class SelectionOperatorService {
    */
   public void reduceWithOrdering(@Nonnull Map<ServerInstance, DataTable> selectionResults) {
     for (DataTable dataTable : selectionResults.values()) {
-      int numRows = dataTable.getNumberOfRows();
-      for (int rowId = 0; rowId < numRows; rowId++) {
+      reduceWithOrdering(dataTable);
+    }
+  }
+
+  /**
+   * Reduce a single {@link DataTable} into the selection rows for selection queries with <code>ORDER BY</code>, so
+   * that server responses can be merged as they arrive. (Broker side)
+   *
+   * @param dataTable {@link DataTable} from one server.
+   */
+  public void reduceWithOrdering(@Nonnull DataTable dataTable) {
+    DataSchema dataSchema = dataTable.getDataSchema();
+    int numRows = dataTable.getNumberOfRows();
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      // Only extract the rows that can get into the selection results, compare the sort columns in place first.
+      if (_rows.size() < _maxNumRows || compareWithRow(dataTable, dataSchema, rowId, _rows.peek()) > 0) {
         Serializable[] row = SelectionOperatorUtils.extractRowFromDataTable(dataTable, rowId);
         SelectionOperatorUtils.addToPriorityQueue(row, _rows, _maxNumRows);
       }
     }
   }
 
+  /**
+   * Helper method to compare the sort columns of a row in the {@link DataTable} with a selection row without
+   * extracting the row, follows the same ordering as the type-compatible {@link Comparator}. (Broker side)
+   *
+   * @return positive value if the row in the data table should replace the selection row.
+   */
+  private int compareWithRow(DataTable dataTable, DataSchema dataSchema, int rowId, Serializable[] row) {
+    int numSortColumns = _sortSequence.size();
+    for (int i = 0; i < numSortColumns; i++) {
+      int ret = 0;
+      boolean isAsc = _sortSequence.get(i).isIsAsc();
+      Serializable value = row[i];
+
+      // Only compare single-value columns.
+      switch (dataSchema.getColumnDataType(i)) {
+        case INT:
+          ret = Double.compare(dataTable.getInt(rowId, i), ((Number) value).doubleValue());
+          break;
+        case LONG:
+          ret = Double.compare(dataTable.getLong(rowId, i), ((Number) value).doubleValue());
+          break;
+        case FLOAT:
+          ret = Double.compare(dataTable.getFloat(rowId, i), ((Number) value).doubleValue());
+          break;
+        case DOUBLE:
+          ret = Double.compare(dataTable.getDouble(rowId, i), ((Number) value).doubleValue());
+          break;
+        case STRING:
+        case BYTES:
+          ret = dataTable.getString(rowId, i).compareTo((String) value);
+          break;
+        default:
+          break;
+      }
+
+      if (ret != 0) {
+        return isAsc ? -ret : ret;
+      }
+    }
+    return 0;
+  }
+
   /**
    * Render the selection rows to a {@link SelectionResults} object for selection queries with
    * <code>ORDER BY</code>. (Broker side)
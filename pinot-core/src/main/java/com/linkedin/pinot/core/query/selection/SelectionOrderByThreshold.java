@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.selection;
+
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * The <code>SelectionOrderByThreshold</code> class is shared by all the segments of a selection query with
+ * <code>ORDER BY</code> to keep the top values of the first sort column among the selection rows from the segments
+ * already processed. (Inter segment)
+ * <p>Once there are enough selection rows, a segment (or a range of documents) whose best value of the first sort
+ * column is ranked after the last kept value cannot contribute to the selection results and can be skipped.
+ * <p>Values are compared the same way as the type-compatible comparator for selection rows: numbers by their double
+ * value and strings lexicographically. Values of other types never allow skipping.
+ */
+@ThreadSafe
+public class SelectionOrderByThreshold {
+  private final String _column;
+  private final boolean _ascending;
+  private final int _maxNumValues;
+  // The root is the value ranked last
+  private final PriorityQueue<Object> _values;
+
+  public SelectionOrderByThreshold(@Nonnull SelectionSort firstSelectionSort, int maxNumValues) {
+    _column = firstSelectionSort.getColumn();
+    _ascending = firstSelectionSort.isIsAsc();
+    _maxNumValues = maxNumValues;
+    _values = new PriorityQueue<>(Math.max(maxNumValues, 1), new Comparator<Object>() {
+      @Override
+      public int compare(Object o1, Object o2) {
+        return rank(o2, o1);
+      }
+    });
+  }
+
+  /**
+   * Add the first sort column values of the selection rows from one segment.
+   *
+   * @param rows selection rows with the first sort column as the first column.
+   */
+  public synchronized void addRows(@Nonnull Collection<Serializable[]> rows) {
+    for (Serializable[] row : rows) {
+      Serializable value = row[0];
+      if (!isComparable(value)) {
+        continue;
+      }
+      if (_values.size() < _maxNumValues) {
+        _values.add(value);
+      } else if (rank(value, _values.peek()) < 0) {
+        _values.poll();
+        _values.add(value);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the documents whose first sort column value is ranked at or after the given value cannot get into
+   * the selection results.
+   *
+   * @param bestValue best value of the first sort column among the documents to skip.
+   */
+  public synchronized boolean canSkip(@Nullable Object bestValue) {
+    if (_values.size() < _maxNumValues || !isComparable(bestValue)) {
+      return false;
+    }
+    return rank(bestValue, _values.peek()) > 0;
+  }
+
+  /**
+   * Returns the best value of the first sort column in the segment from the column min/max value in the segment
+   * metadata, or <code>null</code> if not available (e.g. consuming segment).
+   * <p>Only numeric values are returned because the string min/max values in the segment metadata might not be
+   * stored exactly (e.g. escaped or padded).
+   */
+  @Nullable
+  public Comparable getBestValue(@Nonnull IndexSegment indexSegment) {
+    SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+    if (!(segmentMetadata instanceof SegmentMetadataImpl)) {
+      return null;
+    }
+    ColumnMetadata columnMetadata = ((SegmentMetadataImpl) segmentMetadata).getColumnMetadataFor(_column);
+    if (columnMetadata == null || !columnMetadata.isSingleValue()) {
+      return null;
+    }
+    Comparable bestValue = _ascending ? columnMetadata.getMinValue() : columnMetadata.getMaxValue();
+    return bestValue instanceof Number ? bestValue : null;
+  }
+
+  /**
+   * Compares the best values of the first sort column of two segments, returns negative value if the first segment
+   * should be processed before the second segment. Segments without best value are processed first because they
+   * cannot be skipped.
+   */
+  public int compareBestValues(@Nullable Comparable v1, @Nullable Comparable v2) {
+    boolean comparable1 = isComparable(v1);
+    boolean comparable2 = isComparable(v2);
+    if (comparable1 && comparable2) {
+      return rank(v1, v2);
+    }
+    return Boolean.compare(comparable1, comparable2);
+  }
+
+  private static boolean isComparable(Object value) {
+    return value instanceof Number || value instanceof String;
+  }
+
+  /**
+   * Returns negative value if the first value is ranked before the second value.
+   */
+  private int rank(Object v1, Object v2) {
+    int ret;
+    if (v1 instanceof Number && v2 instanceof Number) {
+      ret = Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+    } else if (v1 instanceof String && v2 instanceof String) {
+      ret = ((String) v1).compareTo((String) v2);
+    } else {
+      ret = 0;
+    }
+    return _ascending ? ret : -ret;
+  }
+}
@@ -16,52 +16,82 @@
 package com.linkedin.pinot.core.realtime.impl.invertedindex;
 
 import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import com.linkedin.pinot.core.util.ChainedIntIterator;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 
-public class RealtimeInvertedIndexReader implements InvertedIndexReader<MutableRoaringBitmap> {
-  private final List<ThreadSafeMutableRoaringBitmap> _bitmaps = new ArrayList<>();
-  private final ReentrantReadWriteLock.ReadLock _readLock;
-  private final ReentrantReadWriteLock.WriteLock _writeLock;
+/**
+ * Lock-free inverted index for the consuming segment, which supports one writer thread and multiple reader threads.
+ * <p>Document ids are added in ascending order, so the document ids for each dictionary id are stored in an
+ * append-only posting list: a few compressed bitmaps with ascending and disjoint document id ranges that are never
+ * modified once published, plus a small tail of the latest document ids. The writer publishes the new size of the tail
+ * after writing the document id (or publishes a new state after flushing the full tail into a bitmap), so that readers
+ * can always read a consistent prefix without any lock.
+ * <p>Readers get a view of the published posting list: the shared bitmaps plus a bitmap built from the published tail
+ * entries (bounded by the maximum tail capacity), so that no bitmap is copied per query and the writer is never blocked
+ * by the readers.
+ */
+public class RealtimeInvertedIndexReader implements InvertedIndexReader<ImmutableRoaringBitmap[]> {
+  private static final int INITIAL_NUM_DICT_IDS = 16;
 
-  public RealtimeInvertedIndexReader() {
-    ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    _readLock = readWriteLock.readLock();
-    _writeLock = readWriteLock.writeLock();
-  }
+  // Posting lists indexed by dictionary id, replaced by a larger array when full
+  private volatile PostingList[] _postingLists = new PostingList[INITIAL_NUM_DICT_IDS];
+  private volatile int _numDictIds = 0;
 
   /**
-   * Add the document id to the bitmap for the given dictionary id.
+   * Add the document id to the posting list for the given dictionary id.
+   * <p>Should only be called by the writer thread, with document ids in ascending order.
    */
   public void add(int dictId, int docId) {
-    if (_bitmaps.size() == dictId) {
-      // Bitmap for the dictionary id does not exist, add a new bitmap into the list
-      ThreadSafeMutableRoaringBitmap bitmap = new ThreadSafeMutableRoaringBitmap(docId);
-      try {
-        _writeLock.lock();
-        _bitmaps.add(bitmap);
-      } finally {
-        _writeLock.unlock();
-      }
-    } else {
-      // Bitmap for the dictionary id already exists, check and add document id into the bitmap
-      _bitmaps.get(dictId).checkAndAdd(docId);
+    if (dictId < _numDictIds) {
+      _postingLists[dictId].add(docId);
+      return;
+    }
+
+    // Posting list for the dictionary id does not exist, create the posting list before publishing it
+    PostingList[] postingLists = _postingLists;
+    if (dictId >= postingLists.length) {
+      postingLists = Arrays.copyOf(postingLists, Math.max(postingLists.length * 2, dictId + 1));
+    }
+    for (int i = _numDictIds; i < dictId; i++) {
+      postingLists[i] = new PostingList();
     }
+    PostingList postingList = new PostingList();
+    postingList.add(docId);
+    postingLists[dictId] = postingList;
+    _postingLists = postingLists;
+    _numDictIds = dictId + 1;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>Returns the bitmaps of the published document ids, with ascending and disjoint document id ranges. The array
+   * and the bitmaps are shared by the readers and MUST NOT be modified. Returns <code>null</code> if no document has
+   * been published for the dictionary id.
+   */
+  @Nullable
   @Override
-  public MutableRoaringBitmap getDocIds(int dictId) {
-    ThreadSafeMutableRoaringBitmap bitmap;
-    try {
-      _readLock.lock();
-      bitmap = _bitmaps.get(dictId);
-    } finally {
-      _readLock.unlock();
+  public ImmutableRoaringBitmap[] getDocIds(int dictId) {
+    // NOTE: read the number of dictionary ids before the posting lists so that the posting lists contain the
+    // dictionary id
+    if (dictId >= _numDictIds) {
+      return null;
     }
-    return bitmap.getMutableRoaringBitmap();
+    return _postingLists[dictId].getBitmaps();
+  }
+
+  /**
+   * Returns an iterator over the published document ids for the given dictionary id in ascending order, or
+   * <code>null</code> if no document has been published for the dictionary id.
+   */
+  @Nullable
+  public IntIterator getDocIdIterator(int dictId) {
+    ImmutableRoaringBitmap[] bitmaps = getDocIds(dictId);
+    return bitmaps != null ? new ChainedIntIterator(bitmaps) : null;
   }
 
   @Override
@@ -69,26 +99,110 @@ public class RealtimeInvertedIndexReader implements InvertedIndexReader<MutableR
   }
 
   /**
-   * Helper wrapper class for {@link MutableRoaringBitmap} to make it thread-safe.
+   * Append-only posting list of document ids, stored as compressed bitmaps (never modified once published) plus a
+   * small tail of the document ids added after them.
+   * <p>The tail starts empty and grows geometrically up to {@link #MAX_TAIL_CAPACITY}, so that posting lists with few
+   * document ids stay small. When the tail is full, the writer flushes it into a new bitmap, and merges the new bitmap
+   * with the trailing bitmaps that are not larger than it (like a binary counter). This keeps a logarithmic number of
+   * bitmaps, and each document id is only copied a logarithmic number of times.
    */
-  private static class ThreadSafeMutableRoaringBitmap {
-    private MutableRoaringBitmap _mutableRoaringBitmap;
+  private static class PostingList {
+    private static final int MAX_TAIL_CAPACITY = 256;
 
-    public ThreadSafeMutableRoaringBitmap(int firstDocId) {
-      _mutableRoaringBitmap = new MutableRoaringBitmap();
-      _mutableRoaringBitmap.add(firstDocId);
-    }
+    private volatile State _state = State.EMPTY;
+    // Only accessed by the writer thread
+    private int _lastDocId = -1;
 
-    public void checkAndAdd(int docId) {
-      if (!_mutableRoaringBitmap.contains(docId)) {
-        synchronized (this) {
-          _mutableRoaringBitmap.add(docId);
+    /**
+     * Should only be called by the writer thread.
+     */
+    void add(int docId) {
+      // Skip duplicate document id for multi-value column
+      if (docId == _lastDocId) {
+        return;
+      }
+      _lastDocId = docId;
+
+      State state = _state;
+      int[] tail = state._tail;
+      int tailSize = state._tailSize;
+      if (tailSize < tail.length) {
+        tail[tailSize] = docId;
+        // Publish the document id
+        state._tailSize = tailSize + 1;
+        return;
+      }
+
+      State newState;
+      if (tailSize < MAX_TAIL_CAPACITY) {
+        // Grow the tail
+        newState = new State(state._bitmaps, state._bitmapSizes, Arrays.copyOf(tail, Math.max(tailSize * 2, 1)));
+      } else {
+        // Flush the tail into a new bitmap, and merge it with the trailing bitmaps that are not larger than it
+        ImmutableRoaringBitmap bitmap = MutableRoaringBitmap.bitmapOf(tail);
+        int bitmapSize = tailSize;
+        ImmutableRoaringBitmap[] bitmaps = state._bitmaps;
+        int[] bitmapSizes = state._bitmapSizes;
+        int numBitmaps = bitmaps.length;
+        while (numBitmaps > 0 && bitmapSizes[numBitmaps - 1] <= bitmapSize) {
+          numBitmaps--;
+          bitmap = ImmutableRoaringBitmap.or(bitmaps[numBitmaps], bitmap);
+          bitmapSize += bitmapSizes[numBitmaps];
         }
+        ImmutableRoaringBitmap[] newBitmaps = Arrays.copyOf(bitmaps, numBitmaps + 1);
+        newBitmaps[numBitmaps] = bitmap;
+        int[] newBitmapSizes = Arrays.copyOf(bitmapSizes, numBitmaps + 1);
+        newBitmapSizes[numBitmaps] = bitmapSize;
+        newState = new State(newBitmaps, newBitmapSizes, new int[MAX_TAIL_CAPACITY]);
+        tailSize = 0;
+      }
+      newState._tail[tailSize] = docId;
+      newState._tailSize = tailSize + 1;
+      _state = newState;
+    }
+
+    /**
+     * Returns the bitmaps of the published document ids. The bitmaps of the state are returned as is when the tail is
+     * empty. Otherwise a bitmap is built from the published tail entries and appended to a copy of the bitmap array.
+     */
+    ImmutableRoaringBitmap[] getBitmaps() {
+      // NOTE: read the state before the tail size so that the tail contains all the published document ids
+      State state = _state;
+      int tailSize = state._tailSize;
+      ImmutableRoaringBitmap[] bitmaps = state._bitmaps;
+      if (tailSize == 0) {
+        return bitmaps;
       }
+
+      int numBitmaps = bitmaps.length;
+      ImmutableRoaringBitmap[] result = Arrays.copyOf(bitmaps, numBitmaps + 1);
+      MutableRoaringBitmap tailBitmap = new MutableRoaringBitmap();
+      int[] tail = state._tail;
+      for (int i = 0; i < tailSize; i++) {
+        tailBitmap.add(tail[i]);
+      }
+      result[numBitmaps] = tailBitmap;
+      return result;
     }
+  }
+
+  /**
+   * Published state of a posting list: the bitmaps are never modified, and the first <code>_tailSize</code> entries of
+   * the tail are the document ids added after the ones in the bitmaps.
+   */
+  private static class State {
+    // Shared by all the empty posting lists, never modified because the tail has no capacity
+    static final State EMPTY = new State(new ImmutableRoaringBitmap[0], new int[0], new int[0]);
+
+    final ImmutableRoaringBitmap[] _bitmaps;
+    final int[] _bitmapSizes;
+    final int[] _tail;
+    volatile int _tailSize;
 
-    public synchronized MutableRoaringBitmap getMutableRoaringBitmap() {
-      return _mutableRoaringBitmap.clone();
+    State(ImmutableRoaringBitmap[] bitmaps, int[] bitmapSizes, int[] tail) {
+      _bitmaps = bitmaps;
+      _bitmapSizes = bitmapSizes;
+      _tail = tail;
     }
   }
 }
@@ -21,6 +21,7 @@ import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.configuration.ConfigurationException;
 
@@ -49,6 +50,15 @@ public interface SegmentCreator extends Closeable {
    */
   void indexRow(GenericRow row);
 
+  /**
+   * Adds a batch of rows to the index, in the order of the list. The rows can be reused by the caller once this method
+   * returns.
+   *
+   * @param rows The rows to index.
+   * @throws IOException
+   */
+  void indexRows(List<GenericRow> rows) throws IOException;
+
   /**
    * Sets the name of the segment.
    *
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator;
+
+import com.linkedin.pinot.common.Utils;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.data.recordtransformer.CompoundTransformer;
+import com.linkedin.pinot.core.data.recordtransformer.RecordTransformer;
+import com.linkedin.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import com.linkedin.pinot.core.segment.creator.impl.ColumnarRowBuffer;
+import com.linkedin.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
+import java.io.Closeable;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@link SegmentCreationDataSource} that reads a non-rewindable {@link RecordReader} (e.g. a stream) only once.
+ * <p>While gathering the stats, the transformed rows are buffered into a {@link ColumnarRowBuffer} (spilled to disk
+ * when backed by a <code>MmapMemoryManager</code>). The dictionaries are then built from the stats as usual, and the
+ * buffered rows are read again from the scratch area to map the values to dictionary ids and build the indexes,
+ * without rewinding the underlying record reader.
+ * <p>The buffered rows are already transformed, so the segment creation driver can use the pass through record
+ * transformer (transforming them again with the default transformer gives the same rows).
+ * <p>The data source owns the underlying record reader and the memory manager, and releases them when closed.
+ */
+public class SpillingSegmentCreationDataSource implements SegmentCreationDataSource, Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillingSegmentCreationDataSource.class);
+
+  private final RecordReader _recordReader;
+  private final PinotDataBufferMemoryManager _memoryManager;
+  private final RecordTransformer _recordTransformer;
+  private final ColumnarRowBuffer _rowBuffer;
+  private final RecordReader _bufferedRecordReader;
+  private boolean _buffered = false;
+
+  public SpillingSegmentCreationDataSource(RecordReader recordReader, PinotDataBufferMemoryManager memoryManager) {
+    _recordReader = recordReader;
+    _memoryManager = memoryManager;
+    Schema schema = recordReader.getSchema();
+    _recordTransformer = CompoundTransformer.getDefaultTransformer(schema);
+    _rowBuffer = new ColumnarRowBuffer(schema, memoryManager);
+    _bufferedRecordReader = new BufferedRecordReader();
+  }
+
+  @Override
+  public SegmentPreIndexStatsCollector gatherStats(StatsCollectorConfig statsCollectorConfig) {
+    try {
+      SegmentPreIndexStatsCollector collector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
+      collector.init();
+
+      if (_buffered) {
+        // Rows already buffered, gather the stats from the buffer
+        RecordReader bufferReader = _rowBuffer.getRecordReader();
+        GenericRow row = null;
+        while (bufferReader.hasNext()) {
+          row = bufferReader.next(GenericRow.createOrReuseRow(row));
+          collector.collectRow(row);
+        }
+      } else {
+        bufferRows(collector);
+      }
+
+      collector.build();
+      return collector;
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while gathering stats", e);
+      Utils.rethrowException(e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns a record reader over the buffered rows. Until the rows are buffered, {@link RecordReader#hasNext()} is
+   * answered by the underlying record reader, and reading or rewinding buffers all the rows first.
+   */
+  @Override
+  public RecordReader getRecordReader() {
+    return _bufferedRecordReader;
+  }
+
+  /**
+   * Reads all the records from the underlying record reader, and buffers the transformed rows (collecting the stats if
+   * the collector is provided).
+   */
+  private void bufferRows(@Nullable SegmentPreIndexStatsCollector collector) throws Exception {
+    long startTimeMs = System.currentTimeMillis();
+    GenericRow readRow = null;
+    while (_recordReader.hasNext()) {
+      readRow = GenericRow.createOrReuseRow(readRow);
+      GenericRow transformedRow = _recordTransformer.transform(_recordReader.next(readRow));
+      if (transformedRow != null) {
+        _rowBuffer.addRow(transformedRow);
+        if (collector != null) {
+          collector.collectRow(transformedRow);
+        }
+      }
+    }
+    _buffered = true;
+    LOGGER.info("Buffered {} rows into {} bytes in {}ms", _rowBuffer.getNumRows(), _rowBuffer.getSizeInBytes(),
+        System.currentTimeMillis() - startTimeMs);
+  }
+
+  private void ensureBuffered() {
+    if (!_buffered) {
+      try {
+        bufferRows(null);
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while buffering rows", e);
+        Utils.rethrowException(e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      _recordReader.close();
+    } finally {
+      _memoryManager.close();
+    }
+  }
+
+  private class BufferedRecordReader implements RecordReader {
+    RecordReader _bufferReader;
+
+    @Override
+    public boolean hasNext() {
+      if (!_buffered) {
+        return _recordReader.hasNext();
+      }
+      return getBufferReader().hasNext();
+    }
+
+    @Override
+    public GenericRow next() throws IOException {
+      return next(new GenericRow());
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse) throws IOException {
+      ensureBuffered();
+      return getBufferReader().next(reuse);
+    }
+
+    @Override
+    public void rewind() throws IOException {
+      ensureBuffered();
+      getBufferReader().rewind();
+    }
+
+    private RecordReader getBufferReader() {
+      if (_bufferReader == null) {
+        _bufferReader = _rowBuffer.getRecordReader();
+      }
+      return _bufferReader;
+    }
+
+    @Override
+    public Schema getSchema() {
+      return _recordReader.getSchema();
+    }
+
+    @Override
+    public void close() {
+      // The buffered rows are released when the data source is closed
+    }
+  }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.utils.StringUtil;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>ColumnarRowBuffer</code> class buffers rows in a columnar, append-only scratch area allocated from a
+ * {@link PinotDataBufferMemoryManager} (e.g. a <code>MmapMemoryManager</code> to spill the rows to disk), so that the
+ * rows from a non-rewindable record source can be read again.
+ * <p>Each column is stored as a sequence of fixed size chunks, with the values (following the data type in the schema)
+ * appended one after the other: numbers in their binary form, strings and bytes prefixed with their length, and
+ * multi-values prefixed with the number of values. The values are read back in the same order through
+ * {@link #getRecordReader()}.
+ * <p>Virtual columns are not buffered. Null values are not supported, so the rows should be transformed (e.g. with
+ * the default record transformer, which fills the default null values) before being added.
+ */
+public class ColumnarRowBuffer {
+  private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  private final Schema _schema;
+  private final PinotDataBufferMemoryManager _memoryManager;
+  private final int _chunkSize;
+  private final List<FieldSpec> _fieldSpecs = new ArrayList<>();
+  private final List<ColumnWriter> _columnWriters = new ArrayList<>();
+  private int _numRows;
+
+  public ColumnarRowBuffer(@Nonnull Schema schema, @Nonnull PinotDataBufferMemoryManager memoryManager) {
+    this(schema, memoryManager, DEFAULT_CHUNK_SIZE);
+  }
+
+  public ColumnarRowBuffer(@Nonnull Schema schema, @Nonnull PinotDataBufferMemoryManager memoryManager,
+      int chunkSize) {
+    _schema = schema;
+    _memoryManager = memoryManager;
+    _chunkSize = chunkSize;
+    for (FieldSpec fieldSpec : schema.getAllFieldSpecs()) {
+      if (!schema.isVirtualColumn(fieldSpec.getName())) {
+        _fieldSpecs.add(fieldSpec);
+        _columnWriters.add(new ColumnWriter(fieldSpec.getName()));
+      }
+    }
+  }
+
+  /**
+   * Appends the values of the row for all the columns in the schema.
+   */
+  public void addRow(GenericRow row) {
+    int numColumns = _fieldSpecs.size();
+    for (int i = 0; i < numColumns; i++) {
+      FieldSpec fieldSpec = _fieldSpecs.get(i);
+      String column = fieldSpec.getName();
+      Object value = row.getValue(column);
+      if (value == null) {
+        throw new IllegalStateException("Null value for column: " + column);
+      }
+      ColumnWriter columnWriter = _columnWriters.get(i);
+      FieldSpec.DataType storedType = fieldSpec.getDataType().getStoredType();
+      if (fieldSpec.isSingleValueField()) {
+        columnWriter.writeValue(storedType, value);
+      } else {
+        Object[] values = (Object[]) value;
+        columnWriter.ensureCapacity(Integer.BYTES);
+        columnWriter.putInt(values.length);
+        for (Object multiValue : values) {
+          columnWriter.writeValue(storedType, multiValue);
+        }
+      }
+    }
+    _numRows++;
+  }
+
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  /**
+   * Returns the total size of the chunks allocated for the buffered rows.
+   */
+  public long getSizeInBytes() {
+    long sizeInBytes = 0L;
+    for (ColumnWriter columnWriter : _columnWriters) {
+      sizeInBytes += (long) columnWriter._chunks.size() * _chunkSize;
+    }
+    return sizeInBytes;
+  }
+
+  /**
+   * Returns a record reader over the rows buffered so far. The reader can be rewound, and does not own the buffer.
+   */
+  public RecordReader getRecordReader() {
+    return new Reader();
+  }
+
+  /**
+   * Position inside the chunks of a column. Fixed size values never span chunks (the end of the chunk is skipped
+   * instead), while strings and bytes are split across chunks. Writer and reader move through the chunks in the same
+   * way so that they always agree on the position of the values.
+   */
+  private abstract class ColumnCursor {
+    int _chunkId = -1;
+    int _offset = _chunkSize;
+
+    abstract PinotDataBuffer getChunk(int chunkId);
+
+    PinotDataBuffer currentChunk() {
+      return getChunk(_chunkId);
+    }
+
+    void ensureCapacity(int numBytes) {
+      if (_offset + numBytes > _chunkSize) {
+        _chunkId++;
+        _offset = 0;
+      }
+    }
+  }
+
+  private class ColumnWriter extends ColumnCursor {
+    final String _column;
+    final List<PinotDataBuffer> _chunks = new ArrayList<>();
+
+    ColumnWriter(String column) {
+      _column = column;
+    }
+
+    @Override
+    PinotDataBuffer getChunk(int chunkId) {
+      while (_chunks.size() <= chunkId) {
+        _chunks.add(_memoryManager.allocate(_chunkSize, _column));
+      }
+      return _chunks.get(chunkId);
+    }
+
+    void writeValue(FieldSpec.DataType storedType, Object value) {
+      switch (storedType) {
+        case INT:
+          ensureCapacity(Integer.BYTES);
+          putInt(((Number) value).intValue());
+          break;
+        case LONG:
+          ensureCapacity(Long.BYTES);
+          currentChunk().putLong(_offset, ((Number) value).longValue());
+          _offset += Long.BYTES;
+          break;
+        case FLOAT:
+          ensureCapacity(Float.BYTES);
+          currentChunk().putFloat(_offset, ((Number) value).floatValue());
+          _offset += Float.BYTES;
+          break;
+        case DOUBLE:
+          ensureCapacity(Double.BYTES);
+          currentChunk().putDouble(_offset, ((Number) value).doubleValue());
+          _offset += Double.BYTES;
+          break;
+        case STRING:
+          writeBytes(StringUtil.encodeUtf8(value.toString()));
+          break;
+        case BYTES:
+          writeBytes((byte[]) value);
+          break;
+        default:
+          throw new IllegalStateException("Unsupported data type: " + storedType + " for column: " + _column);
+      }
+    }
+
+    void putInt(int value) {
+      currentChunk().putInt(_offset, value);
+      _offset += Integer.BYTES;
+    }
+
+    void writeBytes(byte[] bytes) {
+      ensureCapacity(Integer.BYTES);
+      putInt(bytes.length);
+      int numBytesWritten = 0;
+      while (numBytesWritten < bytes.length) {
+        ensureCapacity(1);
+        int numBytesToWrite = Math.min(bytes.length - numBytesWritten, _chunkSize - _offset);
+        currentChunk().readFrom(_offset, bytes, numBytesWritten, numBytesToWrite);
+        _offset += numBytesToWrite;
+        numBytesWritten += numBytesToWrite;
+      }
+    }
+  }
+
+  private class ColumnReader extends ColumnCursor {
+    final ColumnWriter _columnWriter;
+
+    ColumnReader(ColumnWriter columnWriter) {
+      _columnWriter = columnWriter;
+    }
+
+    @Override
+    PinotDataBuffer getChunk(int chunkId) {
+      return _columnWriter._chunks.get(chunkId);
+    }
+
+    Object readValue(FieldSpec.DataType storedType) {
+      Object value;
+      switch (storedType) {
+        case INT:
+          ensureCapacity(Integer.BYTES);
+          return getInt();
+        case LONG:
+          ensureCapacity(Long.BYTES);
+          value = currentChunk().getLong(_offset);
+          _offset += Long.BYTES;
+          return value;
+        case FLOAT:
+          ensureCapacity(Float.BYTES);
+          value = currentChunk().getFloat(_offset);
+          _offset += Float.BYTES;
+          return value;
+        case DOUBLE:
+          ensureCapacity(Double.BYTES);
+          value = currentChunk().getDouble(_offset);
+          _offset += Double.BYTES;
+          return value;
+        case STRING:
+          return StringUtil.decodeUtf8(readBytes());
+        case BYTES:
+          return readBytes();
+        default:
+          throw new IllegalStateException(
+              "Unsupported data type: " + storedType + " for column: " + _columnWriter._column);
+      }
+    }
+
+    int getInt() {
+      int value = currentChunk().getInt(_offset);
+      _offset += Integer.BYTES;
+      return value;
+    }
+
+    byte[] readBytes() {
+      ensureCapacity(Integer.BYTES);
+      byte[] bytes = new byte[getInt()];
+      int numBytesRead = 0;
+      while (numBytesRead < bytes.length) {
+        ensureCapacity(1);
+        int numBytesToRead = Math.min(bytes.length - numBytesRead, _chunkSize - _offset);
+        currentChunk().copyTo(_offset, bytes, numBytesRead, numBytesToRead);
+        _offset += numBytesToRead;
+        numBytesRead += numBytesToRead;
+      }
+      return bytes;
+    }
+  }
+
+  private class Reader implements RecordReader {
+    final List<ColumnReader> _columnReaders = new ArrayList<>();
+    int _nextRowId;
+
+    Reader() {
+      rewind();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _nextRowId < _numRows;
+    }
+
+    @Override
+    public GenericRow next() {
+      return next(new GenericRow());
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse) {
+      int numColumns = _fieldSpecs.size();
+      for (int i = 0; i < numColumns; i++) {
+        FieldSpec fieldSpec = _fieldSpecs.get(i);
+        ColumnReader columnReader = _columnReaders.get(i);
+        FieldSpec.DataType storedType = fieldSpec.getDataType().getStoredType();
+        if (fieldSpec.isSingleValueField()) {
+          reuse.putField(fieldSpec.getName(), columnReader.readValue(storedType));
+        } else {
+          columnReader.ensureCapacity(Integer.BYTES);
+          Object[] values = new Object[columnReader.getInt()];
+          for (int j = 0; j < values.length; j++) {
+            values[j] = columnReader.readValue(storedType);
+          }
+          reuse.putField(fieldSpec.getName(), values);
+        }
+      }
+      _nextRowId++;
+      return reuse;
+    }
+
+    @Override
+    public void rewind() {
+      _columnReaders.clear();
+      for (ColumnWriter columnWriter : _columnWriters) {
+        _columnReaders.add(new ColumnReader(columnWriter));
+      }
+      _nextRowId = 0;
+    }
+
+    @Override
+    public Schema getSchema() {
+      return _schema;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec.FieldType;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.partition.PartitionFunction;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
@@ -45,12 +46,17 @@ import com.linkedin.pinot.core.segment.creator.impl.inv.OnHeapBitmapInvertedInde
 import com.linkedin.pinot.startree.hll.HllConfig;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.math.IntRange;
@@ -66,6 +72,10 @@ import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataK
 
 /**
  * Segment creator which writes data in a columnar form.
+ * <p>When more than one indexing thread is configured (see {@link SegmentGeneratorConfig#getNumIndexingThreads()}), the
+ * per-column creators are independent of each other, so the dictionaries are built, the batches of rows passed to
+ * {@link #indexRows(List)} are indexed, and the inverted indexes are sealed for all columns in parallel. Each column is
+ * always handled by a single thread at a time, so the creators themselves do not need to be thread-safe.
  */
 // TODO: check resource leaks
 public class SegmentColumnarIndexCreator implements SegmentCreator {
@@ -83,6 +93,8 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   private int totalRawDocs;
   private int totalAggDocs;
   private int docIdCounter;
+  // Executor to create the indexes of the columns in parallel, or null to create them on the caller thread
+  private ExecutorService _executorService;
 
   @Override
   public void init(SegmentGeneratorConfig segmentCreationSpec, SegmentIndexCreationInfo segmentIndexCreationInfo,
@@ -103,6 +115,12 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     this.totalRawDocs = segmentIndexCreationInfo.getTotalRawDocs();
 
     Collection<FieldSpec> fieldSpecs = schema.getAllFieldSpecs();
+    int numIndexingThreads = Math.min(segmentCreationSpec.getNumIndexingThreads(), fieldSpecs.size());
+    if (numIndexingThreads > 1) {
+      _executorService =
+          Executors.newFixedThreadPool(numIndexingThreads, new NamedThreadFactory("SegmentColumnarIndexCreator"));
+    }
+
     Set<String> invertedIndexColumns = new HashSet<>();
     for (String columnName : config.getInvertedIndexCreationColumns()) {
       Preconditions.checkState(schema.hasColumn(columnName),
@@ -111,6 +129,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
 
     // Initialize creators for dictionary, forward index and inverted index
+    List<String> dictionaryColumns = new ArrayList<>();
     for (FieldSpec fieldSpec : fieldSpecs) {
       String columnName = fieldSpec.getName();
 
@@ -129,15 +148,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
         SegmentDictionaryCreator dictionaryCreator =
             new SegmentDictionaryCreator(indexCreationInfo.getSortedUniqueElementsArray(), fieldSpec, _indexDir);
         _dictionaryCreatorMap.put(columnName, dictionaryCreator);
-
-        // Create dictionary
-        try {
-          dictionaryCreator.build();
-        } catch (Exception e) {
-          LOGGER.error("Error building dictionary for field: {}, cardinality: {}, number of bytes per entry: {}",
-              fieldSpec.getName(), indexCreationInfo.getDistinctValueCount(), dictionaryCreator.getNumBytesPerEntry());
-          throw e;
-        }
+        dictionaryColumns.add(columnName);
 
         // Initialize forward index creator
         int cardinality = indexCreationInfo.getDistinctValueCount();
@@ -184,6 +195,19 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
                 indexCreationInfo.getLengthOfLongestEntry()));
       }
     }
+
+    // Create dictionaries
+    runForColumns(dictionaryColumns, columnName -> {
+      SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+      try {
+        dictionaryCreator.build();
+      } catch (Exception e) {
+        LOGGER.error("Error building dictionary for field: {}, cardinality: {}, number of bytes per entry: {}",
+            columnName, indexCreationInfoMap.get(columnName).getDistinctValueCount(),
+            dictionaryCreator.getNumBytesPerEntry());
+        throw e;
+      }
+    });
   }
 
   /**
@@ -249,32 +273,103 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   @Override
   public void indexRow(GenericRow row) {
     for (String columnName : _forwardIndexCreatorMap.keySet()) {
-      Object columnValueToIndex = row.getValue(columnName);
-      if (columnValueToIndex == null) {
-        throw new RuntimeException("Null value for column:" + columnName);
+      indexColumn(columnName, row, docIdCounter);
+    }
+    docIdCounter++;
+  }
+
+  @Override
+  public void indexRows(List<GenericRow> rows) throws IOException {
+    if (_executorService == null) {
+      for (GenericRow row : rows) {
+        indexRow(row);
       }
+      return;
+    }
 
-      SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
-      if (schema.getFieldSpecFor(columnName).isSingleValueField()) {
-        if (dictionaryCreator != null) {
-          int dictId = dictionaryCreator.indexOfSV(columnValueToIndex);
-          ((SingleValueForwardIndexCreator) _forwardIndexCreatorMap.get(columnName)).index(docIdCounter, dictId);
-          if (_invertedIndexCreatorMap.containsKey(columnName)) {
-            _invertedIndexCreatorMap.get(columnName).add(dictId);
-          }
-        } else {
-          ((SingleValueRawIndexCreator) _forwardIndexCreatorMap.get(columnName)).index(docIdCounter,
-              columnValueToIndex);
-        }
-      } else {
-        int[] dictIds = dictionaryCreator.indexOfMV(columnValueToIndex);
-        ((MultiValueForwardIndexCreator) _forwardIndexCreatorMap.get(columnName)).index(docIdCounter, dictIds);
+    final int startDocId = docIdCounter;
+    runForColumns(_forwardIndexCreatorMap.keySet(), columnName -> {
+      int docId = startDocId;
+      for (GenericRow row : rows) {
+        indexColumn(columnName, row, docId++);
+      }
+    });
+    docIdCounter += rows.size();
+  }
+
+  private void indexColumn(String columnName, GenericRow row, int docId) {
+    Object columnValueToIndex = row.getValue(columnName);
+    if (columnValueToIndex == null) {
+      throw new RuntimeException("Null value for column:" + columnName);
+    }
+
+    SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+    if (schema.getFieldSpecFor(columnName).isSingleValueField()) {
+      if (dictionaryCreator != null) {
+        int dictId = dictionaryCreator.indexOfSV(columnValueToIndex);
+        ((SingleValueForwardIndexCreator) _forwardIndexCreatorMap.get(columnName)).index(docId, dictId);
         if (_invertedIndexCreatorMap.containsKey(columnName)) {
-          _invertedIndexCreatorMap.get(columnName).add(dictIds, dictIds.length);
+          _invertedIndexCreatorMap.get(columnName).add(dictId);
         }
+      } else {
+        ((SingleValueRawIndexCreator) _forwardIndexCreatorMap.get(columnName)).index(docId, columnValueToIndex);
+      }
+    } else {
+      int[] dictIds = dictionaryCreator.indexOfMV(columnValueToIndex);
+      ((MultiValueForwardIndexCreator) _forwardIndexCreatorMap.get(columnName)).index(docId, dictIds);
+      if (_invertedIndexCreatorMap.containsKey(columnName)) {
+        _invertedIndexCreatorMap.get(columnName).add(dictIds, dictIds.length);
       }
     }
-    docIdCounter++;
+  }
+
+  /**
+   * Runs the task for each of the given columns, in parallel if the executor is configured, and waits for all the
+   * tasks to finish. The first failure is rethrown after cancelling the remaining tasks.
+   */
+  private void runForColumns(Collection<String> columnNames, ColumnTask task) throws IOException {
+    if (_executorService == null || columnNames.size() <= 1) {
+      for (String columnName : columnNames) {
+        task.run(columnName);
+      }
+      return;
+    }
+
+    List<Future<?>> futures = new ArrayList<>(columnNames.size());
+    for (String columnName : columnNames) {
+      futures.add(_executorService.submit(() -> {
+        task.run(columnName);
+        return null;
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while creating indexes", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private interface ColumnTask {
+    void run(String columnName) throws IOException;
   }
 
   @Override
@@ -284,9 +379,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 
   @Override
   public void seal() throws ConfigurationException, IOException {
-    for (InvertedIndexCreator invertedIndexCreator : _invertedIndexCreatorMap.values()) {
-      invertedIndexCreator.seal();
-    }
+    runForColumns(_invertedIndexCreatorMap.keySet(), columnName -> _invertedIndexCreatorMap.get(columnName).seal());
     writeMetadata();
   }
 
@@ -525,6 +618,10 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 
   @Override
   public void close() throws IOException {
+    if (_executorService != null) {
+      _executorService.shutdownNow();
+      _executorService = null;
+    }
     for (SegmentDictionaryCreator dictionaryCreator : _dictionaryCreatorMap.values()) {
       dictionaryCreator.close();
     }
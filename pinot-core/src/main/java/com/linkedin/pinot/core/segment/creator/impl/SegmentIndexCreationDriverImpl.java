@@ -20,6 +20,7 @@ import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.RecordReader;
 import com.linkedin.pinot.core.data.readers.RecordReaderFactory;
@@ -54,12 +55,20 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +82,12 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentIndexCreationDriverImpl.class);
 
+  // Number of rows passed to the index creator at once when indexing with multiple threads
+  private static final int INDEXING_BATCH_SIZE = 10_000;
+  // Number of row batches shared by the record reader thread and the indexing thread (filling, queued and indexing)
+  private static final int NUM_INDEXING_BATCHES = 3;
+  private static final long BATCH_POLL_TIMEOUT_MS = 100L;
+
   private SegmentGeneratorConfig config;
   private RecordReader recordReader;
   private SegmentPreIndexStatsContainer segmentStats;
@@ -324,17 +339,21 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       // Build the index
       recordReader.rewind();
       LOGGER.info("Start building IndexCreator!");
-      GenericRow readRow = null;
-      while (recordReader.hasNext()) {
-        long start = System.currentTimeMillis();
-        readRow = GenericRow.createOrReuseRow(readRow);
-        GenericRow transformedRow = _recordTransformer.transform(recordReader.next(readRow));
-        long stop = System.currentTimeMillis();
-        totalRecordReadTime += (stop - start);
-        if (transformedRow != null) {
-          indexCreator.indexRow(transformedRow);
-          long stop1 = System.currentTimeMillis();
-          totalIndexTime += (stop1 - stop);
+      if (config.getNumIndexingThreads() > 1) {
+        indexRowsInBatches();
+      } else {
+        GenericRow readRow = null;
+        while (recordReader.hasNext()) {
+          long start = System.currentTimeMillis();
+          readRow = GenericRow.createOrReuseRow(readRow);
+          GenericRow transformedRow = _recordTransformer.transform(recordReader.next(readRow));
+          long stop = System.currentTimeMillis();
+          totalRecordReadTime += (stop - start);
+          if (transformedRow != null) {
+            indexCreator.indexRow(transformedRow);
+            long stop1 = System.currentTimeMillis();
+            totalIndexTime += (stop1 - stop);
+          }
         }
       }
     } catch (Exception e) {
@@ -348,6 +367,94 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Reads and transforms the records on a separate thread while the index creator indexes the previous batch of rows
+   * (with the columns indexed in parallel), so that record decoding overlaps with index creation. The row batches are
+   * recycled between the two threads to avoid allocating a row per record.
+   */
+  private void indexRowsInBatches() throws Exception {
+    BlockingQueue<RowBatch> freeBatches = new ArrayBlockingQueue<>(NUM_INDEXING_BATCHES);
+    BlockingQueue<RowBatch> filledBatches = new ArrayBlockingQueue<>(NUM_INDEXING_BATCHES);
+    for (int i = 0; i < NUM_INDEXING_BATCHES; i++) {
+      freeBatches.add(new RowBatch());
+    }
+
+    ExecutorService readerExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("SegmentRecordReader"));
+    try {
+      Future<?> readerFuture = readerExecutor.submit(() -> {
+        boolean hasMoreRecords = true;
+        while (hasMoreRecords) {
+          RowBatch batch = freeBatches.take();
+          long start = System.currentTimeMillis();
+          hasMoreRecords = batch.fill(recordReader, _recordTransformer);
+          totalRecordReadTime += System.currentTimeMillis() - start;
+          filledBatches.put(batch);
+        }
+        return null;
+      });
+
+      while (true) {
+        RowBatch batch = filledBatches.poll(BATCH_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (batch == null) {
+          // Surface the failure of the reader thread instead of waiting forever
+          if (readerFuture.isDone()) {
+            getReaderResult(readerFuture);
+          }
+          continue;
+        }
+        long start = System.currentTimeMillis();
+        indexCreator.indexRows(batch._rows);
+        totalIndexTime += System.currentTimeMillis() - start;
+        if (batch._isLast) {
+          break;
+        }
+        freeBatches.put(batch);
+      }
+      getReaderResult(readerFuture);
+    } finally {
+      readerExecutor.shutdownNow();
+    }
+  }
+
+  private static void getReaderResult(Future<?> readerFuture) throws Exception {
+    try {
+      readerFuture.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Batch of transformed rows, with the rows reused across batches.
+   */
+  private static class RowBatch {
+    final GenericRow[] _reusableRows = new GenericRow[INDEXING_BATCH_SIZE];
+    final List<GenericRow> _rows = new ArrayList<>(INDEXING_BATCH_SIZE);
+    boolean _isLast;
+
+    /**
+     * Fills the batch with the next rows from the record reader, returns whether there are more records to read.
+     */
+    boolean fill(RecordReader recordReader, RecordTransformer recordTransformer) throws IOException {
+      _rows.clear();
+      while (_rows.size() < INDEXING_BATCH_SIZE && recordReader.hasNext()) {
+        int index = _rows.size();
+        GenericRow readRow = GenericRow.createOrReuseRow(_reusableRows[index]);
+        _reusableRows[index] = readRow;
+        GenericRow transformedRow = recordTransformer.transform(recordReader.next(readRow));
+        if (transformedRow != null) {
+          _rows.add(transformedRow);
+        }
+      }
+      _isLast = !recordReader.hasNext();
+      return !_isLast;
+    }
+  }
+
   private void handlePostCreation() throws Exception {
     final String timeColumn = config.getTimeColumnName();
     segmentName = config.getSegmentNameGenerator().generateSegmentName(segmentStats.getColumnProfileFor(timeColumn));
@@ -16,37 +16,73 @@
 package com.linkedin.pinot.core.transport;
 
 import com.linkedin.pinot.common.utils.DataTable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 
 /**
  * The {@code AsyncQueryResponse} class represents an asynchronous query response.
- * <p>Call {@link #getResponse()} to get the query response asynchronously.
+ * <p>Call {@link #getResponse()} to get the query response asynchronously, or call {@link #pollResponse()}
+ * repeatedly to get the server responses one at a time in the order they arrive.
+ * <p>Once the query is done, the servers that have not responded (timed out or failed) are asked to cancel the query.
+ * <p>The data tables might read from the network buffers in place, so call {@link #release()} once the server responses
+ * are no longer used.
  */
 @ThreadSafe
 public class AsyncQueryResponse {
+  // Marker put into the response queue to wake up the polling thread when the query fails
+  private static final Map.Entry<Server, ServerResponse> QUERY_FAILED =
+      new AbstractMap.SimpleImmutableEntry<>(null, null);
+
   private final QueryRouter _queryRouter;
   private final long _requestId;
+  private final String _rawTableName;
   private final ConcurrentHashMap<Server, ServerResponse> _responseMap;
   private final CountDownLatch _countDownLatch;
+  private final BlockingQueue<Map.Entry<Server, ServerResponse>> _responseQueue = new LinkedBlockingQueue<>();
+  private final int _numServersQueried;
+  private final long _startTimeMs;
   private final long _maxEndTimeMs;
+  @Nullable
+  private final ServerLoadTracker _serverLoadTracker;
+  // Servers with a request tracked by the server load tracker that has not been released yet
+  private final Set<Server> _serversTracked = ConcurrentHashMap.newKeySet();
+
+  // Guarded by this
+  private final List<Long> _hedgedRequestIds = new ArrayList<>();
+  private final List<ScheduledFuture<?>> _hedgingFutures = new ArrayList<>();
+  private volatile boolean _queryDone = false;
 
-  public AsyncQueryResponse(QueryRouter queryRouter, long requestId, Set<Server> serversQueried, long startTimeMs,
-      long timeoutMs) {
+  // Only accessed by the polling thread
+  private int _numResponsesPolled = 0;
+  private boolean _queryFailed = false;
+
+  public AsyncQueryResponse(QueryRouter queryRouter, long requestId, String rawTableName, Set<Server> serversQueried,
+      long startTimeMs, long timeoutMs, @Nullable ServerLoadTracker serverLoadTracker) {
     _queryRouter = queryRouter;
     _requestId = requestId;
+    _rawTableName = rawTableName;
     int numServersQueried = serversQueried.size();
     _responseMap = new ConcurrentHashMap<>(numServersQueried);
     for (Server server : serversQueried) {
       _responseMap.put(server, new ServerResponse(startTimeMs));
     }
     _countDownLatch = new CountDownLatch(numServersQueried);
+    _numServersQueried = numServersQueried;
+    _startTimeMs = startTimeMs;
     _maxEndTimeMs = startTimeMs + timeoutMs;
+    _serverLoadTracker = serverLoadTracker;
   }
 
   /**
@@ -57,13 +93,69 @@ public class AsyncQueryResponse {
       _countDownLatch.await(_maxEndTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
       return _responseMap;
     } finally {
-      _queryRouter.markQueryDone(_requestId);
+      markQueryDone();
+    }
+  }
+
+  /**
+   * Waits for the next server response and returns it, or returns {@code null} if all the server responses have been
+   * returned, the query timed out or the query failed.
+   * <p>The query is marked done once {@code null} is returned. Should not be mixed with {@link #getResponse()}.
+   */
+  @Nullable
+  public Map.Entry<Server, ServerResponse> pollResponse() throws InterruptedException {
+    while (_numResponsesPolled < _numServersQueried) {
+      Map.Entry<Server, ServerResponse> entry;
+      if (_queryFailed) {
+        // Still return the responses already received
+        entry = _responseQueue.poll();
+      } else {
+        entry = _responseQueue.poll(_maxEndTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      }
+      if (entry == null) {
+        break;
+      }
+      if (entry == QUERY_FAILED) {
+        _queryFailed = true;
+      } else {
+        _numResponsesPolled++;
+        return entry;
+      }
+    }
+    markQueryDone();
+    return null;
+  }
+
+  public int getNumServersQueried() {
+    return _numServersQueried;
+  }
+
+  /**
+   * Returns the servers that have not responded yet.
+   */
+  public List<Server> getServersNotResponded() {
+    List<Server> serversNotResponded = new ArrayList<>();
+    for (Map.Entry<Server, ServerResponse> entry : _responseMap.entrySet()) {
+      if (entry.getValue().getDataTable() == null) {
+        serversNotResponded.add(entry.getKey());
+      }
+    }
+    return serversNotResponded;
+  }
+
+  /**
+   * Releases the data tables received. The server responses should not be accessed afterwards, and the data tables
+   * received after this call are released right away.
+   */
+  public void release() {
+    for (ServerResponse serverResponse : _responseMap.values()) {
+      serverResponse.release();
     }
   }
 
   /**
    * Returns the statistics for the servers the query sent to.
-   * <p>Should be called after calling {@link #getResponse()}.
+   * <p>Should be called after calling {@link #getResponse()} or after {@link #pollResponse()} returns {@code null}.
    */
   public String getStats() {
     StringBuilder stringBuilder =
@@ -74,16 +166,66 @@ public class AsyncQueryResponse {
     return stringBuilder.toString();
   }
 
+  /**
+   * Tracks the request to the server in the server load tracker (if any). Should be called before sending the request.
+   */
+  void trackRequest(Server server) {
+    if (_serverLoadTracker != null) {
+      _serverLoadTracker.recordRequestSent(server.getInstanceName());
+      _serversTracked.add(server);
+    }
+  }
+
   void markRequestSubmitted(Server server) {
     _responseMap.get(server).markRequestSubmitted();
   }
 
   void receiveDataTable(Server server, DataTable dataTable, long responseSize, long deserializationTimeMs) {
-    _responseMap.get(server).receiveDataTable(dataTable, responseSize, deserializationTimeMs);
-    _countDownLatch.countDown();
+    releaseTrackedRequest(server);
+    receiveDataTableForServer(server, dataTable, responseSize, deserializationTimeMs);
+  }
+
+  /**
+   * Receives the data table from the hedged request for the original server, returns {@code true} if the hedged
+   * request responded before the original request.
+   */
+  boolean receiveHedgedDataTable(Server originalServer, DataTable dataTable, long responseSize,
+      long deserializationTimeMs) {
+    return receiveDataTableForServer(originalServer, dataTable, responseSize, deserializationTimeMs);
+  }
+
+  boolean isQueryDone() {
+    return _queryDone;
+  }
+
+  boolean hasServerResponded(Server server) {
+    return _responseMap.get(server).getDataTable() != null;
+  }
+
+  /**
+   * Records the hedged request, returns {@code false} if the query is already done.
+   */
+  synchronized boolean addHedgedRequest(long hedgedRequestId) {
+    if (_queryDone) {
+      return false;
+    }
+    _hedgedRequestIds.add(hedgedRequestId);
+    return true;
+  }
+
+  /**
+   * Records the future of the scheduled hedged request, which is cancelled when the query is done.
+   */
+  synchronized void addHedgingFuture(ScheduledFuture<?> hedgingFuture) {
+    if (_queryDone) {
+      hedgingFuture.cancel(false);
+    } else {
+      _hedgingFutures.add(hedgingFuture);
+    }
   }
 
   void markQueryFailed() {
+    _responseQueue.offer(QUERY_FAILED);
     int count = (int) _countDownLatch.getCount();
     for (int i = 0; i < count; i++) {
       _countDownLatch.countDown();
@@ -100,4 +242,55 @@ public class AsyncQueryResponse {
       markQueryFailed();
     }
   }
+
+  /**
+   * Only the first data table received for the server (from either the original or the hedged request) is used, the
+   * other ones are released.
+   */
+  private boolean receiveDataTableForServer(Server server, DataTable dataTable, long responseSize,
+      long deserializationTimeMs) {
+    ServerResponse serverResponse = _responseMap.get(server);
+    if (!serverResponse.receiveDataTable(dataTable, responseSize, deserializationTimeMs)) {
+      dataTable.release();
+      return false;
+    }
+    _responseQueue.offer(new AbstractMap.SimpleImmutableEntry<>(server, serverResponse));
+    _countDownLatch.countDown();
+    return true;
+  }
+
+  private void markQueryDone() {
+    List<Long> hedgedRequestIds;
+    synchronized (this) {
+      if (_queryDone) {
+        return;
+      }
+      _queryDone = true;
+      for (ScheduledFuture<?> hedgingFuture : _hedgingFutures) {
+        hedgingFuture.cancel(false);
+      }
+      hedgedRequestIds = new ArrayList<>(_hedgedRequestIds);
+    }
+    releaseTrackedRequests();
+    _queryRouter.markQueryDone(_requestId, _rawTableName, hedgedRequestIds, getServersNotResponded());
+  }
+
+  /**
+   * Releases the tracked requests for the servers not responded (timed out or failed), with the time waited as the
+   * latency so that the slow servers get penalized.
+   */
+  private void releaseTrackedRequests() {
+    if (_serverLoadTracker != null) {
+      for (Server server : _serversTracked) {
+        releaseTrackedRequest(server);
+      }
+    }
+  }
+
+  private void releaseTrackedRequest(Server server) {
+    // Remove the server first to ensure each tracked request is released only once
+    if (_serverLoadTracker != null && _serversTracked.remove(server)) {
+      _serverLoadTracker.recordResponse(server.getInstanceName(), System.currentTimeMillis() - _startTimeMs);
+    }
+  }
 }
@@ -56,7 +56,7 @@ public class DataTableHandler extends SimpleChannelInboundHandler<ByteBuf> {
     _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_RECEIVED, responseSize);
     try {
       long deserializationStartTimeMs = System.currentTimeMillis();
-      DataTable dataTable = DataTableFactory.getDataTable(msg.nioBuffer());
+      DataTable dataTable = DataTableFactory.getDataTable(msg);
       _queryRouter.receiveDataTable(_server, dataTable, responseSize,
           System.currentTimeMillis() - deserializationStartTimeMs);
     } catch (Exception e) {
@@ -15,16 +15,25 @@
  */
 package com.linkedin.pinot.core.transport;
 
+import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
 import com.linkedin.pinot.common.utils.DataTable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.slf4j.Logger;
@@ -34,27 +43,110 @@ import org.slf4j.LoggerFactory;
 /**
  * The {@code QueryRouter} class provides methods to route the query based on the routing table, and returns a
  * {@link AsyncQueryResponse} so that caller can handle the query response asynchronously.
- * <p>It works on {@link ServerChannels} which maintains only a single connection between the broker and each server.
+ * <p>It works on {@link ServerChannels} which maintains a configurable number of connections between the broker and
+ * each server.
+ * <p>When the segment to servers maps are provided (and the server load tracker is configured), the request to a server
+ * that has not responded by the configured percentile of its recent latencies is hedged: the same segments are sent to
+ * another server serving all of them, and whichever response arrives first is used. The hedged requests are bounded by
+ * a budget proportional to the requests sent.
+ * <p>When combining hybrid requests is enabled, the OFFLINE and REALTIME requests of a hybrid table query to the same
+ * server are sent as a single request (with the REALTIME request as the hybrid query), so that the server processes
+ * both of them and responds with a single merged data table. The combined requests are not hedged.
+ * <p>When the query is done without all the servers responded (e.g. timed out), a cancel request is sent to each server
+ * not responded so that the server stops processing the query. The hedged requests are not cancelled.
  */
 @ThreadSafe
 public class QueryRouter {
   private static final Logger LOGGER = LoggerFactory.getLogger(QueryRouter.class);
 
+  private static final long HEDGING_BUDGET_PER_REQUEST = 1000L;
+  // Allow bursts of hedged requests up to 100 requests
+  private static final long MAX_HEDGING_BUDGET = 100 * HEDGING_BUDGET_PER_REQUEST;
+
   private final String _brokerId;
   private final BrokerMetrics _brokerMetrics;
   private final ServerChannels _serverChannels;
+  private final ServerLoadTracker _serverLoadTracker;
+  private final boolean _combineHybridRequests;
   private final ConcurrentHashMap<Long, AsyncQueryResponse> _asyncQueryResponseMap = new ConcurrentHashMap<>();
 
+  // For hedged requests
+  private final double _hedgedRequestLatencyPercentile;
+  // Hedging budget (in 1/1000 of request) deposited for each request sent
+  private final long _hedgingBudgetDeposit;
+  private final AtomicLong _hedgingBudget = new AtomicLong();
+  // Use negative request ids for the hedged requests to not collide with the query request ids
+  private final AtomicLong _hedgedRequestIdGenerator = new AtomicLong();
+  private final ConcurrentHashMap<Long, HedgedRequest> _hedgedRequestMap = new ConcurrentHashMap<>();
+  private final ScheduledThreadPoolExecutor _hedgingExecutor;
+
   public QueryRouter(String brokerId, BrokerMetrics brokerMetrics) {
+    this(brokerId, brokerMetrics, null, CommonConstants.Broker.DEFAULT_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE,
+        CommonConstants.Broker.DEFAULT_BROKER_HEDGED_REQUEST_BUDGET_RATIO,
+        CommonConstants.Broker.DEFAULT_BROKER_COMBINE_HYBRID_REQUESTS);
+  }
+
+  /**
+   * @param serverLoadTracker Optional tracker to record the latency and in-flight requests of the servers, required
+   *                          for the hedged requests
+   * @param hedgedRequestLatencyPercentile Percentile of the server latencies to hedge the request
+   * @param hedgedRequestBudgetRatio Maximum ratio of the hedged requests to the requests sent
+   * @param combineHybridRequests Whether to combine the OFFLINE and REALTIME requests to the same server
+   */
+  public QueryRouter(String brokerId, BrokerMetrics brokerMetrics, @Nullable ServerLoadTracker serverLoadTracker,
+      double hedgedRequestLatencyPercentile, double hedgedRequestBudgetRatio, boolean combineHybridRequests) {
+    this(brokerId, brokerMetrics, serverLoadTracker, hedgedRequestLatencyPercentile, hedgedRequestBudgetRatio,
+        combineHybridRequests, CommonConstants.Broker.DEFAULT_BROKER_NETTY_CONNECTIONS_PER_SERVER,
+        CommonConstants.Broker.DEFAULT_BROKER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK,
+        CommonConstants.Broker.DEFAULT_BROKER_NETTY_MAX_PENDING_BYTES_PER_SERVER);
+  }
+
+  /**
+   * @param numConnectionsPerServer Number of connections to each server
+   * @param writeBufferHighWaterMark Pending bytes in the write buffer above which a connection is not writable
+   * @param maxPendingBytesPerServer Pending bytes to a server above which the requests are rejected, 0 for no limit
+   * @see #QueryRouter(String, BrokerMetrics, ServerLoadTracker, double, double, boolean)
+   */
+  public QueryRouter(String brokerId, BrokerMetrics brokerMetrics, @Nullable ServerLoadTracker serverLoadTracker,
+      double hedgedRequestLatencyPercentile, double hedgedRequestBudgetRatio, boolean combineHybridRequests,
+      int numConnectionsPerServer, int writeBufferHighWaterMark, long maxPendingBytesPerServer) {
     _brokerId = brokerId;
     _brokerMetrics = brokerMetrics;
-    _serverChannels = new ServerChannels(this, brokerMetrics);
+    _serverChannels = new ServerChannels(this, brokerMetrics, numConnectionsPerServer, writeBufferHighWaterMark,
+        maxPendingBytesPerServer);
+    _serverLoadTracker = serverLoadTracker;
+    _combineHybridRequests = combineHybridRequests;
+    _hedgedRequestLatencyPercentile = hedgedRequestLatencyPercentile;
+    _hedgingBudgetDeposit = (long) (hedgedRequestBudgetRatio * HEDGING_BUDGET_PER_REQUEST);
+    if (serverLoadTracker != null) {
+      _hedgingExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "hedged-request-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      });
+      _hedgingExecutor.setRemoveOnCancelPolicy(true);
+    } else {
+      _hedgingExecutor = null;
+    }
   }
 
   public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
       @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<String, List<String>> offlineRoutingTable,
       @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<String, List<String>> realtimeRoutingTable,
       long timeoutMs) {
+    return submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
+        realtimeRoutingTable, timeoutMs, null, null);
+  }
+
+  /**
+   * Submits the query with optional segment to servers maps for the OFFLINE and REALTIME table, which enable the hedged
+   * requests for the table.
+   */
+  public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
+      @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<String, List<String>> offlineRoutingTable,
+      @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<String, List<String>> realtimeRoutingTable,
+      long timeoutMs, @Nullable Map<String, List<String>> offlineSegmentToServersMap,
+      @Nullable Map<String, List<String>> realtimeSegmentToServersMap) {
     assert offlineBrokerRequest != null || realtimeBrokerRequest != null;
 
     // Build map from server to request based on the routing table
@@ -69,29 +161,62 @@ public class QueryRouter {
     }
     if (realtimeBrokerRequest != null) {
       assert realtimeRoutingTable != null;
+      boolean combineHybridRequests = _combineHybridRequests && offlineBrokerRequest != null;
+      int numCombinedHybridRequests = 0;
       for (Map.Entry<String, List<String>> entry : realtimeRoutingTable.entrySet()) {
-        Server server = new Server(entry.getKey(), TableType.REALTIME);
+        String instanceName = entry.getKey();
+        if (combineHybridRequests) {
+          // Attach the REALTIME request to the OFFLINE request to the same server as the hybrid query
+          InstanceRequest offlineInstanceRequest = requestMap.get(new Server(instanceName, TableType.OFFLINE));
+          if (offlineInstanceRequest != null) {
+            offlineInstanceRequest.setHybridQuery(realtimeBrokerRequest);
+            offlineInstanceRequest.setHybridSearchSegments(entry.getValue());
+            numCombinedHybridRequests++;
+            continue;
+          }
+        }
+        Server server = new Server(instanceName, TableType.REALTIME);
         InstanceRequest instanceRequest = getInstanceRequest(requestId, realtimeBrokerRequest, entry.getValue());
         requestMap.put(server, instanceRequest);
       }
+      if (numCombinedHybridRequests > 0) {
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.COMBINED_HYBRID_REQUESTS,
+            numCombinedHybridRequests);
+      }
     }
 
     // Create the asynchronous query response with the request map
     AsyncQueryResponse asyncQueryResponse =
-        new AsyncQueryResponse(this, requestId, requestMap.keySet(), System.currentTimeMillis(), timeoutMs);
+        new AsyncQueryResponse(this, requestId, rawTableName, requestMap.keySet(), System.currentTimeMillis(),
+            timeoutMs, _serverLoadTracker);
     _asyncQueryResponseMap.put(requestId, asyncQueryResponse);
     for (Map.Entry<Server, InstanceRequest> entry : requestMap.entrySet()) {
       Server server = entry.getKey();
+      InstanceRequest instanceRequest = entry.getValue();
       try {
-        _serverChannels.sendRequest(server, entry.getValue());
+        asyncQueryResponse.trackRequest(server);
+        _serverChannels.sendRequest(server, instanceRequest);
         asyncQueryResponse.markRequestSubmitted(server);
       } catch (Exception e) {
-        LOGGER.error("Caught exception while sending request {} to server: {}, marking query failed", requestId, server,
-            e);
+        if (e instanceof RequestRejectedException) {
+          // Fail-fast rejections are tracked by the NETTY_CONNECTION_REQUESTS_REJECTED meter, skip the stack trace
+          LOGGER.debug("Request {} to server: {} rejected, marking query failed: {}", requestId, server,
+              e.getMessage());
+        } else {
+          LOGGER.error("Caught exception while sending request {} to server: {}, marking query failed", requestId,
+              server, e);
+        }
         _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.REQUEST_SEND_EXCEPTIONS, 1);
         asyncQueryResponse.markQueryFailed();
         break;
       }
+      Map<String, List<String>> segmentToServersMap =
+          server.getTableType() == TableType.OFFLINE ? offlineSegmentToServersMap : realtimeSegmentToServersMap;
+      // Do not hedge the combined hybrid requests because the segments of both tables are not tracked
+      if (segmentToServersMap != null && _serverLoadTracker != null && !instanceRequest.isSetHybridQuery()) {
+        scheduleHedgedRequest(rawTableName, asyncQueryResponse, server, instanceRequest, segmentToServersMap,
+            timeoutMs);
+      }
     }
 
     return asyncQueryResponse;
@@ -99,6 +224,9 @@ public class QueryRouter {
 
   public void shutDown() {
     _serverChannels.shutDown();
+    if (_hedgingExecutor != null) {
+      _hedgingExecutor.shutdownNow();
+    }
   }
 
   void receiveDataTable(Server server, DataTable dataTable, long responseSize, long deserializationTimeMs) {
@@ -108,6 +236,19 @@ public class QueryRouter {
     // Query future might be null if the query is already done (maybe due to failure)
     if (asyncQueryResponse != null) {
       asyncQueryResponse.receiveDataTable(server, dataTable, responseSize, deserializationTimeMs);
+      return;
+    }
+
+    // Response for the hedged request
+    HedgedRequest hedgedRequest = _hedgedRequestMap.get(requestId);
+    if (hedgedRequest == null) {
+      // Nobody is waiting for the response
+      dataTable.release();
+      return;
+    }
+    if (hedgedRequest._asyncQueryResponse.receiveHedgedDataTable(hedgedRequest._originalServer, dataTable,
+        responseSize, deserializationTimeMs)) {
+      _brokerMetrics.addMeteredTableValue(hedgedRequest._rawTableName, BrokerMeter.HEDGED_REQUESTS_WON, 1);
     }
   }
 
@@ -117,8 +258,149 @@ public class QueryRouter {
     }
   }
 
-  void markQueryDone(long requestId) {
+  void markQueryDone(long requestId, String rawTableName, List<Long> hedgedRequestIds,
+      List<Server> serversNotResponded) {
     _asyncQueryResponseMap.remove(requestId);
+    for (Long hedgedRequestId : hedgedRequestIds) {
+      _hedgedRequestMap.remove(hedgedRequestId);
+    }
+    if (!serversNotResponded.isEmpty()) {
+      sendCancelRequests(requestId, rawTableName, serversNotResponded);
+    }
+  }
+
+  /**
+   * Sends a cancel request to each server not responded. The server cancels all the queries (OFFLINE and REALTIME) for
+   * the request id from this broker, so only one cancel request is sent per server instance.
+   * <p>The cancel request carries a query without segments, so that the servers not supporting cancellation process it
+   * as an empty query. The response to the cancel request is ignored because the query is no longer tracked.
+   */
+  private void sendCancelRequests(long requestId, String rawTableName, List<Server> serversNotResponded) {
+    Set<String> instancesCancelled = new HashSet<>();
+    for (Server server : serversNotResponded) {
+      if (!instancesCancelled.add(server.getInstanceName())) {
+        continue;
+      }
+      QuerySource querySource = new QuerySource();
+      querySource.setTableName(TableNameBuilder.forType(server.getTableType()).tableNameWithType(rawTableName));
+      BrokerRequest brokerRequest = new BrokerRequest();
+      brokerRequest.setQuerySource(querySource);
+      InstanceRequest instanceRequest = getInstanceRequest(requestId, brokerRequest, new ArrayList<>());
+      instanceRequest.setCancel(true);
+      try {
+        _serverChannels.sendRequest(server, instanceRequest);
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.CANCEL_REQUESTS_SENT, 1);
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while sending cancel request for request {} to server: {}", requestId, server,
+            e);
+      }
+    }
+  }
+
+  /**
+   * Schedules the hedged request for the server at the configured percentile of its recent latencies. No request is
+   * hedged for the servers without enough latency samples.
+   */
+  private void scheduleHedgedRequest(String rawTableName, AsyncQueryResponse asyncQueryResponse, Server server,
+      InstanceRequest instanceRequest, Map<String, List<String>> segmentToServersMap, long timeoutMs) {
+    depositHedgingBudget();
+    long hedgingDelayMs =
+        _serverLoadTracker.getLatencyPercentileMs(server.getInstanceName(), _hedgedRequestLatencyPercentile);
+    if (hedgingDelayMs < 0 || hedgingDelayMs >= timeoutMs || instanceRequest.getSearchSegmentsSize() == 0) {
+      return;
+    }
+    try {
+      asyncQueryResponse.addHedgingFuture(_hedgingExecutor.schedule(
+          () -> sendHedgedRequest(rawTableName, asyncQueryResponse, server, instanceRequest, segmentToServersMap),
+          Math.max(hedgingDelayMs, 1L), TimeUnit.MILLISECONDS));
+    } catch (Exception e) {
+      // Executor might be shut down
+      LOGGER.warn("Caught exception while scheduling hedged request for request {} to server: {}",
+          instanceRequest.getRequestId(), server, e);
+    }
+  }
+
+  private void sendHedgedRequest(String rawTableName, AsyncQueryResponse asyncQueryResponse, Server originalServer,
+      InstanceRequest instanceRequest, Map<String, List<String>> segmentToServersMap) {
+    if (asyncQueryResponse.isQueryDone() || asyncQueryResponse.hasServerResponded(originalServer)) {
+      return;
+    }
+    String hedgedInstanceName =
+        getHedgedInstanceName(originalServer.getInstanceName(), instanceRequest.getSearchSegments(),
+            segmentToServersMap);
+    if (hedgedInstanceName == null || !withdrawHedgingBudget()) {
+      return;
+    }
+
+    long hedgedRequestId = -_hedgedRequestIdGenerator.incrementAndGet();
+    _hedgedRequestMap.put(hedgedRequestId, new HedgedRequest(asyncQueryResponse, originalServer, rawTableName));
+    if (!asyncQueryResponse.addHedgedRequest(hedgedRequestId)) {
+      // Query is already done
+      _hedgedRequestMap.remove(hedgedRequestId);
+      return;
+    }
+    Server hedgedServer = new Server(hedgedInstanceName, originalServer.getTableType());
+    try {
+      _serverChannels.sendRequest(hedgedServer,
+          getInstanceRequest(hedgedRequestId, instanceRequest.getQuery(), instanceRequest.getSearchSegments()));
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS_SENT, 1);
+    } catch (Exception e) {
+      // Still wait for the original request
+      LOGGER.warn("Caught exception while sending hedged request for request {} to server: {}",
+          instanceRequest.getRequestId(), hedgedServer, e);
+    }
+  }
+
+  /**
+   * Returns the server (other than the original server) serving all the given segments with the lowest score, or
+   * {@code null} if there is no such server.
+   */
+  @Nullable
+  private String getHedgedInstanceName(String originalInstanceName, List<String> segments,
+      Map<String, List<String>> segmentToServersMap) {
+    Set<String> candidates = null;
+    for (String segment : segments) {
+      List<String> servers = segmentToServersMap.get(segment);
+      if (servers == null) {
+        return null;
+      }
+      if (candidates == null) {
+        candidates = new HashSet<>(servers);
+        candidates.remove(originalInstanceName);
+      } else {
+        candidates.retainAll(servers);
+      }
+      if (candidates.isEmpty()) {
+        return null;
+      }
+    }
+    String hedgedInstanceName = null;
+    double minScore = Double.MAX_VALUE;
+    for (String candidate : candidates) {
+      double score = _serverLoadTracker.getScore(candidate);
+      if (score < minScore) {
+        minScore = score;
+        hedgedInstanceName = candidate;
+      }
+    }
+    return hedgedInstanceName;
+  }
+
+  private void depositHedgingBudget() {
+    _hedgingBudget.accumulateAndGet(_hedgingBudgetDeposit,
+        (budget, deposit) -> Math.min(budget + deposit, MAX_HEDGING_BUDGET));
+  }
+
+  private boolean withdrawHedgingBudget() {
+    while (true) {
+      long budget = _hedgingBudget.get();
+      if (budget < HEDGING_BUDGET_PER_REQUEST) {
+        return false;
+      }
+      if (_hedgingBudget.compareAndSet(budget, budget - HEDGING_BUDGET_PER_REQUEST)) {
+        return true;
+      }
+    }
   }
 
   private InstanceRequest getInstanceRequest(long requestId, BrokerRequest brokerRequest, List<String> segments) {
@@ -130,4 +412,16 @@ public class QueryRouter {
     instanceRequest.setBrokerId(_brokerId);
     return instanceRequest;
   }
+
+  private static class HedgedRequest {
+    final AsyncQueryResponse _asyncQueryResponse;
+    final Server _originalServer;
+    final String _rawTableName;
+
+    HedgedRequest(AsyncQueryResponse asyncQueryResponse, Server originalServer, String rawTableName) {
+      _asyncQueryResponse = asyncQueryResponse;
+      _originalServer = originalServer;
+      _rawTableName = rawTableName;
+    }
+  }
 }
@@ -13,9 +13,14 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.linkedin.pinot.core.query.selection.comparator;
+package com.linkedin.pinot.core.transport;
 
-public interface IDocIdValComparator {
-
-  int compare(int docId1, int docId2);
+/**
+ * Thrown when a request is rejected without being sent to the server because the broker is overloaded (e.g. the
+ * pending bytes to the server exceed the limit).
+ */
+public class RequestRejectedException extends RuntimeException {
+  public RequestRejectedException(String message) {
+    super(message);
+  }
 }
@@ -19,11 +19,16 @@ import com.linkedin.pinot.common.metrics.BrokerGauge;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.utils.CommonConstants;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -31,26 +36,56 @@ import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import javax.annotation.concurrent.ThreadSafe;
-import org.apache.thrift.TSerializer;
 import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
 
 
 /**
  * The {@code ServerChannels} class manages the channels between broker to all the connected servers.
- * <p>There is only one channel between the broker and each connected server (we count OFFLINE and REALTIME as different
- * servers)
+ * <p>There is a configurable number of channels between the broker and each connected server (we count OFFLINE and
+ * REALTIME as different servers). The requests are multiplexed over the channels (responses are matched with the
+ * requests by the request id), preferring the channels that are writable, i.e. below the write buffer high water mark.
+ * <p>The bytes of the requests written but not yet flushed to the server are tracked per server, and a request is
+ * rejected right away if it would push them over the configured limit, instead of piling up unbounded write buffers
+ * for a slow server.
  */
 @ThreadSafe
 public class ServerChannels {
+  private static final String PENDING_REQUESTS_GAUGE_PREFIX = "nettyConnection.pendingRequests.";
+  private static final String PENDING_BYTES_GAUGE_PREFIX = "nettyConnection.pendingBytes.";
+
   private final QueryRouter _queryRouter;
   private final BrokerMetrics _brokerMetrics;
+  private final int _numConnectionsPerServer;
+  private final WriteBufferWaterMark _writeBufferWaterMark;
+  private final long _maxPendingBytesPerServer;
   private final ConcurrentHashMap<Server, ServerChannel> _serverToChannelMap = new ConcurrentHashMap<>();
   private final EventLoopGroup _eventLoopGroup = new NioEventLoopGroup();
 
   public ServerChannels(QueryRouter queryRouter, BrokerMetrics brokerMetrics) {
+    this(queryRouter, brokerMetrics, CommonConstants.Broker.DEFAULT_BROKER_NETTY_CONNECTIONS_PER_SERVER,
+        CommonConstants.Broker.DEFAULT_BROKER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK,
+        CommonConstants.Broker.DEFAULT_BROKER_NETTY_MAX_PENDING_BYTES_PER_SERVER);
+  }
+
+  /**
+   * @param numConnectionsPerServer Number of channels to each server
+   * @param writeBufferHighWaterMark Number of pending bytes in the write buffer of a channel above which the channel is
+   *                                 not writable (the low water mark is half of it)
+   * @param maxPendingBytesPerServer Maximum number of pending bytes across the channels to a server, above which the
+   *                                 requests are rejected, 0 for no limit
+   */
+  public ServerChannels(QueryRouter queryRouter, BrokerMetrics brokerMetrics, int numConnectionsPerServer,
+      int writeBufferHighWaterMark, long maxPendingBytesPerServer) {
     _queryRouter = queryRouter;
     _brokerMetrics = brokerMetrics;
+    _numConnectionsPerServer = Math.max(numConnectionsPerServer, 1);
+    _writeBufferWaterMark = new WriteBufferWaterMark(writeBufferHighWaterMark / 2, writeBufferHighWaterMark);
+    _maxPendingBytesPerServer = maxPendingBytesPerServer;
   }
 
   public void sendRequest(Server server, InstanceRequest instanceRequest) throws Exception {
@@ -64,10 +99,13 @@ public class ServerChannels {
 
   @ThreadSafe
   private class ServerChannel {
-    final TSerializer _serializer = new TSerializer(new TCompactProtocol.Factory());
     final Server _server;
     final Bootstrap _bootstrap;
-    Channel _channel;
+    final AtomicReferenceArray<Channel> _channels = new AtomicReferenceArray<>(_numConnectionsPerServer);
+    final AtomicInteger _nextChannelIndex = new AtomicInteger();
+    // Requests (and their bytes) written to the channels but not yet flushed to the server
+    final AtomicInteger _numPendingRequests = new AtomicInteger();
+    final AtomicLong _numPendingBytes = new AtomicLong();
 
     ServerChannel(Server server) {
       _server = server;
@@ -75,6 +113,8 @@ public class ServerChannels {
           .group(_eventLoopGroup)
           .channel(NioSocketChannel.class)
           .option(ChannelOption.SO_KEEPALIVE, true)
+          .option(ChannelOption.WRITE_BUFFER_WATER_MARK, _writeBufferWaterMark)
+          .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
           .handler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
@@ -86,20 +126,86 @@ public class ServerChannels {
                       new DataTableHandler(_queryRouter, _server, _brokerMetrics));
             }
           });
+      String shortName = server.getShortName();
+      _brokerMetrics.addCallbackGauge(PENDING_REQUESTS_GAUGE_PREFIX + shortName,
+          () -> (long) _numPendingRequests.get());
+      _brokerMetrics.addCallbackGauge(PENDING_BYTES_GAUGE_PREFIX + shortName, _numPendingBytes::get);
     }
 
-    synchronized void sendRequest(InstanceRequest instanceRequest) throws Exception {
-      if (_channel == null || !_channel.isActive()) {
-        long startTime = System.currentTimeMillis();
-        _channel = _bootstrap.connect().sync().channel();
-        _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.NETTY_CONNECTION_CONNECT_TIME_MS,
-            System.currentTimeMillis() - startTime);
+    void sendRequest(InstanceRequest instanceRequest) throws Exception {
+      // Serialize the request into a pooled direct buffer outside of the channel locks
+      ByteBuf requestBuf = PooledByteBufAllocator.DEFAULT.directBuffer();
+      int requestSize;
+      try {
+        instanceRequest.write(new TCompactProtocol(new TIOStreamTransport(new ByteBufOutputStream(requestBuf))));
+        requestSize = requestBuf.readableBytes();
+      } catch (Exception e) {
+        requestBuf.release();
+        throw e;
       }
-      byte[] requestBytes = _serializer.serialize(instanceRequest);
-      _channel.writeAndFlush(_channel.alloc().buffer(requestBytes.length).writeBytes(requestBytes),
-          _channel.voidPromise());
+
+      // Reserve the pending bytes atomically before checking the limit, and roll back if the request is not sent
+      long numPendingBytes = _numPendingBytes.addAndGet(requestSize);
+      Channel channel;
+      try {
+        if (_maxPendingBytesPerServer > 0 && numPendingBytes > _maxPendingBytesPerServer) {
+          _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_REJECTED, 1L);
+          throw new RequestRejectedException(
+              String.format("Pending bytes to server: %s exceed the limit of %d bytes, rejecting the request", _server,
+                  _maxPendingBytesPerServer));
+        }
+        channel = getChannel();
+      } catch (Exception e) {
+        _numPendingBytes.addAndGet(-requestSize);
+        requestBuf.release();
+        throw e;
+      }
+      _numPendingRequests.incrementAndGet();
+      channel.writeAndFlush(requestBuf).addListener(future -> {
+        _numPendingRequests.decrementAndGet();
+        _numPendingBytes.addAndGet(-requestSize);
+      });
       _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_SENT, 1L);
-      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_SENT, requestBytes.length);
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_SENT, requestSize);
+    }
+
+    /**
+     * Returns the next writable channel in round-robin order, or the next channel if none of them is writable.
+     */
+    Channel getChannel() throws InterruptedException {
+      int startIndex = (_nextChannelIndex.getAndIncrement() & Integer.MAX_VALUE) % _numConnectionsPerServer;
+      Channel firstChannel = getChannel(startIndex);
+      if (firstChannel.isWritable()) {
+        return firstChannel;
+      }
+      for (int i = 1; i < _numConnectionsPerServer; i++) {
+        Channel channel = getChannel((startIndex + i) % _numConnectionsPerServer);
+        if (channel.isWritable()) {
+          return channel;
+        }
+      }
+      return firstChannel;
+    }
+
+    /**
+     * Returns the active channel at the given index, (re-)connects the channel if necessary.
+     */
+    Channel getChannel(int index) throws InterruptedException {
+      Channel channel = _channels.get(index);
+      if (channel != null && channel.isActive()) {
+        return channel;
+      }
+      synchronized (this) {
+        channel = _channels.get(index);
+        if (channel == null || !channel.isActive()) {
+          long startTime = System.currentTimeMillis();
+          channel = _bootstrap.connect().sync().channel();
+          _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.NETTY_CONNECTION_CONNECT_TIME_MS,
+              System.currentTimeMillis() - startTime);
+          _channels.set(index, channel);
+        }
+        return channel;
+      }
     }
   }
 }
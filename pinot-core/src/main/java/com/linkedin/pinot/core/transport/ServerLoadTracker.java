@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.transport;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * The {@code ServerLoadTracker} class tracks the load of each server (keyed by the server instance name) as observed by
+ * the broker, so that the routing can prefer the servers that respond faster.
+ * <p>For each server, it tracks the EWMA of the response latency and the number of in-flight requests. The latency EWMA
+ * decays exponentially towards 0 when no response is received, so that a server that was slow (e.g. during a GC pause)
+ * and no longer gets queries will eventually be retried.
+ * <p>The score of a server follows the C3 ranking function: the latency EWMA multiplied by the cube of the number of
+ * in-flight requests (plus 1), where lower score is preferred.
+ * <p>It also keeps the most recent latency samples of each server to provide the latency percentiles, which are used to
+ * decide when to hedge the request to a straggler server.
+ */
+@ThreadSafe
+public class ServerLoadTracker {
+  public static final long DEFAULT_DECAY_TIME_MS = 10_000L;
+
+  // Weight of the new latency sample in the EWMA
+  private static final double LATENCY_SMOOTHING_FACTOR = 0.25;
+  // Number of the most recent latency samples kept for the latency percentiles
+  private static final int NUM_LATENCY_SAMPLES = 128;
+  // Minimum number of latency samples required for the latency percentiles
+  private static final int MIN_NUM_LATENCY_SAMPLES = 32;
+  // Number of new latency samples before re-sorting the latency samples
+  private static final int LATENCY_PERCENTILE_REFRESH_INTERVAL = 16;
+
+  private final ConcurrentHashMap<String, ServerLoad> _serverLoadMap = new ConcurrentHashMap<>();
+  private final long _decayTimeMs;
+
+  public ServerLoadTracker() {
+    this(DEFAULT_DECAY_TIME_MS);
+  }
+
+  public ServerLoadTracker(long decayTimeMs) {
+    _decayTimeMs = decayTimeMs;
+  }
+
+  /**
+   * Records a request sent to the server.
+   */
+  public void recordRequestSent(String instanceName) {
+    getServerLoad(instanceName)._numInFlightRequests.incrementAndGet();
+  }
+
+  /**
+   * Records the end of a request sent to the server, with the latency observed by the broker.
+   * <p>Should be called exactly once for each {@link #recordRequestSent(String)} call, including the requests that
+   * timed out or failed (with the time waited as the latency).
+   */
+  public void recordResponse(String instanceName, long latencyMs) {
+    ServerLoad serverLoad = getServerLoad(instanceName);
+    serverLoad._numInFlightRequests.decrementAndGet();
+    serverLoad.updateLatency(latencyMs, System.currentTimeMillis());
+  }
+
+  public Set<String> getInstanceNames() {
+    return _serverLoadMap.keySet();
+  }
+
+  /**
+   * Returns the decayed latency EWMA of the server, or 0 if the server is not tracked.
+   */
+  public double getLatencyMs(String instanceName) {
+    ServerLoad serverLoad = _serverLoadMap.get(instanceName);
+    return serverLoad != null ? serverLoad.getLatencyMs(System.currentTimeMillis()) : 0.0;
+  }
+
+  /**
+   * Returns the number of in-flight requests of the server, or 0 if the server is not tracked.
+   */
+  public int getNumInFlightRequests(String instanceName) {
+    ServerLoad serverLoad = _serverLoadMap.get(instanceName);
+    return serverLoad != null ? serverLoad._numInFlightRequests.get() : 0;
+  }
+
+  /**
+   * Returns the given percentile (between 0 and 100) of the recent latency samples of the server, or -1 if there are
+   * not enough samples.
+   */
+  public long getLatencyPercentileMs(String instanceName, double percentile) {
+    ServerLoad serverLoad = _serverLoadMap.get(instanceName);
+    return serverLoad != null ? serverLoad.getLatencyPercentileMs(percentile) : -1L;
+  }
+
+  /**
+   * Returns the score of the server, where lower score is preferred. Servers not tracked have the lowest score.
+   */
+  public double getScore(String instanceName) {
+    ServerLoad serverLoad = _serverLoadMap.get(instanceName);
+    if (serverLoad == null) {
+      return 1.0;
+    }
+    double queueSize = serverLoad._numInFlightRequests.get() + 1;
+    return (serverLoad.getLatencyMs(System.currentTimeMillis()) + 1) * queueSize * queueSize * queueSize;
+  }
+
+  private ServerLoad getServerLoad(String instanceName) {
+    return _serverLoadMap.computeIfAbsent(instanceName, k -> new ServerLoad());
+  }
+
+  private class ServerLoad {
+    final AtomicInteger _numInFlightRequests = new AtomicInteger();
+    // Latency EWMA as of the last update time
+    double _latencyMs;
+    long _lastUpdateTimeMs;
+    // Ring buffer of the most recent latency samples
+    final long[] _latencySamples = new long[NUM_LATENCY_SAMPLES];
+    long _numLatencySamples;
+    // Sorted latency samples cached for the latency percentiles
+    long[] _sortedLatencySamples;
+    long _numLatencySamplesWhenSorted;
+
+    synchronized void updateLatency(long latencyMs, long currentTimeMs) {
+      if (_lastUpdateTimeMs == 0) {
+        // First sample
+        _latencyMs = latencyMs;
+      } else {
+        double decayedLatencyMs = getLatencyMs(currentTimeMs);
+        _latencyMs = decayedLatencyMs + LATENCY_SMOOTHING_FACTOR * (latencyMs - decayedLatencyMs);
+      }
+      _lastUpdateTimeMs = currentTimeMs;
+      _latencySamples[(int) (_numLatencySamples++ % NUM_LATENCY_SAMPLES)] = latencyMs;
+    }
+
+    synchronized long getLatencyPercentileMs(double percentile) {
+      if (_numLatencySamples < MIN_NUM_LATENCY_SAMPLES) {
+        return -1L;
+      }
+      if (_sortedLatencySamples == null
+          || _numLatencySamples - _numLatencySamplesWhenSorted >= LATENCY_PERCENTILE_REFRESH_INTERVAL) {
+        int numSamples = (int) Math.min(_numLatencySamples, NUM_LATENCY_SAMPLES);
+        _sortedLatencySamples = Arrays.copyOf(_latencySamples, numSamples);
+        Arrays.sort(_sortedLatencySamples);
+        _numLatencySamplesWhenSorted = _numLatencySamples;
+      }
+      int index = (int) Math.ceil(percentile / 100 * _sortedLatencySamples.length) - 1;
+      return _sortedLatencySamples[Math.max(0, Math.min(index, _sortedLatencySamples.length - 1))];
+    }
+
+    synchronized double getLatencyMs(long currentTimeMs) {
+      long elapsedTimeMs = currentTimeMs - _lastUpdateTimeMs;
+      if (elapsedTimeMs <= 0) {
+        return _latencyMs;
+      }
+      return _latencyMs * Math.exp(-(double) elapsedTimeMs / _decayTimeMs);
+    }
+  }
+}
@@ -30,6 +30,8 @@ public class ServerResponse {
   private volatile DataTable _dataTable;
   private volatile long _responseSize;
   private volatile long _deserializationTimeMs;
+  // Guarded by this
+  private boolean _released;
 
   public ServerResponse(long startTimeMs) {
     _startTimeMs = startTimeMs;
@@ -73,10 +75,30 @@ public class ServerResponse {
     _submitRequestTimeMs = System.currentTimeMillis();
   }
 
-  void receiveDataTable(DataTable dataTable, long responseSize, long deserializationTimeMs) {
+  /**
+   * Receives the data table, returns {@code false} if a data table has already been received (e.g. from the hedged
+   * request) or the response has been released, in which case the caller should release the data table.
+   */
+  synchronized boolean receiveDataTable(DataTable dataTable, long responseSize, long deserializationTimeMs) {
+    if (_dataTable != null || _released) {
+      return false;
+    }
     _receiveDataTabTimeMs = System.currentTimeMillis();
     _dataTable = dataTable;
     _responseSize = responseSize;
     _deserializationTimeMs = deserializationTimeMs;
+    return true;
+  }
+
+  /**
+   * Releases the data table received (if any). Data tables received afterwards are rejected.
+   */
+  synchronized void release() {
+    if (!_released) {
+      _released = true;
+      if (_dataTable != null) {
+        _dataTable.release();
+      }
+    }
   }
 }
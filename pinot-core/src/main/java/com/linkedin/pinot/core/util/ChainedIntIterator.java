@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util;
+
+import java.util.NoSuchElementException;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+
+/**
+ * Iterator over the values of multiple bitmaps with ascending and disjoint value ranges (values in each bitmap are
+ * smaller than the values in the next bitmap). The values are iterated in ascending order without merging the bitmaps.
+ */
+public class ChainedIntIterator implements IntIterator {
+  private final ImmutableRoaringBitmap[] _bitmaps;
+  private int _nextBitmapIndex;
+  private IntIterator _currentIterator;
+
+  public ChainedIntIterator(ImmutableRoaringBitmap[] bitmaps) {
+    this(bitmaps, 0, null);
+  }
+
+  private ChainedIntIterator(ImmutableRoaringBitmap[] bitmaps, int nextBitmapIndex, IntIterator currentIterator) {
+    _bitmaps = bitmaps;
+    _nextBitmapIndex = nextBitmapIndex;
+    _currentIterator = currentIterator;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (_currentIterator == null || !_currentIterator.hasNext()) {
+      if (_nextBitmapIndex == _bitmaps.length) {
+        return false;
+      }
+      _currentIterator = _bitmaps[_nextBitmapIndex++].getIntIterator();
+    }
+    return true;
+  }
+
+  @Override
+  public int next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return _currentIterator.next();
+  }
+
+  @Override
+  public IntIterator clone() {
+    return new ChainedIntIterator(_bitmaps, _nextBitmapIndex,
+        _currentIterator != null ? _currentIterator.clone() : null);
+  }
+}
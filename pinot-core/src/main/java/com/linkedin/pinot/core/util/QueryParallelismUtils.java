@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The <code>QueryParallelismUtils</code> class decides how many tasks to use to process a query on the server.
+ * <p>Tasks pull work items (segments) from a shared queue until it is drained, so the number of tasks only needs to be
+ * large enough to keep the cores busy. It is derived from:
+ * <ul>
+ *   <li>The number of work items, so that no task is idle from the start</li>
+ *   <li>The total number of documents to process, so that small queries do not fan out to many threads</li>
+ *   <li>The number of tasks already running on the server, so that concurrent queries share the cores instead of
+ *   over-subscribing them</li>
+ * </ul>
+ * <p>The last two bounds never go below {@link #MIN_NUM_TASKS}, so that a query with enough work items always gets
+ * some parallelism even on a loaded server.
+ * <p>All the tasks processing a query should call {@link #onTaskStart()} and {@link #onTaskFinish()} so that the
+ * number of running tasks is accurate.
+ */
+public class QueryParallelismUtils {
+  private QueryParallelismUtils() {
+  }
+
+  public static final int NUM_CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+  // Minimum number of documents for each task, below which it is cheaper to process the documents in fewer tasks
+  public static final long MIN_DOCS_PER_TASK = 100_000L;
+
+  // Minimum number of tasks for each query (if it has enough work items), regardless of the documents and the load
+  public static final int MIN_NUM_TASKS = Math.max(1, NUM_CORES / 2);
+
+  // Number of tasks currently running on the server
+  private static final AtomicInteger NUM_ACTIVE_TASKS = new AtomicInteger();
+
+  /**
+   * Returns the number of tasks to process the given work items.
+   *
+   * @param numWorkItems Number of work items
+   * @param numTotalDocs Total number of documents of the work items, or negative if unknown
+   * @return Number of tasks, always in range [1, max(1, numWorkItems)]
+   */
+  public static int getNumTasks(int numWorkItems, long numTotalDocs) {
+    if (numWorkItems <= 1) {
+      return 1;
+    }
+    int numTasks = getNumAvailableCores();
+    if (numTotalDocs >= 0) {
+      numTasks = (int) Math.min(numTasks, (numTotalDocs + MIN_DOCS_PER_TASK - 1) / MIN_DOCS_PER_TASK);
+    }
+    return Math.min(numWorkItems, Math.max(numTasks, MIN_NUM_TASKS));
+  }
+
+  /**
+   * Returns the number of cores not occupied by the running tasks, at least 1.
+   */
+  public static int getNumAvailableCores() {
+    return Math.max(1, NUM_CORES - NUM_ACTIVE_TASKS.get());
+  }
+
+  /**
+   * Returns the number of tasks currently running on the server.
+   */
+  public static int getNumActiveTasks() {
+    return NUM_ACTIVE_TASKS.get();
+  }
+
+  /**
+   * Should be called when a task starts running. Must be paired with {@link #onTaskFinish()}.
+   */
+  public static void onTaskStart() {
+    NUM_ACTIVE_TASKS.incrementAndGet();
+  }
+
+  /**
+   * Should be called when a task finishes running, in a finally block.
+   */
+  public static void onTaskFinish() {
+    NUM_ACTIVE_TASKS.decrementAndGet();
+  }
+}
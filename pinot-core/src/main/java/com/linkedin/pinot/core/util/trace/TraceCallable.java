@@ -15,20 +15,24 @@
  */
 package com.linkedin.pinot.core.util.trace;
 
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
 import java.util.concurrent.Callable;
 
 
 /**
- * Wrapper class for {@link Callable} to automatically register/un-register itself to/from a request.
+ * Wrapper class for {@link Callable} to automatically register/un-register itself to/from a request, and to propagate
+ * the {@link QueryExecutionContext} of the request.
  */
 public abstract class TraceCallable<V> implements Callable<V> {
   private final TraceContext.TraceEntry _parentTraceEntry;
+  private final QueryExecutionContext _queryExecutionContext;
 
   /**
    * If trace is not enabled, parent trace entry will be null.
    */
   public TraceCallable() {
     _parentTraceEntry = TraceContext.getTraceEntry();
+    _queryExecutionContext = QueryExecutionContext.get();
   }
 
   @Override
@@ -36,9 +40,12 @@ public abstract class TraceCallable<V> implements Callable<V> {
     if (_parentTraceEntry != null) {
       TraceContext.registerThreadToRequest(_parentTraceEntry);
     }
+    QueryExecutionContext previousQueryExecutionContext = QueryExecutionContext.get();
+    QueryExecutionContext.register(_queryExecutionContext);
     try {
       return callJob();
     } finally {
+      QueryExecutionContext.register(previousQueryExecutionContext);
       if (_parentTraceEntry != null) {
         TraceContext.unregisterThreadFromRequest();
       }
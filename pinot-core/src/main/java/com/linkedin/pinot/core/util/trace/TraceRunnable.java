@@ -15,17 +15,23 @@
  */
 package com.linkedin.pinot.core.util.trace;
 
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
+
+
 /**
- * Wrapper class for {@link Runnable} to automatically register/un-register itself to/from a request.
+ * Wrapper class for {@link Runnable} to automatically register/un-register itself to/from a request, and to propagate
+ * the {@link QueryExecutionContext} of the request.
  */
 public abstract class TraceRunnable implements Runnable {
   private final TraceContext.TraceEntry _parentTraceEntry;
+  private final QueryExecutionContext _queryExecutionContext;
 
   /**
    * If trace is not enabled, parent trace entry will be null.
    */
   public TraceRunnable() {
     _parentTraceEntry = TraceContext.getTraceEntry();
+    _queryExecutionContext = QueryExecutionContext.get();
   }
 
   @Override
@@ -33,9 +39,12 @@ public abstract class TraceRunnable implements Runnable {
     if (_parentTraceEntry != null) {
       TraceContext.registerThreadToRequest(_parentTraceEntry);
     }
+    QueryExecutionContext previousQueryExecutionContext = QueryExecutionContext.get();
+    QueryExecutionContext.register(_queryExecutionContext);
     try {
       runJob();
     } finally {
+      QueryExecutionContext.register(previousQueryExecutionContext);
       if (_parentTraceEntry != null) {
         TraceContext.unregisterThreadFromRequest();
       }
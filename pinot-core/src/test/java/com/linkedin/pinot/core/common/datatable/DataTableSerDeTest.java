@@ -16,11 +16,18 @@
 package com.linkedin.pinot.core.common.datatable;
 
 import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -84,6 +91,98 @@ public class DataTableSerDeTest {
 
   @Test
   public void testAllDataTypes() throws IOException {
+    testAllDataTypes(DataTableFactory.DEFAULT_VERSION, ChunkCompressorFactory.CompressionType.PASS_THROUGH);
+  }
+
+  @Test
+  public void testAllDataTypesV3() throws IOException {
+    for (ChunkCompressorFactory.CompressionType compressionType : ChunkCompressorFactory.CompressionType.values()) {
+      testAllDataTypes(DataTableImplV3.VERSION, compressionType);
+    }
+  }
+
+  @Test
+  public void testExceptionV3() throws IOException {
+    ProcessingException processingException = QueryException.getException(QueryException.QUERY_EXECUTION_ERROR,
+        new UnsupportedOperationException("Caught exception."));
+
+    DataTable dataTable = new DataTableImplV3();
+    dataTable.addException(processingException);
+    DataTable newDataTable = DataTableFactory.getDataTable(dataTable.toBytes());
+    Assert.assertTrue(newDataTable instanceof DataTableImplV3);
+    Assert.assertNull(newDataTable.getDataSchema());
+    Assert.assertEquals(newDataTable.getNumberOfRows(), 0);
+    Assert.assertEquals(newDataTable.getMetadata()
+            .get(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_EXECUTION_ERROR.getErrorCode()),
+        processingException.getMessage());
+  }
+
+  @Test
+  public void testByteBuf() throws IOException {
+    DataSchema dataSchema = new DataSchema(new String[]{"INT", "STRING"},
+        new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.STRING});
+    DataTableBuilder dataTableBuilder =
+        new DataTableBuilder(dataSchema, DataTableImplV3.VERSION, ChunkCompressorFactory.CompressionType.PASS_THROUGH);
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      dataTableBuilder.startRow();
+      dataTableBuilder.setColumn(0, rowId);
+      dataTableBuilder.setColumn(1, Integer.toString(rowId % 10));
+      dataTableBuilder.finishRow();
+    }
+    byte[] bytes = dataTableBuilder.build().toBytes();
+
+    // Data table V3 reads in place from the Netty buffer, and retains it until the data table is released
+    ByteBuf byteBuf = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+    DataTable dataTable = DataTableFactory.getDataTable(byteBuf);
+    Assert.assertEquals(byteBuf.refCnt(), 2);
+    // Caller releases the buffer after deserializing the data table
+    byteBuf.release();
+    Assert.assertEquals(dataTable.getDataSchema(), dataSchema);
+    Assert.assertEquals(dataTable.getNumberOfRows(), NUM_ROWS);
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      Assert.assertEquals(dataTable.getInt(rowId, 0), rowId);
+      Assert.assertEquals(dataTable.getString(rowId, 1), Integer.toString(rowId % 10));
+    }
+    dataTable.release();
+    Assert.assertEquals(byteBuf.refCnt(), 0);
+    // Releasing the data table again has no effect
+    dataTable.release();
+
+    // Data table V2 copies out of the Netty buffer
+    DataTableImplV2 dataTableV2 = new DataTableImplV2();
+    dataTableV2.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, "1");
+    bytes = dataTableV2.toBytes();
+    byteBuf = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+    dataTable = DataTableFactory.getDataTable(byteBuf);
+    Assert.assertEquals(byteBuf.refCnt(), 1);
+    byteBuf.release();
+    Assert.assertEquals(dataTable.getMetadata().get(DataTable.REQUEST_ID_METADATA_KEY), "1");
+  }
+
+  @Test
+  public void testResponseVersion() {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    // Broker without the query option only supports the default version
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest, DataTableFactory.LATEST_VERSION),
+        DataTableFactory.DEFAULT_VERSION);
+
+    Map<String, String> queryOptions = new HashMap<>();
+    queryOptions.put(CommonConstants.Broker.Request.QueryOptionKey.DATA_TABLE_VERSION,
+        Integer.toString(DataTableImplV3.VERSION));
+    brokerRequest.setQueryOptions(queryOptions);
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest, DataTableFactory.LATEST_VERSION),
+        DataTableImplV3.VERSION);
+    // Server capped at the default version
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest, DataTableFactory.DEFAULT_VERSION),
+        DataTableFactory.DEFAULT_VERSION);
+
+    // Broker supporting a version newer than the server
+    queryOptions.put(CommonConstants.Broker.Request.QueryOptionKey.DATA_TABLE_VERSION, "100");
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest, 100), DataTableFactory.LATEST_VERSION);
+  }
+
+  private void testAllDataTypes(int version, ChunkCompressorFactory.CompressionType compressionType)
+      throws IOException {
     DataSchema.ColumnDataType[] columnDataTypes = DataSchema.ColumnDataType.values();
     int numColumns = columnDataTypes.length;
     String[] columnNames = new String[numColumns];
@@ -92,7 +191,7 @@ public class DataTableSerDeTest {
     }
     DataSchema dataSchema = new DataSchema(columnNames, columnDataTypes);
 
-    DataTableBuilder dataTableBuilder = new DataTableBuilder(dataSchema);
+    DataTableBuilder dataTableBuilder = new DataTableBuilder(dataSchema, version, compressionType);
 
     int[] ints = new int[NUM_ROWS];
     long[] longs = new long[NUM_ROWS];
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.dociditerators;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.operator.filter.predicate.BaseRawValueBasedPredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Compares the batch evaluation of {@link SVScanDocIdIterator} (raw INT column) with the per-document evaluation (raw
+ * LONG column with the same values).
+ */
+public class SVScanDocIdIteratorTest {
+  private static final int NUM_DOCS = 1000;
+  // Same as the batch size inside the iterator
+  private static final int BATCH_SIZE = 256;
+  private static final Random RANDOM = new Random();
+
+  private static final PredicateEvaluator PREDICATE_EVALUATOR = new BaseRawValueBasedPredicateEvaluator() {
+    @Override
+    public Predicate.Type getPredicateType() {
+      return Predicate.Type.RANGE;
+    }
+
+    @Override
+    public boolean applySV(int value) {
+      return value % 7 == 0;
+    }
+
+    @Override
+    public boolean applySV(long value) {
+      return value % 7 == 0;
+    }
+  };
+
+  private final int[] _values = new int[NUM_DOCS];
+
+  @BeforeClass
+  public void setUp() {
+    for (int i = 0; i < NUM_DOCS; i++) {
+      _values[i] = RANDOM.nextInt(1000);
+    }
+  }
+
+  @Test
+  public void testNext() {
+    SVScanDocIdIterator batchIterator = getIterator(FieldSpec.DataType.INT, 0, NUM_DOCS - 1);
+    SVScanDocIdIterator perDocIterator = getIterator(FieldSpec.DataType.LONG, 0, NUM_DOCS - 1);
+    int docId;
+    while ((docId = perDocIterator.next()) != Constants.EOF) {
+      Assert.assertEquals(batchIterator.next(), docId);
+      Assert.assertEquals(batchIterator.currentDocId(), docId);
+    }
+    Assert.assertEquals(batchIterator.next(), Constants.EOF);
+    Assert.assertEquals(batchIterator.next(), Constants.EOF);
+  }
+
+  @Test
+  public void testAdvance() {
+    SVScanDocIdIterator batchIterator = getIterator(FieldSpec.DataType.INT, 0, NUM_DOCS - 1);
+    SVScanDocIdIterator perDocIterator = getIterator(FieldSpec.DataType.LONG, 0, NUM_DOCS - 1);
+
+    // Read the first batch, then advance into the middle of it
+    assertNext(batchIterator, perDocIterator);
+    assertAdvance(batchIterator, perDocIterator, BATCH_SIZE / 2);
+    assertNext(batchIterator, perDocIterator);
+    // Advance to a document already passed
+    assertAdvance(batchIterator, perDocIterator, 1);
+    // Advance to the last document of the batch, and across the batch boundary
+    assertAdvance(batchIterator, perDocIterator, BATCH_SIZE - 1);
+    assertAdvance(batchIterator, perDocIterator, BATCH_SIZE);
+    assertNext(batchIterator, perDocIterator);
+    assertAdvance(batchIterator, perDocIterator, BATCH_SIZE + 1);
+    // Skip over a whole batch
+    assertAdvance(batchIterator, perDocIterator, 3 * BATCH_SIZE + 10);
+    assertNext(batchIterator, perDocIterator);
+    // Advance to the last document, then past the end
+    assertAdvance(batchIterator, perDocIterator, NUM_DOCS - 1);
+    Assert.assertEquals(batchIterator.advance(NUM_DOCS), Constants.EOF);
+    Assert.assertEquals(perDocIterator.advance(NUM_DOCS), Constants.EOF);
+    Assert.assertEquals(batchIterator.next(), Constants.EOF);
+    Assert.assertEquals(batchIterator.advance(0), Constants.EOF);
+  }
+
+  @Test
+  public void testAdvancePastEnd() {
+    SVScanDocIdIterator batchIterator = getIterator(FieldSpec.DataType.INT, 0, NUM_DOCS - 1);
+    Assert.assertEquals(batchIterator.advance(NUM_DOCS + BATCH_SIZE), Constants.EOF);
+    Assert.assertEquals(batchIterator.currentDocId(), Constants.EOF);
+    Assert.assertEquals(batchIterator.next(), Constants.EOF);
+  }
+
+  @Test
+  public void testRandomAdvance() {
+    // Sub-range of the documents not aligned with the batch size
+    int startDocId = 100;
+    int endDocId = NUM_DOCS - 100;
+    for (int i = 0; i < 100; i++) {
+      SVScanDocIdIterator batchIterator = getIterator(FieldSpec.DataType.INT, startDocId, endDocId);
+      SVScanDocIdIterator perDocIterator = getIterator(FieldSpec.DataType.LONG, startDocId, endDocId);
+      int docId = 0;
+      while (docId != Constants.EOF) {
+        if (RANDOM.nextBoolean()) {
+          docId = assertNext(batchIterator, perDocIterator);
+        } else {
+          // Target might be before the start, before the current document or after the end
+          docId = assertAdvance(batchIterator, perDocIterator, RANDOM.nextInt(NUM_DOCS + 10));
+        }
+      }
+    }
+  }
+
+  private int assertNext(SVScanDocIdIterator batchIterator, SVScanDocIdIterator perDocIterator) {
+    int docId = perDocIterator.next();
+    Assert.assertEquals(batchIterator.next(), docId);
+    return docId;
+  }
+
+  private int assertAdvance(SVScanDocIdIterator batchIterator, SVScanDocIdIterator perDocIterator,
+      int targetDocId) {
+    int docId = perDocIterator.advance(targetDocId);
+    Assert.assertEquals(batchIterator.advance(targetDocId), docId, "Advance to: " + targetDocId);
+    if (docId != Constants.EOF) {
+      Assert.assertTrue(PREDICATE_EVALUATOR.applySV(_values[docId]));
+    }
+    return docId;
+  }
+
+  /**
+   * Returns an iterator over the values with the given data type. Raw INT column is evaluated in batches, while raw
+   * LONG column is evaluated one document at a time.
+   */
+  private SVScanDocIdIterator getIterator(FieldSpec.DataType dataType, int startDocId, int endDocId) {
+    BlockValSet blockValSet = mock(BlockValSet.class);
+    when(blockValSet.iterator()).thenReturn(new ValueIterator(_values));
+    BlockMetadata blockMetadata = mock(BlockMetadata.class);
+    when(blockMetadata.getStartDocId()).thenReturn(startDocId);
+    when(blockMetadata.getEndDocId()).thenReturn(endDocId);
+    when(blockMetadata.getDataType()).thenReturn(dataType);
+    return new SVScanDocIdIterator("testColumn", blockValSet, blockMetadata, PREDICATE_EVALUATOR);
+  }
+
+  private static class ValueIterator extends BlockSingleValIterator {
+    private final int[] _values;
+    private int _nextDocId = 0;
+
+    ValueIterator(int[] values) {
+      _values = values;
+    }
+
+    @Override
+    public int nextIntVal() {
+      return _values[_nextDocId++];
+    }
+
+    @Override
+    public long nextLongVal() {
+      return _values[_nextDocId++];
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _nextDocId < _values.length;
+    }
+
+    @Override
+    public void skipTo(int docId) {
+      _nextDocId = docId;
+    }
+
+    @Override
+    public void reset() {
+      _nextDocId = 0;
+    }
+  }
+}
@@ -73,6 +73,25 @@ public class NoDictionaryRangePredicateEvaluatorTest {
     }
   }
 
+  @Test
+  public void testIntBatchPredicateEvaluator() {
+    int[] values = new int[]{Integer.MIN_VALUE, -20, -10, -9, 0, 9, 10, 20, Integer.MAX_VALUE};
+    int length = values.length;
+    int startDocId = 100;
+    for (String range : new String[]{"[-10\t\t10]", "(-10\t\t10)", "(*\t\t10]", "[10\t\t*)", "(*\t\t*)"}) {
+      PredicateEvaluator predicateEvaluator = buildRangePredicate(range, FieldSpec.DataType.INT);
+      int[] matchingDocIds = new int[length];
+      int numMatchingDocs = predicateEvaluator.applySV(values, length, startDocId, matchingDocIds);
+      int index = 0;
+      for (int i = 0; i < length; i++) {
+        if (predicateEvaluator.applySV(values[i])) {
+          Assert.assertEquals(matchingDocIds[index++], startDocId + i);
+        }
+      }
+      Assert.assertEquals(numMatchingDocs, index);
+    }
+  }
+
   @Test
   public void testLongPredicateEvaluator() {
 
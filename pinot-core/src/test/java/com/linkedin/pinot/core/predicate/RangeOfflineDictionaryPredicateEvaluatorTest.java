@@ -19,6 +19,7 @@ import com.linkedin.pinot.core.common.predicate.RangePredicate;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluatorFactory;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import java.util.Arrays;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -51,6 +52,11 @@ public class RangeOfflineDictionaryPredicateEvaluatorTest {
       Assert.assertFalse(evaluator.applyMV(dictIds, 1));
       dictIds = evaluator.getMatchingDictIds();
       verifyDictId(dictIds, rangeStart, rangeEnd);
+
+      int[] batchDictIds = new int[]{1, 2, 5, 6, 3};
+      int[] matchingDocIds = new int[batchDictIds.length];
+      Assert.assertEquals(evaluator.applySV(batchDictIds, batchDictIds.length, 10, matchingDocIds), 3);
+      Assert.assertEquals(Arrays.copyOf(matchingDocIds, 3), new int[]{11, 12, 14});
     }
     {
       // (2, 5]
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.executor;
+
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.core.query.request.ServerQueryRequest;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.yammer.metrics.core.MetricsRegistry;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+
+public class QueryCostEstimatorTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final ServerMetrics SERVER_METRICS = new ServerMetrics(new MetricsRegistry());
+  private static final long OVERHEAD = QueryCostEstimator.SEGMENT_OVERHEAD_COST;
+  private static final int NUM_DOCS = 8192;
+
+  private SegmentMetadataImpl _segmentMetadata;
+
+  @BeforeClass
+  public void setUp() {
+    _segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(_segmentMetadata.getTotalDocs()).thenReturn(NUM_DOCS);
+    // Cardinalities are powers of 2 so that the estimated number of matching documents is exact
+    mockColumn("invertedColumn", 8, true, false);
+    mockColumn("sortedColumn", 16, false, true);
+    mockColumn("scanColumn", 4, false, false);
+    mockColumn("metric", 4096, false, false);
+    mockColumn("highCardinalityColumn", 65536, false, false);
+  }
+
+  private void mockColumn(String column, int cardinality, boolean hasInvertedIndex, boolean isSorted) {
+    ColumnMetadata columnMetadata = mock(ColumnMetadata.class);
+    when(columnMetadata.getCardinality()).thenReturn(cardinality);
+    when(columnMetadata.hasInvertedIndex()).thenReturn(hasInvertedIndex);
+    when(columnMetadata.isSorted()).thenReturn(isSorted);
+    when(_segmentMetadata.getColumnMetadataFor(column)).thenReturn(columnMetadata);
+  }
+
+  @Test
+  public void testFilterIndex() {
+    // Columns with inverted index or sorted columns do not scan entries in filter
+    Assert.assertEquals(estimateCost("SELECT COUNT(*) FROM testTable WHERE invertedColumn = 'a'"), OVERHEAD);
+    Assert.assertEquals(estimateCost("SELECT COUNT(*) FROM testTable WHERE sortedColumn = 'a'"), OVERHEAD);
+
+    // Other columns scan all documents
+    Assert.assertEquals(estimateCost("SELECT COUNT(*) FROM testTable WHERE scanColumn = 'a'"), OVERHEAD + NUM_DOCS);
+
+    // Columns without column metadata are assumed to scan all documents
+    Assert.assertEquals(estimateCost("SELECT COUNT(*) FROM testTable WHERE unknownColumn = 'a'"), OVERHEAD + NUM_DOCS);
+  }
+
+  @Test
+  public void testSelectivity() {
+    // EQUALITY: 1/cardinality
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn = 'a'"),
+        OVERHEAD + NUM_DOCS / 8);
+    // IN: numValues/cardinality
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn IN ('a', 'b', 'c')"),
+        OVERHEAD + NUM_DOCS * 3 / 8);
+    // NOT: 1 - 1/cardinality
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn <> 'a'"),
+        OVERHEAD + NUM_DOCS * 7 / 8);
+    // NOT_IN: 1 - numValues/cardinality
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn NOT IN ('a', 'b')"),
+        OVERHEAD + NUM_DOCS * 6 / 8);
+    // RANGE: default selectivity
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn BETWEEN 'a' AND 'b'"),
+        OVERHEAD + (long) Math.ceil(NUM_DOCS * 0.3));
+
+    // AND: product of the selectivities, OR: sum of the selectivities
+    Assert.assertEquals(
+        estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn = 'a' AND sortedColumn = 'b'"),
+        OVERHEAD + NUM_DOCS / 8 / 16);
+    Assert.assertEquals(
+        estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn = 'a' OR sortedColumn = 'b'"),
+        OVERHEAD + NUM_DOCS / 8 + NUM_DOCS / 16);
+    Assert.assertEquals(
+        estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn = 'a' AND scanColumn = 'b'"),
+        OVERHEAD + NUM_DOCS + NUM_DOCS / 8 / 4);
+
+    // Filter columns used in other clauses are projected
+    Assert.assertEquals(
+        estimateCost("SELECT SUM(metric), MAX(invertedColumn) FROM testTable WHERE invertedColumn = 'a'"),
+        OVERHEAD + NUM_DOCS / 8 * 2);
+  }
+
+  @Test
+  public void testGroupBy() {
+    // Number of groups is the product of the cardinalities of the group-by columns
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable GROUP BY invertedColumn, scanColumn"),
+        OVERHEAD + NUM_DOCS * 3 + 8 * 4);
+
+    // Number of groups is bounded by the number of matching documents
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable GROUP BY highCardinalityColumn"),
+        OVERHEAD + NUM_DOCS * 2 + NUM_DOCS);
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable GROUP BY invertedColumn, metric"),
+        OVERHEAD + NUM_DOCS * 2 + NUM_DOCS);
+    Assert.assertEquals(
+        estimateCost("SELECT SUM(metric) FROM testTable WHERE invertedColumn = 'a' GROUP BY highCardinalityColumn"),
+        OVERHEAD + NUM_DOCS / 8 * 2 + NUM_DOCS / 8);
+
+    // Columns without column metadata are bounded by the number of matching documents
+    Assert.assertEquals(estimateCost("SELECT SUM(metric) FROM testTable GROUP BY unknownColumn"),
+        OVERHEAD + NUM_DOCS * 2 + NUM_DOCS);
+  }
+
+  private long estimateCost(String query) {
+    InstanceRequest instanceRequest = new InstanceRequest(0L, COMPILER.compileToBrokerRequest(query));
+    ServerQueryRequest queryRequest =
+        new ServerQueryRequest(instanceRequest, SERVER_METRICS, System.currentTimeMillis());
+    return QueryCostEstimator.estimateCost(_segmentMetadata, queryRequest);
+  }
+}
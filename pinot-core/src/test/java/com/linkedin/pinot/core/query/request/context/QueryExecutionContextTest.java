@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.request.context;
+
+import com.linkedin.pinot.core.query.exception.QueryCancelledException;
+import com.linkedin.pinot.core.util.trace.TraceCallable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+
+public class QueryExecutionContextTest {
+
+  @Test
+  public void testCancel() {
+    QueryExecutionContext context = new QueryExecutionContext();
+    context.checkTermination();
+    assertFalse(context.isTerminated());
+
+    context.cancel("first");
+    context.cancel("second");
+    assertTrue(context.isTerminated());
+    // Only the first termination reason is kept
+    assertEquals(context.getTerminationReason(), "first");
+    try {
+      context.checkTermination();
+      fail("Expected QueryCancelledException");
+    } catch (QueryCancelledException e) {
+      assertEquals(e.getMessage(), "first");
+    }
+  }
+
+  @Test(expectedExceptions = QueryCancelledException.class)
+  public void testDeadline() {
+    QueryExecutionContext context = new QueryExecutionContext();
+    context.setBudgets(System.currentTimeMillis() - 1, Long.MAX_VALUE, Long.MAX_VALUE);
+    context.checkTermination();
+  }
+
+  @Test
+  public void testBudgets() {
+    QueryExecutionContext context = new QueryExecutionContext();
+    context.setBudgets(Long.MAX_VALUE, 100, 1000);
+    context.addNumDocsScanned(60);
+    context.addNumDocsScanned(40);
+    context.addGroupByBytes(1000);
+    assertFalse(context.isTerminated());
+    assertEquals(context.getNumDocsScanned(), 100);
+    assertEquals(context.getGroupByBytes(), 1000);
+
+    try {
+      context.addNumDocsScanned(1);
+      fail("Expected QueryCancelledException");
+    } catch (QueryCancelledException e) {
+      // Expected
+    }
+    assertTrue(context.isTerminated());
+
+    context = new QueryExecutionContext();
+    context.setBudgets(Long.MAX_VALUE, Long.MAX_VALUE, 1000);
+    try {
+      context.addGroupByBytes(1001);
+      fail("Expected QueryCancelledException");
+    } catch (QueryCancelledException e) {
+      // Expected
+    }
+    assertTrue(context.isTerminated());
+  }
+
+  @Test
+  public void testPropagation() throws Exception {
+    QueryExecutionContext context = new QueryExecutionContext();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      QueryExecutionContext.register(context);
+      TraceCallable<QueryExecutionContext> callable = new TraceCallable<QueryExecutionContext>() {
+        @Override
+        public QueryExecutionContext callJob() {
+          return QueryExecutionContext.get();
+        }
+      };
+      QueryExecutionContext.unregister();
+      assertNull(QueryExecutionContext.get());
+
+      // Context registered when creating the callable is propagated to the worker thread
+      assertSame(executorService.submit(callable).get(), context);
+      // Context is un-registered from the worker thread after the job
+      assertNull(executorService.submit(QueryExecutionContext::get).get());
+    } finally {
+      QueryExecutionContext.unregister();
+      executorService.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.request.context;
+
+import java.util.Map;
+import java.util.TreeMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class QueryProfileTest {
+
+  @Test
+  public void testAddCounters() {
+    QueryProfile queryProfile = new QueryProfile();
+    queryProfile.addCall("op1", 100L);
+    queryProfile.addCall("op1", 50L);
+    queryProfile.addRows("op2", 10L, 2L);
+    queryProfile.add("op2", QueryProfile.WAIT_TIME_NS, 5L);
+
+    Map<String, Map<String, Long>> counters = queryProfile.getCounters();
+    Assert.assertEquals(counters.size(), 2);
+    Assert.assertEquals(counters.get("op1").get(QueryProfile.NUM_CALLS).longValue(), 2L);
+    Assert.assertEquals(counters.get("op1").get(QueryProfile.TIME_NS).longValue(), 150L);
+    Assert.assertEquals(counters.get("op2").get(QueryProfile.NUM_ROWS_IN).longValue(), 10L);
+    Assert.assertEquals(counters.get("op2").get(QueryProfile.NUM_ROWS_OUT).longValue(), 2L);
+    Assert.assertEquals(counters.get("op2").get(QueryProfile.WAIT_TIME_NS).longValue(), 5L);
+  }
+
+  @Test
+  public void testMergeJsonString() throws Exception {
+    QueryProfile server1 = new QueryProfile();
+    server1.addCall("op1", 100L);
+    server1.addRows("op2", 10L, 2L);
+    QueryProfile server2 = new QueryProfile();
+    server2.addCall("op1", 20L);
+    server2.add("op3", QueryProfile.NUM_SEGMENTS, 1L);
+
+    Map<String, Map<String, Long>> counters = new TreeMap<>();
+    QueryProfile.mergeJsonString(counters, server1.toJsonString());
+    Assert.assertEquals(counters, server1.getCounters());
+    QueryProfile.mergeJsonString(counters, server2.toJsonString());
+    Assert.assertEquals(counters.size(), 3);
+    Assert.assertEquals(counters.get("op1").get(QueryProfile.NUM_CALLS).longValue(), 2L);
+    Assert.assertEquals(counters.get("op1").get(QueryProfile.TIME_NS).longValue(), 120L);
+    Assert.assertEquals(counters.get("op2").get(QueryProfile.NUM_ROWS_IN).longValue(), 10L);
+    Assert.assertEquals(counters.get("op3").get(QueryProfile.NUM_SEGMENTS).longValue(), 1L);
+  }
+
+  @Test
+  public void testGetFromExecutionContext() {
+    Assert.assertNull(QueryProfile.get());
+    QueryExecutionContext executionContext = new QueryExecutionContext();
+    QueryExecutionContext.register(executionContext);
+    try {
+      Assert.assertNull(QueryProfile.get());
+      QueryProfile queryProfile = new QueryProfile();
+      executionContext.setProfile(queryProfile);
+      Assert.assertSame(QueryProfile.get(), queryProfile);
+    } finally {
+      QueryExecutionContext.unregister();
+    }
+  }
+}
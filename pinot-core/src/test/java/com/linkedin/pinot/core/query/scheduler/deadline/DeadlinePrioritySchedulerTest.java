@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.deadline;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.metrics.ServerQueryPhase;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.query.executor.QueryExecutor;
+import com.linkedin.pinot.core.query.request.ServerQueryRequest;
+import com.linkedin.pinot.core.query.scheduler.MultiLevelPriorityQueue;
+import com.linkedin.pinot.core.query.scheduler.SchedulerGroup;
+import com.linkedin.pinot.core.query.scheduler.SchedulerGroupFactory;
+import com.linkedin.pinot.core.query.scheduler.SchedulerQueryContext;
+import com.linkedin.pinot.core.query.scheduler.TableBasedGroupMapper;
+import com.linkedin.pinot.core.query.scheduler.resources.PolicyBasedResourceManager;
+import com.linkedin.pinot.core.query.scheduler.resources.ResourceManager;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.concurrent.atomic.LongAccumulator;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static com.linkedin.pinot.core.query.scheduler.TestHelper.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the load shedding of the {@link DeadlinePriorityScheduler}. The scheduler thread is not started, instead the
+ * queries are submitted, taken and finished by calling the scheduler hooks directly, so that the predictions are
+ * deterministic.
+ */
+public class DeadlinePrioritySchedulerTest {
+  private static final ServerMetrics metrics = new ServerMetrics(new MetricsRegistry());
+  private static final String TABLE_NAME = "testTable";
+  private static final long DEFAULT_QUERY_TIMEOUT_MS = 1000L;
+  // 1 millisecond per unit of cost
+  private static final double INITIAL_NANOS_PER_COST = 1_000_000.0;
+
+  private QueryExecutor queryExecutor;
+  private ResourceManager resourceManager;
+  private MultiLevelPriorityQueue queue;
+  private DeadlinePriorityScheduler scheduler;
+
+  @BeforeMethod
+  public void setUp() {
+    Configuration config = new PropertiesConfiguration();
+    config.setProperty(ResourceManager.QUERY_RUNNER_CONFIG_KEY, 1);
+    config.setProperty(DeadlinePriorityScheduler.DEFAULT_QUERY_TIMEOUT_MS_KEY, DEFAULT_QUERY_TIMEOUT_MS);
+    config.setProperty(DeadlinePriorityScheduler.INITIAL_NANOS_PER_COST_KEY, INITIAL_NANOS_PER_COST);
+    queryExecutor = mock(QueryExecutor.class);
+    resourceManager = new PolicyBasedResourceManager(config);
+    SchedulerGroupFactory groupFactory = new SchedulerGroupFactory() {
+      @Override
+      public SchedulerGroup create(Configuration config, String groupName) {
+        return new DeadlineSchedulerGroup(groupName);
+      }
+    };
+    queue = new MultiLevelPriorityQueue(config, resourceManager, groupFactory, new TableBasedGroupMapper());
+    scheduler = new DeadlinePriorityScheduler(config, resourceManager, queryExecutor, queue, metrics,
+        new LongAccumulator(Long::max, 0));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    resourceManager.stop();
+  }
+
+  @Test
+  public void testShedOnSubmit() throws Exception {
+    long now = System.currentTimeMillis();
+
+    // Expensive query with a late deadline is accepted when nothing is ahead of it
+    assertNull(submit(createQuery(now, 700)));
+
+    // Cheap query with an earlier deadline runs before the pending expensive query, so it is accepted
+    assertNull(submit(createQuery(now - 500, 100)));
+
+    // Query with a later deadline waits for both pending queries, and is predicted to miss its deadline
+    assertShed(submit(createQuery(now + 500, 800)));
+
+    // Query with a tight deadline that cannot finish after the cheap query ahead of it is shed
+    assertShed(submit(createQuery(now - 500, 600)));
+  }
+
+  @Test
+  public void testShedOnSubmitWithRunningQuery() throws Exception {
+    long now = System.currentTimeMillis();
+    assertNull(submit(createQuery(now, 900)));
+    assertNull(execute());
+
+    // Running query is ahead of the new query, which is predicted to miss its deadline
+    assertShed(submit(createQuery(now, 200)));
+
+    // Only the remaining cost of the running query is counted once it has been running for a while
+    Thread.sleep(300L);
+    assertNull(submit(createQuery(System.currentTimeMillis(), 200)));
+  }
+
+  @Test
+  public void testShedBeforeExecution() throws Exception {
+    long now = System.currentTimeMillis();
+    SchedulerQueryContext query = createQuery(now, 800);
+    assertNull(submit(query));
+    DeadlineSchedulerGroup group = (DeadlineSchedulerGroup) query.getSchedulerGroup();
+
+    // Query is predicted to miss its deadline after waiting in the queue
+    Thread.sleep(300L);
+    assertShed(execute());
+    assertEquals(group.getNumQueriesShed(), 1);
+    assertEquals(group.getNumQueriesScheduled(), 0);
+
+    assertNull(submit(createQuery(System.currentTimeMillis(), 800)));
+    assertNull(execute());
+    assertEquals(group.getNumQueriesShed(), 1);
+    assertEquals(group.getNumQueriesScheduled(), 1);
+  }
+
+  @Test
+  public void testNanosPerCost() throws Exception {
+    long now = System.currentTimeMillis();
+    assertEquals(scheduler.getNanosPerCost(), INITIAL_NANOS_PER_COST);
+
+    // Query with cost 100 processed in 200ms (2ms per unit of cost)
+    SchedulerQueryContext query = createQuery(now, 100);
+    assertNull(submit(query));
+    assertNull(execute());
+    finish(query, 200L);
+    double expectedNanosPerCost = 0.1 * 2_000_000.0 + 0.9 * INITIAL_NANOS_PER_COST;
+    // Allow a few milliseconds of difference in the recorded processing time (2000 nanos per cost per millisecond)
+    assertEquals(scheduler.getNanosPerCost(), expectedNanosPerCost, 10_000.0);
+
+    // Query without estimated cost does not update the processing time per unit of cost
+    query = createQuery(System.currentTimeMillis(), 0);
+    assertNull(submit(query));
+    assertNull(execute());
+    double nanosPerCost = scheduler.getNanosPerCost();
+    finish(query, 200L);
+    assertEquals(scheduler.getNanosPerCost(), nanosPerCost);
+  }
+
+  private SchedulerQueryContext createQuery(long arrivalTimeMs, long estimatedCost) {
+    ServerQueryRequest queryRequest = createServerQueryRequest(TABLE_NAME, metrics, arrivalTimeMs);
+    when(queryExecutor.estimateQueryCost(queryRequest)).thenReturn(estimatedCost);
+    return new SchedulerQueryContext(queryRequest);
+  }
+
+  /**
+   * Same as {@link DeadlinePriorityScheduler#submit(ServerQueryRequest)} without checking whether the scheduler is
+   * running.
+   */
+  private ListenableFuture<byte[]> submit(SchedulerQueryContext query) throws Exception {
+    ListenableFuture<byte[]> rejectedResponse = scheduler.rejectOnSubmit(query);
+    if (rejectedResponse == null) {
+      queue.put(query);
+    }
+    return rejectedResponse;
+  }
+
+  /**
+   * Takes the next query from the queue as the scheduler thread does, and returns the rejected response if the query
+   * is shed.
+   */
+  private ListenableFuture<byte[]> execute() {
+    SchedulerQueryContext query = queue.take();
+    assertNotNull(query);
+    return scheduler.rejectBeforeExecution(query);
+  }
+
+  private void finish(SchedulerQueryContext query, long processingTimeMs) {
+    query.getQueryRequest()
+        .getTimerContext()
+        .startNewPhaseTimer(ServerQueryPhase.QUERY_PROCESSING, System.currentTimeMillis() - processingTimeMs)
+        .stopAndRecord();
+    scheduler.onQueryFinished(query);
+  }
+
+  private static void assertShed(ListenableFuture<byte[]> response) throws Exception {
+    assertNotNull(response);
+    DataTable dataTable = DataTableFactory.getDataTable(response.get());
+    assertTrue(dataTable.getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_SCHEDULING_TIMEOUT_ERROR.getErrorCode()));
+  }
+}
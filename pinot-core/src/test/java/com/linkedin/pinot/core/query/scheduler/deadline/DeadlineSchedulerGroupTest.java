@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.deadline;
+
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.core.query.scheduler.SchedulerQueryContext;
+import com.yammer.metrics.core.MetricsRegistry;
+import org.testng.annotations.Test;
+
+import static com.linkedin.pinot.core.query.scheduler.TestHelper.*;
+import static org.testng.Assert.*;
+
+
+public class DeadlineSchedulerGroupTest {
+  static final ServerMetrics metrics = new ServerMetrics(new MetricsRegistry());
+
+  @Test
+  public void testEarliestDeadlineFirst() {
+    DeadlineSchedulerGroup group = new DeadlineSchedulerGroup("one");
+    SchedulerQueryContext late = createQuery("one", 1000, 5000, 100);
+    SchedulerQueryContext early = createQuery("one", 2000, 3000, 200);
+    group.addLast(late);
+    group.addLast(early);
+    assertEquals(group.getPendingCost(), 300);
+    // Only the queries with deadline no later than the given deadline are scheduled before a query with that deadline
+    assertEquals(group.getPendingCost(2000), 0);
+    assertEquals(group.getPendingCost(3000), 200);
+    assertEquals(group.getPendingCost(4000), 200);
+    assertEquals(group.getPendingCost(5000), 300);
+
+    // Query with earlier deadline is scheduled first even if it arrived later
+    assertSame(group.peekFirst(), early);
+    assertSame(group.removeFirst(), early);
+    assertEquals(group.getPendingCost(), 100);
+    assertSame(group.removeFirst(), late);
+    assertEquals(group.getPendingCost(), 0);
+    assertEquals(group.getPendingCost(5000), 0);
+    assertNull(group.removeFirst());
+  }
+
+  @Test
+  public void testCompare() {
+    DeadlineSchedulerGroup lhs = new DeadlineSchedulerGroup("one");
+    DeadlineSchedulerGroup rhs = new DeadlineSchedulerGroup("two");
+    assertEquals(lhs.compareTo(rhs), 0);
+
+    lhs.addLast(createQuery("one", 1000, 5000, 100));
+    assertEquals(lhs.compareTo(rhs), 1);
+    assertEquals(rhs.compareTo(lhs), -1);
+
+    // Group with earlier deadline has higher priority
+    rhs.addLast(createQuery("two", 2000, 3000, 100));
+    assertEquals(lhs.compareTo(rhs), -1);
+    assertEquals(rhs.compareTo(lhs), 1);
+
+    // Same deadline falls back to arrival time
+    lhs.removeFirst();
+    lhs.addLast(createQuery("one", 1000, 3000, 100));
+    assertEquals(lhs.compareTo(rhs), 1);
+    assertEquals(rhs.compareTo(lhs), -1);
+  }
+
+  @Test
+  public void testTrimExpired() {
+    DeadlineSchedulerGroup group = new DeadlineSchedulerGroup("one");
+    group.addLast(createQuery("one", 1000, 5000, 100));
+    group.addLast(createQuery("one", 3000, 4000, 200));
+    group.trimExpired(2000);
+    assertEquals(group.numPending(), 1);
+    assertEquals(group.getPendingCost(), 200);
+  }
+
+  private SchedulerQueryContext createQuery(String table, long arrivalTimeMs, long deadlineMs, long estimatedCost) {
+    SchedulerQueryContext query = createQueryRequest(table, metrics, arrivalTimeMs);
+    query.setDeadlineMs(deadlineMs);
+    query.setEstimatedCost(estimatedCost);
+    return query;
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.selection;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.DataSourceMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
+import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class DocIdTopKHeapTest {
+  private static final int NUM_DOCS = 1000;
+  private static final int BLOCK_SIZE = 128;
+  private static final int MAX_NUM_DOCS = 50;
+  private static final Random RANDOM = new Random();
+
+  private static final String INT_COLUMN = "intColumn";
+  private static final String LONG_COLUMN = "longColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String DICT_ID_COLUMN = "dictIdColumn";
+
+  // Few distinct values so that there are ties on each column
+  private final int[] _intValues = new int[NUM_DOCS];
+  private final long[] _longValues = new long[NUM_DOCS];
+  private final String[] _stringValues = new String[NUM_DOCS];
+  private final int[] _dictIds = new int[NUM_DOCS];
+  private IndexSegment _indexSegment;
+
+  @BeforeClass
+  public void setUp() {
+    for (int i = 0; i < NUM_DOCS; i++) {
+      _intValues[i] = RANDOM.nextInt(20) - 10;
+      _longValues[i] = RANDOM.nextInt(50) * (long) Integer.MAX_VALUE;
+      _stringValues[i] = Integer.toString(RANDOM.nextInt(30));
+      _dictIds[i] = RANDOM.nextInt(10);
+    }
+
+    _indexSegment = mock(IndexSegment.class);
+    mockDataSource(INT_COLUMN, FieldSpec.DataType.INT, false);
+    mockDataSource(LONG_COLUMN, FieldSpec.DataType.LONG, false);
+    mockDataSource(STRING_COLUMN, FieldSpec.DataType.STRING, false);
+    mockDataSource(DICT_ID_COLUMN, FieldSpec.DataType.STRING, true);
+  }
+
+  private void mockDataSource(String column, FieldSpec.DataType dataType, boolean sortedDictionary) {
+    DataSourceMetadata dataSourceMetadata = mock(DataSourceMetadata.class);
+    when(dataSourceMetadata.isSingleValue()).thenReturn(true);
+    when(dataSourceMetadata.getDataType()).thenReturn(dataType);
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getDataSourceMetadata()).thenReturn(dataSourceMetadata);
+    if (sortedDictionary) {
+      Dictionary dictionary = mock(Dictionary.class);
+      when(dictionary.isSorted()).thenReturn(true);
+      when(dataSource.getDictionary()).thenReturn(dictionary);
+    }
+    when(_indexSegment.getDataSource(column)).thenReturn(dataSource);
+  }
+
+  @Test
+  public void testMixedOrder() {
+    testTopK(Arrays.asList(getSelectionSort(STRING_COLUMN, false), getSelectionSort(LONG_COLUMN, true),
+        getSelectionSort(INT_COLUMN, false)));
+    testTopK(Arrays.asList(getSelectionSort(LONG_COLUMN, false), getSelectionSort(STRING_COLUMN, true)));
+    testTopK(Arrays.asList(getSelectionSort(DICT_ID_COLUMN, true), getSelectionSort(INT_COLUMN, false)));
+  }
+
+  @Test
+  public void testTies() {
+    // Only ties on the single sort column
+    testTopK(Arrays.asList(getSelectionSort(INT_COLUMN, true)));
+    testTopK(Arrays.asList(getSelectionSort(STRING_COLUMN, false)));
+    testTopK(Arrays.asList(getSelectionSort(DICT_ID_COLUMN, false)));
+  }
+
+  @Test
+  public void testCanSkipFirstSortDictId() {
+    List<SelectionSort> sortSequence = Arrays.asList(getSelectionSort(DICT_ID_COLUMN, true));
+    DocIdTopKHeap docIdTopKHeap = new DocIdTopKHeap(sortSequence, _indexSegment, MAX_NUM_DOCS);
+    Assert.assertFalse(docIdTopKHeap.canSkipFirstSortDictId(0));
+    addBlocks(docIdTopKHeap);
+    int maxDictId = Integer.MIN_VALUE;
+    for (int docId : docIdTopKHeap.getSortedDocIds()) {
+      maxDictId = Math.max(maxDictId, _dictIds[docId]);
+    }
+    Assert.assertFalse(docIdTopKHeap.canSkipFirstSortDictId(maxDictId));
+    Assert.assertTrue(docIdTopKHeap.canSkipFirstSortDictId(maxDictId + 1));
+
+    // Only applies to the first sort column with sorted dictionary
+    sortSequence = Arrays.asList(getSelectionSort(INT_COLUMN, true));
+    docIdTopKHeap = new DocIdTopKHeap(sortSequence, _indexSegment, MAX_NUM_DOCS);
+    addBlocks(docIdTopKHeap);
+    Assert.assertFalse(docIdTopKHeap.canSkipFirstSortDictId(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testLimitZero() {
+    DocIdTopKHeap docIdTopKHeap =
+        new DocIdTopKHeap(Arrays.asList(getSelectionSort(INT_COLUMN, true)), _indexSegment, 0);
+    addBlocks(docIdTopKHeap);
+    Assert.assertEquals(docIdTopKHeap.size(), 0);
+    Assert.assertEquals(docIdTopKHeap.getSortedDocIds().length, 0);
+  }
+
+  /**
+   * Compares the documents kept by the heap with the first documents of all the documents sorted on the sort sequence.
+   * Documents with ties on all the sort columns are interchangeable, so only the sort keys are compared.
+   */
+  private void testTopK(List<SelectionSort> sortSequence) {
+    DocIdTopKHeap docIdTopKHeap = new DocIdTopKHeap(sortSequence, _indexSegment, MAX_NUM_DOCS);
+    addBlocks(docIdTopKHeap);
+    Assert.assertEquals(docIdTopKHeap.size(), MAX_NUM_DOCS);
+
+    int[] sortedDocIds = docIdTopKHeap.getSortedDocIds();
+    Assert.assertEquals(sortedDocIds.length, MAX_NUM_DOCS);
+    for (int i = 1; i < MAX_NUM_DOCS; i++) {
+      Assert.assertTrue(sortedDocIds[i - 1] < sortedDocIds[i]);
+    }
+
+    Comparator<Integer> comparator = getComparator(sortSequence);
+    List<Integer> expectedDocIds = new ArrayList<>(NUM_DOCS);
+    for (int i = 0; i < NUM_DOCS; i++) {
+      expectedDocIds.add(i);
+    }
+    expectedDocIds.sort(comparator);
+    List<Integer> actualDocIds = new ArrayList<>(MAX_NUM_DOCS);
+    for (int docId : sortedDocIds) {
+      actualDocIds.add(docId);
+    }
+    actualDocIds.sort(comparator);
+    for (int i = 0; i < MAX_NUM_DOCS; i++) {
+      Assert.assertEquals(comparator.compare(actualDocIds.get(i), expectedDocIds.get(i)), 0);
+    }
+  }
+
+  private void addBlocks(DocIdTopKHeap docIdTopKHeap) {
+    for (int startDocId = 0; startDocId < NUM_DOCS; startDocId += BLOCK_SIZE) {
+      int endDocId = Math.min(startDocId + BLOCK_SIZE, NUM_DOCS);
+      Assert.assertEquals(docIdTopKHeap.addBlock(getProjectionBlock(startDocId, endDocId)), endDocId - startDocId);
+    }
+  }
+
+  private ProjectionBlock getProjectionBlock(int startDocId, int endDocId) {
+    int length = endDocId - startDocId;
+    // Leave garbage after the searchable length as the doc id set is reused across blocks
+    int[] docIds = new int[BLOCK_SIZE];
+    Arrays.fill(docIds, -1);
+    for (int i = 0; i < length; i++) {
+      docIds[i] = startDocId + i;
+    }
+
+    ProjectionBlock projectionBlock = mock(ProjectionBlock.class);
+    when(projectionBlock.getDocIdSetBlock()).thenReturn(new DocIdSetBlock(docIds, length));
+    BlockValSet intBlockValSet = mock(BlockValSet.class);
+    when(intBlockValSet.getIntValuesSV()).thenReturn(Arrays.copyOfRange(_intValues, startDocId, endDocId));
+    when(projectionBlock.getBlockValueSet(INT_COLUMN)).thenReturn(intBlockValSet);
+    BlockValSet longBlockValSet = mock(BlockValSet.class);
+    when(longBlockValSet.getLongValuesSV()).thenReturn(Arrays.copyOfRange(_longValues, startDocId, endDocId));
+    when(projectionBlock.getBlockValueSet(LONG_COLUMN)).thenReturn(longBlockValSet);
+    BlockValSet stringBlockValSet = mock(BlockValSet.class);
+    when(stringBlockValSet.getStringValuesSV()).thenReturn(Arrays.copyOfRange(_stringValues, startDocId, endDocId));
+    when(projectionBlock.getBlockValueSet(STRING_COLUMN)).thenReturn(stringBlockValSet);
+    BlockValSet dictIdBlockValSet = mock(BlockValSet.class);
+    when(dictIdBlockValSet.getDictionaryIdsSV()).thenReturn(Arrays.copyOfRange(_dictIds, startDocId, endDocId));
+    when(projectionBlock.getBlockValueSet(DICT_ID_COLUMN)).thenReturn(dictIdBlockValSet);
+    return projectionBlock;
+  }
+
+  private Comparator<Integer> getComparator(List<SelectionSort> sortSequence) {
+    return (docId1, docId2) -> {
+      for (SelectionSort selectionSort : sortSequence) {
+        int result;
+        switch (selectionSort.getColumn()) {
+          case INT_COLUMN:
+            result = Integer.compare(_intValues[docId1], _intValues[docId2]);
+            break;
+          case LONG_COLUMN:
+            result = Long.compare(_longValues[docId1], _longValues[docId2]);
+            break;
+          case STRING_COLUMN:
+            result = _stringValues[docId1].compareTo(_stringValues[docId2]);
+            break;
+          case DICT_ID_COLUMN:
+            result = Integer.compare(_dictIds[docId1], _dictIds[docId2]);
+            break;
+          default:
+            throw new IllegalStateException();
+        }
+        if (result != 0) {
+          return selectionSort.isIsAsc() ? result : -result;
+        }
+      }
+      return 0;
+    };
+  }
+
+  private static SelectionSort getSelectionSort(String column, boolean ascending) {
+    SelectionSort selectionSort = new SelectionSort();
+    selectionSort.setColumn(column);
+    selectionSort.setIsAsc(ascending);
+    return selectionSort;
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.invertedindex;
+
+import com.linkedin.pinot.core.util.ChainedIntIterator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class RealtimeInvertedIndexReaderTest {
+  private static final int NUM_DOCS = 200_000;
+  private static final int CARDINALITY = 7;
+  private static final int NUM_READERS = 4;
+
+  @Test
+  public void testAdd() {
+    RealtimeInvertedIndexReader invertedIndex = new RealtimeInvertedIndexReader();
+    Assert.assertNull(invertedIndex.getDocIds(0));
+
+    invertedIndex.add(0, 0);
+    // Multi-value document with duplicate values
+    invertedIndex.add(2, 1);
+    invertedIndex.add(2, 1);
+    invertedIndex.add(0, 2);
+
+    Assert.assertEquals(getDocIds(invertedIndex, 0), new int[]{0, 2});
+    Assert.assertEquals(invertedIndex.getDocIds(1).length, 0);
+    Assert.assertEquals(getDocIds(invertedIndex, 2), new int[]{1});
+    Assert.assertNull(invertedIndex.getDocIds(3));
+    Assert.assertNull(invertedIndex.getDocIdIterator(3));
+
+    ImmutableRoaringBitmap[] bitmaps = invertedIndex.getDocIds(0);
+    invertedIndex.add(0, 3);
+    Assert.assertEquals(getDocIds(invertedIndex, 0), new int[]{0, 2, 3});
+    // Previous view is not modified
+    Assert.assertEquals(toArray(new ChainedIntIterator(bitmaps)), new int[]{0, 2});
+  }
+
+  @Test
+  public void testSharedBitmaps() {
+    RealtimeInvertedIndexReader invertedIndex = new RealtimeInvertedIndexReader();
+    int numDocs = 1000;
+    for (int docId = 0; docId < numDocs; docId++) {
+      invertedIndex.add(0, docId);
+    }
+
+    // Flushed bitmaps are shared by all the readers, and only the tail is built per read
+    ImmutableRoaringBitmap[] bitmaps = invertedIndex.getDocIds(0);
+    ImmutableRoaringBitmap[] otherBitmaps = invertedIndex.getDocIds(0);
+    int numBitmaps = bitmaps.length;
+    Assert.assertTrue(numBitmaps > 1);
+    Assert.assertEquals(otherBitmaps.length, numBitmaps);
+    for (int i = 0; i < numBitmaps - 1; i++) {
+      Assert.assertSame(otherBitmaps[i], bitmaps[i]);
+    }
+
+    // Bitmaps have ascending and disjoint document id ranges
+    int expectedDocId = 0;
+    for (ImmutableRoaringBitmap bitmap : bitmaps) {
+      IntIterator intIterator = bitmap.getIntIterator();
+      while (intIterator.hasNext()) {
+        Assert.assertEquals(intIterator.next(), expectedDocId++);
+      }
+    }
+    Assert.assertEquals(expectedDocId, numDocs);
+  }
+
+  @Test
+  public void testConcurrentReadWrite() throws Exception {
+    final RealtimeInvertedIndexReader invertedIndex = new RealtimeInvertedIndexReader();
+    final AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executorService = Executors.newFixedThreadPool(NUM_READERS);
+    try {
+      List<Future<?>> futures = new ArrayList<>(NUM_READERS);
+      for (int i = 0; i < NUM_READERS; i++) {
+        futures.add(executorService.submit(new Runnable() {
+          @Override
+          public void run() {
+            while (!done.get()) {
+              for (int dictId = 0; dictId < CARDINALITY; dictId++) {
+                IntIterator intIterator = invertedIndex.getDocIdIterator(dictId);
+                if (intIterator == null) {
+                  continue;
+                }
+                // Every view must be a consistent prefix of the posting list
+                int expectedDocId = dictId;
+                while (intIterator.hasNext()) {
+                  Assert.assertEquals(intIterator.next(), expectedDocId);
+                  expectedDocId += CARDINALITY;
+                }
+              }
+            }
+          }
+        }));
+      }
+
+      for (int docId = 0; docId < NUM_DOCS; docId++) {
+        invertedIndex.add(docId % CARDINALITY, docId);
+      }
+      done.set(true);
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    for (int dictId = 0; dictId < CARDINALITY; dictId++) {
+      Assert.assertEquals(getDocIds(invertedIndex, dictId).length, (NUM_DOCS - dictId + CARDINALITY - 1) / CARDINALITY);
+    }
+  }
+
+  private static int[] getDocIds(RealtimeInvertedIndexReader invertedIndex, int dictId) {
+    return toArray(invertedIndex.getDocIdIterator(dictId));
+  }
+
+  private static int[] toArray(IntIterator intIterator) {
+    IntArrayList docIds = new IntArrayList();
+    while (intIterator.hasNext()) {
+      docIds.add(intIterator.next());
+    }
+    return docIds.toIntArray();
+  }
+}
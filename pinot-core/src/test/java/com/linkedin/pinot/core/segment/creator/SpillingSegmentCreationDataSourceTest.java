@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.GenericRowRecordReader;
+import com.linkedin.pinot.core.data.readers.PinotSegmentRecordReader;
+import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.data.recordtransformer.CompoundTransformer;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.io.writer.impl.DirectMemoryManager;
+import com.linkedin.pinot.core.io.writer.impl.MmapMemoryManager;
+import com.linkedin.pinot.core.segment.creator.impl.ColumnarRowBuffer;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.RandomStringUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class SpillingSegmentCreationDataSourceTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "SpillingSegmentCreationDataSourceTest");
+  private static final int NUM_ROWS = 1000;
+  private static final String INT_COLUMN = "intColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String BYTES_COLUMN = "bytesColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String LONG_METRIC = "longMetric";
+  private static final String DOUBLE_METRIC = "doubleMetric";
+
+  private Schema _schema;
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    _schema = new Schema();
+    _schema.addField(new DimensionFieldSpec(INT_COLUMN, FieldSpec.DataType.INT, true));
+    _schema.addField(new DimensionFieldSpec(STRING_COLUMN, FieldSpec.DataType.STRING, true));
+    _schema.addField(new DimensionFieldSpec(BYTES_COLUMN, FieldSpec.DataType.BYTES, true));
+    _schema.addField(new DimensionFieldSpec(MV_COLUMN, FieldSpec.DataType.FLOAT, false));
+    _schema.addField(new MetricFieldSpec(LONG_METRIC, FieldSpec.DataType.LONG));
+    _schema.addField(new MetricFieldSpec(DOUBLE_METRIC, FieldSpec.DataType.DOUBLE));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putField(INT_COLUMN, random.nextInt(100));
+      // Strings of different lengths, some longer than the chunks
+      row.putField(STRING_COLUMN, RandomStringUtils.randomAlphanumeric(random.nextInt(50)));
+      byte[] bytes = new byte[8];
+      random.nextBytes(bytes);
+      row.putField(BYTES_COLUMN, bytes);
+      Object[] multiValues = new Object[1 + random.nextInt(5)];
+      for (int j = 0; j < multiValues.length; j++) {
+        multiValues[j] = (float) random.nextInt(20);
+      }
+      row.putField(MV_COLUMN, multiValues);
+      row.putField(LONG_METRIC, random.nextLong());
+      row.putField(DOUBLE_METRIC, random.nextDouble());
+      _rows.add(row);
+    }
+  }
+
+  @Test
+  public void testColumnarRowBuffer() throws Exception {
+    try (DirectMemoryManager memoryManager = new DirectMemoryManager(getClass().getName())) {
+      // Use small chunks so that values are split across chunks
+      ColumnarRowBuffer rowBuffer = new ColumnarRowBuffer(_schema, memoryManager, 16);
+      for (GenericRow row : _rows) {
+        rowBuffer.addRow(row);
+      }
+      Assert.assertEquals(rowBuffer.getNumRows(), NUM_ROWS);
+
+      RecordReader recordReader = rowBuffer.getRecordReader();
+      for (int i = 0; i < 2; i++) {
+        GenericRow reuse = null;
+        for (GenericRow expectedRow : _rows) {
+          Assert.assertTrue(recordReader.hasNext());
+          reuse = recordReader.next(GenericRow.createOrReuseRow(reuse));
+          assertRowEquals(reuse, expectedRow);
+        }
+        Assert.assertFalse(recordReader.hasNext());
+        recordReader.rewind();
+      }
+    }
+  }
+
+  @Test
+  public void testSinglePassSegmentCreation() throws Exception {
+    File twoPassSegment = buildSegment("twoPass", new GenericRowRecordReader(_rows, _schema), null);
+
+    File singlePassSegment;
+    RecordReader streamRecordReader = new StreamRecordReader(new GenericRowRecordReader(_rows, _schema));
+    try (SpillingSegmentCreationDataSource dataSource = new SpillingSegmentCreationDataSource(streamRecordReader,
+        new MmapMemoryManager(TEMP_DIR.getPath(), "singlePass"))) {
+      singlePassSegment = buildSegment("singlePass", null, dataSource);
+    }
+
+    try (PinotSegmentRecordReader expectedReader = new PinotSegmentRecordReader(twoPassSegment);
+        PinotSegmentRecordReader actualReader = new PinotSegmentRecordReader(singlePassSegment)) {
+      while (expectedReader.hasNext()) {
+        Assert.assertTrue(actualReader.hasNext());
+        assertRowEquals(actualReader.next(), expectedReader.next());
+      }
+      Assert.assertFalse(actualReader.hasNext());
+    }
+  }
+
+  private File buildSegment(String segmentName, RecordReader recordReader, SegmentCreationDataSource dataSource)
+      throws Exception {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_schema);
+    config.setOutDir(TEMP_DIR.getPath());
+    config.setSegmentName(segmentName);
+    config.setInvertedIndexCreationColumns(Collections.singletonList(INT_COLUMN));
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    if (dataSource != null) {
+      driver.init(config, dataSource, CompoundTransformer.getPassThroughTransformer());
+    } else {
+      driver.init(config, recordReader);
+    }
+    driver.build();
+    return new File(TEMP_DIR, segmentName);
+  }
+
+  private static void assertRowEquals(GenericRow actual, GenericRow expected) {
+    Assert.assertEquals(actual.getValue(INT_COLUMN), expected.getValue(INT_COLUMN));
+    Assert.assertEquals(actual.getValue(STRING_COLUMN), expected.getValue(STRING_COLUMN));
+    Assert.assertEquals((byte[]) actual.getValue(BYTES_COLUMN), (byte[]) expected.getValue(BYTES_COLUMN));
+    Assert.assertEquals((Object[]) actual.getValue(MV_COLUMN), (Object[]) expected.getValue(MV_COLUMN));
+    Assert.assertEquals(actual.getValue(LONG_METRIC), expected.getValue(LONG_METRIC));
+    Assert.assertEquals(actual.getValue(DOUBLE_METRIC), expected.getValue(DOUBLE_METRIC));
+  }
+
+  /**
+   * Record reader that can only be read once, like a stream.
+   */
+  private static class StreamRecordReader implements RecordReader {
+    private final RecordReader _recordReader;
+
+    StreamRecordReader(RecordReader recordReader) {
+      _recordReader = recordReader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _recordReader.hasNext();
+    }
+
+    @Override
+    public GenericRow next() throws IOException {
+      return _recordReader.next();
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse) throws IOException {
+      return _recordReader.next(reuse);
+    }
+
+    @Override
+    public void rewind() {
+      throw new UnsupportedOperationException("Cannot rewind a stream");
+    }
+
+    @Override
+    public Schema getSchema() {
+      return _recordReader.getSchema();
+    }
+
+    @Override
+    public void close() throws IOException {
+      _recordReader.close();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.GenericRowRecordReader;
+import com.linkedin.pinot.core.data.readers.PinotSegmentRecordReader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that the segment created with multiple indexing threads has the same content as the one created on a single
+ * thread.
+ */
+public class ParallelSegmentCreationTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "ParallelSegmentCreationTest");
+  // More rows than a single indexing batch
+  private static final int NUM_ROWS = 25_000;
+  private static final String SV_COLUMN = "svColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String RAW_COLUMN = "rawColumn";
+  private static final String METRIC_COLUMN = "metricColumn";
+
+  private Schema _schema;
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    _schema = new Schema();
+    _schema.addField(new DimensionFieldSpec(SV_COLUMN, FieldSpec.DataType.INT, true));
+    _schema.addField(new DimensionFieldSpec(MV_COLUMN, FieldSpec.DataType.STRING, false));
+    _schema.addField(new DimensionFieldSpec(RAW_COLUMN, FieldSpec.DataType.STRING, true));
+    _schema.addField(new MetricFieldSpec(METRIC_COLUMN, FieldSpec.DataType.LONG));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putField(SV_COLUMN, random.nextInt(100));
+      row.putField(MV_COLUMN, new Object[]{"v" + random.nextInt(10), "v" + random.nextInt(10)});
+      row.putField(RAW_COLUMN, "raw" + random.nextInt());
+      row.putField(METRIC_COLUMN, random.nextLong());
+      _rows.add(row);
+    }
+  }
+
+  @Test
+  public void testParallelSegmentCreation() throws Exception {
+    File singleThreadSegment = buildSegment("singleThread", 1);
+    File multiThreadSegment = buildSegment("multiThread", 4);
+
+    try (PinotSegmentRecordReader expectedReader = new PinotSegmentRecordReader(singleThreadSegment);
+        PinotSegmentRecordReader actualReader = new PinotSegmentRecordReader(multiThreadSegment)) {
+      int numRows = 0;
+      while (expectedReader.hasNext()) {
+        Assert.assertTrue(actualReader.hasNext());
+        GenericRow expectedRow = expectedReader.next();
+        GenericRow actualRow = actualReader.next();
+        Assert.assertEquals(actualRow.getValue(SV_COLUMN), expectedRow.getValue(SV_COLUMN));
+        Assert.assertEquals((Object[]) actualRow.getValue(MV_COLUMN), (Object[]) expectedRow.getValue(MV_COLUMN));
+        Assert.assertEquals(actualRow.getValue(RAW_COLUMN), expectedRow.getValue(RAW_COLUMN));
+        Assert.assertEquals(actualRow.getValue(METRIC_COLUMN), expectedRow.getValue(METRIC_COLUMN));
+        numRows++;
+      }
+      Assert.assertFalse(actualReader.hasNext());
+      Assert.assertEquals(numRows, NUM_ROWS);
+    }
+  }
+
+  private File buildSegment(String segmentName, int numIndexingThreads) throws Exception {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_schema);
+    config.setOutDir(TEMP_DIR.getPath());
+    config.setSegmentName(segmentName);
+    config.setInvertedIndexCreationColumns(Collections.singletonList(SV_COLUMN));
+    config.setRawIndexCreationColumns(Collections.singletonList(RAW_COLUMN));
+    config.setNumIndexingThreads(numIndexingThreads);
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(_rows, _schema));
+    driver.build();
+    return new File(TEMP_DIR, segmentName);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -15,8 +15,12 @@
  */
 package com.linkedin.pinot.core.transport;
 
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
@@ -28,16 +32,25 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
 
 
 /**
- * The {@code DummyServer} class is a Netty server that always responds with the given bytes and the given delay.
+ * The {@code DummyServer} class is a Netty server that always responds with the given bytes and the given delay, or
+ * with an empty data table for the request id of each request if no bytes are given.
  */
 public class DummyServer implements Runnable {
   private final int _port;
   private final long _responseDelayMs;
   private final byte[] _responseBytes;
+  private final AtomicInteger _numRequestsReceived = new AtomicInteger();
+  private final AtomicInteger _numChannelsAccepted = new AtomicInteger();
+  private final Set<Channel> _channelsWithRequests = ConcurrentHashMap.newKeySet();
 
   private volatile Channel _channel;
 
@@ -47,6 +60,10 @@ public class DummyServer implements Runnable {
     _responseBytes = responseBytes;
   }
 
+  public DummyServer(int port, long responseDelayMs) {
+    this(port, responseDelayMs, null);
+  }
+
   @Override
   public void run() {
     EventLoopGroup bossGroup = new NioEventLoopGroup();
@@ -60,13 +77,17 @@ public class DummyServer implements Runnable {
           .childHandler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
+              _numChannelsAccepted.incrementAndGet();
               ch.pipeline()
                   .addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, Integer.BYTES, 0, Integer.BYTES),
                       new LengthFieldPrepender(Integer.BYTES), new SimpleChannelInboundHandler<ByteBuf>() {
                         @Override
                         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+                          _numRequestsReceived.incrementAndGet();
+                          _channelsWithRequests.add(ctx.channel());
+                          byte[] responseBytes = _responseBytes != null ? _responseBytes : getResponseBytes(msg);
                           Thread.sleep(_responseDelayMs);
-                          ctx.writeAndFlush(ctx.alloc().buffer(_responseBytes.length).writeBytes(_responseBytes),
+                          ctx.writeAndFlush(ctx.alloc().buffer(responseBytes.length).writeBytes(responseBytes),
                               ctx.voidPromise());
                         }
                       });
@@ -85,10 +106,30 @@ public class DummyServer implements Runnable {
     }
   }
 
+  private static byte[] getResponseBytes(ByteBuf msg) throws Exception {
+    InstanceRequest instanceRequest = new InstanceRequest();
+    instanceRequest.read(new TCompactProtocol(new TIOStreamTransport(new ByteBufInputStream(msg))));
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(instanceRequest.getRequestId()));
+    return dataTable.toBytes();
+  }
+
   public boolean isReady() {
     return _channel != null;
   }
 
+  public int getNumRequestsReceived() {
+    return _numRequestsReceived.get();
+  }
+
+  public int getNumChannelsAccepted() {
+    return _numChannelsAccepted.get();
+  }
+
+  public int getNumChannelsWithRequests() {
+    return _channelsWithRequests.size();
+  }
+
   public void shutDown() {
     if (_channel != null) {
       _channel.close();
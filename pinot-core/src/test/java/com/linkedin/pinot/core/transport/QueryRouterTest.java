@@ -15,14 +15,20 @@
  */
 package com.linkedin.pinot.core.transport;
 
+import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -39,6 +45,14 @@ public class QueryRouterTest {
   private static final Map<String, List<String>> ROUTING_TABLE =
       Collections.singletonMap(SERVER_INSTANCE_NAME, Collections.emptyList());
 
+  // For hedged requests
+  private static final int HEDGED_PORT = TEST_PORT + 1;
+  private static final int OTHER_PORT = TEST_PORT + 2;
+  private static final String HEDGED_SERVER_INSTANCE_NAME = "Server_localhost_" + HEDGED_PORT;
+  private static final String OTHER_SERVER_INSTANCE_NAME = "Server_localhost_" + OTHER_PORT;
+  private static final Server OTHER_SERVER = new Server(OTHER_SERVER_INSTANCE_NAME, TableType.OFFLINE);
+  private static final long SLOW_RESPONSE_DELAY_MS = 500L;
+
   private QueryRouter _queryRouter;
 
   @BeforeClass
@@ -101,6 +115,138 @@ public class QueryRouterTest {
     thread.join();
   }
 
+  @Test
+  public void testCombinedHybridRequests() throws Exception {
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Start the server
+    DummyServer dummyServer = new DummyServer(TEST_PORT, 0L, responseBytes);
+    Thread thread = new Thread(dummyServer);
+    thread.start();
+    while (!dummyServer.isReady()) {
+      Thread.sleep(100L);
+    }
+
+    // Hybrid, the OFFLINE and REALTIME requests to the same server should be combined into a single request
+    QueryRouter queryRouter = new QueryRouter("testBroker", Mockito.mock(BrokerMetrics.class), null, 95.0, 0.05, true);
+    AsyncQueryResponse asyncQueryResponse =
+        queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, BROKER_REQUEST, ROUTING_TABLE,
+            1_000L);
+    Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+    Assert.assertEquals(response.size(), 1);
+    Assert.assertTrue(response.containsKey(OFFLINE_SERVER));
+    ServerResponse serverResponse = response.get(OFFLINE_SERVER);
+    Assert.assertNotNull(serverResponse.getDataTable());
+    Assert.assertEquals(serverResponse.getResponseSize(), responseBytes.length);
+
+    // Shut down the server
+    queryRouter.shutDown();
+    dummyServer.shutDown();
+    thread.join();
+  }
+
+  @Test
+  public void testMultipleConnectionsPerServer() throws Exception {
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Start the server
+    DummyServer dummyServer = new DummyServer(TEST_PORT, 0L, responseBytes);
+    Thread thread = new Thread(dummyServer);
+    thread.start();
+    while (!dummyServer.isReady()) {
+      Thread.sleep(100L);
+    }
+
+    // Requests should be multiplexed over the connections
+    QueryRouter queryRouter =
+        new QueryRouter("testBroker", Mockito.mock(BrokerMetrics.class), null, 95.0, 0.05, false, 3, 64 * 1024, 0L);
+    for (int i = 0; i < 5; i++) {
+      AsyncQueryResponse asyncQueryResponse =
+          queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 1_000L);
+      Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+      Assert.assertEquals(response.size(), 1);
+      ServerResponse serverResponse = response.get(OFFLINE_SERVER);
+      Assert.assertNotNull(serverResponse.getDataTable());
+      Assert.assertEquals(serverResponse.getResponseSize(), responseBytes.length);
+    }
+    // Requests are sent round-robin, so all the 3 connections should be opened and used
+    Assert.assertEquals(dummyServer.getNumChannelsAccepted(), 3);
+    Assert.assertEquals(dummyServer.getNumChannelsWithRequests(), 3);
+    Assert.assertEquals(dummyServer.getNumRequestsReceived(), 5);
+
+    // Shut down the server
+    queryRouter.shutDown();
+    dummyServer.shutDown();
+    thread.join();
+  }
+
+  @Test
+  public void testMaxPendingBytesPerServer() throws Exception {
+    // Requests larger than the pending bytes limit should be rejected without connecting to the server
+    QueryRouter queryRouter =
+        new QueryRouter("testBroker", Mockito.mock(BrokerMetrics.class), null, 95.0, 0.05, false, 1, 64 * 1024, 1L);
+    long startTimeMs = System.currentTimeMillis();
+    AsyncQueryResponse asyncQueryResponse =
+        queryRouter.submitQuery(123, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 1_000L);
+    Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+    Assert.assertEquals(response.size(), 1);
+    ServerResponse serverResponse = response.get(OFFLINE_SERVER);
+    Assert.assertNull(serverResponse.getDataTable());
+    Assert.assertEquals(serverResponse.getSubmitDelayMs(), -1);
+    // Query should early terminate
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs < 1000);
+    queryRouter.shutDown();
+  }
+
+  @Test
+  public void testPollResponse() throws Exception {
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Start the server
+    DummyServer dummyServer = new DummyServer(TEST_PORT, 0L, responseBytes);
+    Thread thread = new Thread(dummyServer);
+    thread.start();
+    while (!dummyServer.isReady()) {
+      Thread.sleep(100L);
+    }
+
+    // Hybrid, both server responses should be polled before the end of the query
+    AsyncQueryResponse asyncQueryResponse =
+        _queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, BROKER_REQUEST, ROUTING_TABLE,
+            1_000L);
+    Assert.assertEquals(asyncQueryResponse.getNumServersQueried(), 2);
+    Set<Server> serversResponded = new HashSet<>();
+    Map.Entry<Server, ServerResponse> entry;
+    while ((entry = asyncQueryResponse.pollResponse()) != null) {
+      Assert.assertNotNull(entry.getValue().getDataTable());
+      Assert.assertEquals(entry.getValue().getResponseSize(), responseBytes.length);
+      serversResponded.add(entry.getKey());
+    }
+    Assert.assertEquals(serversResponded, new HashSet<>(Arrays.asList(OFFLINE_SERVER, REALTIME_SERVER)));
+    Assert.assertTrue(asyncQueryResponse.getServersNotResponded().isEmpty());
+
+    // Non-matching request id, query should time out without any server response
+    long startTimeMs = System.currentTimeMillis();
+    asyncQueryResponse =
+        _queryRouter.submitQuery(requestId + 1, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 1_000L);
+    Assert.assertNull(asyncQueryResponse.pollResponse());
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs >= 1000);
+    Assert.assertEquals(asyncQueryResponse.getServersNotResponded(), Collections.singletonList(OFFLINE_SERVER));
+
+    // Shut down the server
+    dummyServer.shutDown();
+    thread.join();
+  }
+
   @Test
   public void testInvalidResponse() throws Exception {
     long requestId = 123;
@@ -217,6 +363,154 @@ public class QueryRouterTest {
     Assert.assertTrue(System.currentTimeMillis() - startTimeMs < 1000);
   }
 
+  @Test
+  public void testHedgedRequestFirstResponseWins() throws Exception {
+    DummyServer slowServer = new DummyServer(TEST_PORT, SLOW_RESPONSE_DELAY_MS);
+    DummyServer hedgedServer = new DummyServer(HEDGED_PORT, 0L);
+    List<Thread> threads = startServers(slowServer, hedgedServer);
+
+    // The request to the slow server should be hedged after 10ms, and the hedged response should be used
+    BrokerMetrics brokerMetrics = Mockito.mock(BrokerMetrics.class);
+    QueryRouter queryRouter =
+        new QueryRouter("testBroker", brokerMetrics, getServerLoadTracker(), 95.0, 1.0, false);
+    long startTimeMs = System.currentTimeMillis();
+    AsyncQueryResponse asyncQueryResponse =
+        queryRouter.submitQuery(1, "testTable", BROKER_REQUEST, getHedgedRoutingTable(), null, null, 2_000L,
+            getSegmentToServersMap(), null);
+    Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs < SLOW_RESPONSE_DELAY_MS);
+    Assert.assertEquals(response.size(), 1);
+    ServerResponse serverResponse = response.get(OFFLINE_SERVER);
+    DataTable dataTable = serverResponse.getDataTable();
+    Assert.assertNotNull(dataTable);
+    Assert.assertEquals(hedgedServer.getNumRequestsReceived(), 1);
+    // The metrics are updated after the response is delivered, so wait for them
+    Mockito.verify(brokerMetrics, Mockito.timeout(1_000L))
+        .addMeteredTableValue("testTable", BrokerMeter.HEDGED_REQUESTS_SENT, 1);
+    Mockito.verify(brokerMetrics, Mockito.timeout(1_000L))
+        .addMeteredTableValue("testTable", BrokerMeter.HEDGED_REQUESTS_WON, 1);
+
+    // The late response from the slow server should be dropped
+    Thread.sleep(SLOW_RESPONSE_DELAY_MS);
+    Assert.assertEquals(slowServer.getNumRequestsReceived(), 1);
+    Assert.assertSame(serverResponse.getDataTable(), dataTable);
+    Mockito.verify(brokerMetrics).addMeteredTableValue("testTable", BrokerMeter.HEDGED_REQUESTS_WON, 1);
+
+    queryRouter.shutDown();
+    shutDownServers(threads, slowServer, hedgedServer);
+  }
+
+  @Test
+  public void testHedgingBudget() throws Exception {
+    DummyServer slowServer = new DummyServer(TEST_PORT, SLOW_RESPONSE_DELAY_MS);
+    DummyServer hedgedServer = new DummyServer(HEDGED_PORT, 0L);
+    List<Thread> threads = startServers(slowServer, hedgedServer);
+
+    // Each request deposits half of the budget for a hedged request, so only every other request can be hedged
+    QueryRouter queryRouter =
+        new QueryRouter("testBroker", Mockito.mock(BrokerMetrics.class), getServerLoadTracker(), 95.0, 0.5, false);
+    int[] expectedNumHedgedRequests = new int[]{0, 1, 1};
+    for (int i = 0; i < expectedNumHedgedRequests.length; i++) {
+      long startTimeMs = System.currentTimeMillis();
+      AsyncQueryResponse asyncQueryResponse =
+          queryRouter.submitQuery(i + 1, "testTable", BROKER_REQUEST, getHedgedRoutingTable(), null, null, 2_000L,
+              getSegmentToServersMap(), null);
+      Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+      Assert.assertNotNull(response.get(OFFLINE_SERVER).getDataTable());
+      Assert.assertEquals(hedgedServer.getNumRequestsReceived(), expectedNumHedgedRequests[i]);
+      long queryTimeMs = System.currentTimeMillis() - startTimeMs;
+      if (i == 1) {
+        Assert.assertTrue(queryTimeMs < SLOW_RESPONSE_DELAY_MS);
+      } else {
+        Assert.assertTrue(queryTimeMs >= SLOW_RESPONSE_DELAY_MS);
+      }
+    }
+
+    queryRouter.shutDown();
+    shutDownServers(threads, slowServer, hedgedServer);
+  }
+
+  @Test
+  public void testHedgedResponseNotDoubleCounted() throws Exception {
+    DummyServer slowServer = new DummyServer(TEST_PORT, SLOW_RESPONSE_DELAY_MS);
+    DummyServer hedgedServer = new DummyServer(HEDGED_PORT, 0L);
+    DummyServer otherServer = new DummyServer(OTHER_PORT, 2 * SLOW_RESPONSE_DELAY_MS);
+    List<Thread> threads = startServers(slowServer, hedgedServer, otherServer);
+
+    // Both the hedged and the original response for the slow server arrive before the other server responds, only
+    // the first one should be counted so that the query still waits for the other server
+    QueryRouter queryRouter =
+        new QueryRouter("testBroker", Mockito.mock(BrokerMetrics.class), getServerLoadTracker(), 95.0, 1.0, false);
+    Map<String, List<String>> routingTable = new HashMap<>(getHedgedRoutingTable());
+    routingTable.put(OTHER_SERVER_INSTANCE_NAME, Collections.singletonList("segment1"));
+    Map<String, List<String>> segmentToServersMap = new HashMap<>(getSegmentToServersMap());
+    segmentToServersMap.put("segment1", Collections.singletonList(OTHER_SERVER_INSTANCE_NAME));
+    long startTimeMs = System.currentTimeMillis();
+    AsyncQueryResponse asyncQueryResponse =
+        queryRouter.submitQuery(1, "testTable", BROKER_REQUEST, routingTable, null, null, 2_000L,
+            segmentToServersMap, null);
+    List<Server> serversResponded = new ArrayList<>();
+    Map.Entry<Server, ServerResponse> entry;
+    while ((entry = asyncQueryResponse.pollResponse()) != null) {
+      Assert.assertNotNull(entry.getValue().getDataTable());
+      serversResponded.add(entry.getKey());
+    }
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs >= 2 * SLOW_RESPONSE_DELAY_MS);
+    Assert.assertEquals(serversResponded.size(), 2);
+    Assert.assertEquals(new HashSet<>(serversResponded), new HashSet<>(Arrays.asList(OFFLINE_SERVER, OTHER_SERVER)));
+    Assert.assertEquals(slowServer.getNumRequestsReceived(), 1);
+    Assert.assertEquals(hedgedServer.getNumRequestsReceived(), 1);
+    Assert.assertTrue(asyncQueryResponse.getServersNotResponded().isEmpty());
+
+    queryRouter.shutDown();
+    shutDownServers(threads, slowServer, hedgedServer, otherServer);
+  }
+
+  /**
+   * Returns a server load tracker with 10ms latency samples for the slow server, so that the requests to it are hedged
+   * after 10ms.
+   */
+  private static ServerLoadTracker getServerLoadTracker() {
+    ServerLoadTracker serverLoadTracker = new ServerLoadTracker();
+    for (int i = 0; i < 100; i++) {
+      serverLoadTracker.recordRequestSent(SERVER_INSTANCE_NAME);
+      serverLoadTracker.recordResponse(SERVER_INSTANCE_NAME, 10L);
+    }
+    return serverLoadTracker;
+  }
+
+  private static Map<String, List<String>> getHedgedRoutingTable() {
+    return Collections.singletonMap(SERVER_INSTANCE_NAME, Collections.singletonList("segment0"));
+  }
+
+  private static Map<String, List<String>> getSegmentToServersMap() {
+    return Collections.singletonMap("segment0", Arrays.asList(SERVER_INSTANCE_NAME, HEDGED_SERVER_INSTANCE_NAME));
+  }
+
+  private static List<Thread> startServers(DummyServer... dummyServers) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>(dummyServers.length);
+    for (DummyServer dummyServer : dummyServers) {
+      Thread thread = new Thread(dummyServer);
+      thread.start();
+      threads.add(thread);
+    }
+    for (DummyServer dummyServer : dummyServers) {
+      while (!dummyServer.isReady()) {
+        Thread.sleep(100L);
+      }
+    }
+    return threads;
+  }
+
+  private static void shutDownServers(List<Thread> threads, DummyServer... dummyServers) throws InterruptedException {
+    for (DummyServer dummyServer : dummyServers) {
+      dummyServer.shutDown();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
   @AfterClass
   public void tearDown() {
     _queryRouter.shutDown();
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.transport;
+
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ServerLoadTrackerTest {
+  private static final String SERVER = "Server_localhost_1234";
+
+  @Test
+  public void testServerLoad() throws Exception {
+    ServerLoadTracker serverLoadTracker = new ServerLoadTracker(500L);
+    Assert.assertEquals(serverLoadTracker.getScore(SERVER), 1.0);
+
+    serverLoadTracker.recordRequestSent(SERVER);
+    serverLoadTracker.recordRequestSent(SERVER);
+    Assert.assertEquals(serverLoadTracker.getInstanceNames(), Collections.singleton(SERVER));
+    Assert.assertEquals(serverLoadTracker.getNumInFlightRequests(SERVER), 2);
+    Assert.assertEquals(serverLoadTracker.getLatencyMs(SERVER), 0.0);
+    // (0 + 1) * (2 + 1) ^ 3
+    Assert.assertEquals(serverLoadTracker.getScore(SERVER), 27.0);
+
+    serverLoadTracker.recordResponse(SERVER, 100L);
+    Assert.assertEquals(serverLoadTracker.getNumInFlightRequests(SERVER), 1);
+    double latencyMs = serverLoadTracker.getLatencyMs(SERVER);
+    Assert.assertTrue(latencyMs > 0.0 && latencyMs <= 100.0);
+
+    serverLoadTracker.recordResponse(SERVER, 200L);
+    Assert.assertEquals(serverLoadTracker.getNumInFlightRequests(SERVER), 0);
+    latencyMs = serverLoadTracker.getLatencyMs(SERVER);
+    Assert.assertTrue(latencyMs > 100.0 && latencyMs < 200.0);
+
+    // Latency should decay when no response is received
+    Thread.sleep(2000L);
+    Assert.assertTrue(serverLoadTracker.getLatencyMs(SERVER) < latencyMs / 10);
+  }
+
+  @Test
+  public void testLatencyPercentile() {
+    ServerLoadTracker serverLoadTracker = new ServerLoadTracker();
+    Assert.assertEquals(serverLoadTracker.getLatencyPercentileMs(SERVER, 95), -1L);
+
+    // Not enough samples
+    for (int i = 1; i <= 10; i++) {
+      serverLoadTracker.recordRequestSent(SERVER);
+      serverLoadTracker.recordResponse(SERVER, i);
+    }
+    Assert.assertEquals(serverLoadTracker.getLatencyPercentileMs(SERVER, 95), -1L);
+
+    for (int i = 11; i <= 100; i++) {
+      serverLoadTracker.recordRequestSent(SERVER);
+      serverLoadTracker.recordResponse(SERVER, i);
+    }
+    Assert.assertEquals(serverLoadTracker.getLatencyPercentileMs(SERVER, 95), 95L);
+    Assert.assertEquals(serverLoadTracker.getLatencyPercentileMs(SERVER, 50), 50L);
+    Assert.assertEquals(serverLoadTracker.getLatencyPercentileMs(SERVER, 100), 100L);
+
+    // Only the most recent samples are kept
+    for (int i = 0; i < 128; i++) {
+      serverLoadTracker.recordRequestSent(SERVER);
+      serverLoadTracker.recordResponse(SERVER, 1000L);
+    }
+    Assert.assertEquals(serverLoadTracker.getLatencyPercentileMs(SERVER, 50), 1000L);
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class QueryParallelismUtilsTest {
+
+  @Test
+  public void testGetNumTasks() {
+    int numCores = QueryParallelismUtils.NUM_CORES;
+    long minDocsPerTask = QueryParallelismUtils.MIN_DOCS_PER_TASK;
+    int minNumTasks = QueryParallelismUtils.MIN_NUM_TASKS;
+
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(0, -1L), 1);
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(1, Long.MAX_VALUE), 1);
+
+    // Bounded by number of work items and number of cores
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(2, -1L), Math.min(2, numCores));
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(numCores * 2, -1L), numCores);
+
+    // Bounded by number of documents, but not below the minimum number of tasks
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(numCores * 2, 0L), minNumTasks);
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(numCores * 2, minDocsPerTask), minNumTasks);
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(numCores * 2, minDocsPerTask * numCores * 2), numCores);
+    Assert.assertEquals(QueryParallelismUtils.getNumTasks(2, 0L), Math.min(2, minNumTasks));
+  }
+
+  @Test
+  public void testActiveTasks() {
+    int numCores = QueryParallelismUtils.NUM_CORES;
+    int numActiveTasks = QueryParallelismUtils.getNumActiveTasks();
+    for (int i = 0; i < numCores; i++) {
+      QueryParallelismUtils.onTaskStart();
+    }
+    try {
+      Assert.assertEquals(QueryParallelismUtils.getNumActiveTasks(), numActiveTasks + numCores);
+      // All cores are occupied, should still get the minimum number of tasks
+      Assert.assertEquals(QueryParallelismUtils.getNumAvailableCores(), 1);
+      Assert.assertEquals(QueryParallelismUtils.getNumTasks(numCores * 2, -1L), QueryParallelismUtils.MIN_NUM_TASKS);
+    } finally {
+      for (int i = 0; i < numCores; i++) {
+        QueryParallelismUtils.onTaskFinish();
+      }
+    }
+    Assert.assertEquals(QueryParallelismUtils.getNumActiveTasks(), numActiveTasks);
+  }
+}
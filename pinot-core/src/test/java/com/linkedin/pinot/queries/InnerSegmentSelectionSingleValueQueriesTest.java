@@ -22,6 +22,8 @@ import com.linkedin.pinot.core.operator.query.EmptySelectionOperator;
 import com.linkedin.pinot.core.operator.query.SelectionOnlyOperator;
 import com.linkedin.pinot.core.operator.query.SelectionOrderByOperator;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Queue;
 import org.testng.Assert;
@@ -210,4 +212,65 @@ public class InnerSegmentSelectionSingleValueQueriesTest extends BaseSingleValue
     Assert.assertEquals(((Integer) lastRow[0]).intValue(), 6043515);
     Assert.assertEquals(((Integer) lastRow[1]).intValue(), 462769197);
   }
+
+  @Test
+  public void testSelectionOrderByMixedOrder() {
+    // Compare the top rows with all the rows sorted on column11 DESC, column1 ASC
+    String orderByQuery = "SELECT" + SELECTION + " FROM testTable ORDER BY column11 DESC, column1 LIMIT 100";
+    String selectionOnlyQuery = "SELECT" + SELECTION + " FROM testTable LIMIT 30000";
+    Comparator<Serializable[]> comparator = (row1, row2) -> {
+      int result = ((String) row2[0]).compareTo((String) row1[0]);
+      if (result != 0) {
+        return result;
+      }
+      return ((Integer) row1[1]).compareTo((Integer) row2[1]);
+    };
+
+    // Test query without filter
+    SelectionOrderByOperator selectionOrderByOperator = getOperatorForQuery(orderByQuery);
+    List<Serializable[]> actualRows = getSortKeys(selectionOrderByOperator.nextBlock());
+    SelectionOnlyOperator selectionOnlyOperator = getOperatorForQuery(selectionOnlyQuery);
+    List<Serializable[]> expectedRows = getSortKeys(selectionOnlyOperator.nextBlock());
+    Assert.assertEquals(expectedRows.size(), 30000);
+    assertTopRows(actualRows, expectedRows, comparator, 100);
+
+    // Test query with filter
+    selectionOrderByOperator = getOperatorForQueryWithFilter(orderByQuery);
+    actualRows = getSortKeys(selectionOrderByOperator.nextBlock());
+    selectionOnlyOperator = getOperatorForQueryWithFilter(selectionOnlyQuery);
+    expectedRows = getSortKeys(selectionOnlyOperator.nextBlock());
+    Assert.assertEquals(expectedRows.size(), 6129);
+    assertTopRows(actualRows, expectedRows, comparator, 100);
+  }
+
+  /**
+   * Returns the (column11, column1) values of the selection rows.
+   */
+  private static List<Serializable[]> getSortKeys(IntermediateResultsBlock resultsBlock) {
+    DataSchema dataSchema = resultsBlock.getSelectionDataSchema();
+    int column11Index = -1;
+    int column1Index = -1;
+    for (int i = 0; i < dataSchema.size(); i++) {
+      if (dataSchema.getColumnName(i).equals("column11")) {
+        column11Index = i;
+      } else if (dataSchema.getColumnName(i).equals("column1")) {
+        column1Index = i;
+      }
+    }
+    List<Serializable[]> sortKeys = new ArrayList<>();
+    for (Serializable[] row : resultsBlock.getSelectionResult()) {
+      sortKeys.add(new Serializable[]{row[column11Index], row[column1Index]});
+    }
+    return sortKeys;
+  }
+
+  private static void assertTopRows(List<Serializable[]> actualRows, List<Serializable[]> expectedRows,
+      Comparator<Serializable[]> comparator, int limit) {
+    Assert.assertEquals(actualRows.size(), limit);
+    actualRows.sort(comparator);
+    expectedRows.sort(comparator);
+    for (int i = 0; i < limit; i++) {
+      Assert.assertEquals(actualRows.get(i), expectedRows.get(i));
+    }
+  }
 }
@@ -15,8 +15,13 @@
  */
 package com.linkedin.pinot.queries;
 
+import com.linkedin.pinot.common.response.broker.AggregationResult;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.*;
@@ -376,5 +381,84 @@ public class InterSegmentAggregationSingleValueQueriesTest extends BaseSingleVal
 
     brokerResponse = getBrokerResponseForQuery(query, new InstancePlanMakerImplV2(1000, 1000));
     assertTrue(brokerResponse.isNumGroupsLimitReached());
+
+    brokerResponse = getBrokerResponseForQuery(query, new InstancePlanMakerImplV2(1000, 1000, 4));
+    assertTrue(brokerResponse.isNumGroupsLimitReached());
+  }
+
+  @Test
+  public void testPartitionedCombineGroupBy() {
+    InstancePlanMakerImplV2 partitionedPlanMaker = new InstancePlanMakerImplV2(
+        InstancePlanMakerImplV2.DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY,
+        InstancePlanMakerImplV2.DEFAULT_NUM_GROUPS_LIMIT, 4);
+    String[] queries = new String[]{
+        "SELECT COUNT(*), SUM(column1), MAX(column3) FROM testTable GROUP BY column9",
+        "SELECT MIN(column1), AVG(column3) FROM testTable GROUP BY column11, column12",
+        "SELECT DISTINCTCOUNT(column1) FROM testTable GROUP BY column6 TOP 50"
+    };
+    for (String query : queries) {
+      BrokerResponseNative expectedBrokerResponse = getBrokerResponseForQuery(query);
+      BrokerResponseNative brokerResponse = getBrokerResponseForQuery(query, partitionedPlanMaker);
+      assertEquals(brokerResponse.getNumDocsScanned(), expectedBrokerResponse.getNumDocsScanned());
+
+      List<AggregationResult> expectedAggregationResults = expectedBrokerResponse.getAggregationResults();
+      List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+      assertEquals(aggregationResults.size(), expectedAggregationResults.size());
+      for (int i = 0; i < aggregationResults.size(); i++) {
+        // NOTE: groups with the same value might be picked differently, so only compare the values
+        List<Serializable> expectedValues = new ArrayList<>();
+        for (GroupByResult groupByResult : expectedAggregationResults.get(i).getGroupByResult()) {
+          expectedValues.add(groupByResult.getValue());
+        }
+        List<Serializable> values = new ArrayList<>();
+        for (GroupByResult groupByResult : aggregationResults.get(i).getGroupByResult()) {
+          values.add(groupByResult.getValue());
+        }
+        assertEquals(values, expectedValues, query);
+      }
+    }
+  }
+
+  @Test
+  public void testMorselExecution() {
+    // Split the segments (30000 documents each) into morsels of at most 7000 documents
+    InstancePlanMakerImplV2 morselPlanMaker = new InstancePlanMakerImplV2(
+        InstancePlanMakerImplV2.DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY,
+        InstancePlanMakerImplV2.DEFAULT_NUM_GROUPS_LIMIT, InstancePlanMakerImplV2.DEFAULT_NUM_GROUP_BY_PARTITIONS,
+        7000);
+    String aggregationQuery = "SELECT COUNT(*), SUM(column1), MAX(column3), MIN(column6) FROM testTable";
+    String groupByQuery = "SELECT COUNT(*), SUM(column1), MAX(column3) FROM testTable GROUP BY column9";
+    String[] queries = new String[]{
+        aggregationQuery, aggregationQuery + getFilter(), groupByQuery, groupByQuery + getFilter()
+    };
+    for (String query : queries) {
+      BrokerResponseNative expectedBrokerResponse = getBrokerResponseForQuery(query);
+      BrokerResponseNative brokerResponse = getBrokerResponseForQuery(query, morselPlanMaker);
+      assertEquals(brokerResponse.getNumDocsScanned(), expectedBrokerResponse.getNumDocsScanned(), query);
+      assertEquals(brokerResponse.getTotalDocs(), expectedBrokerResponse.getTotalDocs(), query);
+      assertEquals(brokerResponse.getNumSegmentsProcessed(), expectedBrokerResponse.getNumSegmentsProcessed(), query);
+      assertEquals(brokerResponse.getNumSegmentsMatched(), expectedBrokerResponse.getNumSegmentsMatched(), query);
+
+      List<AggregationResult> expectedAggregationResults = expectedBrokerResponse.getAggregationResults();
+      List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+      assertEquals(aggregationResults.size(), expectedAggregationResults.size());
+      for (int i = 0; i < aggregationResults.size(); i++) {
+        List<GroupByResult> expectedGroupByResults = expectedAggregationResults.get(i).getGroupByResult();
+        if (expectedGroupByResults == null) {
+          assertEquals(aggregationResults.get(i).getValue(), expectedAggregationResults.get(i).getValue(), query);
+        } else {
+          // NOTE: groups with the same value might be picked differently, so only compare the values
+          List<Serializable> expectedValues = new ArrayList<>();
+          for (GroupByResult groupByResult : expectedGroupByResults) {
+            expectedValues.add(groupByResult.getValue());
+          }
+          List<Serializable> values = new ArrayList<>();
+          for (GroupByResult groupByResult : aggregationResults.get(i).getGroupByResult()) {
+            values.add(groupByResult.getValue());
+          }
+          assertEquals(values, expectedValues, query);
+        }
+      }
+    }
   }
 }
@@ -32,6 +32,7 @@ import com.linkedin.pinot.core.plan.TransformPlanNode;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.LongGroupKeyEncoding;
 import com.linkedin.pinot.core.query.aggregation.groupby.NoDictionaryMultiColumnGroupKeyGenerator;
 import com.linkedin.pinot.core.query.aggregation.groupby.NoDictionarySingleColumnGroupKeyGenerator;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
@@ -123,6 +124,14 @@ public class NoDictionaryGroupKeyGeneratorTest {
     }
   }
 
+  /**
+   * Tests the long group keys of the multi-column group key generator for two INT group-by expressions.
+   */
+  @Test
+  public void testMultiColumnLongGroupKeys() throws Exception {
+    testGroupKeyGenerator(new String[]{"int_column", "int_column"});
+  }
+
   private void testGroupKeyGenerator(String[] groupByColumns) throws Exception {
     int numGroupByColumns = groupByColumns.length;
     TransformExpressionTree[] groupByExpressions = new TransformExpressionTree[numGroupByColumns];
@@ -152,6 +161,19 @@ public class NoDictionaryGroupKeyGeneratorTest {
       String actual = groupKey._stringKey;
       Assert.assertTrue(expectedGroupKeys.contains(actual), "Unexpected group key: " + actual);
     }
+
+    // Assert all long group keys are converted back into the expected group keys
+    LongGroupKeyEncoding longGroupKeyEncoding = groupKeyGenerator.getLongGroupKeyEncoding();
+    if (longGroupKeyEncoding != null) {
+      int numLongGroupKeys = 0;
+      Iterator<GroupKeyGenerator.LongGroupKey> uniqueLongGroupKeys = groupKeyGenerator.getUniqueLongGroupKeys();
+      while (uniqueLongGroupKeys.hasNext()) {
+        String actual = longGroupKeyEncoding.toStringKey(uniqueLongGroupKeys.next()._rawKey);
+        Assert.assertTrue(expectedGroupKeys.contains(actual), "Unexpected long group key: " + actual);
+        numLongGroupKeys++;
+      }
+      Assert.assertEquals(numLongGroupKeys, expectedGroupKeys.size(), "Number of long group keys mis-match.");
+    }
   }
 
   /**
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation.groupby;
+
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MaxAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.LongGroupKeyEncoding;
+import com.linkedin.pinot.core.query.aggregation.groupby.StripedLongKeyResultsTable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class StripedLongKeyResultsTableTest {
+  private static final AggregationFunction[] AGGREGATION_FUNCTIONS = new AggregationFunction[]{
+      new CountAggregationFunction(), new SumAggregationFunction(), new MaxAggregationFunction()
+  };
+  private static final int NUM_STRIPES = 4;
+
+  @Test
+  public void testMerge() {
+    StripedLongKeyResultsTable resultsTable =
+        new StripedLongKeyResultsTable(AGGREGATION_FUNCTIONS, Integer.MAX_VALUE, NUM_STRIPES);
+
+    // Segment 1 has values 0-99, segment 2 has values 50-149
+    Assert.assertTrue(resultsTable.merge(getAggregationGroupByResult(LongGroupKeyEncoding.INT, 0, 100)));
+    Assert.assertTrue(resultsTable.merge(getAggregationGroupByResult(LongGroupKeyEncoding.INT, 50, 150)));
+    Assert.assertEquals(resultsTable.getNumGroups(), 150);
+
+    Map<String, Object[]> resultsMap = new HashMap<>();
+    resultsTable.dumpToResultsMap(resultsMap);
+    Assert.assertEquals(resultsMap.size(), 150);
+    for (int value = 0; value < 150; value++) {
+      Object[] results = resultsMap.get(Integer.toString(value));
+      boolean inBothSegments = value >= 50 && value < 100;
+      Assert.assertEquals(results[0], inBothSegments ? 2L : 1L);
+      Assert.assertEquals(results[1], inBothSegments ? 2.0 * value : value);
+      Assert.assertEquals(results[2], (double) value);
+    }
+  }
+
+  @Test
+  public void testMergeWithExistingStringKeys() {
+    StripedLongKeyResultsTable resultsTable =
+        new StripedLongKeyResultsTable(AGGREGATION_FUNCTIONS, Integer.MAX_VALUE, NUM_STRIPES);
+    Assert.assertTrue(resultsTable.merge(getAggregationGroupByResult(LongGroupKeyEncoding.LONG, 0, 10)));
+
+    // Results with different encoding should not be merged
+    Assert.assertFalse(resultsTable.merge(getAggregationGroupByResult(LongGroupKeyEncoding.DOUBLE, 0, 10)));
+
+    Map<String, Object[]> resultsMap = new HashMap<>();
+    resultsMap.put("5", new Object[]{3L, 10.0, 100.0});
+    resultsTable.dumpToResultsMap(resultsMap);
+    Assert.assertEquals(resultsMap.size(), 10);
+    Assert.assertEquals(resultsMap.get("5"), new Object[]{4L, 15.0, 100.0});
+    Assert.assertEquals(resultsMap.get("6"), new Object[]{1L, 6.0, 6.0});
+  }
+
+  @Test
+  public void testNumGroupsLimit() {
+    StripedLongKeyResultsTable resultsTable = new StripedLongKeyResultsTable(AGGREGATION_FUNCTIONS, 20, NUM_STRIPES);
+    Assert.assertTrue(resultsTable.merge(getAggregationGroupByResult(LongGroupKeyEncoding.INT, 0, 100)));
+    Assert.assertEquals(resultsTable.getNumGroups(), 20);
+
+    Map<String, Object[]> resultsMap = new HashMap<>();
+    resultsTable.dumpToResultsMap(resultsMap);
+    Assert.assertEquals(resultsMap.size(), 20);
+  }
+
+  @Test
+  public void testLongGroupKeyEncoding() {
+    Assert.assertEquals(LongGroupKeyEncoding.INT.toStringKey(-5), "-5");
+    Assert.assertEquals(LongGroupKeyEncoding.LONG.toStringKey(Long.MAX_VALUE), Long.toString(Long.MAX_VALUE));
+    Assert.assertEquals(LongGroupKeyEncoding.FLOAT.toStringKey(LongGroupKeyEncoding.encodeFloat(1.5f)), "1.5");
+    Assert.assertEquals(LongGroupKeyEncoding.DOUBLE.toStringKey(LongGroupKeyEncoding.encodeDouble(-2.5)), "-2.5");
+    Assert.assertEquals(LongGroupKeyEncoding.INT_INT.toStringKey(LongGroupKeyEncoding.encodeIntInt(-1, 7)), "-1\t7");
+  }
+
+  /**
+   * Helper method to build an aggregation group-by result with one group for each value in [start, end), where the
+   * group id is the index of the value. COUNT is 1, SUM and MAX are the value.
+   */
+  private static AggregationGroupByResult getAggregationGroupByResult(LongGroupKeyEncoding encoding, int start,
+      int end) {
+    int numGroups = end - start;
+    GroupByResultHolder[] resultHolders = new GroupByResultHolder[AGGREGATION_FUNCTIONS.length];
+    for (int i = 0; i < AGGREGATION_FUNCTIONS.length; i++) {
+      resultHolders[i] = AGGREGATION_FUNCTIONS[i].createGroupByResultHolder(numGroups, numGroups);
+    }
+    List<GroupKeyGenerator.LongGroupKey> groupKeys = new ArrayList<>(numGroups);
+    for (int groupId = 0; groupId < numGroups; groupId++) {
+      int value = start + groupId;
+      GroupKeyGenerator.LongGroupKey groupKey = new GroupKeyGenerator.LongGroupKey();
+      groupKey._groupId = groupId;
+      groupKey._rawKey = encoding == LongGroupKeyEncoding.DOUBLE ? LongGroupKeyEncoding.encodeDouble(value) : value;
+      groupKeys.add(groupKey);
+      resultHolders[0].setValueForKey(groupId, 1.0);
+      resultHolders[1].setValueForKey(groupId, (double) value);
+      resultHolders[2].setValueForKey(groupId, (double) value);
+    }
+
+    GroupKeyGenerator groupKeyGenerator = mock(GroupKeyGenerator.class);
+    when(groupKeyGenerator.getLongGroupKeyEncoding()).thenReturn(encoding);
+    when(groupKeyGenerator.getUniqueLongGroupKeys()).thenReturn(groupKeys.iterator());
+    return new AggregationGroupByResult(groupKeyGenerator, AGGREGATION_FUNCTIONS, resultHolders);
+  }
+}
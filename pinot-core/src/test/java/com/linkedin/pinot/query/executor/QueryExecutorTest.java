@@ -149,6 +149,20 @@ public class QueryExecutorTest {
     Assert.assertEquals(instanceResponse.getDouble(0, 0), 0.0);
   }
 
+  @Test
+  public void testHybridQuery() {
+    // Query the first segment with the query and the second segment with the hybrid query
+    String query = "SELECT COUNT(*) FROM " + TABLE_NAME;
+    InstanceRequest instanceRequest = new InstanceRequest(0L, COMPILER.compileToBrokerRequest(query));
+    instanceRequest.setSearchSegments(_segmentNames.subList(0, 1));
+    instanceRequest.setHybridQuery(COMPILER.compileToBrokerRequest(query + " WHERE met < 100000"));
+    instanceRequest.setHybridSearchSegments(_segmentNames.subList(1, 2));
+    DataTable instanceResponse = _queryExecutor.processQuery(getQueryRequest(instanceRequest), QUERY_RUNNERS);
+    Assert.assertEquals(instanceResponse.getLong(0, 0), 300001L);
+    Assert.assertEquals(instanceResponse.getMetadata().get(DataTable.TOTAL_DOCS_METADATA_KEY), "400002");
+    Assert.assertEquals(instanceResponse.getMetadata().get(DataTable.NUM_SEGMENTS_QUERIED), "2");
+  }
+
   @AfterClass
   public void tearDown() {
     for (IndexSegment segment : _indexSegments) {
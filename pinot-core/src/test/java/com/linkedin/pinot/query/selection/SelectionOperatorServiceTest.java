@@ -117,6 +117,29 @@ public class SelectionOperatorServiceTest {
     Assert.assertEquals(mergedRows.poll(), _compatibleRow2);
   }
 
+  @Test
+  public void testCompatibleRowsReduceWithOrdering() throws Exception {
+    SelectionOperatorService selectionOperatorService =
+        new SelectionOperatorService(_selectionOrderBy, _upgradedDataSchema.clone());
+    Collection<Serializable[]> rows1 = new ArrayList<>(2);
+    rows1.add(_row1.clone());
+    rows1.add(_row2.clone());
+    Collection<Serializable[]> rows2 = new ArrayList<>(2);
+    rows2.add(_compatibleRow1.clone());
+    rows2.add(_compatibleRow2.clone());
+    selectionOperatorService.reduceWithOrdering(SelectionOperatorUtils.getDataTableFromRows(rows1, _dataSchema));
+    selectionOperatorService.reduceWithOrdering(
+        SelectionOperatorUtils.getDataTableFromRows(rows2, _compatibleDataSchema));
+    // Row not able to get into the selection results
+    selectionOperatorService.reduceWithOrdering(
+        SelectionOperatorUtils.getDataTableFromRows(Collections.singletonList(_row1.clone()), _dataSchema));
+    PriorityQueue<Serializable[]> mergedRows = selectionOperatorService.getRows();
+    Assert.assertEquals(mergedRows.size(), 3);
+    Assert.assertEquals(mergedRows.poll(), _compatibleRow1);
+    Assert.assertEquals(mergedRows.poll(), _row2);
+    Assert.assertEquals(mergedRows.poll(), _compatibleRow2);
+  }
+
   @Test
   public void testCompatibleRowsDataTableTransformation() throws Exception {
     Collection<Serializable[]> rows = new ArrayList<>(2);
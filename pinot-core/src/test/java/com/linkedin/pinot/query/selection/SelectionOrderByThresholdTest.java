@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.selection;
+
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.core.query.selection.SelectionOrderByThreshold;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * The <code>SelectionOrderByThresholdTest</code> class provides unit tests for {@link SelectionOrderByThreshold}.
+ */
+public class SelectionOrderByThresholdTest {
+
+  @Test
+  public void testAscending() {
+    SelectionSort selectionSort = new SelectionSort();
+    selectionSort.setColumn("column");
+    selectionSort.setIsAsc(true);
+    SelectionOrderByThreshold threshold = new SelectionOrderByThreshold(selectionSort, 2);
+
+    // Not enough rows
+    threshold.addRows(Collections.singletonList(new Serializable[]{5, "foo"}));
+    Assert.assertFalse(threshold.canSkip(100));
+
+    threshold.addRows(Arrays.asList(new Serializable[]{3, "foo"}, new Serializable[]{7, "bar"}));
+    // Kept values: 3, 5
+    Assert.assertFalse(threshold.canSkip(4));
+    // Ties cannot be skipped because of the other sort columns
+    Assert.assertFalse(threshold.canSkip(5));
+    Assert.assertTrue(threshold.canSkip(5.5));
+    Assert.assertTrue(threshold.canSkip(6L));
+    Assert.assertFalse(threshold.canSkip(null));
+    Assert.assertFalse(threshold.canSkip("6"));
+
+    Assert.assertTrue(threshold.compareBestValues(1, 2) < 0);
+    Assert.assertTrue(threshold.compareBestValues(null, 2) < 0);
+    Assert.assertTrue(threshold.compareBestValues(2, null) > 0);
+  }
+
+  @Test
+  public void testDescending() {
+    SelectionSort selectionSort = new SelectionSort();
+    selectionSort.setColumn("column");
+    selectionSort.setIsAsc(false);
+    SelectionOrderByThreshold threshold = new SelectionOrderByThreshold(selectionSort, 2);
+
+    threshold.addRows(Arrays.asList(new Serializable[]{"b"}, new Serializable[]{"d"}, new Serializable[]{"c"}));
+    // Kept values: "d", "c"
+    Assert.assertFalse(threshold.canSkip("e"));
+    Assert.assertFalse(threshold.canSkip("c"));
+    Assert.assertTrue(threshold.canSkip("bz"));
+    Assert.assertFalse(threshold.canSkip(1));
+
+    Assert.assertTrue(threshold.compareBestValues(2, 1) < 0);
+    Assert.assertTrue(threshold.compareBestValues("a", "b") > 0);
+  }
+}
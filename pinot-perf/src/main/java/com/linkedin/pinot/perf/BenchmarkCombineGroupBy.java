@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.CombineGroupByOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.PartitionedCombineGroupByOperator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.operator.blocks.TransformBlock;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.LongGroupKeyEncoding;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for combining aggregation group-by results from multiple segments with {@link CombineGroupByOperator}
+ * (single shared map) and {@link PartitionedCombineGroupByOperator} (hash partitioned merge) across different number
+ * of threads.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx8G"})
+public class BenchmarkCombineGroupBy {
+  private static final String QUERY = "SELECT COUNT(*), SUM(metric), MAX(metric) FROM testTable GROUP BY dim TOP 100";
+  private static final int NUM_SEGMENTS = 200;
+  private static final int NUM_GROUPS_PER_SEGMENT = 20_000;
+  private static final int CARDINALITY = 500_000;
+  private static final long TIMEOUT_MS = 60_000L;
+
+  @Param({"1", "4", "8", "16", "32"})
+  public int numThreads;
+
+  // 0 means using CombineGroupByOperator, otherwise using PartitionedCombineGroupByOperator with the given number of
+  // partitions
+  @Param({"0", "8", "32"})
+  public int numPartitions;
+
+  // Whether the segments generate long group keys
+  @Param({"true", "false"})
+  public boolean longKeys;
+
+  private BrokerRequest _brokerRequest;
+  private List<Operator> _operators;
+  private ExecutorService _executorService;
+
+  @Setup
+  public void setUp() {
+    _brokerRequest = new Pql2Compiler().compileToBrokerRequest(QUERY);
+    AggregationFunctionContext[] aggregationFunctionContexts =
+        AggregationFunctionUtils.getAggregationFunctionContexts(_brokerRequest.getAggregationsInfo(), null);
+    int numAggregationFunctions = aggregationFunctionContexts.length;
+    AggregationFunction[] aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      aggregationFunctions[i] = aggregationFunctionContexts[i].getAggregationFunction();
+    }
+
+    Random random = new Random();
+    _operators = new ArrayList<>(NUM_SEGMENTS);
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      long[] values = new long[NUM_GROUPS_PER_SEGMENT];
+      GroupByResultHolder[] resultHolders = new GroupByResultHolder[numAggregationFunctions];
+      for (int j = 0; j < numAggregationFunctions; j++) {
+        resultHolders[j] =
+            aggregationFunctions[j].createGroupByResultHolder(NUM_GROUPS_PER_SEGMENT, NUM_GROUPS_PER_SEGMENT);
+      }
+      for (int groupId = 0; groupId < NUM_GROUPS_PER_SEGMENT; groupId++) {
+        values[groupId] = random.nextInt(CARDINALITY);
+        for (GroupByResultHolder resultHolder : resultHolders) {
+          resultHolder.setValueForKey(groupId, (double) random.nextInt(1000));
+        }
+      }
+      AggregationGroupByResult aggregationGroupByResult =
+          new AggregationGroupByResult(new FixedValuesGroupKeyGenerator(values, longKeys), aggregationFunctions,
+              resultHolders);
+      _operators.add(
+          new FixedResultOperator(new IntermediateResultsBlock(aggregationFunctionContexts, aggregationGroupByResult)));
+    }
+
+    _executorService = Executors.newFixedThreadPool(numThreads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    _executorService.shutdown();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int combineGroupBy() {
+    Operator combineOperator;
+    if (numPartitions == 0) {
+      combineOperator = new CombineGroupByOperator(_operators, _brokerRequest, _executorService, TIMEOUT_MS,
+          InstancePlanMakerImplV2.DEFAULT_NUM_GROUPS_LIMIT);
+    } else {
+      combineOperator = new PartitionedCombineGroupByOperator(_operators, _brokerRequest, _executorService, TIMEOUT_MS,
+          InstancePlanMakerImplV2.DEFAULT_NUM_GROUPS_LIMIT, numPartitions);
+    }
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+    return resultsBlock.getCombinedAggregationGroupByResult().get(0).size();
+  }
+
+  /**
+   * Operator that always returns the same results block.
+   */
+  private static class FixedResultOperator extends BaseOperator<IntermediateResultsBlock> {
+    private final IntermediateResultsBlock _resultsBlock;
+
+    FixedResultOperator(IntermediateResultsBlock resultsBlock) {
+      _resultsBlock = resultsBlock;
+    }
+
+    @Override
+    protected IntermediateResultsBlock getNextBlock() {
+      return _resultsBlock;
+    }
+
+    @Override
+    public String getOperatorName() {
+      return "FixedResultOperator";
+    }
+
+    @Override
+    public ExecutionStatistics getExecutionStatistics() {
+      return new ExecutionStatistics();
+    }
+  }
+
+  /**
+   * Group key generator with fixed LONG values, where the group id is the index of the value.
+   */
+  private static class FixedValuesGroupKeyGenerator implements GroupKeyGenerator {
+    private final long[] _values;
+    private final boolean _longKeys;
+
+    FixedValuesGroupKeyGenerator(long[] values, boolean longKeys) {
+      _values = values;
+      _longKeys = longKeys;
+    }
+
+    @Override
+    public int getGlobalGroupKeyUpperBound() {
+      return _values.length;
+    }
+
+    @Override
+    public void generateKeysForBlock(@Nonnull TransformBlock transformBlock, @Nonnull int[] groupKeys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void generateKeysForBlock(@Nonnull TransformBlock transformBlock, @Nonnull int[][] groupKeys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getCurrentGroupKeyUpperBound() {
+      return _values.length;
+    }
+
+    @Override
+    public Iterator<GroupKey> getUniqueGroupKeys() {
+      return new Iterator<GroupKey>() {
+        private final GroupKey _groupKey = new GroupKey();
+        private int _groupId = 0;
+
+        @Override
+        public boolean hasNext() {
+          return _groupId < _values.length;
+        }
+
+        @Override
+        public GroupKey next() {
+          _groupKey._groupId = _groupId;
+          _groupKey._stringKey = Long.toString(_values[_groupId++]);
+          return _groupKey;
+        }
+      };
+    }
+
+    @Nullable
+    @Override
+    public LongGroupKeyEncoding getLongGroupKeyEncoding() {
+      return _longKeys ? LongGroupKeyEncoding.LONG : null;
+    }
+
+    @Override
+    public Iterator<LongGroupKey> getUniqueLongGroupKeys() {
+      return new Iterator<LongGroupKey>() {
+        private final LongGroupKey _groupKey = new LongGroupKey();
+        private int _groupId = 0;
+
+        @Override
+        public boolean hasNext() {
+          return _groupId < _values.length;
+        }
+
+        @Override
+        public LongGroupKey next() {
+          _groupKey._groupId = _groupId;
+          _groupKey._rawKey = _values[_groupId++];
+          return _groupKey;
+        }
+      };
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkCombineGroupBy.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.netty.NettyServer;
+import com.linkedin.pinot.transport.netty.NettyTCPClientConnection;
+import com.linkedin.pinot.transport.netty.NettyTCPServer;
+import com.linkedin.pinot.transport.netty.NettyUtils;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Load test for the Netty transport between the broker and the server, where each benchmark thread is a client with
+ * its own connection sending requests to the server back to back (closed loop), and the server responds right away
+ * with a fixed size response (similar to a serialized data table).
+ * <p>The throughput benchmark gives the QPS, and the latency benchmark (sample time mode) gives the percentiles
+ * (including p99) of the request round trip latency. Compares the NIO transport with the native epoll transport (which
+ * falls back to NIO when not available, e.g. not on Linux).
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx1G"})
+public class BenchmarkNettyTransport {
+  private static final int PORT = 9099;
+  private static final int NUM_BOSS_THREADS = 4;
+  private static final int NUM_WORKER_THREADS = 8;
+  private static final int NUM_CLIENT_THREADS = 8;
+  private static final long SERVER_START_TIMEOUT_MS = 10_000L;
+  private static final long REQUEST_TIMEOUT_MS = 10_000L;
+  private static final byte[] REQUEST = new byte[256];
+
+  @Param({"false", "true"})
+  public boolean enableEpoll;
+
+  @Param({"1024", "65536"})
+  public int responseSize;
+
+  private NettyTCPServer _server;
+  private EventLoopGroup _clientEventLoopGroup;
+  private HashedWheelTimer _timer;
+
+  @Setup
+  public void setUp() {
+    byte[] response = new byte[responseSize];
+    NettyServer.RequestHandlerFactory handlerFactory =
+        () -> (channelHandlerContext, request) -> Futures.immediateFuture(response);
+    _server = new NettyTCPServer(PORT, handlerFactory, null, Long.MAX_VALUE, NUM_BOSS_THREADS, NUM_WORKER_THREADS,
+        enableEpoll);
+    new Thread(_server, "NettyTCPServer").start();
+    long endTimeMs = System.currentTimeMillis() + SERVER_START_TIMEOUT_MS;
+    while (!_server.isStarted()) {
+      Preconditions.checkState(System.currentTimeMillis() < endTimeMs, "Failed to start the server in %s ms",
+          SERVER_START_TIMEOUT_MS);
+      Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+    }
+
+    _clientEventLoopGroup = NettyUtils.createEventLoopGroup(NUM_CLIENT_THREADS, enableEpoll);
+    _timer = new HashedWheelTimer();
+  }
+
+  @TearDown
+  public void tearDown() {
+    _clientEventLoopGroup.shutdownGracefully();
+    _timer.stop();
+    _server.waitForShutdown(SERVER_START_TIMEOUT_MS);
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+    private NettyTCPClientConnection _connection;
+    private long _requestId;
+
+    @Setup
+    public void setUp(BenchmarkNettyTransport benchmark) {
+      _connection =
+          new NettyTCPClientConnection(new ServerInstance("localhost", PORT), benchmark._clientEventLoopGroup,
+              benchmark._timer, new NettyClientMetrics(null, "client_"));
+      Preconditions.checkState(_connection.connect(), "Failed to connect to the server");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+      _connection.close();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Threads(32)
+  public byte[] queriesPerSecond(Client client) throws Exception {
+    return sendRequest(client);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Threads(32)
+  public byte[] latency(Client client) throws Exception {
+    return sendRequest(client);
+  }
+
+  private static byte[] sendRequest(Client client) throws Exception {
+    return client._connection.sendRequest(Unpooled.wrappedBuffer(REQUEST), client._requestId++, REQUEST_TIMEOUT_MS)
+        .getOne();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkNettyTransport.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
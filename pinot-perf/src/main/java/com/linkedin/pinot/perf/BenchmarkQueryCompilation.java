@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.pql.parsers.CachingPql2Compiler;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the broker request compilation phase (timed as BrokerQueryPhase.REQUEST_COMPILATION in the broker) on
+ * templated dashboard queries, with and without the compiled query cache.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx8G"})
+public class BenchmarkQueryCompilation {
+  private static final int NUM_QUERIES = 10_000;
+  private static final String[] QUERY_TEMPLATES = new String[]{
+      "SELECT COUNT(*) FROM myTable WHERE country = '%s' AND daysSinceEpoch BETWEEN %d AND %d",
+      "SELECT SUM(clicks), SUM(impressions) FROM myTable WHERE country IN ('%s', 'us', 'ca') AND daysSinceEpoch >= %d "
+          + "AND daysSinceEpoch < %d GROUP BY browser, os TOP 10",
+      "SELECT memberId, clicks FROM myTable WHERE country = '%s' AND (daysSinceEpoch > %d OR clicks > %d) "
+          + "ORDER BY clicks DESC LIMIT 20"
+  };
+  private static final String[] COUNTRIES = new String[]{"us", "ca", "mx", "gb", "fr", "de", "in", "cn", "jp", "br"};
+
+  @Param({"false", "true"})
+  public boolean useCache;
+
+  private Pql2Compiler _compiler;
+  private String[] _queries;
+  private int _index;
+
+  @Setup
+  public void setUp() {
+    _compiler = useCache ? new CachingPql2Compiler(1000) : new Pql2Compiler();
+    Random random = new Random(0);
+    _queries = new String[NUM_QUERIES];
+    for (int i = 0; i < NUM_QUERIES; i++) {
+      int startDay = 17000 + random.nextInt(365);
+      _queries[i] = String.format(QUERY_TEMPLATES[i % QUERY_TEMPLATES.length], COUNTRIES[random.nextInt(
+          COUNTRIES.length)], startDay, startDay + random.nextInt(30));
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public BrokerRequest compile() {
+    String query = _queries[_index];
+    _index = (_index + 1) % NUM_QUERIES;
+    return _compiler.compileToBrokerRequest(query);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkQueryCompilation.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.linkedin.pinot.broker.queryquota.QueryQuotaRateLimiter;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the table query quota check in the broker with a per-broker quota of 50k QPS, where all the query
+ * threads of the broker acquire permits concurrently.
+ * <p>Compares the Guava rate limiter (previously used for the query quota) with the striped query quota rate limiter,
+ * which also counts the hits for the quota utilization metric.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx1G"})
+public class BenchmarkQueryQuota {
+  private static final double PERMITS_PER_SECOND = 50_000;
+
+  @Param({"false", "true"})
+  public boolean useStripedRateLimiter;
+
+  private RateLimiter _guavaRateLimiter;
+  private QueryQuotaRateLimiter _queryQuotaRateLimiter;
+
+  @Setup
+  public void setUp() {
+    _guavaRateLimiter = RateLimiter.create(PERMITS_PER_SECOND);
+    _queryQuotaRateLimiter = new QueryQuotaRateLimiter(PERMITS_PER_SECOND,
+        CommonConstants.Broker.DEFAULT_BROKER_QUERY_QUOTA_MAX_BURST_SECONDS);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(16)
+  public boolean tryAcquire() {
+    if (useStripedRateLimiter) {
+      // Same as the quota check in the broker, which also reads the hit count for the utilization metric
+      boolean acquired = _queryQuotaRateLimiter.tryAcquire();
+      return _queryQuotaRateLimiter.getHitCount() >= 0 && acquired;
+    } else {
+      return _guavaRateLimiter.tryAcquire();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkQueryQuota.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.linkedin.pinot.core.realtime.impl.invertedindex.RealtimeInvertedIndexReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+
+/**
+ * Benchmark for concurrent reads and writes on {@link RealtimeInvertedIndexReader}: one writer thread keeps indexing
+ * documents (as the consumer thread of a consuming segment) while the reader threads keep querying the hot values.
+ */
+@State(Scope.Group)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx8G"})
+public class BenchmarkRealtimeInvertedIndex {
+  private static final int NUM_PRE_INDEXED_DOCS = 1_000_000;
+  // Readers only query the first few dictionary ids, which are the most frequent values
+  private static final int NUM_HOT_DICT_IDS = 10;
+
+  @Param({"10", "1000"})
+  public int cardinality;
+
+  private RealtimeInvertedIndexReader _invertedIndex;
+  private int _nextDocId;
+  private Random _writerRandom;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    _invertedIndex = new RealtimeInvertedIndexReader();
+    _writerRandom = new Random(0);
+    for (int docId = 0; docId < NUM_PRE_INDEXED_DOCS; docId++) {
+      _invertedIndex.add(nextDictId(_writerRandom), docId);
+    }
+    _nextDocId = NUM_PRE_INDEXED_DOCS;
+  }
+
+  /**
+   * Skewed value distribution where half of the documents have one of the hot values.
+   */
+  private int nextDictId(Random random) {
+    if (random.nextBoolean()) {
+      return random.nextInt(Math.min(NUM_HOT_DICT_IDS, cardinality));
+    } else {
+      return random.nextInt(cardinality);
+    }
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void write() {
+    _invertedIndex.add(nextDictId(_writerRandom), _nextDocId++);
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(4)
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int read(ReaderState readerState) {
+    ImmutableRoaringBitmap[] bitmaps =
+        _invertedIndex.getDocIds(readerState._random.nextInt(Math.min(NUM_HOT_DICT_IDS, cardinality)));
+    if (bitmaps == null) {
+      return 0;
+    }
+    int numDocs = 0;
+    for (ImmutableRoaringBitmap bitmap : bitmaps) {
+      numDocs += bitmap.getCardinality();
+    }
+    return numDocs;
+  }
+
+  @State(Scope.Thread)
+  public static class ReaderState {
+    private final Random _random = new Random();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkRealtimeInvertedIndex.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.GenericRowRecordReader;
+import com.linkedin.pinot.core.data.recordtransformer.CompoundTransformer;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.io.writer.impl.MmapMemoryManager;
+import com.linkedin.pinot.core.segment.creator.SpillingSegmentCreationDataSource;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Compares the two-pass segment creation (stats pass, then index pass after rewinding the record reader) with the
+ * single-pass segment creation (rows buffered into a memory-mapped scratch area while gathering the stats).
+ */
+@State(Scope.Benchmark)
+public class BenchmarkSegmentCreation {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkSegmentCreation");
+  private static final int NUM_ROWS = 1_000_000;
+  private static final String INT_COLUMN = "intColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String LONG_METRIC = "longMetric";
+  private static final String DOUBLE_METRIC = "doubleMetric";
+
+  private Schema _schema;
+  private List<GenericRow> _rows;
+
+  @Setup
+  public void setUp() throws IOException {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    FileUtils.forceMkdir(TEMP_DIR);
+
+    _schema = new Schema();
+    _schema.addField(new DimensionFieldSpec(INT_COLUMN, FieldSpec.DataType.INT, true));
+    _schema.addField(new DimensionFieldSpec(STRING_COLUMN, FieldSpec.DataType.STRING, true));
+    _schema.addField(new DimensionFieldSpec(MV_COLUMN, FieldSpec.DataType.INT, false));
+    _schema.addField(new MetricFieldSpec(LONG_METRIC, FieldSpec.DataType.LONG));
+    _schema.addField(new MetricFieldSpec(DOUBLE_METRIC, FieldSpec.DataType.DOUBLE));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putField(INT_COLUMN, random.nextInt(1000));
+      row.putField(STRING_COLUMN, "value" + random.nextInt(10_000));
+      row.putField(MV_COLUMN, new Object[]{random.nextInt(100), random.nextInt(100)});
+      row.putField(LONG_METRIC, random.nextLong());
+      row.putField(DOUBLE_METRIC, random.nextDouble());
+      _rows.add(row);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public String benchmarkTwoPassSegmentCreation() throws Exception {
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(getSegmentGeneratorConfig("twoPass"), new GenericRowRecordReader(_rows, _schema));
+    driver.build();
+    return driver.getSegmentName();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public String benchmarkSinglePassSegmentCreation() throws Exception {
+    try (SpillingSegmentCreationDataSource dataSource = new SpillingSegmentCreationDataSource(
+        new GenericRowRecordReader(_rows, _schema), new MmapMemoryManager(TEMP_DIR.getPath(), "singlePass"))) {
+      SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+      driver.init(getSegmentGeneratorConfig("singlePass"), dataSource, CompoundTransformer.getPassThroughTransformer());
+      driver.build();
+      return driver.getSegmentName();
+    }
+  }
+
+  private SegmentGeneratorConfig getSegmentGeneratorConfig(String segmentName) {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_schema);
+    config.setOutDir(TEMP_DIR.getPath());
+    config.setSegmentName(segmentName);
+    return config;
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkSegmentCreation.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(10))
+        .warmupIterations(1)
+        .measurementTime(TimeValue.seconds(30))
+        .measurementIterations(3)
+        .forks(1)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -15,10 +15,18 @@
  */
 package com.linkedin.pinot.server.api.resources;
 
+import com.linkedin.pinot.common.restlet.resources.ResourceUtils;
+import com.linkedin.pinot.core.query.scheduler.QueryScheduler;
+import com.linkedin.pinot.core.query.scheduler.deadline.DeadlinePriorityScheduler;
 import com.linkedin.pinot.server.starter.ServerInstance;
 import javax.inject.Inject;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,5 +50,19 @@ public class SchedulerResource {
     server.resetQueryScheduler(schedulerName);
   }
 
+  // Returns the per scheduler group stats (queue wait, estimated cost vs processing time, shed queries) of the
+  // deadline scheduler, used to tune the scheduler
+  @GET
+  @Path("scheduler/groups")
+  @Produces(MediaType.APPLICATION_JSON)
+  public String getSchedulerGroupStats() {
+    QueryScheduler queryScheduler = server.getQueryScheduler();
+    if (!(queryScheduler instanceof DeadlinePriorityScheduler)) {
+      throw new WebApplicationException("Scheduler group stats are not available for scheduler: "
+          + queryScheduler.name(), Response.Status.NOT_FOUND);
+    }
+    return ResourceUtils.convertToJsonString(((DeadlinePriorityScheduler) queryScheduler).getSchedulerGroupStats());
+  }
+
 }
 
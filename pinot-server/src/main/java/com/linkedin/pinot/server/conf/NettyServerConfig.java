@@ -23,6 +23,15 @@ public class NettyServerConfig {
 
   // Netty server port
   private static String NETTY_SERVER_PORT = "port";
+  // Number of threads accepting the connections (and number of listening sockets with the native epoll transport)
+  private static final String NETTY_SERVER_NUM_BOSS_THREADS = "numBossThreads";
+  private static final int DEFAULT_NETTY_SERVER_NUM_BOSS_THREADS = 1;
+  // Number of threads handling the IO of the accepted connections, 0 for the netty default of twice the number of cores
+  private static final String NETTY_SERVER_NUM_WORKER_THREADS = "numWorkerThreads";
+  private static final int DEFAULT_NETTY_SERVER_NUM_WORKER_THREADS = 20;
+  // Whether to use the native epoll transport when available
+  private static final String NETTY_SERVER_ENABLE_EPOLL = "enableEpoll";
+  private static final boolean DEFAULT_NETTY_SERVER_ENABLE_EPOLL = false;
 
   private Configuration _serverNettyConfig;
 
@@ -39,4 +48,16 @@ public class NettyServerConfig {
   public int getPort() {
     return _serverNettyConfig.getInt(NETTY_SERVER_PORT);
   }
+
+  public int getNumBossThreads() {
+    return _serverNettyConfig.getInt(NETTY_SERVER_NUM_BOSS_THREADS, DEFAULT_NETTY_SERVER_NUM_BOSS_THREADS);
+  }
+
+  public int getNumWorkerThreads() {
+    return _serverNettyConfig.getInt(NETTY_SERVER_NUM_WORKER_THREADS, DEFAULT_NETTY_SERVER_NUM_WORKER_THREADS);
+  }
+
+  public boolean isEpollEnabled() {
+    return _serverNettyConfig.getBoolean(NETTY_SERVER_ENABLE_EPOLL, DEFAULT_NETTY_SERVER_ENABLE_EPOLL);
+  }
 }
@@ -18,27 +18,41 @@ package com.linkedin.pinot.server.request;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.linkedin.pinot.common.metrics.ServerMeter;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.metrics.ServerQueryPhase;
 import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
 import com.linkedin.pinot.core.query.request.ServerQueryRequest;
+import com.linkedin.pinot.core.query.request.context.QueryExecutionContext;
 import com.linkedin.pinot.core.query.scheduler.QueryScheduler;
 import com.linkedin.pinot.serde.SerDe;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+/**
+ * Request handler that submits the queries to the query scheduler.
+ * <p>Keeps track of the execution context of the queries in progress (queued or running), so that the broker can cancel
+ * a query by sending an instance request with the cancel flag, the same request id and broker id.
+ */
 public class ScheduledRequestHandler implements NettyServer.RequestHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledRequestHandler.class);
 
   private final ServerMetrics serverMetrics;
   private QueryScheduler queryScheduler;
+  // Execution contexts of the queries in progress, keyed by broker id and request id
+  private final Map<String, Set<QueryExecutionContext>> queriesInProgress = new ConcurrentHashMap<>();
 
   public ScheduledRequestHandler(QueryScheduler queryScheduler, ServerMetrics serverMetrics) {
     Preconditions.checkNotNull(queryScheduler);
@@ -66,13 +80,60 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
       return Futures.immediateFuture(null);
     }
 
+    if (instanceRequest.isCancel()) {
+      return cancelQuery(instanceRequest);
+    }
+
     ServerQueryRequest queryRequest = new ServerQueryRequest(instanceRequest, serverMetrics, queryArrivalTimeMs);
     queryRequest.getTimerContext()
         .startNewPhaseTimer(ServerQueryPhase.REQUEST_DESERIALIZATION, queryArrivalTimeMs)
         .stopAndRecord();
 
     LOGGER.debug("Processing requestId:{},request={}", instanceRequest.getRequestId(), instanceRequest);
-    return queryScheduler.submit(queryRequest);
+    String queryKey = getQueryKey(queryRequest.getBrokerId(), queryRequest.getRequestId());
+    QueryExecutionContext executionContext = queryRequest.getExecutionContext();
+    queriesInProgress.computeIfAbsent(queryKey, k -> ConcurrentHashMap.newKeySet()).add(executionContext);
+    ListenableFuture<byte[]> future = queryScheduler.submit(queryRequest);
+    future.addListener(() -> queriesInProgress.computeIfPresent(queryKey, (k, executionContexts) -> {
+      executionContexts.remove(executionContext);
+      return executionContexts.isEmpty() ? null : executionContexts;
+    }), MoreExecutors.directExecutor());
+    return future;
+  }
+
+  /**
+   * Cancels the queries in progress for the request id and broker id of the given instance request. The queued queries
+   * are rejected once scheduled, and the running queries stop at the next block boundary.
+   * <p>Responds with an empty data table, which is ignored by the broker as the query is already finished on the broker
+   * side.
+   */
+  private ListenableFuture<byte[]> cancelQuery(InstanceRequest instanceRequest) {
+    long requestId = instanceRequest.getRequestId();
+    String brokerId = instanceRequest.getBrokerId() != null ? instanceRequest.getBrokerId() : "unknown";
+    Set<QueryExecutionContext> executionContexts = queriesInProgress.get(getQueryKey(brokerId, requestId));
+    int numQueriesCancelled = 0;
+    if (executionContexts != null) {
+      for (QueryExecutionContext executionContext : executionContexts) {
+        executionContext.cancel("Query cancelled by broker: " + brokerId);
+        numQueriesCancelled++;
+      }
+    }
+    LOGGER.debug("Cancelled {} queries for requestId: {}, brokerId: {}", numQueriesCancelled, requestId, brokerId);
+
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    try {
+      return Futures.immediateFuture(dataTable.toBytes());
+    } catch (Exception e) {
+      serverMetrics.addMeteredGlobalValue(ServerMeter.RESPONSE_SERIALIZATION_EXCEPTIONS, 1);
+      LOGGER.error("Caught exception while serializing cancel response for requestId: {}, brokerId: {}", requestId,
+          brokerId, e);
+      return Futures.immediateFuture(null);
+    }
+  }
+
+  private static String getQueryKey(String brokerId, long requestId) {
+    return brokerId + "_" + requestId;
   }
 
   public void setScheduler(QueryScheduler scheduler) {
@@ -23,6 +23,7 @@ import com.linkedin.pinot.core.operator.transform.function.TransformFunctionFact
 import com.linkedin.pinot.core.query.executor.QueryExecutor;
 import com.linkedin.pinot.core.query.scheduler.QueryScheduler;
 import com.linkedin.pinot.core.query.scheduler.QuerySchedulerFactory;
+import com.linkedin.pinot.server.conf.NettyServerConfig;
 import com.linkedin.pinot.server.conf.ServerConf;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import com.linkedin.pinot.transport.netty.NettyTCPServer;
@@ -42,6 +43,8 @@ import org.slf4j.LoggerFactory;
  */
 public class ServerBuilder {
   private static final Logger LOGGER = LoggerFactory.getLogger(ServerBuilder.class);
+  // Same as the default of the netty TCP server
+  private static final long DEFAULT_LARGE_QUERY_LATENCY_MS = 100L;
 
   private final ServerConf _serverConf;
   private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
@@ -113,8 +116,14 @@ public class ServerBuilder {
 
   public NettyServer buildNettyServer(NettyServer.RequestHandlerFactory requestHandlerFactory)
       throws ConfigurationException {
-    int nettyPort = _serverConf.getNettyConfig().getPort();
-    LOGGER.info("Building netty TCP server with port: {}", nettyPort);
-    return new NettyTCPServer(nettyPort, requestHandlerFactory, null);
+    NettyServerConfig nettyConfig = _serverConf.getNettyConfig();
+    int nettyPort = nettyConfig.getPort();
+    int numBossThreads = nettyConfig.getNumBossThreads();
+    int numWorkerThreads = nettyConfig.getNumWorkerThreads();
+    boolean enableEpoll = nettyConfig.isEpollEnabled();
+    LOGGER.info("Building netty TCP server with port: {}, boss threads: {}, worker threads: {}, epoll enabled: {}",
+        nettyPort, numBossThreads, numWorkerThreads, enableEpoll);
+    return new NettyTCPServer(nettyPort, requestHandlerFactory, null, DEFAULT_LARGE_QUERY_LATENCY_MS, numBossThreads,
+        numWorkerThreads, enableEpoll);
   }
 }
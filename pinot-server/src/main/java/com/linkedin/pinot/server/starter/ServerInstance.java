@@ -125,6 +125,10 @@ public class ServerInstance {
     return _latestQueryTime.get();
   }
 
+  public QueryScheduler getQueryScheduler() {
+    return _queryScheduler;
+  }
+
   public void resetQueryScheduler(String schedulerName) {
     Configuration schedulerConfig = _serverConf.getSchedulerConfig();
     schedulerConfig.setProperty(QuerySchedulerFactory.ALGORITHM_NAME_CONFIG_KEY, schedulerName);
@@ -31,6 +31,10 @@ public class TransportClientConf {
   public static final String CFG_BASED_ROUTING = "routing";
   public static final String HELIX_CONFIG = "helix";
   public static final String CONNECTION_POOL_CONFIG = "connPool";
+  // Number of netty event loop threads, 0 for the netty default of twice the number of cores
+  public static final String NUM_EVENT_LOOP_THREADS_KEY = "numEventLoopThreads";
+  // Whether to use the native epoll transport when available
+  public static final String ENABLE_EPOLL_KEY = "enableEpoll";
 
   // TODO: Revisit defaults
   private static final String DEFAULT_ROUTING_MODE = "CONFIG";
@@ -38,6 +42,8 @@ public class TransportClientConf {
   private RoutingMode _routingMode;
   private RoutingTableConfig _cfgBasedRouting;
   private ConnectionPoolConfig _connPool;
+  private int _numEventLoopThreads = 0;
+  private boolean _enableEpoll = false;
 
   public TransportClientConf() {
     _routingMode = RoutingMode.valueOf(DEFAULT_ROUTING_MODE);
@@ -57,6 +63,9 @@ public class TransportClientConf {
     if (connPoolCfg != null) {
       _connPool.init(connPoolCfg);
     }
+
+    _numEventLoopThreads = cfg.getInt(NUM_EVENT_LOOP_THREADS_KEY, _numEventLoopThreads);
+    _enableEpoll = cfg.getBoolean(ENABLE_EPOLL_KEY, _enableEpoll);
   }
 
   public RoutingMode getRoutingMode() {
@@ -70,4 +79,12 @@ public class TransportClientConf {
   public ConnectionPoolConfig getConnPool() {
     return _connPool;
   }
+
+  public int getNumEventLoopThreads() {
+    return _numEventLoopThreads;
+  }
+
+  public boolean isEpollEnabled() {
+    return _enableEpoll;
+  }
 }
@@ -26,15 +26,15 @@ import com.linkedin.pinot.transport.metrics.AggregatedTransportServerMetrics;
 import com.linkedin.pinot.transport.metrics.NettyServerMetrics;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
@@ -47,7 +47,9 @@ import org.slf4j.LoggerFactory;
  * A Netty Server abstraction. Server implementations are expected to implement the getServerBootstrap() abstract
  * method to configure the server protocol and setup handlers. The Netty server will then bind to the port and
  * listens to incoming connections on the port.
- *
+ * <p>With the native epoll transport enabled (and available), the server binds one listening socket per boss thread
+ * with SO_REUSEPORT so that the connections are accepted by multiple accept loops. Otherwise, a single listening socket
+ * is bound.
  */
 public abstract class NettyServer implements Runnable {
 
@@ -107,9 +109,11 @@ public abstract class NettyServer implements Runnable {
   // So, these netty threads are not blocked. Config is still important
   protected final EventLoopGroup _bossGroup;
   protected final EventLoopGroup _workerGroup;
+  protected final int _numThreadsForBossGroup;
 
-  // Netty Channel
+  // Netty Channel (the first one if multiple listening sockets are bound)
   protected volatile Channel _channel = null;
+  protected final List<Channel> _channels = new ArrayList<>();
 
   // Factory for generating request Handlers
   protected RequestHandlerFactory _handlerFactory;
@@ -128,13 +132,29 @@ public abstract class NettyServer implements Runnable {
 
   public NettyServer(int port, RequestHandlerFactory handlerFactory, AggregatedMetricsRegistry registry, long defaultLargeQueryLatencyMs,
       int numThreadsForBossGroup, int numThreadsForWorkerGroup) {
+    this(port, handlerFactory, registry, defaultLargeQueryLatencyMs, numThreadsForBossGroup, numThreadsForWorkerGroup,
+        false);
+  }
+
+  /**
+   * @param numThreadsForBossGroup Number of threads accepting the connections, which is also the number of listening
+   *                               sockets bound with the native epoll transport, 0 for the Netty default of twice the
+   *                               number of cores
+   * @param numThreadsForWorkerGroup Number of threads handling the IO of the accepted connections, 0 for the Netty
+   *                                 default of twice the number of cores
+   * @param enableEpoll Whether to use the native epoll transport when available
+   */
+  public NettyServer(int port, RequestHandlerFactory handlerFactory, AggregatedMetricsRegistry registry,
+      long defaultLargeQueryLatencyMs, int numThreadsForBossGroup, int numThreadsForWorkerGroup, boolean enableEpoll) {
     _port = port;
     _handlerFactory = handlerFactory;
     _metricsRegistry = registry;
     _metrics = new AggregatedTransportServerMetrics(_metricsRegistry, AGGREGATED_SERVER_METRICS_NAME + port + "_");
     _defaultLargeQueryLatencyMs = defaultLargeQueryLatencyMs;
-    _bossGroup = new NioEventLoopGroup(numThreadsForBossGroup);
-    _workerGroup = new NioEventLoopGroup(numThreadsForWorkerGroup);
+    // Negative number of threads is not accepted by Netty, use the Netty default instead
+    _bossGroup = NettyUtils.createEventLoopGroup(Math.max(numThreadsForBossGroup, 0), enableEpoll);
+    _numThreadsForBossGroup = NettyUtils.getNumThreads(_bossGroup);
+    _workerGroup = NettyUtils.createEventLoopGroup(numThreadsForWorkerGroup, NettyUtils.isEpoll(_bossGroup));
   }
 
   @Override
@@ -144,11 +164,23 @@ public abstract class NettyServer implements Runnable {
 
       LOGGER.info("Binding to the server port !!");
 
-      // Bind and start to accept incoming connections.
-      ChannelFuture f = bootstrap.bind(_port).sync();
-      _channel = f.channel();
-      LOGGER.info("Server bounded to port :" + _port + ", Waiting for closing");
-      f.channel().closeFuture().sync();
+      // Bind and start to accept incoming connections. With SO_REUSEPORT, bind once per boss thread so that each
+      // listening socket gets its own accept loop.
+      int numChannels = NettyUtils.isEpoll(_bossGroup) ? _numThreadsForBossGroup : 1;
+      List<Channel> channels = new ArrayList<>(numChannels);
+      for (int i = 0; i < numChannels; i++) {
+        Channel channel = bootstrap.bind(_port).sync().channel();
+        channels.add(channel);
+        synchronized (_channels) {
+          _channels.add(channel);
+        }
+      }
+      _channel = channels.get(0);
+      LOGGER.info("Server bounded to port :" + _port + " with " + numChannels
+          + " listening sockets, Waiting for closing");
+      for (Channel channel : channels) {
+        channel.closeFuture().sync();
+      }
       LOGGER.info("Server boss channel is closed. Gracefully shutting down the server netty threads and pipelines");
     } catch (Exception e) {
       LOGGER.error("Got exception in the main server thread. Stopping !!", e);
@@ -174,7 +206,7 @@ public abstract class NettyServer implements Runnable {
     LOGGER.info("Shutdown requested in the server !!");
     if (null != _channel) {
       LOGGER.info("Closing the server channel");
-      _channel.close();
+      closeChannels();
       _bossGroup.shutdownGracefully();
       _workerGroup.shutdownGracefully();
     }
@@ -190,13 +222,16 @@ public abstract class NettyServer implements Runnable {
       LOGGER.info("Closing the server channel");
       long endTime = System.currentTimeMillis() + millis;
 
-      ChannelFuture channelFuture = _channel.close();
+      List<ChannelFuture> channelFutures = closeChannels();
       Future<?> bossGroupFuture = _bossGroup.shutdownGracefully();
       Future<?> workerGroupFuture = _workerGroup.shutdownGracefully();
 
-      long currentTime = System.currentTimeMillis();
-      if (endTime > currentTime) {
-        channelFuture.awaitUninterruptibly(endTime - currentTime, TimeUnit.MILLISECONDS);
+      long currentTime;
+      for (ChannelFuture channelFuture : channelFutures) {
+        currentTime = System.currentTimeMillis();
+        if (endTime > currentTime) {
+          channelFuture.awaitUninterruptibly(endTime - currentTime, TimeUnit.MILLISECONDS);
+        }
       }
 
       currentTime = System.currentTimeMillis();
@@ -209,12 +244,24 @@ public abstract class NettyServer implements Runnable {
         workerGroupFuture.awaitUninterruptibly(endTime - currentTime, TimeUnit.MILLISECONDS);
       }
 
-      Preconditions.checkState(channelFuture.isDone(), "Unable to close the channel in %s ms", millis);
+      for (ChannelFuture channelFuture : channelFutures) {
+        Preconditions.checkState(channelFuture.isDone(), "Unable to close the channel in %s ms", millis);
+      }
       Preconditions.checkState(bossGroupFuture.isDone(), "Unable to shutdown the boss group in %s ms", millis);
       Preconditions.checkState(workerGroupFuture.isDone(), "Unable to shutdown the worker group in %s ms", millis);
     }
   }
 
+  private List<ChannelFuture> closeChannels() {
+    synchronized (_channels) {
+      List<ChannelFuture> channelFutures = new ArrayList<>(_channels.size());
+      for (Channel channel : _channels) {
+        channelFutures.add(channel.close());
+      }
+      return channelFutures;
+    }
+  }
+
   /**
    * Request and Response have the following format
    *
@@ -259,8 +306,10 @@ public abstract class NettyServer implements Runnable {
         void sendResponse(@Nonnull final byte[] result) {
           requestProcessingLatency.stop();
 
-          // Send Response
-          final ByteBuf responseBuf = Unpooled.wrappedBuffer(result);
+          // Send Response from a pooled direct buffer, so that the transport does not need to copy it again into a
+          // direct buffer when writing it to the socket
+          final ByteBuf responseBuf =
+              requestChannelHandlerContext.alloc().directBuffer(result.length).writeBytes(result);
           final TimerContext responseSendLatency = MetricsHelper.startTimer();
           ChannelFuture f = requestChannelHandlerContext.writeAndFlush(responseBuf);
           f.addListener(new ChannelFutureListener() {
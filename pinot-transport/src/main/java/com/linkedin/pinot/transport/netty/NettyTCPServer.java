@@ -16,10 +16,11 @@
 package com.linkedin.pinot.transport.netty;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 
@@ -51,11 +52,23 @@ public class NettyTCPServer extends NettyServer {
     super(port, handlerFactory, registry, defaultLargeQueryLatencyMs, numThreadsForBossGroup, numThreadsForWorkerGroup);
   }
 
+  public NettyTCPServer(int port, RequestHandlerFactory handlerFactory, AggregatedMetricsRegistry registry,
+      long defaultLargeQueryLatencyMs, int numThreadsForBossGroup, int numThreadsForWorkerGroup, boolean enableEpoll) {
+    super(port, handlerFactory, registry, defaultLargeQueryLatencyMs, numThreadsForBossGroup, numThreadsForWorkerGroup,
+        enableEpoll);
+  }
+
   @Override
   protected ServerBootstrap getServerBootstrap() {
     ServerBootstrap b = new ServerBootstrap();
-    b.group(_bossGroup, _workerGroup).channel(NioServerSocketChannel.class).childHandler(createChannelInitializer())
-        .option(ChannelOption.SO_BACKLOG, 128).childOption(ChannelOption.SO_KEEPALIVE, true);
+    b.group(_bossGroup, _workerGroup).channel(NettyUtils.getServerChannelClass(_bossGroup))
+        .childHandler(createChannelInitializer())
+        .option(ChannelOption.SO_BACKLOG, 128).childOption(ChannelOption.SO_KEEPALIVE, true)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    if (NettyUtils.isEpoll(_bossGroup)) {
+      // Allow multiple listening sockets on the same port, one per accept loop
+      b.option(EpollChannelOption.SO_REUSEPORT, true);
+    }
     return b;
   }
 
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2014-2018 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Utility methods to pick the Netty transport (native epoll or NIO) for the event loop groups and the channels.
+ * <p>The native epoll transport is only available on Linux, and the NIO transport is used as the fallback when it is
+ * not available. The channel classes must match the type of the event loop group they are registered to.
+ */
+public class NettyUtils {
+  private NettyUtils() {
+  }
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NettyUtils.class);
+
+  /**
+   * Returns {@code true} if the native epoll transport is available on this host.
+   */
+  public static boolean isEpollAvailable() {
+    return Epoll.isAvailable();
+  }
+
+  /**
+   * Creates an event loop group with the given number of threads (0 for the Netty default of twice the number of
+   * cores), using the native epoll transport if enabled and available.
+   */
+  public static EventLoopGroup createEventLoopGroup(int numThreads, boolean enableEpoll) {
+    if (enableEpoll) {
+      if (Epoll.isAvailable()) {
+        return new EpollEventLoopGroup(numThreads);
+      }
+      LOGGER.warn("Native epoll transport is not available, falling back to NIO transport",
+          Epoll.unavailabilityCause());
+    }
+    return new NioEventLoopGroup(numThreads);
+  }
+
+  /**
+   * Returns the actual number of threads of the event loop group created by
+   * {@link #createEventLoopGroup(int, boolean)}, which resolves 0 to the Netty default.
+   */
+  public static int getNumThreads(EventLoopGroup eventLoopGroup) {
+    return ((MultithreadEventLoopGroup) eventLoopGroup).executorCount();
+  }
+
+  public static boolean isEpoll(EventLoopGroup eventLoopGroup) {
+    return eventLoopGroup instanceof EpollEventLoopGroup;
+  }
+
+  public static Class<? extends ServerChannel> getServerChannelClass(EventLoopGroup eventLoopGroup) {
+    return isEpoll(eventLoopGroup) ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+  }
+
+  public static Class<? extends SocketChannel> getSocketChannelClass(EventLoopGroup eventLoopGroup) {
+    return isEpoll(eventLoopGroup) ? EpollSocketChannel.class : NioSocketChannel.class;
+  }
+}